@@ -0,0 +1,75 @@
+package com.study.form.benchmark;
+
+import com.study.form.Constants;
+import com.study.form.model.Config;
+import com.study.form.util.ActionLogger;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * ActionLogger.logAction の1イベントあたりの時間のベンチマーク
+ *
+ * <p>logAction は非公開のため、そのまま委譲する {@code logChoiceSelection} 経由で測ります。
+ * 非同期モードはキューが溢れたときに呼び出し側を待たせる（{@code block}）設定で測るため、
+ * 書き込みスレッドの処理速度も結果に含まれます。ログの標準出力へのエコーは測定中は破棄します。</p>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 2)
+@Fork(3)
+public class ActionLoggerBenchmark {
+
+    @Param({Constants.LOG_WRITE_MODE_BUFFERED, Constants.LOG_WRITE_MODE_DIRECT})
+    public String writeMode;
+
+    @Param({"true", "false"})
+    public boolean asyncLogging;
+
+    private File dir;
+    private ActionLogger logger;
+    private PrintStream originalOut;
+
+    @Setup(Level.Trial)
+    public void setup() throws IOException {
+        originalOut = System.out;
+        System.setOut(new PrintStream(OutputStream.nullOutputStream()));
+
+        Config config = new Config();
+        config.setLogWriteMode(writeMode);
+        config.setAsyncLogging(asyncLogging);
+        config.setLogBackpressurePolicy(Constants.LOG_BACKPRESSURE_BLOCK);
+        dir = BenchmarkData.createTempDirectory();
+        logger = new ActionLogger(new File(dir, "action_log.csv").getPath(), config);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        logger.close();
+        System.setOut(originalOut);
+        BenchmarkData.deleteRecursively(dir);
+    }
+
+    @Benchmark
+    public void logAction() {
+        logger.logChoiceSelection(3, "選択肢2, \"そう思う\"");
+    }
+}
@@ -0,0 +1,139 @@
+package com.study.form.benchmark;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * 保存済みのベースラインと今回のJMH結果（{@code -rf json}）を比較して、悪化したベンチマークを報告
+ *
+ * <p>ベンチマークとパラメータの組ごとに、主要な測定値（時間またはスループット）と
+ * {@code -prof gc} の1操作あたりの割り当て量（{@code gc.alloc.rate.norm}）を比較します。
+ * しきい値を超えて悪化したものがあれば終了コード1で終了します。</p>
+ * <pre>
+ * java -cp target/benchmarks.jar com.study.form.benchmark.BaselineComparator \
+ *     src/jmh/baseline/baseline-1.0.0.json target/jmh-result.json [しきい値%（既定: 10）]
+ * </pre>
+ */
+public class BaselineComparator {
+    private static final String ALLOC_METRIC = "gc.alloc.rate.norm";
+    private static final double DEFAULT_THRESHOLD_PERCENT = 10.0;
+
+    /**
+     * 1件の測定結果
+     */
+    private static final class Result {
+        final double score;
+        final String unit;
+        final boolean higherIsBetter;
+        final Double allocBytes;
+
+        Result(double score, String unit, boolean higherIsBetter, Double allocBytes) {
+            this.score = score;
+            this.unit = unit;
+            this.higherIsBetter = higherIsBetter;
+            this.allocBytes = allocBytes;
+        }
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length < 2) {
+            System.err.println("使い方: BaselineComparator <ベースライン.json> <今回の結果.json> [しきい値%]");
+            System.exit(2);
+        }
+        double threshold = args.length > 2 ? Double.parseDouble(args[2]) : DEFAULT_THRESHOLD_PERCENT;
+        Map<String, Result> baseline = load(args[0]);
+        Map<String, Result> current = load(args[1]);
+
+        int regressions = 0;
+        for (Map.Entry<String, Result> entry : current.entrySet()) {
+            Result before = baseline.get(entry.getKey());
+            Result after = entry.getValue();
+            if (before == null) {
+                System.out.printf("  新規   %s: %.3f %s%n", entry.getKey(), after.score, after.unit);
+                continue;
+            }
+
+            double change = percentChange(before.score, after.score);
+            boolean worse = after.higherIsBetter ? change < -threshold : change > threshold;
+            String line = String.format("%s: %.3f -> %.3f %s (%+.1f%%)",
+                entry.getKey(), before.score, after.score, after.unit, change);
+
+            if (before.allocBytes != null && after.allocBytes != null) {
+                double allocChange = percentChange(before.allocBytes, after.allocBytes);
+                // 割り当てが数バイトしかない場合の揺れは悪化とみなさない
+                boolean allocWorse = allocChange > threshold && after.allocBytes - before.allocBytes > 64;
+                line += String.format(", 割り当て %.0f -> %.0f B/op (%+.1f%%)",
+                    before.allocBytes, after.allocBytes, allocChange);
+                worse |= allocWorse;
+            }
+
+            System.out.println((worse ? "! 悪化 " : "  ") + line);
+            if (worse) regressions++;
+        }
+
+        for (String key : baseline.keySet()) {
+            if (!current.containsKey(key)) {
+                System.out.println("  未実行 " + key);
+            }
+        }
+
+        System.out.printf("%d件中 %d件がしきい値 %.1f%% を超えて悪化しました%n", current.size(), regressions, threshold);
+        System.exit(regressions > 0 ? 1 : 0);
+    }
+
+    private static double percentChange(double before, double after) {
+        if (before == 0) return after == 0 ? 0 : 100;
+        return (after - before) / before * 100;
+    }
+
+    /**
+     * JMHのJSON結果を「ベンチマーク名 [パラメータ]」をキーとして読み込みます。
+     */
+    private static Map<String, Result> load(String path) throws IOException {
+        Map<String, Result> results = new LinkedHashMap<>();
+        try (Reader reader = Files.newBufferedReader(Paths.get(path), StandardCharsets.UTF_8)) {
+            JsonArray runs = JsonParser.parseReader(reader).getAsJsonArray();
+            for (JsonElement element : runs) {
+                JsonObject run = element.getAsJsonObject();
+                String name = run.get("benchmark").getAsString();
+                name = name.substring(name.lastIndexOf('.', name.lastIndexOf('.') - 1) + 1);
+
+                Map<String, String> params = new TreeMap<>();
+                if (run.has("params")) {
+                    for (Map.Entry<String, JsonElement> param : run.getAsJsonObject("params").entrySet()) {
+                        params.put(param.getKey(), param.getValue().getAsString());
+                    }
+                }
+                String key = params.isEmpty() ? name : name + " " + params;
+
+                JsonObject primary = run.getAsJsonObject("primaryMetric");
+                boolean higherIsBetter = "thrpt".equals(run.get("mode").getAsString());
+                results.put(key, new Result(primary.get("score").getAsDouble(),
+                    primary.get("scoreUnit").getAsString(), higherIsBetter, allocBytes(run)));
+            }
+        }
+        return results;
+    }
+
+    private static Double allocBytes(JsonObject run) {
+        if (!run.has("secondaryMetrics")) return null;
+        for (Map.Entry<String, JsonElement> metric : run.getAsJsonObject("secondaryMetrics").entrySet()) {
+            // JMHのバージョンによっては名前の先頭に「·」が付く
+            if (metric.getKey().endsWith(ALLOC_METRIC)) {
+                return metric.getValue().getAsJsonObject().get("score").getAsDouble();
+            }
+        }
+        return null;
+    }
+}
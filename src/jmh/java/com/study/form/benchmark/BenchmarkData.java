@@ -0,0 +1,67 @@
+package com.study.form.benchmark;
+
+import com.study.form.model.Question;
+import com.study.form.model.Response;
+import com.study.form.model.SurveyDictionary;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Stream;
+
+/**
+ * ベンチマーク用のデータ生成
+ */
+final class BenchmarkData {
+
+    private BenchmarkData() {
+    }
+
+    /**
+     * 回答者20問ずつの回答を生成します。3件に1件の理由は引用符とカンマを含みます。
+     */
+    static List<Response> responses(int count) {
+        List<Response> responses = new ArrayList<>(count);
+        SurveyDictionary dictionary = new SurveyDictionary();
+        for (int i = 0; i < count; i++) {
+            int questionNum = i % 20 + 1;
+            responses.add(new Response(
+                dictionary,
+                "r" + (i / 20),
+                "2024-01-01 10:00:00." + String.format("%03d", i % 1000),
+                1_000_000L * i,
+                questionNum,
+                "質問" + questionNum + "について、最も当てはまるものを選んでください",
+                "選択肢" + (i % 4 + 1),
+                i % 3 == 0 ? "理由に \"引用\" と,カンマを含む\n複数行の回答" : "特になし"));
+        }
+        return responses;
+    }
+
+    /**
+     * 選択肢4つの質問を生成します。
+     */
+    static List<Question> questions(int count) {
+        List<Question> questions = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            questions.add(new Question("質問" + (i + 1) + "：次のうち、最も当てはまるものを選んでください",
+                new ArrayList<>(Arrays.asList("とてもそう思う", "そう思う", "そう思わない", "まったくそう思わない"))));
+        }
+        return questions;
+    }
+
+    static File createTempDirectory() throws IOException {
+        return Files.createTempDirectory("form-bench").toFile();
+    }
+
+    static void deleteRecursively(File dir) throws IOException {
+        if (dir == null || !dir.exists()) return;
+        try (Stream<java.nio.file.Path> paths = Files.walk(dir.toPath())) {
+            paths.sorted(Comparator.reverseOrder()).map(java.nio.file.Path::toFile).forEach(File::delete);
+        }
+    }
+}
@@ -0,0 +1,69 @@
+package com.study.form.benchmark;
+
+import com.study.form.util.ConfigManager;
+import com.study.form.util.ConfigService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * ConfigManager のファイル名テンプレート展開（formatFilename）のベンチマーク
+ *
+ * <p>formatFilename は非公開のため、ログファイルのパスを作る {@code getLogPath} 経由で測ります。
+ * {@code {sequence}} を含む形式は設定ファイルへの書き込みを伴うため対象外です。
+ * 設定は一時ディレクトリの {@code config.json} から読み込み、実際の {@code data/config.json} には触れません。</p>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 2)
+@Fork(3)
+public class ConfigManagerBenchmark {
+
+    @Param({
+        "action_log_{respondent_id}_{date}.csv",
+        "{participant_id}_{participant_name}_{date}_{time}_{respondent_id}.csv"
+    })
+    public String format;
+
+    private File dir;
+    private ConfigManager configManager;
+
+    @Setup(Level.Trial)
+    public void setup() throws IOException {
+        dir = BenchmarkData.createTempDirectory();
+        configManager = new ConfigManager(new ConfigService(new File(dir, "config.json")));
+        configManager.update(config -> {
+            config.setLogNameFormat(format);
+            config.setParticipantId("P001");
+            config.setParticipantName("被験者");
+        });
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        // 予約された書き込みを済ませてから消す
+        configManager.saveConfig();
+        BenchmarkData.deleteRecursively(dir);
+    }
+
+    @Benchmark
+    public String formatFilename() {
+        return configManager.getLogPath("a1b2c3d4");
+    }
+}
@@ -0,0 +1,164 @@
+package com.study.form.benchmark;
+
+import com.study.form.util.CsvReader;
+import com.study.form.util.CsvWriter;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * CSVの読み書きのベンチマーク - 従来の parseCSVLine / escapeCSV と CsvReader / CsvWriter の比較
+ *
+ * <p>回答CSVと同じ列構成の行を生成して読み書きします。割り当て量も比較する場合は
+ * {@code -prof gc} を付けて実行してください。</p>
+ * <pre>
+ * mvn -Pbenchmark package
+ * java -jar target/benchmarks.jar CsvBenchmark -prof gc
+ * </pre>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 2)
+@Fork(3)
+public class CsvBenchmark {
+
+    @Param({"10", "1000", "100000", "1000000"})
+    public int rows;
+
+    private String csvText;
+    private String[][] records;
+
+    @Setup(Level.Trial)
+    public void setup() throws IOException {
+        records = new String[rows][];
+        for (int i = 0; i < rows; i++) {
+            records[i] = new String[] {
+                "r" + (i % 500),
+                "2024-01-01 10:00:00." + String.format("%03d", i % 1000),
+                Long.toString(1_000_000L * i),
+                Integer.toString(i % 20 + 1),
+                "質問" + (i % 20 + 1) + "について、最も当てはまるものを選んでください",
+                "選択肢" + (i % 4 + 1),
+                i % 3 == 0 ? "理由に \"引用\" と,カンマを含む回答" : "特になし"
+            };
+        }
+        StringWriter out = new StringWriter();
+        CsvWriter csv = new CsvWriter(out);
+        for (String[] record : records) {
+            for (String field : record) {
+                csv.field(field);
+            }
+            csv.endRecord();
+        }
+        csvText = out.toString();
+    }
+
+    @Benchmark
+    public void parseLegacy(Blackhole bh) throws IOException {
+        BufferedReader reader = new BufferedReader(new StringReader(csvText));
+        String line;
+        while ((line = reader.readLine()) != null) {
+            for (String field : LegacyCsv.parseCSVLine(line)) {
+                bh.consume(field.length());
+            }
+        }
+    }
+
+    @Benchmark
+    public void parseCsvReader(Blackhole bh) throws IOException {
+        CsvReader csv = new CsvReader(new StringReader(csvText));
+        while (csv.next()) {
+            for (int i = 0; i < csv.getFieldCount(); i++) {
+                bh.consume(csv.getField(i).length());
+            }
+        }
+    }
+
+    @Benchmark
+    public void writeLegacy() {
+        PrintWriter writer = new PrintWriter(Writer.nullWriter());
+        for (String[] record : records) {
+            StringBuilder row = new StringBuilder();
+            for (int i = 0; i < record.length; i++) {
+                if (i > 0) row.append(",");
+                row.append(LegacyCsv.escapeCSV(record[i]));
+            }
+            writer.println(row.toString());
+        }
+        writer.flush();
+    }
+
+    @Benchmark
+    public void writeCsvWriter() throws IOException {
+        CsvWriter csv = new CsvWriter(Writer.nullWriter());
+        for (String[] record : records) {
+            for (String field : record) {
+                csv.field(field);
+            }
+            csv.endRecord();
+        }
+        csv.flush();
+    }
+
+    /**
+     * 比較用に残した従来の FileUtils の実装
+     */
+    static final class LegacyCsv {
+        static String escapeCSV(String text) {
+            if (text == null) return "";
+            if (text.contains(",") || text.contains("\"") || text.contains("\n")) {
+                return "\"" + text.replace("\"", "\"\"") + "\"";
+            }
+            return text;
+        }
+
+        static String[] parseCSVLine(String line) {
+            List<String> result = new ArrayList<>();
+            StringBuilder current = new StringBuilder();
+            boolean inQuotes = false;
+
+            for (int i = 0; i < line.length(); i++) {
+                char c = line.charAt(i);
+
+                if (c == '"') {
+                    if (inQuotes && i + 1 < line.length() && line.charAt(i + 1) == '"') {
+                        current.append('"');
+                        i++;
+                    } else {
+                        inQuotes = !inQuotes;
+                    }
+                } else if (c == ',' && !inQuotes) {
+                    result.add(current.toString());
+                    current.setLength(0);
+                } else {
+                    current.append(c);
+                }
+            }
+
+            result.add(current.toString());
+            return result.toArray(new String[0]);
+        }
+    }
+}
@@ -0,0 +1,92 @@
+package com.study.form.benchmark;
+
+import com.study.form.model.Question;
+import com.study.form.model.Response;
+import com.study.form.util.FileUtils;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * FileUtils の回答保存・質問読み込みのベンチマーク
+ *
+ * <p>回答の保存は追記モードのため、各呼び出しの前に保存先を削除して毎回新規ファイルに書き込みます。</p>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 2)
+@Fork(3)
+public class FileUtilsBenchmark {
+
+    @Param({"10", "1000", "100000", "1000000"})
+    public int rows;
+
+    private File dir;
+    private List<Response> responses;
+    private String responseCsv;
+    private String responseJson;
+    private String questionsCsv;
+    private String questionsJson;
+
+    @Setup(Level.Trial)
+    public void setup() throws IOException {
+        dir = BenchmarkData.createTempDirectory();
+        responses = BenchmarkData.responses(rows);
+        responseCsv = new File(dir, "responses.csv").getPath();
+        responseJson = new File(dir, "responses.json").getPath();
+
+        List<Question> questions = BenchmarkData.questions(rows);
+        questionsCsv = new File(dir, "questions.csv").getPath();
+        questionsJson = new File(dir, "questions.json").getPath();
+        FileUtils.saveQuestionsToCSV(questions, questionsCsv);
+        FileUtils.saveQuestionsToJSON(questions, questionsJson);
+    }
+
+    @Setup(Level.Invocation)
+    public void deleteOutputs() {
+        new File(responseCsv).delete();
+        new File(responseJson).delete();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        BenchmarkData.deleteRecursively(dir);
+    }
+
+    @Benchmark
+    public boolean saveResponseToCSV() {
+        return FileUtils.saveResponseToCSV(responses, responseCsv);
+    }
+
+    @Benchmark
+    public boolean saveResponseToJSON() {
+        return FileUtils.saveResponseToJSON(responses, responseJson);
+    }
+
+    @Benchmark
+    public List<Question> loadQuestionsFromCSV() {
+        return FileUtils.loadQuestionsFromCSV(questionsCsv);
+    }
+
+    @Benchmark
+    public List<Question> loadQuestionsFromJSON() {
+        return FileUtils.loadQuestionsFromJSON(questionsJson);
+    }
+}
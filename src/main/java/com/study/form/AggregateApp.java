@@ -0,0 +1,162 @@
+package com.study.form;
+
+import com.study.form.util.ConfigManager;
+import com.study.form.util.IncrementalAggregator;
+import com.study.form.util.Log;
+import com.study.form.util.ResponseAggregator;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 集計コマンド - 回答ディレクトリとログディレクトリのファイルをまとめて集計する（画面なし）
+ *
+ * <pre>
+ * java -cp form-app-1.0.0.jar com.study.form.AggregateApp [オプション]
+ *   --responses &lt;ディレクトリ&gt;  回答ディレクトリ（既定: data/responses）
+ *   --logs &lt;ディレクトリ&gt;       ログディレクトリ（既定: data/logs）
+ *   --output &lt;パス&gt;             重複を除いた回答の出力先（省略時は集計結果の表示のみ）
+ *   --format &lt;形式&gt;             csv, ndjson, binary（省略時は出力先の拡張子で判断）
+ *   --threads &lt;数&gt;              並列に読み込むスレッド数（既定: CPUコア数）
+ *   --incremental                前回から増えた・変わったファイルだけを取り込んで集計値を更新する
+ *   --state &lt;ディレクトリ&gt;      差分集計の記録の置き場所（既定: data/aggregate）
+ * </pre>
+ */
+public class AggregateApp {
+
+    public static void main(String[] args) {
+        String responsesDir = Constants.RESPONSES_DIR;
+        String logsDir = Constants.LOGS_DIR;
+        String output = null;
+        String format = null;
+        int threads = Runtime.getRuntime().availableProcessors();
+        boolean incremental = false;
+        String stateDir = Constants.AGGREGATE_STATE_DIR;
+
+        try {
+            for (int i = 0; i < args.length; i++) {
+                switch (args[i]) {
+                    case "--responses":
+                        responsesDir = args[++i];
+                        break;
+                    case "--logs":
+                        logsDir = args[++i];
+                        break;
+                    case "--output":
+                        output = args[++i];
+                        break;
+                    case "--format":
+                        format = args[++i];
+                        break;
+                    case "--threads":
+                        threads = Integer.parseInt(args[++i]);
+                        break;
+                    case "--incremental":
+                        incremental = true;
+                        break;
+                    case "--state":
+                        stateDir = args[++i];
+                        break;
+                    default:
+                        throw new IllegalArgumentException("不明なオプションです: " + args[i]);
+                }
+            }
+            if (incremental && output != null) {
+                throw new IllegalArgumentException("--incremental と --output は同時に指定できません");
+            }
+        } catch (ArrayIndexOutOfBoundsException | IllegalArgumentException e) {
+            System.err.println(e instanceof ArrayIndexOutOfBoundsException ? "オプションの値がありません" : e.getMessage());
+            System.err.println("使い方: AggregateApp [--responses ディレクトリ] [--logs ディレクトリ] "
+                + "[--output パス] [--format csv|ndjson|binary] [--threads 数] [--incremental [--state ディレクトリ]]");
+            System.exit(2);
+        }
+        Log.configure(new ConfigManager().getConfig().getLogLevel());
+
+        List<File> responseFiles = ResponseAggregator.listResponseFiles(new File(responsesDir));
+        List<File> logFiles = ResponseAggregator.listLogFiles(new File(logsDir));
+
+        if (incremental) {
+            aggregateIncrementally(new File(stateDir), threads, responseFiles, logFiles);
+            return;
+        }
+
+        long start = System.nanoTime();
+        ResponseAggregator.Result result = new ResponseAggregator(threads).aggregate(responseFiles, logFiles);
+        long elapsedMillis = (System.nanoTime() - start) / 1_000_000;
+
+        System.out.println("回答ファイル: " + responseFiles.size() + "件, ログファイル: " + logFiles.size()
+            + "件 (" + threads + "スレッド, " + elapsedMillis + "ms)");
+        System.out.println("回答: " + result.getResponses().size() + "件（重複 " + result.getDuplicateCount() + "件を除外）");
+        if (!result.getFailedFiles().isEmpty()) {
+            System.out.println("読み込みに失敗したファイル: " + result.getFailedFiles().size() + "件");
+        }
+
+        printTallies(result.getQuestionTexts(), result.getChoiceDistributions(), result.getActionCounts());
+
+        if (output != null) {
+            String outputFormat = format != null ? format : formatFor(output);
+            try {
+                ResponseAggregator.write(result.getResponses(), new File(output), outputFormat);
+                System.out.println("重複を除いた回答を書き出しました: " + output + " (" + outputFormat + ")");
+            } catch (IOException | IllegalArgumentException e) {
+                System.err.println("集計結果の書き出しに失敗しました: " + e.getMessage());
+                System.exit(1);
+            }
+        }
+    }
+
+    private static void aggregateIncrementally(File stateDir, int threads, List<File> responseFiles, List<File> logFiles) {
+        IncrementalAggregator aggregator = new IncrementalAggregator(stateDir, threads);
+        try {
+            long start = System.nanoTime();
+            IncrementalAggregator.Summary summary = aggregator.update(responseFiles, logFiles);
+            long elapsedMillis = (System.nanoTime() - start) / 1_000_000;
+
+            System.out.println("ファイル: " + summary.getChanges() + " (" + threads + "スレッド, " + elapsedMillis + "ms)");
+            System.out.println("読み込んだ行: " + summary.getIngestedRows() + "件, 回答の増減: "
+                + summary.getAddedResponses() + "件, 累計の回答: " + aggregator.getResponseCount() + "件");
+            if (!summary.getFailedFiles().isEmpty()) {
+                System.out.println("読み込みに失敗したファイル（次回再試行）: " + summary.getFailedFiles().size() + "件");
+            }
+            printTallies(aggregator.getQuestionTexts(), aggregator.getChoiceDistributions(), aggregator.getActionCounts());
+        } catch (IOException e) {
+            System.err.println("差分集計に失敗しました: " + e.getMessage());
+            e.printStackTrace();
+            System.exit(1);
+        }
+    }
+
+    private static void printTallies(Map<Integer, String> questionTexts, Map<Integer, Map<String, Long>> distributions,
+                                     Map<String, Long> actionCounts) {
+        for (Map.Entry<Integer, Map<String, Long>> entry : distributions.entrySet()) {
+            System.out.println("問題" + entry.getKey() + ": " + preview(questionTexts.get(entry.getKey())));
+            for (Map.Entry<String, Long> count : entry.getValue().entrySet()) {
+                String label = count.getKey() != null ? count.getKey() : "(未選択)";
+                System.out.println("  " + label + ": " + count.getValue());
+            }
+        }
+        if (!actionCounts.isEmpty()) {
+            System.out.println("アクション:");
+            for (Map.Entry<String, Long> count : actionCounts.entrySet()) {
+                System.out.println("  " + count.getKey() + ": " + count.getValue());
+            }
+        }
+    }
+
+    // 拡張子から出力形式を決める（拡張子がなければ回答ストアのディレクトリ）
+    private static String formatFor(String output) {
+        if (output.endsWith(".csv")) return "csv";
+        if (output.endsWith(Constants.JSON_LINES_EXTENSION) || output.endsWith(".ndjson")) return "ndjson";
+        return "binary";
+    }
+
+    private static String preview(String text) {
+        if (text == null) return "";
+        String singleLine = text.replace('\n', ' ');
+        return singleLine.length() > Constants.LOG_TEXT_PREVIEW_LENGTH
+            ? singleLine.substring(0, Constants.LOG_TEXT_PREVIEW_LENGTH) + "..."
+            : singleLine;
+    }
+}
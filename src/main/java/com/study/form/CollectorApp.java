@@ -0,0 +1,66 @@
+package com.study.form;
+
+import com.study.form.util.ConfigManager;
+import com.study.form.util.Log;
+import com.study.form.util.Metrics;
+import com.study.form.util.SessionCollector;
+
+import java.io.File;
+import java.io.IOException;
+
+/**
+ * 集約先コマンド - 複数台運用で各端末から完了セッションをHTTPで受け取る（画面なし）
+ *
+ * <p>受け取ったセッションは集約先フォルダの {@code responses} と {@code logs} に保存されるため、
+ * {@code AggregateApp --responses <フォルダ>/responses --logs <フォルダ>/logs} でそのまま集計できます。
+ * 各端末の設定では集約先に {@code http://<ホスト>:<ポート>/sessions} を指定します。
+ * 受け取った件数は同じポートの {@code /metrics} で確認できます。</p>
+ * <pre>
+ * java -cp form-app-1.0.0.jar com.study.form.CollectorApp [オプション]
+ *   --port &lt;数&gt;                待ち受けるポート（既定: 8765）
+ *   --host &lt;ホスト&gt;            待ち受けるアドレス（既定: 127.0.0.1、他の端末から受け取る場合は 0.0.0.0）
+ *   --dir &lt;ディレクトリ&gt;       集約先フォルダ（既定: data/collected）
+ * </pre>
+ */
+public class CollectorApp {
+
+    public static void main(String[] args) {
+        int port = Constants.COLLECTOR_DEFAULT_PORT;
+        String host = "127.0.0.1";
+        String dir = Constants.COLLECTED_DIR;
+
+        try {
+            for (int i = 0; i < args.length; i++) {
+                switch (args[i]) {
+                    case "--port":
+                        port = Integer.parseInt(args[++i]);
+                        break;
+                    case "--host":
+                        host = args[++i];
+                        break;
+                    case "--dir":
+                        dir = args[++i];
+                        break;
+                    default:
+                        throw new IllegalArgumentException("不明なオプションです: " + args[i]);
+                }
+            }
+        } catch (ArrayIndexOutOfBoundsException | IllegalArgumentException e) {
+            System.err.println(e instanceof ArrayIndexOutOfBoundsException ? "オプションの値がありません" : e.getMessage());
+            System.err.println("使い方: CollectorApp [--port 数] [--host ホスト] [--dir ディレクトリ]");
+            System.exit(2);
+        }
+        Log.configure(new ConfigManager().getConfig().getLogLevel());
+
+        try {
+            // 受け取り件数などは同じサーバーの /metrics で確認できる
+            Metrics.registry().attach(new SessionCollector(new File(dir)).serve(host, port));
+        } catch (IOException e) {
+            System.err.println("集約先を起動できませんでした: " + e.getMessage());
+            System.exit(1);
+            return;
+        }
+        System.out.println("集約先を起動しました: http://" + host + ":" + port + Constants.COLLECTOR_PATH
+            + " → " + new File(dir).getAbsolutePath());
+    }
+}
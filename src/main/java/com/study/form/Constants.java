@@ -15,10 +15,19 @@ public class Constants {
     public static final String QUESTIONS_DIR = DATA_DIR + File.separator + "questions";
     public static final String RESPONSES_DIR = DATA_DIR + File.separator + "responses";
     public static final String LOGS_DIR = DATA_DIR + File.separator + "logs";
+    public static final String JOURNAL_DIR = DATA_DIR + File.separator + "journal";
+    public static final String RESPONSE_STORE_DIR = DATA_DIR + File.separator + "store";
+    public static final String AGGREGATE_STATE_DIR = DATA_DIR + File.separator + "aggregate";
+    public static final String REPLAY_DIR = DATA_DIR + File.separator + "replay";
+    public static final String OUTBOX_DIR = DATA_DIR + File.separator + "outbox";
+    public static final String COLLECTED_DIR = DATA_DIR + File.separator + "collected";
     
     // ファイル名
     public static final String CONFIG_FILE = "config.json";
+    public static final int CONFIG_SAVE_DELAY_MS = 500;    // 設定の変更をまとめて書き込むまでの待ち時間
+    public static final int CONFIG_RELOAD_DELAY_MS = 200;  // 外部で編集された設定を読み直すまでの待ち時間
     public static final String DEFAULT_QUESTIONS_FILE = "sample_questions.csv";
+    public static final String SEQUENCE_FILE = DATA_DIR + File.separator + "sequences.properties";  // {sequence} の払い出し状況
     
     // ウィンドウサイズ
     public static final Dimension MAIN_WINDOW_SIZE = new Dimension(900, 700);
@@ -92,6 +101,60 @@ public class Constants {
     public static final String LOG_ACTION_QUESTION_MOVE = "問題移動";
     public static final String LOG_ACTION_SUBMIT = "アンケート送信";
     public static final int LOG_TEXT_PREVIEW_LENGTH = 100;
+    public static final String LOG_WRITE_MODE_BUFFERED = "buffered";  // セッション中ファイルを開いたまま書き込み
+    public static final String LOG_WRITE_MODE_DIRECT = "direct";      // イベントごとに開いて閉じる（従来動作）
+    public static final int LOG_WRITER_BUFFER_SIZE = 8192;
+    public static final String LOG_BACKPRESSURE_BLOCK = "block";              // キューが空くまで待つ
+    public static final String LOG_BACKPRESSURE_DROP_OLDEST = "drop_oldest";  // 最も古いイベントを破棄
+    public static final String LOG_BACKPRESSURE_SPILL = "spill";              // 容量を超えてメモリに溜める
+    public static final int LOG_DRAIN_BATCH_SIZE = 256;
+    public static final String LOG_OUTPUT_FORMAT_CSV = "csv";        // 1行目にヘッダーを持つCSV
+    public static final String LOG_OUTPUT_FORMAT_NDJSON = "ndjson";  // 1行に1イベントのJSON（拡張子 .jsonl）
+
+    // キーストローク記録
+    public static final String KEYSTROKE_FILE_EXTENSION = ".keys";
+    public static final byte[] KEYSTROKE_FILE_MAGIC = {'F', 'R', 'L', 'K'};
+    public static final int KEYSTROKE_FILE_VERSION = 1;
+
+    // 描画遅延の計測
+    public static final String LATENCY_FILE_SUFFIX = "_latency.csv";  // アクションログの隣に置く計測結果
+    public static final int LATENCY_WARN_MS = 50;  // 入力から描画までの99パーセンタイルがこれを超えたら警告
+
+    // 回答ジャーナル（クラッシュ時の復旧用）
+    public static final String JOURNAL_FILE_EXTENSION = ".wal";
+    public static final String JOURNAL_ABANDONED_EXTENSION = ".abandoned";
+    public static final String JOURNAL_SYNC_ALWAYS = "always";  // 追記ごとに同期してディスクへ書き込み
+    public static final String JOURNAL_SYNC_ASYNC = "async";    // 追記後にバックグラウンドでディスクへ同期
+    public static final String JOURNAL_SYNC_NONE = "none";      // OSに任せる（JVMクラッシュには耐える）
+
+    // 質問の遅延読み込み
+    public static final int QUESTION_CACHE_SIZE = 256;      // デコード済みの質問を保持する件数
+    public static final int QUESTION_PREFETCH_COUNT = 5;    // 表示中の問題の次から先読みする件数
+    public static final int QUESTION_RENDER_AHEAD = 3;      // 表示中の問題の次から問題文の文書を先に作っておく件数
+    public static final String QUESTION_INDEX_EXTENSION = ".idx";  // 質問ファイルの隣に置く索引ファイル
+    public static final byte[] QUESTION_INDEX_MAGIC = {'F', 'R', 'L', 'I'};
+    public static final int QUESTION_INDEX_VERSION = 1;
+
+    // 回答ファイルのレイアウト
+    public static final String RESPONSE_LAYOUT_COMPACT = "compact";    // 行には質問・選択肢の番号、文字列は辞書に1回だけ
+    public static final String RESPONSE_LAYOUT_EXPANDED = "expanded";  // 行ごとに質問文・選択肢を書く（従来の形式）
+    public static final String RESPONSE_DICTIONARY_SUFFIX = "_dictionary.csv";
+    public static final String JSON_LINES_EXTENSION = ".jsonl";  // 1行に1件の回答を書くJSON
+
+    // 複数台運用（完了したセッションを集約先へ送る）
+    public static final String SHIPMENT_FILE_EXTENSION = ".shipment.json";
+    public static final String COLLECTOR_PATH = "/sessions";
+    public static final int COLLECTOR_DEFAULT_PORT = 8765;
+    public static final int SHIPPER_MAX_BACKOFF_MS = 5 * 60 * 1000;  // 送信失敗時の再試行間隔の上限
+    public static final int SHIPPER_TIMEOUT_MS = 10_000;
+
+    // メトリクス
+    public static final String METRICS_PATH = "/metrics";  // Prometheusのテキスト形式で返すパス
+    public static final String METRICS_HOST = "127.0.0.1";  // 同じPCからだけ参照できるようにする
+
+    // 連番（{sequence}）の払い出し
+    public static final String SEQUENCE_LOG = "log";
+    public static final String SEQUENCE_RESPONSE = "response";
     
     // メッセージ
     public static final String MSG_NO_QUESTIONS = "保存する問題がありません";
@@ -0,0 +1,169 @@
+package com.study.form;
+
+import com.study.form.util.ConfigManager;
+import com.study.form.util.Log;
+import com.study.form.util.Metrics;
+import com.study.form.util.ResponseAggregator;
+import com.study.form.util.StationShipper;
+import com.study.form.util.SurveyReplayer;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 再生コマンド - 画面なしで多数のアンケートセッションを同時に実行し、スループットと所要時間を表示する
+ *
+ * <p>ログの書き込みモード・出力形式・自動保存などは config.json の設定を使います。</p>
+ * <pre>
+ * java -cp form-app-1.0.0.jar com.study.form.ReplayApp [オプション]
+ *   --questions &lt;パス&gt;           問題ファイル（既定: 設定の問題ファイル）
+ *   --sessions &lt;数&gt;             セッション数（既定: 100、アクションログの再生ではログの数）
+ *   --threads &lt;数&gt;              同時に実行するセッション数（既定: CPUコア数）
+ *   --output &lt;ディレクトリ&gt;     ログ・回答の出力先（既定: data/replay）
+ *   --seed &lt;数&gt;                 ランダム生成の乱数の種（既定: 1）
+ *   --think-ms &lt;ミリ秒&gt;          操作の間の待ち時間（既定: 0）
+ *   --replay-logs &lt;パス&gt;         記録されたアクションログ（ファイルまたはディレクトリ）の操作を再生する
+ *   --collector &lt;URLまたはフォルダ&gt;  完了したセッションを集約先へ送る（送信待ちは出力先の outbox）
+ * </pre>
+ */
+public class ReplayApp {
+
+    public static void main(String[] args) {
+        ConfigManager configManager = new ConfigManager();
+        Log.configure(configManager.getConfig().getLogLevel());
+        // 再生中だけメトリクスを公開する（終了時に停止）
+        HttpServer metricsServer = Metrics.start(configManager.getConfig());
+        String questionsPath = configManager.getQuestionsPath();
+        Integer sessions = null;
+        int threads = Runtime.getRuntime().availableProcessors();
+        String output = Constants.REPLAY_DIR;
+        long seed = 1;
+        long thinkMillis = 0;
+        String replayLogs = null;
+        String collector = null;
+
+        try {
+            for (int i = 0; i < args.length; i++) {
+                switch (args[i]) {
+                    case "--questions":
+                        questionsPath = args[++i];
+                        break;
+                    case "--sessions":
+                        sessions = Integer.parseInt(args[++i]);
+                        break;
+                    case "--threads":
+                        threads = Integer.parseInt(args[++i]);
+                        break;
+                    case "--output":
+                        output = args[++i];
+                        break;
+                    case "--seed":
+                        seed = Long.parseLong(args[++i]);
+                        break;
+                    case "--think-ms":
+                        thinkMillis = Long.parseLong(args[++i]);
+                        break;
+                    case "--replay-logs":
+                        replayLogs = args[++i];
+                        break;
+                    case "--collector":
+                        collector = args[++i];
+                        break;
+                    default:
+                        throw new IllegalArgumentException("不明なオプションです: " + args[i]);
+                }
+            }
+            if (questionsPath == null) {
+                throw new IllegalArgumentException("問題ファイルを指定してください");
+            }
+        } catch (ArrayIndexOutOfBoundsException | IllegalArgumentException e) {
+            System.err.println(e instanceof ArrayIndexOutOfBoundsException ? "オプションの値がありません" : e.getMessage());
+            System.err.println("使い方: ReplayApp [--questions パス] [--sessions 数] [--threads 数] [--output ディレクトリ] "
+                + "[--seed 数] [--think-ms ミリ秒] [--replay-logs パス] [--collector URLまたはフォルダ]");
+            System.exit(2);
+        }
+
+        SurveyReplayer.Result result;
+        StationShipper shipper = null;
+        try {
+            SurveyReplayer replayer = new SurveyReplayer(questionsPath, configManager.getConfig(), new File(output));
+            if (collector != null) {
+                shipper = new StationShipper(new File(output, "outbox"),
+                    StationShipper.resolveStationId(configManager.getConfig()), collector,
+                    configManager.getConfig().getShipperIntervalMs(), configManager.getConfig().getShipperBatchSize());
+                replayer.setShipper(shipper);
+            }
+            if (replayLogs != null) {
+                File logs = new File(replayLogs);
+                List<File> logFiles = logs.isDirectory()
+                    ? ResponseAggregator.listLogFiles(logs)
+                    : Collections.singletonList(logs);
+                result = replayer.replayLogs(logFiles, sessions != null ? sessions : logFiles.size(), threads, thinkMillis);
+            } else {
+                result = replayer.replayRandom(sessions != null ? sessions : 100, threads, seed, thinkMillis);
+            }
+        } catch (IOException e) {
+            System.err.println("再生に失敗しました: " + e.getMessage());
+            System.exit(1);
+            return;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            System.err.println("再生が中断されました");
+            System.exit(1);
+            return;
+        }
+
+        printResult(result, threads, output);
+        if (shipper != null) {
+            drainShipper(shipper);
+        }
+        if (metricsServer != null) {
+            metricsServer.stop(0);
+        }
+    }
+
+    // 送信待ちがなくなるまで待ってから送信結果を表示する
+    private static void drainShipper(StationShipper shipper) {
+        long start = System.nanoTime();
+        boolean drained;
+        try {
+            drained = shipper.drain(Constants.SHIPPER_TIMEOUT_MS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            drained = false;
+        } finally {
+            shipper.close();
+        }
+        System.out.println("集約先への送信: " + shipper.getShippedCount() + "件（送信待ち "
+            + shipper.getPendingCount() + "件, " + (System.nanoTime() - start) / 1_000_000 + "ms） → "
+            + shipper.getTarget() + (drained ? "" : "（期限までに送り切れませんでした）"));
+    }
+
+    private static void printResult(SurveyReplayer.Result result, int threads, String output) {
+        System.out.println("セッション: " + result.getSessions() + "件（完了 " + result.getCompletedSessions()
+            + "件, 失敗 " + result.getFailedSessions() + "件） (" + threads + "スレッド, "
+            + result.getElapsedNanos() / 1_000_000 + "ms)");
+        System.out.println(String.format("スループット: %.1fセッション/秒, %.1f回答/秒, %.1f操作/秒",
+            result.perSecond(result.getSessions()), result.perSecond(result.getResponses()),
+            result.perSecond(result.getOperations())));
+        if (result.getRejectedOperations() > 0) {
+            System.out.println("受け付けられなかった操作: " + result.getRejectedOperations() + "件");
+        }
+        System.out.println("所要時間（ミリ秒）: 件数 / p50 / p90 / p99 / 最大");
+        for (Map.Entry<String, SurveyReplayer.Latency> entry : result.getLatencies().entrySet()) {
+            SurveyReplayer.Latency latency = entry.getValue();
+            System.out.println(String.format("  %s: %d / %.3f / %.3f / %.3f / %.3f", entry.getKey(), latency.getCount(),
+                millis(latency.percentileNanos(50)), millis(latency.percentileNanos(90)),
+                millis(latency.percentileNanos(99)), millis(latency.maxNanos())));
+        }
+        System.out.println("出力先: " + output);
+    }
+
+    private static double millis(long nanos) {
+        return nanos / 1_000_000.0;
+    }
+}
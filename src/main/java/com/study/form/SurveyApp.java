@@ -3,6 +3,9 @@ package com.study.form;
 import com.formdev.flatlaf.FlatLightLaf;
 import com.study.form.ui.MainWindow;
 import com.study.form.util.ConfigManager;
+import com.study.form.util.Log;
+import com.study.form.util.Metrics;
+import com.study.form.util.StationShipper;
 
 import javax.swing.SwingUtilities;
 import javax.swing.UIManager;
@@ -17,9 +20,13 @@ public class SurveyApp {
         // 初期セットアップ
         setupDirectories();
         
+        // 設定はここで1回だけ読み込み、以降は全画面で共有する
+        ConfigManager configManager = new ConfigManager();
+        Log.configure(configManager.getConfig().getLogLevel());
+        Metrics.start(configManager.getConfig());
+
         // Look and Feelを設定
         try {
-            ConfigManager configManager = new ConfigManager();
             String appearanceMode = configManager.getConfig().getAppearanceMode();
             
             // FlatLafテーマを適用
@@ -32,11 +39,17 @@ public class SurveyApp {
         } catch (Exception e) {
             e.printStackTrace();
         }
+
+        // 複数台運用では完了セッションの送信を開始（前回の送り残しも送る）
+        StationShipper.start(configManager.getConfig());
         
         // GUIを起動
         SwingUtilities.invokeLater(() -> {
             MainWindow mainWindow = new MainWindow();
             mainWindow.setVisible(true);
+
+            // 前回中断されたアンケートがあれば再開・保存を確認
+            mainWindow.recoverUnfinishedSessions();
         });
     }
     
@@ -46,6 +59,7 @@ public class SurveyApp {
         createDirectoryIfNotExists(Constants.QUESTIONS_DIR);
         createDirectoryIfNotExists(Constants.RESPONSES_DIR);
         createDirectoryIfNotExists(Constants.LOGS_DIR);
+        createDirectoryIfNotExists(Constants.JOURNAL_DIR);
         
         // サンプル問題ファイルを作成
         createSampleQuestionsFile();
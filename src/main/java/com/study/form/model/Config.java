@@ -27,6 +27,26 @@ public class Config {
     private int responseSequence;
     private boolean useHtmlRendering;
     private int contentWidth;
+    private String logWriteMode;
+    private int logFlushIntervalMs;
+    private int logFlushBatchSize;
+    private boolean asyncLogging;
+    private int logQueueCapacity;
+    private String logBackpressurePolicy;
+    private boolean keystrokeLogging;
+    private String journalSyncPolicy;
+    private boolean responseStoreEnabled;
+    private String responseLayout;
+    private boolean jsonPrettyPrint;
+    private String logOutputFormat;
+    private String stationId;
+    private String collectorTarget;
+    private int shipperIntervalMs;
+    private int shipperBatchSize;
+    private int sequenceBlockSize;
+    private boolean latencyMetrics;
+    private String logLevel;
+    private int metricsPort;
 
     private String buttonCreateQuestions;
     private String buttonTakeSurvey;
@@ -48,6 +68,25 @@ public class Config {
         this.responseSequence = 1;
         this.useHtmlRendering = false;
         this.contentWidth = 720;
+        this.logWriteMode = "buffered";
+        this.logFlushIntervalMs = 1000;
+        this.logFlushBatchSize = 50;
+        this.asyncLogging = true;
+        this.logQueueCapacity = 1024;
+        this.logBackpressurePolicy = "spill";
+        this.keystrokeLogging = true;
+        this.journalSyncPolicy = "async";
+        this.responseStoreEnabled = true;
+        this.responseLayout = "compact";
+        this.jsonPrettyPrint = true;
+        this.logOutputFormat = "csv";
+        this.collectorTarget = "";
+        this.shipperIntervalMs = 5000;
+        this.shipperBatchSize = 20;
+        this.sequenceBlockSize = 100;
+        this.latencyMetrics = false;
+        this.logLevel = "INFO";
+        this.metricsPort = 0;
         this.buttonCreateQuestions = "問題を作成";
         this.buttonTakeSurvey = "アンケートに回答";
         this.buttonNextQuestion = "次の問題へ";
@@ -216,6 +255,166 @@ public class Config {
         this.contentWidth = contentWidth;
     }
 
+    public String getLogWriteMode() {
+        return logWriteMode != null ? logWriteMode : "buffered";
+    }
+
+    public void setLogWriteMode(String logWriteMode) {
+        this.logWriteMode = logWriteMode;
+    }
+
+    public int getLogFlushIntervalMs() {
+        return logFlushIntervalMs > 0 ? logFlushIntervalMs : 1000;
+    }
+
+    public void setLogFlushIntervalMs(int logFlushIntervalMs) {
+        this.logFlushIntervalMs = logFlushIntervalMs;
+    }
+
+    public int getLogFlushBatchSize() {
+        return logFlushBatchSize > 0 ? logFlushBatchSize : 50;
+    }
+
+    public void setLogFlushBatchSize(int logFlushBatchSize) {
+        this.logFlushBatchSize = logFlushBatchSize;
+    }
+
+    public boolean isAsyncLogging() {
+        return asyncLogging;
+    }
+
+    public void setAsyncLogging(boolean asyncLogging) {
+        this.asyncLogging = asyncLogging;
+    }
+
+    public int getLogQueueCapacity() {
+        return logQueueCapacity > 0 ? logQueueCapacity : 1024;
+    }
+
+    public void setLogQueueCapacity(int logQueueCapacity) {
+        this.logQueueCapacity = logQueueCapacity;
+    }
+
+    public String getLogBackpressurePolicy() {
+        return logBackpressurePolicy != null ? logBackpressurePolicy : "spill";
+    }
+
+    public void setLogBackpressurePolicy(String logBackpressurePolicy) {
+        this.logBackpressurePolicy = logBackpressurePolicy;
+    }
+
+    public boolean isKeystrokeLogging() {
+        return keystrokeLogging;
+    }
+
+    public void setKeystrokeLogging(boolean keystrokeLogging) {
+        this.keystrokeLogging = keystrokeLogging;
+    }
+
+    public String getJournalSyncPolicy() {
+        return journalSyncPolicy != null ? journalSyncPolicy : "async";
+    }
+
+    public void setJournalSyncPolicy(String journalSyncPolicy) {
+        this.journalSyncPolicy = journalSyncPolicy;
+    }
+
+    public boolean isResponseStoreEnabled() {
+        return responseStoreEnabled;
+    }
+
+    public void setResponseStoreEnabled(boolean responseStoreEnabled) {
+        this.responseStoreEnabled = responseStoreEnabled;
+    }
+
+    public String getResponseLayout() {
+        return responseLayout != null ? responseLayout : "compact";
+    }
+
+    public void setResponseLayout(String responseLayout) {
+        this.responseLayout = responseLayout;
+    }
+
+    public boolean isJsonPrettyPrint() {
+        return jsonPrettyPrint;
+    }
+
+    public void setJsonPrettyPrint(boolean jsonPrettyPrint) {
+        this.jsonPrettyPrint = jsonPrettyPrint;
+    }
+
+    public String getLogOutputFormat() {
+        return logOutputFormat != null ? logOutputFormat : "csv";
+    }
+
+    public void setLogOutputFormat(String logOutputFormat) {
+        this.logOutputFormat = logOutputFormat;
+    }
+
+    public String getStationId() {
+        return stationId;
+    }
+
+    public void setStationId(String stationId) {
+        this.stationId = stationId;
+    }
+
+    public String getCollectorTarget() {
+        return collectorTarget != null ? collectorTarget : "";
+    }
+
+    public void setCollectorTarget(String collectorTarget) {
+        this.collectorTarget = collectorTarget;
+    }
+
+    public int getShipperIntervalMs() {
+        return shipperIntervalMs;
+    }
+
+    public void setShipperIntervalMs(int shipperIntervalMs) {
+        this.shipperIntervalMs = shipperIntervalMs;
+    }
+
+    public int getShipperBatchSize() {
+        return shipperBatchSize;
+    }
+
+    public void setShipperBatchSize(int shipperBatchSize) {
+        this.shipperBatchSize = shipperBatchSize;
+    }
+
+    public int getSequenceBlockSize() {
+        return sequenceBlockSize;
+    }
+
+    public void setSequenceBlockSize(int sequenceBlockSize) {
+        this.sequenceBlockSize = sequenceBlockSize;
+    }
+
+    public boolean isLatencyMetrics() {
+        return latencyMetrics;
+    }
+
+    public void setLatencyMetrics(boolean latencyMetrics) {
+        this.latencyMetrics = latencyMetrics;
+    }
+
+    public String getLogLevel() {
+        return logLevel;
+    }
+
+    public void setLogLevel(String logLevel) {
+        this.logLevel = logLevel;
+    }
+
+    public int getMetricsPort() {
+        return metricsPort;
+    }
+
+    public void setMetricsPort(int metricsPort) {
+        this.metricsPort = metricsPort;
+    }
+
     public String getButtonCreateQuestions() {
         return buttonCreateQuestions != null ? buttonCreateQuestions : "問題を作成";
     }
@@ -264,6 +463,17 @@ public class Config {
         this.buttonFinishSurvey = buttonFinishSurvey;
     }
 
+    /**
+     * 同じ内容の設定を新しく作ります（共有している設定を書き換えずに変更するため）。
+     *
+     * @return 設定のコピー
+     */
+    public Config copy() {
+        Config copy = new Config();
+        copy.fromMap(toMap());
+        return copy;
+    }
+
     public Map<String, Object> toMap() {
         Map<String, Object> map = new HashMap<>();
         map.put("questions_directory", questionsDirectory);
@@ -286,6 +496,26 @@ public class Config {
         map.put("response_sequence", responseSequence);
         map.put("use_html_rendering", useHtmlRendering);
         map.put("content_width", contentWidth);
+        map.put("log_write_mode", logWriteMode);
+        map.put("log_flush_interval_ms", logFlushIntervalMs);
+        map.put("log_flush_batch_size", logFlushBatchSize);
+        map.put("async_logging", asyncLogging);
+        map.put("log_queue_capacity", logQueueCapacity);
+        map.put("log_backpressure_policy", logBackpressurePolicy);
+        map.put("keystroke_logging", keystrokeLogging);
+        map.put("journal_sync_policy", journalSyncPolicy);
+        map.put("response_store_enabled", responseStoreEnabled);
+        map.put("response_layout", responseLayout);
+        map.put("json_pretty_print", jsonPrettyPrint);
+        map.put("log_output_format", logOutputFormat);
+        map.put("station_id", stationId);
+        map.put("collector_target", collectorTarget);
+        map.put("shipper_interval_ms", shipperIntervalMs);
+        map.put("shipper_batch_size", shipperBatchSize);
+        map.put("sequence_block_size", sequenceBlockSize);
+        map.put("latency_metrics", latencyMetrics);
+        map.put("log_level", logLevel);
+        map.put("metrics_port", metricsPort);
         map.put("button_create_questions", buttonCreateQuestions);
         map.put("button_take_survey", buttonTakeSurvey);
         map.put("button_next_question", buttonNextQuestion);
@@ -329,6 +559,39 @@ public class Config {
         this.logSequence = getInt(map, "log_sequence", this.logSequence);
         this.responseSequence = getInt(map, "response_sequence", this.responseSequence);
         this.contentWidth = getInt(map, "content_width", this.contentWidth);
+        this.logFlushIntervalMs = getInt(map, "log_flush_interval_ms", this.logFlushIntervalMs);
+        this.logFlushBatchSize = getInt(map, "log_flush_batch_size", this.logFlushBatchSize);
+        this.logQueueCapacity = getInt(map, "log_queue_capacity", this.logQueueCapacity);
+        this.shipperIntervalMs = getInt(map, "shipper_interval_ms", this.shipperIntervalMs);
+        this.shipperBatchSize = getInt(map, "shipper_batch_size", this.shipperBatchSize);
+        this.sequenceBlockSize = getInt(map, "sequence_block_size", this.sequenceBlockSize);
+        this.metricsPort = getInt(map, "metrics_port", this.metricsPort);
+        if (map.containsKey("log_write_mode"))
+            this.logWriteMode = (String) map.get("log_write_mode");
+        if (map.containsKey("async_logging"))
+            this.asyncLogging = (Boolean) map.get("async_logging");
+        if (map.containsKey("log_backpressure_policy"))
+            this.logBackpressurePolicy = (String) map.get("log_backpressure_policy");
+        if (map.containsKey("keystroke_logging"))
+            this.keystrokeLogging = (Boolean) map.get("keystroke_logging");
+        if (map.containsKey("journal_sync_policy"))
+            this.journalSyncPolicy = (String) map.get("journal_sync_policy");
+        if (map.containsKey("response_store_enabled"))
+            this.responseStoreEnabled = (Boolean) map.get("response_store_enabled");
+        if (map.containsKey("response_layout"))
+            this.responseLayout = (String) map.get("response_layout");
+        if (map.containsKey("json_pretty_print"))
+            this.jsonPrettyPrint = (Boolean) map.get("json_pretty_print");
+        if (map.containsKey("log_output_format"))
+            this.logOutputFormat = (String) map.get("log_output_format");
+        if (map.containsKey("station_id"))
+            this.stationId = (String) map.get("station_id");
+        if (map.containsKey("collector_target"))
+            this.collectorTarget = (String) map.get("collector_target");
+        if (map.containsKey("latency_metrics"))
+            this.latencyMetrics = (Boolean) map.get("latency_metrics");
+        if (map.containsKey("log_level"))
+            this.logLevel = (String) map.get("log_level");
         if (map.containsKey("use_html_rendering"))
             this.useHtmlRendering = (Boolean) map.get("use_html_rendering");
         if (map.containsKey("button_create_questions"))
@@ -1,72 +1,138 @@
 package com.study.form.model;
 
+import com.google.gson.annotations.JsonAdapter;
+import com.study.form.util.StringDictionary;
+
 /**
  * 回答データモデル
+ *
+ * <p>質問文と選択肢は {@link SurveyDictionary} の番号で保持します。同じ質問文・選択肢を
+ * 回答ごとに持たないため、回答数が多くてもメモリ使用量は文字列の種類数に比例します。
+ * JSONでは従来どおり質問文・選択肢を展開した形で読み書きします。
+ * 辞書を指定せずに作った回答は、その回答だけの辞書を使います。</p>
  */
+@JsonAdapter(ResponseJsonAdapter.class)
 public class Response {
     private String respondentId;
     private String timestamp;
+    private long elapsedNanos;
     private int questionNum;
-    private String questionText;
-    private String selectedChoice;
+    private int questionTextId = StringDictionary.NULL_ID;
+    private int choiceId = StringDictionary.NULL_ID;
     private String reason;
-    
-    public Response() {}
-    
+    private final SurveyDictionary dictionary;
+
+    public Response() {
+        this(new SurveyDictionary());
+    }
+
+    public Response(SurveyDictionary dictionary) {
+        this.dictionary = dictionary;
+    }
+
     public Response(String respondentId, String timestamp, int questionNum,
                     String questionText, String selectedChoice, String reason) {
+        this(new SurveyDictionary(), respondentId, timestamp, 0, questionNum,
+             questionText, selectedChoice, reason);
+    }
+
+    public Response(SurveyDictionary dictionary, String respondentId, String timestamp,
+                    long elapsedNanos, int questionNum,
+                    String questionText, String selectedChoice, String reason) {
+        this.dictionary = dictionary;
         this.respondentId = respondentId;
         this.timestamp = timestamp;
+        this.elapsedNanos = elapsedNanos;
         this.questionNum = questionNum;
-        this.questionText = questionText;
-        this.selectedChoice = selectedChoice;
+        this.questionTextId = dictionary.internQuestion(questionText);
+        this.choiceId = dictionary.internChoice(selectedChoice);
         this.reason = reason;
     }
-    
+
     public String getRespondentId() {
         return respondentId;
     }
-    
+
     public void setRespondentId(String respondentId) {
         this.respondentId = respondentId;
     }
-    
+
     public String getTimestamp() {
         return timestamp;
     }
-    
+
     public void setTimestamp(String timestamp) {
         this.timestamp = timestamp;
     }
-    
+
+    /**
+     * セッション開始から回答確定までの経過ナノ秒を返します。
+     *
+     * @return 経過ナノ秒
+     */
+    public long getElapsedNanos() {
+        return elapsedNanos;
+    }
+
+    public void setElapsedNanos(long elapsedNanos) {
+        this.elapsedNanos = elapsedNanos;
+    }
+
     public int getQuestionNum() {
         return questionNum;
     }
-    
+
     public void setQuestionNum(int questionNum) {
         this.questionNum = questionNum;
     }
-    
+
     public String getQuestionText() {
-        return questionText;
+        return dictionary.getQuestion(questionTextId);
     }
-    
+
     public void setQuestionText(String questionText) {
-        this.questionText = questionText;
+        this.questionTextId = dictionary.internQuestion(questionText);
+    }
+
+    /**
+     * 質問文の辞書番号を返します。
+     *
+     * @return 番号（質問文がない場合は {@link StringDictionary#NULL_ID}）
+     */
+    public int getQuestionTextId() {
+        return questionTextId;
     }
-    
+
     public String getSelectedChoice() {
-        return selectedChoice;
+        return dictionary.getChoice(choiceId);
     }
-    
+
     public void setSelectedChoice(String selectedChoice) {
-        this.selectedChoice = selectedChoice;
+        this.choiceId = dictionary.internChoice(selectedChoice);
+    }
+
+    /**
+     * 選択肢の辞書番号を返します。
+     *
+     * @return 番号（未選択の場合は {@link StringDictionary#NULL_ID}）
+     */
+    public int getChoiceId() {
+        return choiceId;
     }
-    
+
+    /**
+     * 番号の対応先となる辞書を返します。
+     *
+     * @return 辞書
+     */
+    public SurveyDictionary getDictionary() {
+        return dictionary;
+    }
+
     public String getReason() {
         return reason;
     }
-    
+
     public void setReason(String reason) {
         this.reason = reason;
     }
@@ -0,0 +1,118 @@
+package com.study.form.model;
+
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import com.google.gson.JsonParseException;
+import com.google.gson.TypeAdapter;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
+
+import java.io.IOException;
+
+/**
+ * 回答のJSON変換 - 辞書の番号ではなく質問文・選択肢を展開した従来の形で読み書きする
+ *
+ * <p>ジャーナルや展開形式のJSONファイルとの互換性のためのものです。
+ * 読み込んだ回答は作成時に指定した辞書を使います。読み込む場合は {@link #gson(SurveyDictionary)}
+ * で読み込み（ファイルや送信単位）ごとの辞書を指定したGsonを使ってください。
+ * {@link Response} の注釈から使われる辞書なしのものは書き出し専用です。</p>
+ */
+public class ResponseJsonAdapter extends TypeAdapter<Response> {
+    private final SurveyDictionary dictionary;
+
+    ResponseJsonAdapter() {
+        this(null);
+    }
+
+    /**
+     * @param dictionary 読み込んだ回答が使う辞書
+     */
+    public ResponseJsonAdapter(SurveyDictionary dictionary) {
+        this.dictionary = dictionary;
+    }
+
+    /**
+     * 読み込んだ回答に指定した辞書を使うGsonを返します。
+     *
+     * @param dictionary 辞書
+     * @return Gson
+     */
+    public static Gson gson(SurveyDictionary dictionary) {
+        return new GsonBuilder()
+            .registerTypeAdapter(Response.class, new ResponseJsonAdapter(dictionary))
+            .create();
+    }
+
+    @Override
+    public void write(JsonWriter out, Response response) throws IOException {
+        if (response == null) {
+            out.nullValue();
+            return;
+        }
+        out.beginObject();
+        writeString(out, "respondentId", response.getRespondentId());
+        writeString(out, "timestamp", response.getTimestamp());
+        out.name("elapsedNanos").value(response.getElapsedNanos());
+        out.name("questionNum").value(response.getQuestionNum());
+        writeString(out, "questionText", response.getQuestionText());
+        writeString(out, "selectedChoice", response.getSelectedChoice());
+        writeString(out, "reason", response.getReason());
+        out.endObject();
+    }
+
+    // 既定のGsonと同じくnullの項目は出力しない
+    private static void writeString(JsonWriter out, String name, String value) throws IOException {
+        if (value != null) {
+            out.name(name).value(value);
+        }
+    }
+
+    @Override
+    public Response read(JsonReader in) throws IOException {
+        if (in.peek() == JsonToken.NULL) {
+            in.nextNull();
+            return null;
+        }
+        if (dictionary == null) {
+            throw new JsonParseException("回答を読み込むには辞書を指定してください");
+        }
+        Response response = new Response(dictionary);
+        in.beginObject();
+        while (in.hasNext()) {
+            String name = in.nextName();
+            if (in.peek() == JsonToken.NULL) {
+                in.nextNull();
+                continue;
+            }
+            switch (name) {
+                case "respondentId":
+                    response.setRespondentId(in.nextString());
+                    break;
+                case "timestamp":
+                    response.setTimestamp(in.nextString());
+                    break;
+                case "elapsedNanos":
+                    response.setElapsedNanos(in.nextLong());
+                    break;
+                case "questionNum":
+                    response.setQuestionNum(in.nextInt());
+                    break;
+                case "questionText":
+                    response.setQuestionText(in.nextString());
+                    break;
+                case "selectedChoice":
+                    response.setSelectedChoice(in.nextString());
+                    break;
+                case "reason":
+                    response.setReason(in.nextString());
+                    break;
+                default:
+                    in.skipValue();
+                    break;
+            }
+        }
+        in.endObject();
+        return response;
+    }
+}
@@ -0,0 +1,49 @@
+package com.study.form.model;
+
+import com.study.form.util.StringDictionary;
+
+/**
+ * アンケートの文字列辞書 - 質問文と選択肢にそれぞれ番号を割り当てる
+ *
+ * <p>回答（{@link Response}）は質問文・選択肢を番号で保持し、文字列はこの辞書に1回だけ持ちます。
+ * 1回のアンケート（セッション）や、1つのファイル・送信単位の読み込みごとに1つ作る想定です。
+ * プロセス全体で共有する辞書は持たないため、使い終わった辞書は回答とともに解放されます。</p>
+ */
+public class SurveyDictionary {
+    private final StringDictionary questions = new StringDictionary();
+    private final StringDictionary choices = new StringDictionary();
+
+    public int internQuestion(String questionText) {
+        return questions.intern(questionText);
+    }
+
+    public int internChoice(String choice) {
+        return choices.intern(choice);
+    }
+
+    public String getQuestion(int id) {
+        return questions.get(id);
+    }
+
+    public String getChoice(int id) {
+        return choices.get(id);
+    }
+
+    /**
+     * 質問文の辞書を返します。
+     *
+     * @return 質問文の辞書
+     */
+    public StringDictionary getQuestions() {
+        return questions;
+    }
+
+    /**
+     * 選択肢の辞書を返します。
+     *
+     * @return 選択肢の辞書
+     */
+    public StringDictionary getChoices() {
+        return choices;
+    }
+}
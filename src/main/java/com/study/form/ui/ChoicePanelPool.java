@@ -0,0 +1,190 @@
+package com.study.form.ui;
+
+import com.study.form.Constants;
+
+import javax.swing.*;
+import javax.swing.border.EmptyBorder;
+import java.awt.*;
+import java.awt.event.MouseAdapter;
+import java.awt.event.MouseEvent;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 選択肢ボタンの使い回し
+ *
+ * <p>選択肢のパネルは最初に {@link Constants#MAX_CHOICES} 個作っておき、問題が変わるたびに
+ * 文字列だけを差し替えます。フォント・カーソル・マウスのリスナーは全ボタンで共有し、
+ * クリックされたボタンは位置（0始まり）で {@link Handler} に渡します。
+ * 選択肢の数が変わった場合だけ末尾のパネルを付け外しします。</p>
+ */
+final class ChoicePanelPool {
+    private static final Font CHOICE_FONT = new Font(Constants.FONT_FAMILY, Font.PLAIN, Constants.FONT_SIZE_BUTTON);
+    private static final Cursor HAND_CURSOR = Cursor.getPredefinedCursor(Cursor.HAND_CURSOR);
+    private static final Color HOVER_COLOR = Constants.COLOR_DEFAULT.darker();
+    private static final String INDEX_PROPERTY = "choiceIndex";
+
+    /**
+     * 選択肢のクリックを受け取る処理
+     */
+    interface Handler {
+        void choiceClicked(int index);
+    }
+
+    /**
+     * 1つの選択肢の表示部品
+     */
+    private static final class Cell {
+        final JPanel panel = new JPanel(new BorderLayout());
+        final JTextArea textArea = new JTextArea();
+    }
+
+    private final JPanel container;
+    private final List<Cell> cells = new ArrayList<>();
+    private final MouseAdapter listener;
+    private List<String> boundChoices = new ArrayList<>();
+    private int boundCount = 0;
+    private int selectedIndex = -1;
+
+    /**
+     * @param container 選択肢を並べるパネル
+     * @param handler クリックを受け取る処理
+     */
+    ChoicePanelPool(JPanel container, Handler handler) {
+        this.container = container;
+        this.listener = new MouseAdapter() {
+            @Override
+            public void mouseClicked(MouseEvent e) {
+                int index = indexOf(e);
+                if (index >= 0) {
+                    handler.choiceClicked(index);
+                }
+            }
+
+            @Override
+            public void mouseEntered(MouseEvent e) {
+                int index = indexOf(e);
+                if (index >= 0 && index != selectedIndex) {
+                    paint(cells.get(index), HOVER_COLOR, Constants.COLOR_DEFAULT_TEXT);
+                }
+            }
+
+            @Override
+            public void mouseExited(MouseEvent e) {
+                int index = indexOf(e);
+                if (index >= 0) {
+                    paintState(index);
+                }
+            }
+        };
+        for (int i = 0; i < Constants.MAX_CHOICES; i++) {
+            cells.add(createCell(i));
+        }
+    }
+
+    private Cell createCell(int index) {
+        // JTextAreaで確実にテキスト折り返し
+        Cell cell = new Cell();
+        JTextArea textArea = cell.textArea;
+        textArea.setFont(CHOICE_FONT);
+        textArea.setLineWrap(true);
+        textArea.setWrapStyleWord(true);
+        textArea.setEditable(false);
+        textArea.setFocusable(false);
+        textArea.setBorder(new EmptyBorder(12, 16, 12, 16));
+        textArea.setCursor(HAND_CURSOR);
+        textArea.putClientProperty(INDEX_PROPERTY, index);
+        textArea.addMouseListener(listener);
+
+        // シンプルなパネル（枠なし、角丸風の見た目）
+        cell.panel.add(textArea, BorderLayout.CENTER);
+        cell.panel.setCursor(HAND_CURSOR);
+        cell.panel.putClientProperty(INDEX_PROPERTY, index);
+        cell.panel.addMouseListener(listener);
+        paint(cell, Constants.COLOR_DEFAULT, Constants.COLOR_DEFAULT_TEXT);
+        return cell;
+    }
+
+    private static int indexOf(MouseEvent e) {
+        Object index = ((JComponent) e.getComponent()).getClientProperty(INDEX_PROPERTY);
+        return index instanceof Integer ? (Integer) index : -1;
+    }
+
+    /**
+     * 選択肢を差し替えます。選択は解除されます。
+     *
+     * @param choices 選択肢
+     */
+    void bind(List<String> choices) {
+        int count = choices.size();
+        // 問題ファイルによっては上限より多い場合があるので足りない分だけ作る
+        while (cells.size() < count) {
+            cells.add(createCell(cells.size()));
+        }
+        boundChoices = choices;
+        selectedIndex = -1;
+        for (int i = 0; i < count; i++) {
+            Cell cell = cells.get(i);
+            String text = choices.get(i);
+            if (!text.equals(cell.textArea.getText())) {
+                cell.textArea.setText(text);
+            }
+            paint(cell, Constants.COLOR_DEFAULT, Constants.COLOR_DEFAULT_TEXT);
+        }
+
+        // 数が変わった場合だけ末尾のパネルを付け外しする
+        for (int i = boundCount; i < count; i++) {
+            container.add(cells.get(i).panel);
+        }
+        for (int i = boundCount - 1; i >= count; i--) {
+            container.remove(cells.get(i).panel);
+        }
+        if (count != boundCount) {
+            boundCount = count;
+            container.revalidate();
+            container.repaint();
+        }
+    }
+
+    /**
+     * 選択した選択肢の色を変えます。
+     *
+     * @param index 選択した位置（-1の場合は選択なし）
+     */
+    void setSelected(int index) {
+        int previous = selectedIndex;
+        selectedIndex = index;
+        if (previous >= 0 && previous < boundCount) {
+            paintState(previous);
+        }
+        if (index >= 0 && index < boundCount) {
+            paintState(index);
+        }
+    }
+
+    /**
+     * 表示中の問題の選択肢を返します。
+     *
+     * <p>使い回している部品の表示内容ではなく、{@link #bind(List)} で渡された問題の選択肢から返します。</p>
+     *
+     * @param index 位置
+     * @return 選択肢
+     */
+    String getChoice(int index) {
+        return boundChoices.get(index);
+    }
+
+    private void paintState(int index) {
+        if (index == selectedIndex) {
+            paint(cells.get(index), Constants.COLOR_SELECTED, Constants.COLOR_SELECTED_TEXT);
+        } else {
+            paint(cells.get(index), Constants.COLOR_DEFAULT, Constants.COLOR_DEFAULT_TEXT);
+        }
+    }
+
+    private static void paint(Cell cell, Color background, Color foreground) {
+        cell.panel.setBackground(background);
+        cell.textArea.setBackground(background);
+        cell.textArea.setForeground(foreground);
+    }
+}
@@ -0,0 +1,300 @@
+package com.study.form.ui;
+
+import com.study.form.Constants;
+import com.study.form.util.LatencyHistogram;
+import com.study.form.util.Metrics;
+
+import javax.swing.RepaintManager;
+import java.awt.EventQueue;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * 描画遅延の計測 - 回答画面の操作ごとに入力から描画までの時間を記録する
+ *
+ * <p>操作の処理（{@code selectChoice} など）を {@link #enter()} と {@link #exit(String, long)} で囲むと、
+ * 次の3つを処理の名前ごとのヒストグラム（マイクロ秒）に記録します。</p>
+ * <ul>
+ *   <li>待ち時間: 入力イベントの発生から処理が始まるまで（イベントディスパッチスレッドの混み具合）</li>
+ *   <li>処理時間: 処理の開始から終了まで</li>
+ *   <li>描画まで: 処理の終了から、その後の最初の再描画が終わるまで</li>
+ * </ul>
+ * <p>待ち時間はイベントの時刻（{@link EventQueue#getMostRecentEventTime()}）がミリ秒単位のため、1ミリ秒単位です。
+ * 入れ子の処理（{@code nextQuestion} の中の {@code displayQuestion} など）は処理時間だけを記録します。
+ * 処理の途中でダイアログを表示した場合は回答者の操作を待った時間が含まれるため、記録から除外して件数だけ数えます。</p>
+ * <p>計測結果は {@link #write(String)} でアクションログの隣にCSVで書き出します。
+ * 同じ値はメトリクス（{@code form_ui_<処理>_<queue|handler|paint|total>_seconds}）にも記録し、
+ * 除外・描画なしの件数は {@code form_ui_latency_excluded_total}, {@code form_ui_latency_unpainted_total} に数えます。
+ * すべての呼び出しはイベントディスパッチスレッドから行ってください。</p>
+ */
+final class LatencyRecorder {
+    static final String SELECT_CHOICE = "selectChoice";
+    static final String DISPLAY_QUESTION = "displayQuestion";
+    static final String NEXT_QUESTION = "nextQuestion";
+    static final String PREV_QUESTION = "prevQuestion";
+
+    private static final String TOTAL = "total";
+    private static final double[] PERCENTILES = {50, 90, 99, 99.9};
+    private static final List<LatencyRecorder> ACTIVE = new CopyOnWriteArrayList<>();
+    private static boolean paintHookInstalled = false;
+    private static final Metrics.Counter EXCLUDED = Metrics.registry().counter(
+        "form_ui_latency_excluded_total", "ダイアログの表示などで描画遅延の記録から除外した操作の数");
+    private static final Metrics.Counter UNPAINTED = Metrics.registry().counter(
+        "form_ui_latency_unpainted_total", "再描画がないまま次の入力が来た操作の数");
+
+    /**
+     * 1つの値のヒストグラム（CSV用）とタイマー（メトリクス用）
+     */
+    private static final class Series {
+        final LatencyHistogram histogram = new LatencyHistogram();
+        final Metrics.Timer timer;
+
+        Series(String name, String metric, String help) {
+            this.timer = Metrics.registry().timer(
+                "form_ui_" + snakeCase(name) + "_" + metric + "_seconds", help + "（" + name + "）");
+        }
+
+        void record(long micros) {
+            histogram.record(micros);
+            timer.record(micros * 1000);
+        }
+    }
+
+    /**
+     * 1つの処理の集計
+     */
+    private static final class Stats {
+        final Series queue;
+        final Series handler;
+        final Series paint;
+        final Series total;
+        long excluded = 0;
+        long unpainted = 0;
+
+        Stats(String name) {
+            queue = new Series(name, "queue", "入力から処理の開始までの時間");
+            handler = new Series(name, "handler", "処理の時間");
+            paint = new Series(name, "paint", "処理の終了から再描画までの時間");
+            total = new Series(name, TOTAL, "入力から再描画までの時間");
+        }
+    }
+
+    /**
+     * 描画を待っている操作
+     */
+    private static final class Pending {
+        final Stats stats;
+        final long queueMicros;
+        final long handlerMicros;
+        final long endNanos;
+
+        Pending(Stats stats, long queueMicros, long handlerMicros, long endNanos) {
+            this.stats = stats;
+            this.queueMicros = queueMicros;
+            this.handlerMicros = handlerMicros;
+            this.endNanos = endNanos;
+        }
+    }
+
+    private final Map<String, Stats> stats = new LinkedHashMap<>();
+    private final List<Pending> pending = new ArrayList<>();
+    private final boolean paintObserved;
+    private int depth = 0;
+    private long queueMicros;
+    private long eventTime;
+
+    LatencyRecorder() {
+        this.paintObserved = installPaintHook();
+        for (String name : new String[] {SELECT_CHOICE, DISPLAY_QUESTION, NEXT_QUESTION, PREV_QUESTION}) {
+            stats.put(name, new Stats(name));
+        }
+        ACTIVE.add(this);
+    }
+
+    /**
+     * アクションログのパスから計測結果のパスを作ります。
+     *
+     * @param logPath アクションログのパス
+     * @return 拡張子を除いて {@link Constants#LATENCY_FILE_SUFFIX} を付けたパス
+     */
+    static String pathForLog(String logPath) {
+        int dot = logPath.lastIndexOf('.');
+        int separator = logPath.lastIndexOf(File.separatorChar);
+        String base = dot > separator ? logPath.substring(0, dot) : logPath;
+        String path = base + Constants.LATENCY_FILE_SUFFIX;
+        for (int n = 2; new File(path).exists(); n++) {
+            path = base + "_" + n + Constants.LATENCY_FILE_SUFFIX;
+        }
+        return path;
+    }
+
+    // 再描画の終わりを知るため、既定の RepaintManager の場合だけ差し替える
+    private static synchronized boolean installPaintHook() {
+        if (paintHookInstalled) {
+            return true;
+        }
+        RepaintManager current = RepaintManager.currentManager(null);
+        if (current.getClass() != RepaintManager.class) {
+            System.err.println("独自の再描画処理が使われているため、描画までの時間は計測しません: "
+                + current.getClass().getName());
+            return false;
+        }
+        RepaintManager.setCurrentManager(new RepaintManager() {
+            @Override
+            public void paintDirtyRegions() {
+                super.paintDirtyRegions();
+                long now = System.nanoTime();
+                for (LatencyRecorder recorder : ACTIVE) {
+                    recorder.painted(now);
+                }
+            }
+        });
+        paintHookInstalled = true;
+        return true;
+    }
+
+    /**
+     * 処理の開始を記録します。
+     *
+     * @return 開始時刻（{@link #exit(String, long)} に渡します）
+     */
+    long enter() {
+        if (depth++ == 0) {
+            // 前の操作のあと再描画がないまま次の入力が来た場合
+            for (Pending p : pending) {
+                p.stats.unpainted++;
+                UNPAINTED.increment();
+            }
+            pending.clear();
+            eventTime = EventQueue.getMostRecentEventTime();
+            queueMicros = Math.max(0, System.currentTimeMillis() - eventTime) * 1000;
+        }
+        return System.nanoTime();
+    }
+
+    /**
+     * 処理の終了を記録します。
+     *
+     * @param name 処理の名前
+     * @param start {@link #enter()} が返した開始時刻
+     */
+    void exit(String name, long start) {
+        long end = System.nanoTime();
+        long handlerMicros = (end - start) / 1000;
+        Stats s = stats.computeIfAbsent(name, Stats::new);
+        boolean outermost = --depth == 0;
+
+        // 処理中に他のイベントが処理された場合はダイアログなどで操作を待っていた
+        if (EventQueue.getMostRecentEventTime() != eventTime) {
+            if (outermost) {
+                s.excluded++;
+                EXCLUDED.increment();
+            }
+            return;
+        }
+        s.handler.record(handlerMicros);
+        if (outermost) {
+            s.queue.record(queueMicros);
+            if (paintObserved) {
+                pending.add(new Pending(s, queueMicros, handlerMicros, end));
+            }
+        }
+    }
+
+    private void painted(long now) {
+        if (pending.isEmpty()) {
+            return;
+        }
+        for (Pending p : pending) {
+            long paintMicros = (now - p.endNanos) / 1000;
+            p.stats.paint.record(paintMicros);
+            p.stats.total.record(p.queueMicros + p.handlerMicros + paintMicros);
+        }
+        pending.clear();
+    }
+
+    /**
+     * 入力から描画までの99パーセンタイルが {@link Constants#LATENCY_WARN_MS} を超えた処理を返します。
+     *
+     * @return 処理の名前（なければ空）
+     */
+    List<String> getSlowHandlers() {
+        List<String> slow = new ArrayList<>();
+        for (Map.Entry<String, Stats> entry : stats.entrySet()) {
+            LatencyHistogram total = entry.getValue().total.histogram;
+            if (total.getCount() > 0 && total.getValueAtPercentile(99) > Constants.LATENCY_WARN_MS * 1000L) {
+                slow.add(entry.getKey());
+            }
+        }
+        return slow;
+    }
+
+    /**
+     * 計測を終了し、結果をCSVで書き出します。
+     *
+     * @param path 書き出すパス
+     * @throws IOException 書き込みに失敗した場合
+     */
+    void write(String path) throws IOException {
+        ACTIVE.remove(this);
+        File file = new File(path);
+        File parent = file.getParentFile();
+        if (parent != null && !parent.exists()) {
+            parent.mkdirs();
+        }
+        try (BufferedWriter writer = new BufferedWriter(
+                new OutputStreamWriter(new FileOutputStream(file), StandardCharsets.UTF_8))) {
+            writer.write("handler,metric,count,mean_ms,p50_ms,p90_ms,p99_ms,p99.9_ms,max_ms,excluded,unpainted");
+            writer.newLine();
+            for (Map.Entry<String, Stats> entry : stats.entrySet()) {
+                Stats s = entry.getValue();
+                writeRow(writer, entry.getKey(), "queue", s.queue.histogram, s);
+                writeRow(writer, entry.getKey(), "handler", s.handler.histogram, s);
+                writeRow(writer, entry.getKey(), "paint", s.paint.histogram, s);
+                writeRow(writer, entry.getKey(), TOTAL, s.total.histogram, s);
+            }
+        }
+    }
+
+    private static void writeRow(BufferedWriter writer, String name, String metric,
+                                 LatencyHistogram histogram, Stats s) throws IOException {
+        StringBuilder row = new StringBuilder();
+        row.append(name).append(',').append(metric).append(',').append(histogram.getCount())
+            .append(',').append(millis(histogram.getMean()));
+        for (double percentile : PERCENTILES) {
+            row.append(',').append(millis(histogram.getValueAtPercentile(percentile)));
+        }
+        row.append(',').append(millis(histogram.getMax()))
+            .append(',').append(s.excluded).append(',').append(s.unpainted);
+        writer.write(row.toString());
+        writer.newLine();
+    }
+
+    // selectChoice → select_choice
+    private static String snakeCase(String name) {
+        StringBuilder out = new StringBuilder(name.length() + 4);
+        for (int i = 0; i < name.length(); i++) {
+            char c = name.charAt(i);
+            if (Character.isUpperCase(c)) {
+                out.append('_').append(Character.toLowerCase(c));
+            } else {
+                out.append(c);
+            }
+        }
+        return out.toString();
+    }
+
+    private static String millis(double micros) {
+        return String.format(Locale.ROOT, "%.3f", micros / 1000.0);
+    }
+}
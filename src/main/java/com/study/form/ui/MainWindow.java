@@ -2,9 +2,16 @@ package com.study.form.ui;
 
 import com.study.form.Constants;
 import com.study.form.util.ConfigManager;
+import com.study.form.util.FileUtils;
+import com.study.form.util.ResponseJournal;
+import com.study.form.util.ResponseStore;
+import com.study.form.util.StationShipper;
 
 import javax.swing.*;
 import java.awt.*;
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
 
 /**
  * メインウィンドウ
@@ -12,6 +19,8 @@ import java.awt.*;
 public class MainWindow extends JFrame {
 
     private ConfigManager configManager;
+    private JButton createButton;
+    private JButton answerButton;
 
     public MainWindow() {
         configManager = new ConfigManager();
@@ -21,6 +30,12 @@ public class MainWindow extends JFrame {
         setLocationRelativeTo(null);
         
         setupUI();
+
+        // 設定画面での変更や config.json の編集をボタンの文言に反映
+        configManager.addListener(config -> SwingUtilities.invokeLater(() -> {
+            createButton.setText(config.getButtonCreateQuestions());
+            answerButton.setText(config.getButtonTakeSurvey());
+        }));
     }
     
     private void setupUI() {
@@ -43,10 +58,10 @@ public class MainWindow extends JFrame {
         gbc.fill = GridBagConstraints.HORIZONTAL;
         
         // ボタンを作成（設定から文言を取得）
-        JButton createButton = createStyledButton(configManager.getConfig().getButtonCreateQuestions());
+        createButton = createStyledButton(configManager.getConfig().getButtonCreateQuestions());
         createButton.addActionListener(e -> openQuestionEditor());
 
-        JButton answerButton = createStyledButton(configManager.getConfig().getButtonTakeSurvey());
+        answerButton = createStyledButton(configManager.getConfig().getButtonTakeSurvey());
         answerButton.addActionListener(e -> openSurveyInterface());
         
         JButton settingsButton = createStyledButton("⚙ 設定");
@@ -82,11 +97,86 @@ public class MainWindow extends JFrame {
     
     private void openSurveyInterface() {
         SurveyInterfaceWindow survey = new SurveyInterfaceWindow();
-        survey.setVisible(true);
+        // キャンセルや読み込みの失敗で閉じた場合は表示しない
+        if (survey.isStarted()) {
+            survey.setVisible(true);
+        }
     }
     
     private void openSettings() {
         SettingsWindow settings = new SettingsWindow();
         settings.setVisible(true);
     }
+
+    /**
+     * 前回中断されたアンケート（未完了のジャーナル）を探し、
+     * セッションごとに再開・回答の保存・破棄を確認します。
+     */
+    public void recoverUnfinishedSessions() {
+        for (ResponseJournal.RecoveredSession session : ResponseJournal.findUnfinished(Constants.JOURNAL_DIR)) {
+            String message = "前回中断されたアンケートがあります。\n"
+                + "回答者ID: " + session.getRespondentId() + "\n"
+                + "開始日時: " + session.getStartedAt() + "\n"
+                + "回答済み: " + session.getResponses().size() + "問";
+            Object[] options = {"再開する", "回答を保存して終了", "破棄する"};
+            int choice = JOptionPane.showOptionDialog(this, message, "中断したアンケート",
+                JOptionPane.DEFAULT_OPTION, JOptionPane.QUESTION_MESSAGE, null, options, options[0]);
+
+            // 確認している間に他のアプリが再開した場合は何もしない
+            if (choice >= 0 && ResponseJournal.isInUse(session.getJournalFile())) {
+                JOptionPane.showMessageDialog(this, "このアンケートは他のウィンドウで再開されています",
+                    "中断したアンケート", JOptionPane.WARNING_MESSAGE);
+                continue;
+            }
+
+            if (choice == 0) {
+                SurveyInterfaceWindow survey = new SurveyInterfaceWindow(session);
+                if (survey.isStarted()) {
+                    survey.setVisible(true);
+                }
+            } else if (choice == 1) {
+                finalizeSession(session);
+            } else if (choice == 2) {
+                ResponseJournal.abandon(session);
+            }
+        }
+    }
+
+    private void finalizeSession(ResponseJournal.RecoveredSession session) {
+        String filepath = configManager.getResponsePath(session.getRespondentId());
+        if (filepath == null) {
+            filepath = Constants.RESPONSES_DIR + File.separator + "responses_" + session.getRespondentId() + ".csv";
+        }
+        File responseDir = new File(filepath).getParentFile();
+        if (responseDir != null && !responseDir.exists()) {
+            responseDir.mkdirs();
+        }
+
+        String outputFormat = configManager.getConfig().getOutputFormat();
+        String baseFilepath = FileUtils.responseBasePath(filepath);
+
+        if (FileUtils.saveResponse(new ArrayList<>(session.getResponses()), baseFilepath, configManager.getConfig())) {
+            if (configManager.getConfig().isResponseStoreEnabled()) {
+                ResponseStore.appendSessionAsync(Constants.RESPONSE_STORE_DIR, session.getResponses());
+            }
+            try {
+                ResponseJournal.reopen(session, configManager.getConfig()).commit(filepath);
+            } catch (IOException e) {
+                System.err.println("ジャーナルの完了処理に失敗しました: " + e.getMessage());
+            }
+            StationShipper shipper = StationShipper.getInstance();
+            if (shipper != null) {
+                try {
+                    shipper.enqueue(session.getRespondentId(), session.getResponses(), session.getLogPath());
+                } catch (IOException e) {
+                    System.err.println("完了セッションを送信待ちにできませんでした: " + e.getMessage());
+                }
+            }
+            JOptionPane.showMessageDialog(this, "中断したアンケートの回答を保存しました:\n" + baseFilepath,
+                "完了", JOptionPane.INFORMATION_MESSAGE);
+        } else {
+            JOptionPane.showMessageDialog(this, "保存に失敗しました",
+                "エラー", JOptionPane.ERROR_MESSAGE);
+        }
+    }
 }
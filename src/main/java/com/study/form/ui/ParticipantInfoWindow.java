@@ -142,9 +142,10 @@ public class ParticipantInfoWindow extends JDialog {
         }
 
         // 設定に保存
-        configManager.getConfig().setParticipantName(name);
-        configManager.getConfig().setParticipantId(id);
-        configManager.saveConfig();
+        configManager.update(config -> {
+            config.setParticipantName(name);
+            config.setParticipantId(id);
+        });
 
         confirmed = true;
         dispose();
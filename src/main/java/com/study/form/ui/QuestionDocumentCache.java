@@ -0,0 +1,184 @@
+package com.study.form.ui;
+
+import com.study.form.Constants;
+import com.study.form.util.Metrics;
+import com.study.form.util.QuestionSource;
+
+import javax.swing.text.BadLocationException;
+import javax.swing.text.Document;
+import javax.swing.text.JTextComponent;
+import javax.swing.text.PlainDocument;
+import javax.swing.text.html.HTMLEditorKit;
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * 問題文の文書の先読み
+ *
+ * <p>表示中の問題の次の数件について、問題文の {@link Document}（HTML表示ではHTMLの解析済み文書、
+ * プレーンテキスト表示では文字列を入れた文書）を作業スレッドで先に作っておきます。
+ * 問題を切り替えるときはイベントディスパッチスレッドで {@link JTextComponent#setDocument(Document)}
+ * を呼ぶだけになり、問題文が長くても切り替えの時間がほとんど変わりません。</p>
+ * <p>先に作った文書は表示中の問題の1つ前から先読みの範囲までを保持します（「前へ」で戻った場合も作り直しません）。
+ * 切り替えにかかった時間はメトリクス（{@code form_question_swap_seconds}）に記録し、
+ * 先読みが間に合った回数は {@code form_question_swap_prepared_total} に数えます。</p>
+ * <p>{@link #show(int, JTextComponent)} はイベントディスパッチスレッドから呼んでください。</p>
+ */
+final class QuestionDocumentCache {
+    private static final Metrics.Timer SWAPS = Metrics.registry().timer(
+        "form_question_swap_seconds", "問題文の切り替えにかかった時間");
+    private static final Metrics.Counter PREPARED_SWAPS = Metrics.registry().counter(
+        "form_question_swap_prepared_total", "先読みした文書で問題文を切り替えた回数");
+
+    private final QuestionSource questions;
+    private final boolean html;
+    private final int aheadCount;
+    private final Map<Integer, Future<Document>> documents = new HashMap<>();
+    private final ExecutorService renderer;
+
+    /**
+     * @param questions 質問の供給元
+     * @param html HTML表示の場合はtrue
+     * @param aheadCount 先に作っておく件数（0の場合は先読みしない）
+     */
+    QuestionDocumentCache(QuestionSource questions, boolean html, int aheadCount) {
+        this.questions = questions;
+        this.html = html;
+        this.aheadCount = aheadCount;
+        this.renderer = Executors.newSingleThreadExecutor(r -> {
+            Thread t = new Thread(r, "question-render");
+            t.setDaemon(true);
+            return t;
+        });
+    }
+
+    /**
+     * 指定した問題の問題文を表示し、続く問題の文書の作成を予約します。
+     *
+     * @param index 問題の番号（0始まり）
+     * @param target 問題文を表示する部品
+     */
+    void show(int index, JTextComponent target) {
+        long start = System.nanoTime();
+        Future<Document> future = documents.get(index);
+        boolean prepared = future != null && future.isDone();
+        Document document = resolve(index, future);
+        target.setDocument(document);
+        SWAPS.recordSince(start);
+        if (prepared) {
+            PREPARED_SWAPS.increment();
+        }
+
+        evictOutside(index);
+        prepareAhead(index);
+    }
+
+    private Document resolve(int index, Future<Document> future) {
+        if (future != null) {
+            try {
+                // 作成中の場合は作り直すより待つほうが早い
+                return future.get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } catch (ExecutionException e) {
+                System.err.println("問題文の先読みに失敗しました: " + e.getCause());
+            }
+        }
+        // 先読みしていない場合（最初の問題や途中からの再開）はその場で作る
+        Document document = render(index);
+        documents.put(index, CompletableFuture.completedFuture(document));
+        return document;
+    }
+
+    private void evictOutside(int index) {
+        Iterator<Map.Entry<Integer, Future<Document>>> it = documents.entrySet().iterator();
+        while (it.hasNext()) {
+            Map.Entry<Integer, Future<Document>> entry = it.next();
+            int key = entry.getKey();
+            if (key < index - 1 || key > index + aheadCount) {
+                entry.getValue().cancel(false);
+                it.remove();
+            }
+        }
+    }
+
+    private void prepareAhead(int index) {
+        int last = Math.min(questions.size() - 1, index + aheadCount);
+        for (int next = index + 1; next <= last; next++) {
+            if (documents.containsKey(next)) continue;
+            final int target = next;
+            try {
+                documents.put(target, renderer.submit(() -> render(target)));
+            } catch (RejectedExecutionException e) {
+                // 閉じた後は先読みしない
+                return;
+            }
+        }
+    }
+
+    // 部品に付ける前の文書なので作業スレッドで作ってよい。
+    // 作業スレッドとイベントディスパッチスレッド（先読みしていない場合）の両方から呼ばれるため、
+    // スレッドセーフでない HTMLEditorKit は呼び出しごとに作る
+    private Document render(int index) {
+        String text = questions.get(index).getText();
+        HTMLEditorKit kit = html ? new HTMLEditorKit() : null;
+        try {
+            if (html) {
+                Document document = kit.createDefaultDocument();
+                document.putProperty("IgnoreCharsetDirective", Boolean.TRUE);
+                kit.read(new StringReader(toStyledHtml(text)), document, 0);
+                return document;
+            }
+            PlainDocument document = new PlainDocument();
+            document.insertString(0, text, null);
+            return document;
+        } catch (IOException | BadLocationException e) {
+            System.err.println("問題文を表示用に変換できませんでした（問題 " + (index + 1) + "）: " + e.getMessage());
+            return html ? kit.createDefaultDocument() : new PlainDocument();
+        }
+    }
+
+    /**
+     * 問題文を既定の書体を指定したHTMLにします。
+     *
+     * @param questionText 問題文
+     * @return HTML
+     */
+    static String toStyledHtml(String questionText) {
+        String cssStyle = "body { font-family: '" + Constants.FONT_FAMILY +
+                         "'; font-size: " + Constants.FONT_SIZE_SUBTITLE + "pt; font-weight: normal; }";
+
+        // HTMLタグが含まれていない場合は、自動的にラップ
+        if (!questionText.trim().toLowerCase().startsWith("<html")) {
+            return "<html><head><style>" + cssStyle + "</style></head><body>" +
+                   questionText + "</body></html>";
+        }
+        // HTMLタグが既に含まれている場合は、スタイルを追加
+        if (!questionText.toLowerCase().contains("<style>")) {
+            questionText = questionText.replaceFirst("(?i)<head>",
+                "<head><style>" + cssStyle + "</style>");
+            if (!questionText.toLowerCase().contains("<head>")) {
+                questionText = questionText.replaceFirst("(?i)<html>",
+                    "<html><head><style>" + cssStyle + "</style></head>");
+            }
+        }
+        return questionText;
+    }
+
+    /**
+     * 作業スレッドを停止し、先に作った文書を破棄します。
+     */
+    void close() {
+        renderer.shutdownNow();
+        documents.clear();
+    }
+}
@@ -3,16 +3,22 @@ package com.study.form.ui;
 import com.study.form.Constants;
 import com.study.form.model.Config;
 import com.study.form.util.ConfigManager;
+import com.study.form.util.FilenameTemplate;
+import com.study.form.util.Log;
 
 import javax.swing.*;
 import javax.swing.border.EmptyBorder;
 import java.awt.*;
 import java.io.File;
+import java.util.List;
+import java.util.logging.Logger;
 
 /**
  * 設定ウィンドウ
  */
 public class SettingsWindow extends JFrame {
+    private static final Logger LOG = Log.get(SettingsWindow.class);
+
     private ConfigManager configManager;
     
     private JTextField questionsFileField;
@@ -22,12 +28,18 @@ public class SettingsWindow extends JFrame {
     private JTextField responseFormatField;
     private JTextField participantNameField;
     private JTextField participantIdField;
+    private JTextField stationIdField;
+    private JTextField collectorTargetField;
 
     private JComboBox<String> outputFormatCombo;
+    private JComboBox<String> responseLayoutCombo;
+    private JComboBox<String> logOutputFormatCombo;
     private JComboBox<Integer> defaultChoicesCombo;
     private JComboBox<Integer> choiceColumnsCombo;
     private JTextField logSequenceField;
     private JTextField responseSequenceField;
+    private int loadedLogSequence;
+    private int loadedResponseSequence;
     private JCheckBox autoSaveCheckBox;
     private JCheckBox useParticipantInfoCheckBox;
     private JCheckBox useHtmlRenderingCheckBox;
@@ -150,6 +162,8 @@ public class SettingsWindow extends JFrame {
         responseFormatField = new JTextField(30);
         participantNameField = new JTextField(30);
         participantIdField = new JTextField(30);
+        stationIdField = new JTextField(30);
+        collectorTargetField = new JTextField(30);
 
         panel.add(createFieldRow("被験者名:", participantNameField, false));
         panel.add(createFieldRow("被験者ID:", participantIdField, false));
@@ -158,9 +172,12 @@ public class SettingsWindow extends JFrame {
         panel.add(createFieldRow("ログファイル名フォーマット:", logFormatField, false));
         panel.add(createFieldRow("回答出力ディレクトリ:", responseDirField, true));
         panel.add(createFieldRow("回答ファイル名フォーマット:", responseFormatField, false));
+        panel.add(createFieldRow("ステーションID:", stationIdField, false));
+        panel.add(createFieldRow("集約先（URLまたはフォルダ）:", collectorTargetField, true));
         
         // ヘルプテキスト
-        JLabel helpLabel = new JLabel("<html><i>使用可能な変数: {date}, {time}, {participant_name}, {participant_id}, {sequence}</i></html>");
+        JLabel helpLabel = new JLabel("<html><i>使用可能な変数: "
+            + String.join(", ", FilenameTemplate.knownTokens()) + "</i></html>");
         helpLabel.setFont(new Font(Constants.FONT_FAMILY, Font.PLAIN, Constants.FONT_SIZE_SMALL));
         helpLabel.setBorder(new EmptyBorder(5, 0, 0, 0));
         helpLabel.setAlignmentX(Component.LEFT_ALIGNMENT);
@@ -229,11 +246,15 @@ public class SettingsWindow extends JFrame {
         ));
         panel.setAlignmentX(Component.LEFT_ALIGNMENT);
         
-        String[] outputFormats = {"csv", "json", "both"};
+        String[] outputFormats = {"csv", "json", "both", "ndjson"};
         Integer[] defaultChoicesOptions = {2, 3, 4, 5, 6, 7, 8, 9, 10};
         Integer[] choiceColumnsOptions = {1, 2, 3, 4};
 
         outputFormatCombo = new JComboBox<>(outputFormats);
+        responseLayoutCombo = new JComboBox<>(new String[] {
+            Constants.RESPONSE_LAYOUT_COMPACT, Constants.RESPONSE_LAYOUT_EXPANDED});
+        logOutputFormatCombo = new JComboBox<>(new String[] {
+            Constants.LOG_OUTPUT_FORMAT_CSV, Constants.LOG_OUTPUT_FORMAT_NDJSON});
         defaultChoicesCombo = new JComboBox<>(defaultChoicesOptions);
         choiceColumnsCombo = new JComboBox<>(choiceColumnsOptions);
         logSequenceField = new JTextField(10);
@@ -247,6 +268,8 @@ public class SettingsWindow extends JFrame {
         contentWidthCombo = new JComboBox<>(widthOptions);
 
         panel.add(createComboRow("出力形式:", outputFormatCombo));
+        panel.add(createComboRow("回答レイアウト:", responseLayoutCombo));
+        panel.add(createComboRow("ログ形式:", logOutputFormatCombo));
         panel.add(createIntComboRow("デフォルト選択肢数:", defaultChoicesCombo));
         panel.add(createIntComboRow("選択肢の列数:", choiceColumnsCombo));
         panel.add(createComboRow("コンテンツ横幅:", contentWidthCombo));
@@ -345,12 +368,18 @@ public class SettingsWindow extends JFrame {
         logFormatField.setText(config.getLogNameFormat() != null ? config.getLogNameFormat() : "");
         responseDirField.setText(config.getResponseDirectory() != null ? config.getResponseDirectory() : "");
         responseFormatField.setText(config.getResponseNameFormat() != null ? config.getResponseNameFormat() : "");
+        stationIdField.setText(config.getStationId() != null ? config.getStationId() : "");
+        collectorTargetField.setText(config.getCollectorTarget());
 
         outputFormatCombo.setSelectedItem(config.getOutputFormat());
+        responseLayoutCombo.setSelectedItem(config.getResponseLayout());
+        logOutputFormatCombo.setSelectedItem(config.getLogOutputFormat());
         defaultChoicesCombo.setSelectedItem(config.getDefaultChoices());
         choiceColumnsCombo.setSelectedItem(config.getChoiceColumns());
-        logSequenceField.setText(String.valueOf(config.getLogSequence()));
-        responseSequenceField.setText(String.valueOf(config.getResponseSequence()));
+        loadedLogSequence = configManager.peekSequence(Constants.SEQUENCE_LOG);
+        loadedResponseSequence = configManager.peekSequence(Constants.SEQUENCE_RESPONSE);
+        logSequenceField.setText(String.valueOf(loadedLogSequence));
+        responseSequenceField.setText(String.valueOf(loadedResponseSequence));
         autoSaveCheckBox.setSelected(config.isAutoSave());
         useParticipantInfoCheckBox.setSelected(config.isUseParticipantInfo());
         useHtmlRenderingCheckBox.setSelected(config.isUseHtmlRendering());
@@ -377,8 +406,58 @@ public class SettingsWindow extends JFrame {
     }
     
     private void saveSettings() {
-        Config config = configManager.getConfig();
+        // ファイル名フォーマットの変数を確認
+        if (!checkFilenameFormat("ログファイル名フォーマット", logFormatField.getText())
+                || !checkFilenameFormat("回答ファイル名フォーマット", responseFormatField.getText())) {
+            return;
+        }
+
+        // 連番の設定（数値検証付き）
+        int logSeq;
+        int responseSeq;
+        try {
+            logSeq = Integer.parseInt(logSequenceField.getText());
+            responseSeq = Integer.parseInt(responseSequenceField.getText());
+        } catch (NumberFormatException e) {
+            JOptionPane.showMessageDialog(this, "連番には数値を入力してください",
+                "入力エラー", JOptionPane.ERROR_MESSAGE);
+            return;
+        }
+        if (logSeq < 1 || responseSeq < 1) {
+            JOptionPane.showMessageDialog(this, "連番は1以上の数値を入力してください",
+                "入力エラー", JOptionPane.ERROR_MESSAGE);
+            return;
+        }
+        // 連番は払い出しファイルに記録する（画面で変更した場合だけ設定し直す）
+        if (logSeq != loadedLogSequence) {
+            configManager.resetSequence(Constants.SEQUENCE_LOG, logSeq);
+        }
+        if (responseSeq != loadedResponseSequence) {
+            configManager.resetSequence(Constants.SEQUENCE_RESPONSE, responseSeq);
+        }
+
+        // 共有している設定のコピーに画面の内容を反映して差し替える
+        configManager.update(config -> applySettings(config, logSeq, responseSeq));
+        configManager.saveConfig();
+
+        JOptionPane.showMessageDialog(this, "設定を保存しました", "保存完了",
+            JOptionPane.INFORMATION_MESSAGE);
 
+        dispose();
+    }
+
+    private boolean checkFilenameFormat(String label, String format) {
+        List<String> unknown = FilenameTemplate.findUnknownTokens(format);
+        if (unknown.isEmpty()) {
+            return true;
+        }
+        JOptionPane.showMessageDialog(this, label + "に使用できない変数があります: " + String.join(", ", unknown)
+            + "\n使用可能な変数: " + String.join(", ", FilenameTemplate.knownTokens()),
+            "入力エラー", JOptionPane.ERROR_MESSAGE);
+        return false;
+    }
+
+    private void applySettings(Config config, int logSeq, int responseSeq) {
         config.setParticipantName(participantNameField.getText());
         config.setParticipantId(participantIdField.getText());
 
@@ -390,34 +469,24 @@ public class SettingsWindow extends JFrame {
             String filename = questionsFile.getName();
             config.setQuestionsDirectory(directory);
             config.setQuestionsFile(filename);
-            System.out.println("問題ファイル設定: ディレクトリ=" + directory + ", ファイル名=" + filename);
+            LOG.fine("問題ファイル設定: ディレクトリ=" + directory + ", ファイル名=" + filename);
         }
 
         config.setLogDirectory(logDirField.getText());
         config.setLogNameFormat(logFormatField.getText());
         config.setResponseDirectory(responseDirField.getText());
         config.setResponseNameFormat(responseFormatField.getText());
+        config.setStationId(stationIdField.getText().trim().isEmpty() ? null : stationIdField.getText().trim());
+        config.setCollectorTarget(collectorTargetField.getText().trim());
 
         config.setOutputFormat((String) outputFormatCombo.getSelectedItem());
+        config.setResponseLayout((String) responseLayoutCombo.getSelectedItem());
+        config.setLogOutputFormat((String) logOutputFormatCombo.getSelectedItem());
         config.setDefaultChoices((Integer) defaultChoicesCombo.getSelectedItem());
         config.setChoiceColumns((Integer) choiceColumnsCombo.getSelectedItem());
 
-        // 連番の設定（数値検証付き）
-        try {
-            int logSeq = Integer.parseInt(logSequenceField.getText());
-            int responseSeq = Integer.parseInt(responseSequenceField.getText());
-            if (logSeq < 1 || responseSeq < 1) {
-                JOptionPane.showMessageDialog(this, "連番は1以上の数値を入力してください",
-                    "入力エラー", JOptionPane.ERROR_MESSAGE);
-                return;
-            }
-            config.setLogSequence(logSeq);
-            config.setResponseSequence(responseSeq);
-        } catch (NumberFormatException e) {
-            JOptionPane.showMessageDialog(this, "連番には数値を入力してください",
-                "入力エラー", JOptionPane.ERROR_MESSAGE);
-            return;
-        }
+        config.setLogSequence(logSeq);
+        config.setResponseSequence(responseSeq);
 
         config.setAutoSave(autoSaveCheckBox.isSelected());
         config.setUseParticipantInfo(useParticipantInfoCheckBox.isSelected());
@@ -435,12 +504,5 @@ public class SettingsWindow extends JFrame {
         config.setButtonPrevQuestion(buttonPrevQuestionField.getText());
         config.setButtonReselect(buttonReselectField.getText());
         config.setButtonFinishSurvey(buttonFinishSurveyField.getText());
-
-        configManager.saveConfig();
-
-        JOptionPane.showMessageDialog(this, "設定を保存しました", "保存完了",
-            JOptionPane.INFORMATION_MESSAGE);
-
-        dispose();
     }
 }
@@ -2,31 +2,49 @@ package com.study.form.ui;
 
 import com.study.form.Constants;
 import com.study.form.model.Question;
-import com.study.form.model.Response;
 import com.study.form.util.ActionLogger;
 import com.study.form.util.ConfigManager;
 import com.study.form.util.FileUtils;
+import com.study.form.util.KeystrokeRecorder;
+import com.study.form.util.ListQuestionSource;
+import com.study.form.util.Log;
+import com.study.form.util.QuestionSource;
+import com.study.form.util.ResponseJournal;
+import com.study.form.util.SessionClock;
+import com.study.form.util.StationShipper;
+import com.study.form.util.SurveySession;
 
 import javax.swing.*;
 import javax.swing.border.EmptyBorder;
 import javax.swing.event.DocumentEvent;
 import javax.swing.event.DocumentListener;
+import javax.swing.text.BadLocationException;
+import javax.swing.text.JTextComponent;
 import java.awt.*;
+import java.awt.event.WindowAdapter;
+import java.awt.event.WindowEvent;
 import java.io.File;
-import java.util.ArrayList;
+import java.io.IOException;
 import java.util.List;
 import java.util.UUID;
+import java.util.logging.Logger;
 
 /**
  * アンケート回答インターフェースウィンドウ
+ *
+ * <p>回答の状態遷移とログ・ジャーナルへの記録は {@link SurveySession} が行い、
+ * このウィンドウは操作を渡して表示を更新します。</p>
  */
 public class SurveyInterfaceWindow extends JFrame {
-    private List<Question> questions = new ArrayList<>();
-    private List<Response> responses = new ArrayList<>();
-    private int currentQuestionIndex = 0;
+    private static final Logger LOG = Log.get(SurveyInterfaceWindow.class);
+
+    private QuestionSource questions = ListQuestionSource.empty();
     private String respondentId;
+    private SurveySession session;
     
     private ActionLogger logger;
+    private KeystrokeRecorder keystrokeRecorder;
+    private SessionClock sessionClock;
     private ConfigManager configManager;
     
     private JLabel progressLabel;
@@ -39,20 +57,29 @@ public class SurveyInterfaceWindow extends JFrame {
     private JLabel statusLabel;
     private JButton nextButton;
     private JButton prevButton;
-    
-    private String selectedChoice = null;
-    private boolean reasonStarted = false;
-    private List<JButton> choiceButtons = new ArrayList<>();
+    private ChoicePanelPool choicePool;
+    private QuestionDocumentCache questionDocuments;
+    private LatencyRecorder latencyRecorder;
     
     public SurveyInterfaceWindow() {
+        this(null);
+    }
+
+    /**
+     * 中断したセッションを再開するウィンドウを作成します。
+     *
+     * @param recovered ジャーナルから復元したセッション。nullの場合は新規セッション
+     */
+    public SurveyInterfaceWindow(ResponseJournal.RecoveredSession recovered) {
         setTitle("アンケート回答");
         setSize(Constants.SURVEY_WINDOW_SIZE);
+        setDefaultCloseOperation(DISPOSE_ON_CLOSE);
         setLocationRelativeTo(null);
 
         configManager = new ConfigManager();
 
-        // 設定で被験者情報を使用する場合のみ入力画面を表示
-        if (configManager.getConfig().isUseParticipantInfo()) {
+        // 設定で被験者情報を使用する場合のみ入力画面を表示（再開時は入力済み）
+        if (recovered == null && configManager.getConfig().isUseParticipantInfo()) {
             ParticipantInfoWindow infoWindow = new ParticipantInfoWindow(null);
             infoWindow.setVisible(true);
 
@@ -63,15 +90,133 @@ public class SurveyInterfaceWindow extends JFrame {
             }
         }
 
-        respondentId = UUID.randomUUID().toString().substring(0, 8);
+        respondentId = recovered != null
+            ? recovered.getRespondentId()
+            : UUID.randomUUID().toString().substring(0, 8);
 
-        // ログファイルパスを取得
-        String logPath = configManager.getLogPath(respondentId);
-        logger = new ActionLogger(logPath);
+        // ウィンドウが閉じられたらバッファをフラッシュしてログファイルを閉じる
+        addWindowListener(new WindowAdapter() {
+            @Override
+            public void windowClosed(WindowEvent e) {
+                closeSession();
+            }
+        });
 
-        loadQuestionsDialog();
+        if (recovered != null) {
+            resumeSession(recovered);
+        } else {
+            loadQuestionsDialog();
+        }
     }
     
+    /**
+     * 問題を表示できる状態になったかを返します。
+     *
+     * @return 問題を読み込めた場合はtrue（キャンセルや読み込みの失敗で閉じた場合はfalse）
+     */
+    public boolean isStarted() {
+        return session != null;
+    }
+
+    // ログやキーストローク記録は問題を読み込めてから開く。
+    // 表示前に閉じたウィンドウには windowClosed が届かず、開いたままになるため
+    private void openRecorders(ResponseJournal.RecoveredSession recovered) {
+        // 反応時間の基準となるセッションクロックをここで一度だけ開始（ファイル名の {session_nanos} も同じ時間軸）
+        sessionClock = SessionClock.start();
+        // ログファイルパスを取得（再開時は中断前のログに追記）
+        String logPath = recovered != null && recovered.getLogPath() != null
+            ? recovered.getLogPath()
+            : configManager.getLogPath(respondentId, sessionClock);
+        logger = new ActionLogger(logPath, configManager.getConfig(), sessionClock);
+        openKeystrokeRecorder(logPath);
+        if (configManager.getConfig().isLatencyMetrics()) {
+            latencyRecorder = new LatencyRecorder();
+        }
+    }
+
+    // 問題を読み込めなかった場合は、開いた問題ファイルだけを閉じてウィンドウを破棄する
+    private void abort() {
+        questions.close();
+        dispose();
+    }
+
+    private void closeSession() {
+        if (logger != null) {
+            logger.close();
+        }
+        if (keystrokeRecorder != null) {
+            keystrokeRecorder.close();
+        }
+        if (latencyRecorder != null) {
+            writeLatency();
+        }
+        if (session != null) {
+            session.close();
+            if (session.isSaved()) {
+                shipSession();
+            }
+        }
+        if (questionDocuments != null) {
+            questionDocuments.close();
+        }
+        questions.close();
+    }
+
+    // 複数台運用では閉じたログと一緒に完了セッションを送信待ちにする
+    private void shipSession() {
+        StationShipper shipper = StationShipper.getInstance();
+        if (shipper == null) return;
+        try {
+            shipper.enqueue(respondentId, session.getResponses(), logger.getLogFile());
+        } catch (IOException e) {
+            System.err.println("完了セッションを送信待ちにできませんでした: " + e.getMessage());
+        }
+    }
+
+    // 描画遅延の計測結果をアクションログの隣に書き出し、遅い操作があれば警告する
+    private void writeLatency() {
+        String latencyPath = LatencyRecorder.pathForLog(logger.getLogFile());
+        try {
+            latencyRecorder.write(latencyPath);
+            LOG.fine("描画遅延の計測結果を保存しました: " + latencyPath);
+        } catch (IOException e) {
+            System.err.println("描画遅延の計測結果を保存できませんでした: " + latencyPath);
+            e.printStackTrace();
+            return;
+        }
+        List<String> slow = latencyRecorder.getSlowHandlers();
+        if (!slow.isEmpty()) {
+            System.err.println("入力から描画までの時間が " + Constants.LATENCY_WARN_MS
+                + " ms を超える操作があります（99パーセンタイル）: " + String.join(", ", slow));
+        }
+    }
+
+    // 計測が有効な場合だけ操作の処理を計測して実行する
+    private void measured(String name, Runnable handler) {
+        if (latencyRecorder == null) {
+            handler.run();
+            return;
+        }
+        long start = latencyRecorder.enter();
+        try {
+            handler.run();
+        } finally {
+            latencyRecorder.exit(name, start);
+        }
+    }
+
+    private void openKeystrokeRecorder(String logPath) {
+        if (!configManager.getConfig().isKeystrokeLogging()) return;
+        String keystrokePath = KeystrokeRecorder.pathForLog(logPath);
+        try {
+            keystrokeRecorder = new KeystrokeRecorder(keystrokePath,
+                configManager.getConfig().getLogQueueCapacity(), sessionClock);
+        } catch (IOException e) {
+            System.err.println("キーストローク記録を開始できませんでした: " + keystrokePath);
+            e.printStackTrace();
+        }
+    }
+
     private void loadQuestionsDialog() {
         String filepath = configManager.getQuestionsPath();
         
@@ -89,18 +234,67 @@ public class SurveyInterfaceWindow extends JFrame {
             }
         }
         
-        questions = FileUtils.loadQuestions(filepath);
+        // 質問の位置の索引だけを作り、本体は表示するときに読み込む
+        questions = FileUtils.openQuestionSource(filepath);
         
         if (questions.isEmpty()) {
             JOptionPane.showMessageDialog(this, "問題を読み込めませんでした", 
                 "エラー", JOptionPane.ERROR_MESSAGE);
-            dispose();
+            abort();
             return;
         }
-        
+
+        openRecorders(null);
+        ResponseJournal journal = openJournal(filepath, logPathForJournal());
+        session = new SurveySession(questions, respondentId, logger, sessionClock, journal);
         setupUI();
         displayQuestion();
     }
+
+    private void resumeSession(ResponseJournal.RecoveredSession recovered) {
+        String filepath = recovered.getQuestionsPath();
+        if (filepath != null && new File(filepath).exists()) {
+            questions = FileUtils.openQuestionSource(filepath);
+        }
+
+        if (questions.isEmpty()) {
+            JOptionPane.showMessageDialog(this, "中断したアンケートの問題ファイルを読み込めませんでした:\n" + filepath,
+                "エラー", JOptionPane.ERROR_MESSAGE);
+            abort();
+            return;
+        }
+
+        openRecorders(recovered);
+        ResponseJournal journal = null;
+        if (configManager.getConfig().isAutoSave()) {
+            try {
+                journal = ResponseJournal.reopen(recovered, configManager.getConfig());
+            } catch (IOException e) {
+                System.err.println("ジャーナルを開き直せませんでした: " + e.getMessage());
+            }
+        }
+        session = new SurveySession(questions, respondentId, logger, sessionClock, journal,
+            recovered.getResponses());
+
+        setupUI();
+        displayQuestion();
+    }
+
+    private String logPathForJournal() {
+        return logger != null ? logger.getLogFile() : null;
+    }
+
+    private ResponseJournal openJournal(String questionsPath, String logPath) {
+        // 自動保存が有効な場合のみ、回答を確定ごとにジャーナルへ書き込む
+        if (!configManager.getConfig().isAutoSave()) return null;
+        try {
+            return ResponseJournal.begin(Constants.JOURNAL_DIR, respondentId,
+                new File(questionsPath).getAbsolutePath(), logPath, configManager.getConfig());
+        } catch (IOException e) {
+            System.err.println("回答ジャーナルを作成できませんでした: " + e.getMessage());
+            return null;
+        }
+    }
     
     private void setupUI() {
         JPanel outerPanel = new JPanel(new BorderLayout());
@@ -124,6 +318,9 @@ public class SurveyInterfaceWindow extends JFrame {
 
         outerPanel.add(centerWrapper, BorderLayout.CENTER);
         add(outerPanel);
+
+        questionDocuments = new QuestionDocumentCache(questions,
+            questionEditorPane != null, Constants.QUESTION_RENDER_AHEAD);
     }
 
     private JPanel createHeaderPanel() {
@@ -180,6 +377,8 @@ public class SurveyInterfaceWindow extends JFrame {
         int columns = configManager.getConfig().getChoiceColumns();
         choicesPanel.setLayout(new GridLayout(0, columns, Constants.PADDING_MEDIUM, Constants.PADDING_MEDIUM));
         choicesPanel.setAlignmentX(Component.LEFT_ALIGNMENT);
+        choicePool = new ChoicePanelPool(choicesPanel, index -> measured(LatencyRecorder.SELECT_CHOICE,
+            () -> selectChoice(choicePool.getChoice(index), index)));
         contentPanel.add(choicesPanel);
 
         contentPanel.add(Box.createVerticalStrut(Constants.VERTICAL_STRUT_LARGE));
@@ -212,8 +411,14 @@ public class SurveyInterfaceWindow extends JFrame {
         reasonTextArea.setEnabled(false);
         reasonTextArea.getDocument().addDocumentListener(new DocumentListener() {
             public void changedUpdate(DocumentEvent e) { onReasonKeyPress(); }
-            public void removeUpdate(DocumentEvent e) { onReasonKeyPress(); }
-            public void insertUpdate(DocumentEvent e) { onReasonKeyPress(); }
+            public void removeUpdate(DocumentEvent e) {
+                recordReasonRemove(e);
+                onReasonKeyPress();
+            }
+            public void insertUpdate(DocumentEvent e) {
+                recordReasonInsert(e);
+                onReasonKeyPress();
+            }
         });
 
         JScrollPane reasonScrollPane = new JScrollPane(reasonTextArea);
@@ -241,73 +446,41 @@ public class SurveyInterfaceWindow extends JFrame {
         prevButton.setPreferredSize(new Dimension(150, 45));
         prevButton.setBackground(Constants.COLOR_GRAY);
         prevButton.setEnabled(false);
-        prevButton.addActionListener(e -> prevQuestion());
+        prevButton.addActionListener(e -> measured(LatencyRecorder.PREV_QUESTION, this::prevQuestion));
         navPanel.add(prevButton, BorderLayout.WEST);
 
         nextButton = new JButton(configManager.getConfig().getButtonNextQuestion());
         nextButton.setFont(new Font(Constants.FONT_FAMILY, Font.BOLD, Constants.FONT_SIZE_BUTTON));
         nextButton.setPreferredSize(new Dimension(150, 45));
         nextButton.setEnabled(false);
-        nextButton.addActionListener(e -> nextQuestion());
+        nextButton.addActionListener(e -> measured(LatencyRecorder.NEXT_QUESTION, this::nextQuestion));
         navPanel.add(nextButton, BorderLayout.EAST);
 
         return navPanel;
     }
     
     private void displayQuestion() {
-        if (currentQuestionIndex >= questions.size()) {
+        measured(LatencyRecorder.DISPLAY_QUESTION, this::showCurrentQuestion);
+    }
+
+    private void showCurrentQuestion() {
+        if (session.isFinished()) {
             submitSurvey();
             return;
         }
         
-        Question question = questions.get(currentQuestionIndex);
+        Question question = session.getCurrentQuestion();
+        int questionNum = session.getCurrentQuestionIndex() + 1;
         
         // 進捗表示
-        progressLabel.setText("問題 " + (currentQuestionIndex + 1) + " / " + questions.size());
-        
-        // 質問文表示
-        String questionText = question.getText();
-        boolean useHtml = configManager.getConfig().isUseHtmlRendering();
-
-        if (useHtml) {
-            // HTML表示モード（短文用）
-            String cssStyle = "body { font-family: '" + Constants.FONT_FAMILY +
-                             "'; font-size: " + Constants.FONT_SIZE_SUBTITLE + "pt; font-weight: normal; }";
-
-            // HTMLタグが含まれていない場合は、自動的にラップ
-            if (!questionText.trim().toLowerCase().startsWith("<html")) {
-                questionText = "<html><head><style>" + cssStyle + "</style></head><body>" +
-                              questionText + "</body></html>";
-            } else {
-                // HTMLタグが既に含まれている場合は、スタイルを追加
-                if (!questionText.toLowerCase().contains("<style>")) {
-                    questionText = questionText.replaceFirst("(?i)<head>",
-                        "<head><style>" + cssStyle + "</style>");
-                    if (!questionText.toLowerCase().contains("<head>")) {
-                        questionText = questionText.replaceFirst("(?i)<html>",
-                            "<html><head><style>" + cssStyle + "</style></head>");
-                    }
-                }
-            }
-            questionEditorPane.setText(questionText);
-        } else {
-            // プレーンテキスト表示モード（長文用、縦スクロール対応）
-            questionTextArea.setText(questionText);
-        }
+        progressLabel.setText("問題 " + questionNum + " / " + session.getQuestionCount());
         
-        // 選択肢をクリア
-        choicesPanel.removeAll();
-        choiceButtons.clear();
+        // 質問文表示（先に作っておいた文書に差し替えるだけで、HTMLはここで解析しない）
+        JTextComponent questionComponent = questionEditorPane != null ? questionEditorPane : questionTextArea;
+        questionDocuments.show(session.getCurrentQuestionIndex(), questionComponent);
         
-        // 選択肢を表示
-        for (int i = 0; i < question.getChoices().size(); i++) {
-            String choice = question.getChoices().get(i);
-            createChoiceButton(choice, i);
-        }
-        
-        // 状態をリセット
-        selectedChoice = null;
-        reasonStarted = false;
+        // 選択肢を表示（部品は使い回して文字列だけ差し替える）
+        choicePool.bind(question.getChoices());
         
         // 理由入力をクリアして無効化
         reasonTextArea.setEnabled(false);
@@ -319,148 +492,77 @@ public class SurveyInterfaceWindow extends JFrame {
         statusLabel.setText(" ");
         
         // 前へボタンの状態
-        prevButton.setEnabled(currentQuestionIndex > 0);
+        prevButton.setEnabled(session.canGoBack());
 
         // 最終問題の場合は終了ボタンに変更
-        if (currentQuestionIndex == questions.size() - 1) {
+        if (session.isLastQuestion()) {
             nextButton.setText(configManager.getConfig().getButtonFinishSurvey());
         } else {
             nextButton.setText(configManager.getConfig().getButtonNextQuestion());
         }
 
-        choicesPanel.revalidate();
-        choicesPanel.repaint();
-    }
-    
-    private void createChoiceButton(String choiceText, int index) {
-        // JTextAreaで確実にテキスト折り返し
-        JTextArea textArea = new JTextArea(choiceText);
-        textArea.setFont(new Font(Constants.FONT_FAMILY, Font.PLAIN, Constants.FONT_SIZE_BUTTON));
-        textArea.setLineWrap(true);
-        textArea.setWrapStyleWord(true);
-        textArea.setEditable(false);
-        textArea.setFocusable(false);
-        textArea.setBorder(new EmptyBorder(12, 16, 12, 16));
-        textArea.setBackground(Constants.COLOR_DEFAULT);
-        textArea.setForeground(Constants.COLOR_DEFAULT_TEXT);
-        textArea.setCursor(new java.awt.Cursor(java.awt.Cursor.HAND_CURSOR));
-
-        // シンプルなパネル（枠なし、角丸風の見た目）
-        JPanel panel = new JPanel(new BorderLayout());
-        panel.setBackground(Constants.COLOR_DEFAULT);
-        panel.add(textArea, BorderLayout.CENTER);
-        panel.setCursor(new java.awt.Cursor(java.awt.Cursor.HAND_CURSOR));
-
-        // クリックイベント
-        java.awt.event.MouseAdapter clickAdapter = new java.awt.event.MouseAdapter() {
-            @Override
-            public void mouseClicked(java.awt.event.MouseEvent e) {
-                selectChoice(choiceText, index);
-            }
-            @Override
-            public void mouseEntered(java.awt.event.MouseEvent e) {
-                if (selectedChoice == null || !selectedChoice.equals(choiceText)) {
-                    Color hoverColor = Constants.COLOR_DEFAULT.darker();
-                    panel.setBackground(hoverColor);
-                    textArea.setBackground(hoverColor);
-                }
-            }
-            @Override
-            public void mouseExited(java.awt.event.MouseEvent e) {
-                if (selectedChoice != null && selectedChoice.equals(choiceText)) {
-                    panel.setBackground(Constants.COLOR_SELECTED);
-                    textArea.setBackground(Constants.COLOR_SELECTED);
-                } else {
-                    panel.setBackground(Constants.COLOR_DEFAULT);
-                    textArea.setBackground(Constants.COLOR_DEFAULT);
-                }
-            }
-        };
-        panel.addMouseListener(clickAdapter);
-        textArea.addMouseListener(clickAdapter);
-
-        // ダミーのJButtonを作成（既存の選択ロジック用）
-        JButton dummyButton = new JButton();
-        dummyButton.setVisible(false);
-        dummyButton.putClientProperty("panel", panel);
-        dummyButton.putClientProperty("textArea", textArea);
-
-        choiceButtons.add(dummyButton);
-        choicesPanel.add(panel);
+        // 以降の理由入力の編集をこの問題のものとして記録
+        if (keystrokeRecorder != null) {
+            keystrokeRecorder.markQuestion(questionNum);
+        }
     }
     
     private void selectChoice(String choiceText, int index) {
         // 理由を書き始めた後は選択不可
-        if (reasonStarted) {
+        if (session.selectChoice(choiceText) == SurveySession.Outcome.CHANGE_DISABLED) {
             statusLabel.setText(Constants.MSG_CHANGE_DISABLED_STATUS);
             JOptionPane.showMessageDialog(this, Constants.MSG_CANNOT_CHANGE_CHOICE,
                 "変更できません", JOptionPane.WARNING_MESSAGE);
             return;
         }
         
-        // 選択を更新
-        selectedChoice = choiceText;
-        
-        // ログに記録
-        logger.logChoiceSelection(currentQuestionIndex + 1, choiceText);
-        
         // 選択したボタンの色を変更
-        updateChoiceButtonColors(index);
+        choicePool.setSelected(index);
         
         // 理由入力を有効化してリセット
         resetReasonInput();
     }
     
-    private void updateChoiceButtonColors(int selectedIndex) {
-        for (int i = 0; i < choiceButtons.size(); i++) {
-            JButton button = choiceButtons.get(i);
-            JPanel panel = (JPanel) button.getClientProperty("panel");
-            JTextArea textArea = (JTextArea) button.getClientProperty("textArea");
-
-            if (panel != null && textArea != null) {
-                if (i == selectedIndex) {
-                    panel.setBackground(Constants.COLOR_SELECTED);
-                    textArea.setBackground(Constants.COLOR_SELECTED);
-                    textArea.setForeground(Constants.COLOR_SELECTED_TEXT);
-                } else {
-                    panel.setBackground(Constants.COLOR_DEFAULT);
-                    textArea.setBackground(Constants.COLOR_DEFAULT);
-                    textArea.setForeground(Constants.COLOR_DEFAULT_TEXT);
-                }
-            }
-        }
-    }
-    
     private void resetReasonInput() {
         reasonTextArea.setEnabled(true);
         reasonTextArea.setText("");
-        reasonStarted = false;
         rewriteButton.setEnabled(false);
         nextButton.setEnabled(false);
         statusLabel.setText(" ");
     }
     
     private void onReasonKeyPress() {
-        if (!reasonStarted && reasonTextArea.getText().length() > 0) {
-            reasonStarted = true;
+        if (!session.isReasonStarted() && reasonTextArea.getText().length() > 0) {
+            session.startReason();
             rewriteButton.setEnabled(true);
             nextButton.setEnabled(true);
             
-            // ログに記録
-            logger.logReasonStart(currentQuestionIndex + 1);
-            
             statusLabel.setText(Constants.MSG_REASON_STARTED_STATUS);
             statusLabel.setForeground(Constants.COLOR_STATUS_WARNING);
         }
     }
     
+    private void recordReasonInsert(DocumentEvent e) {
+        if (keystrokeRecorder == null) return;
+        try {
+            String inserted = e.getDocument().getText(e.getOffset(), e.getLength());
+            keystrokeRecorder.recordInsert(e.getOffset(), inserted);
+        } catch (BadLocationException ex) {
+            System.err.println("挿入文字列を取得できませんでした: " + ex.getMessage());
+        }
+    }
+
+    private void recordReasonRemove(DocumentEvent e) {
+        if (keystrokeRecorder == null) return;
+        keystrokeRecorder.recordRemove(e.getOffset(), e.getLength());
+    }
+
     private void rewriteReason() {
-        // ログに記録
-        logger.logRewriteReason(currentQuestionIndex + 1);
+        // 選択肢を再び変更できるようにする
+        session.rewriteReason();
         
         // 理由をクリア
         reasonTextArea.setText("");
-        reasonStarted = false;
         
         // ボタンの状態を更新
         rewriteButton.setEnabled(false);
@@ -471,76 +573,33 @@ public class SurveyInterfaceWindow extends JFrame {
     }
     
     private void nextQuestion() {
-        if (selectedChoice == null) {
+        SurveySession.Outcome outcome = session.next(reasonTextArea.getText());
+        if (outcome == SurveySession.Outcome.NO_CHOICE) {
             JOptionPane.showMessageDialog(this, Constants.MSG_NO_CHOICE_SELECTED,
                 "エラー", JOptionPane.ERROR_MESSAGE);
             return;
         }
-
-        String reason = reasonTextArea.getText().trim();
-
-        if (reason.isEmpty()) {
+        if (outcome == SurveySession.Outcome.NO_REASON) {
             JOptionPane.showMessageDialog(this, Constants.MSG_NO_REASON,
                 "エラー", JOptionPane.ERROR_MESSAGE);
             return;
         }
         
-        // ログに理由の内容を記録
-        logger.logReasonText(currentQuestionIndex + 1, reason);
-        
-        // 回答を保存
-        Response response = new Response(
-            respondentId,
-            FileUtils.getTimestamp(),
-            currentQuestionIndex + 1,
-            questions.get(currentQuestionIndex).getText(),
-            selectedChoice,
-            reason
-        );
-        
-        responses.add(response);
-        
-        // ログに記録
-        int oldIndex = currentQuestionIndex;
-        currentQuestionIndex++;
-        
-        if (currentQuestionIndex < questions.size()) {
-            logger.logNextQuestion(oldIndex + 1, currentQuestionIndex + 1);
-        }
-        
         // 次の問題を表示
         displayQuestion();
     }
     
     private void prevQuestion() {
-        if (currentQuestionIndex > 0) {
-            int oldIndex = currentQuestionIndex;
-            currentQuestionIndex--;
-            
-            logger.logNextQuestion(oldIndex + 1, currentQuestionIndex + 1);
-            
-            // 前の回答があれば削除
-            if (!responses.isEmpty()) {
-                responses.remove(responses.size() - 1);
-            }
-            
+        if (session.prev()) {
             displayQuestion();
         }
     }
     
     private void submitSurvey() {
-        logger.logSubmit();
+        session.submit();
         
         // 設定から回答ファイルのパスを取得
-        String filepath = configManager.getResponsePath(respondentId);
-        
-        // ディレクトリが存在しない場合は作成
-        if (filepath != null) {
-            File responseDir = new File(filepath).getParentFile();
-            if (responseDir != null && !responseDir.exists()) {
-                responseDir.mkdirs();
-            }
-        }
+        String filepath = configManager.getResponsePath(respondentId, sessionClock);
         
         // 設定にパスがない場合は手動で保存先を選択
         if (filepath == null) {
@@ -559,19 +618,27 @@ public class SurveyInterfaceWindow extends JFrame {
             String outputFormat = configManager.getConfig().getOutputFormat();
             
             // 拡張子を削除してベースパスを取得
-            String baseFilepath = filepath.replace(".csv", "").replace(".json", "");
+            String baseFilepath = FileUtils.responseBasePath(filepath);
             
-            // 保存
-            if (FileUtils.saveResponse(responses, baseFilepath, outputFormat)) {
+            // 保存（回答ストアへの追記とジャーナルの完了処理を含む）
+            if (session.save(filepath, configManager.getConfig())) {
                 StringBuilder message = new StringBuilder("アンケートが完了しました。\n回答を保存しました:\n");
                 
                 if ("csv".equals(outputFormat) || "both".equals(outputFormat)) {
                     message.append(baseFilepath).append(".csv\n");
+                    String dictionaryPath = FileUtils.dictionaryPathFor(baseFilepath + ".csv");
+                    if (new File(dictionaryPath).exists()) {
+                        message.append(dictionaryPath).append("\n");
+                    }
                 }
                 if ("json".equals(outputFormat) || "both".equals(outputFormat)) {
                     message.append(baseFilepath).append(".json\n");
                 }
-                
+                if ("ndjson".equals(outputFormat)) {
+                    message.append(baseFilepath).append(Constants.JSON_LINES_EXTENSION).append("\n");
+                }
+
+
                 JOptionPane.showMessageDialog(this, message.toString(), "完了",
                     JOptionPane.INFORMATION_MESSAGE);
             } else {
@@ -1,76 +1,381 @@
 package com.study.form.util;
 
+import com.google.gson.stream.JsonWriter;
 import com.study.form.Constants;
+import com.study.form.model.Config;
 
 import java.io.*;
-import java.time.LocalDateTime;
-import java.time.format.DateTimeFormatter;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
 
 /**
  * アクションロガー - ユーザーアクションをログに記録
+ *
+ * <p>書き込みモードは2種類あります。</p>
+ * <ul>
+ *   <li>{@code buffered}: セッション中はログファイルを開いたままにし、
+ *       エントリをバッファに溜めて一定件数・一定間隔・送信時にまとめてフラッシュします</li>
+ *   <li>{@code direct}: イベントごとにファイルを開いて追記し、すぐに閉じます（従来動作）</li>
+ * </ul>
+ *
+ * <p>バッファモードでは、ウィンドウを閉じたとき（{@link #close()}）と
+ * JVM終了時（シャットダウンフック）に必ずフラッシュされます。定期フラッシュのスレッドと
+ * シャットダウンフックはすべてのロガーで1つずつを共有するため、ロガーを作るたびにスレッドは増えません。</p>
+ *
+ * <p>ログファイルの拡張子が {@code .jsonl} の場合は、1行に1イベントのJSON（NDJSON）で記録します
+ * （{@code log_output_format} が {@code ndjson} のとき {@link ConfigManager#getLogPath} がこの拡張子にします）。
+ * ヘッダー行がないため追記だけで済み、{@code tail -f} での監視や行単位の並列処理ができます。</p>
+ *
+ * <p>非同期モード（{@code async_logging}）では、呼び出し側はイベントを
+ * {@link AsyncLogDispatcher} のキューに積むだけで戻り、ファイルへの書き込みは
+ * バックグラウンドスレッドで行われます。</p>
+ *
+ * <p>書き込んだエントリのコンソール表示は {@code log_level} が {@code DEBUG} の場合だけ行い、
+ * 件数・書き込み時間は {@link Metrics} に記録します。</p>
  */
-public class ActionLogger {
+public class ActionLogger implements Closeable {
+    private static final Logger LOG = Log.get(ActionLogger.class);
+    private static final Metrics.Counter EVENTS = Metrics.registry().counter(
+        "form_action_log_events_total", "アクションログに書き込んだイベント数");
+    private static final Metrics.Counter WRITE_ERRORS = Metrics.registry().counter(
+        "form_action_log_write_errors_total", "アクションログへの書き込みに失敗した回数");
+    private static final Metrics.Counter FLUSHES = Metrics.registry().counter(
+        "form_action_log_flushes_total", "アクションログのバッファをフラッシュした回数");
+    private static final Metrics.Timer WRITES = Metrics.registry().timer(
+        "form_action_log_write_seconds", "アクションログへの書き込み時間（まとめて書く単位）");
+
+    // 入力が止まっている間もバッファが残らないよう定期的にフラッシュする（全ロガーで共有）
+    private static final ScheduledThreadPoolExecutor FLUSHER = new ScheduledThreadPoolExecutor(1, r -> {
+        Thread t = new Thread(r, "action-log-flusher");
+        t.setDaemon(true);
+        return t;
+    });
+    // JVM終了時に書き出す、閉じていないロガー
+    private static final Set<ActionLogger> OPEN = ConcurrentHashMap.newKeySet();
+
+    static {
+        FLUSHER.setRemoveOnCancelPolicy(true);
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            for (ActionLogger logger : OPEN) {
+                logger.drainAndCloseWriter();
+            }
+        }, "action-log-shutdown"));
+    }
+
     private String logFile;
-    private static final DateTimeFormatter TIMESTAMP_FORMAT = 
-        DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss.SSS");
-    
+    private final SessionClock clock;
+    private final boolean jsonLines;
+    private final boolean withElapsed;
+    private final String lineSeparator;
+
+    private final boolean buffered;
+    private final long flushIntervalMillis;
+    private final int flushBatchSize;
+
+    private Writer writer;
+    private int pendingEntries = 0;
+    private long lastFlushTime;
+    private boolean closed = false;
+    private ScheduledFuture<?> flushTask;
+    private AsyncLogDispatcher<LogEvent> dispatcher;
+
     public ActionLogger(String logFile) {
+        this(logFile, new Config());
+    }
+
+    public ActionLogger(String logFile, Config config) {
+        this(logFile, config, SessionClock.start());
+    }
+
+    /**
+     * 設定に従った書き込みモードでロガーを作成します。
+     *
+     * @param logFile ログファイルのパス
+     * @param config 書き込みモード・フラッシュ間隔・フラッシュ件数を持つ設定
+     * @param clock 経過時間の基準となるセッションクロック
+     */
+    public ActionLogger(String logFile, Config config, SessionClock clock) {
         this.logFile = logFile;
+        this.clock = clock;
+        this.jsonLines = ResponseJsonReader.isJsonLines(new File(logFile));
+        // 経過ナノ秒の列を追加する前のログに追記する場合は、そのファイルの列に合わせる
+        this.withElapsed = jsonLines || !new File(logFile).exists()
+            || FileUtils.hasCsvColumn(new File(logFile), FileUtils.ELAPSED_COLUMN);
+        this.lineSeparator = jsonLines ? "\n" : System.lineSeparator();
+        this.buffered = !Constants.LOG_WRITE_MODE_DIRECT.equals(config.getLogWriteMode());
+        this.flushIntervalMillis = config.getLogFlushIntervalMs();
+        this.flushBatchSize = config.getLogFlushBatchSize();
         initializeLogFile();
+        if (buffered) {
+            openPersistentWriter();
+        }
+        if (config.isAsyncLogging()) {
+            dispatcher = new AsyncLogDispatcher<>("action-log-writer", config.getLogQueueCapacity(),
+                AsyncLogDispatcher.BackpressurePolicy.fromConfigValue(config.getLogBackpressurePolicy()),
+                this::writeEvents);
+        }
+        if (buffered || dispatcher != null) {
+            OPEN.add(this);
+        }
     }
-    
+
     private void initializeLogFile() {
         File file = new File(logFile);
         if (!file.exists()) {
             File parent = file.getParentFile();
             if (parent != null && !parent.exists()) {
                 boolean created = parent.mkdirs();
-                System.out.println("ログディレクトリを作成: " + parent.getAbsolutePath() + " (成功: " + created + ")");
+                LOG.info("ログディレクトリを作成: " + parent.getAbsolutePath() + " (成功: " + created + ")");
             }
 
             try (PrintWriter writer = new PrintWriter(
                     new OutputStreamWriter(new FileOutputStream(file), "UTF-8"))) {
-                writer.println("タイムスタンプ,アクション種別,詳細情報");
-                System.out.println("ログファイルを初期化しました: " + logFile);
+                // NDJSONは各行が完結しているためヘッダーを書かない
+                if (!jsonLines) {
+                    writer.println("タイムスタンプ,経過ナノ秒,アクション種別,詳細情報");
+                }
+                LOG.info("ログファイルを初期化しました: " + logFile);
             } catch (Exception e) {
                 System.err.println("ログファイルの初期化に失敗しました: " + logFile);
                 e.printStackTrace();
             }
         } else {
-            System.out.println("既存のログファイルを使用します: " + logFile);
+            LOG.info("既存のログファイルを使用します: " + logFile);
+        }
+    }
+
+    private void openPersistentWriter() {
+        try {
+            writer = new BufferedWriter(new OutputStreamWriter(
+                new FileOutputStream(logFile, true), StandardCharsets.UTF_8),
+                Constants.LOG_WRITER_BUFFER_SIZE);
+        } catch (IOException e) {
+            System.err.println("ログファイルを開けませんでした。直接書き込みモードで継続します: " + logFile);
+            e.printStackTrace();
+            return;
         }
+        lastFlushTime = System.currentTimeMillis();
+        flushTask = FLUSHER.scheduleWithFixedDelay(this::flushIfDue,
+            flushIntervalMillis, flushIntervalMillis, TimeUnit.MILLISECONDS);
     }
-    
+
     private void logAction(String actionType, String details) {
-        String timestamp = LocalDateTime.now().format(TIMESTAMP_FORMAT);
-        String logEntry = timestamp + "," + actionType + "," + escapeCSV(details);
+        LogEvent event = LogEvent.now(actionType, details);
+        if (dispatcher != null && dispatcher.submit(event)) {
+            return;
+        }
+        writeEvents(Collections.singletonList(event));
+    }
+
+    private synchronized void writeEvents(List<LogEvent> events) {
+        long start = System.nanoTime();
+        boolean forceFlush = false;
+        List<String> entries = new ArrayList<>(events.size());
+        for (LogEvent event : events) {
+            entries.add(formatEntry(event));
+            if (Constants.LOG_ACTION_SUBMIT.equals(event.getActionType())) {
+                forceFlush = true;
+            }
+        }
+
+        if (writer != null) {
+            writeBuffered(entries, forceFlush);
+        } else {
+            writeDirect(entries);
+        }
+        echo(entries);
+        EVENTS.add(events.size());
+        WRITES.recordSince(start);
+    }
 
-        try (PrintWriter writer = new PrintWriter(
-                new OutputStreamWriter(new FileOutputStream(logFile, true), "UTF-8"))) {
-            writer.println(logEntry);
-            System.out.println("ログ記録: " + logEntry);
+    // 表示しない場合は文字列を作らない
+    private static void echo(List<String> entries) {
+        if (!LOG.isLoggable(Level.FINE)) return;
+        for (String logEntry : entries) {
+            LOG.fine("ログ記録: " + logEntry);
+        }
+    }
+
+    private String formatEntry(LogEvent event) {
+        if (jsonLines) {
+            return formatJsonEntry(event);
+        }
+        String elapsed = withElapsed ? "," + clock.elapsedNanos(event.getNanoTime()) : "";
+        return Timestamps.format(event.getEpochMillis()) + elapsed
+            + "," + event.getActionType() + "," + CsvWriter.escape(event.getDetails());
+    }
+
+    private String formatJsonEntry(LogEvent event) {
+        StringWriter out = new StringWriter(128);
+        try (JsonWriter json = new JsonWriter(out)) {
+            json.beginObject()
+                .name("timestamp").value(Timestamps.format(event.getEpochMillis()))
+                .name("elapsedNanos").value(clock.elapsedNanos(event.getNanoTime()))
+                .name("actionType").value(event.getActionType())
+                .name("details").value(event.getDetails())
+                .endObject();
+        } catch (IOException e) {
+            // StringWriterへの書き込みでは発生しない
+            throw new UncheckedIOException(e);
+        }
+        return out.toString();
+    }
+
+    private void writeDirect(List<String> entries) {
+        // 1行を1回の書き込みで追記し、同じファイルに書く他のプロセスと行が混ざらないようにする
+        try (OutputStream out = new FileOutputStream(logFile, true)) {
+            for (String logEntry : entries) {
+                out.write((logEntry + lineSeparator).getBytes(StandardCharsets.UTF_8));
+            }
         } catch (Exception e) {
+            WRITE_ERRORS.increment();
             System.err.println("ログの書き込みに失敗しました: " + logFile);
-            System.err.println("ログ内容: " + logEntry);
+            System.err.println("ログ内容: " + entries);
             e.printStackTrace();
         }
     }
-    
-    private String escapeCSV(String text) {
-        if (text.contains(",") || text.contains("\"") || text.contains("\n")) {
-            return "\"" + text.replace("\"", "\"\"") + "\"";
+
+    private void writeBuffered(List<String> entries, boolean forceFlush) {
+        try {
+            for (String logEntry : entries) {
+                writer.write(logEntry);
+                writer.write(lineSeparator);
+                pendingEntries++;
+            }
+            if (forceFlush || pendingEntries >= flushBatchSize
+                    || System.currentTimeMillis() - lastFlushTime >= flushIntervalMillis) {
+                flushWriter();
+            }
+        } catch (IOException e) {
+            WRITE_ERRORS.increment();
+            System.err.println("ログの書き込みに失敗しました: " + logFile);
+            System.err.println("ログ内容: " + entries);
+            e.printStackTrace();
+        }
+    }
+
+    private synchronized void flushIfDue() {
+        if (writer != null && pendingEntries > 0
+                && System.currentTimeMillis() - lastFlushTime >= flushIntervalMillis) {
+            flush();
+        }
+    }
+
+    private void flushWriter() throws IOException {
+        writer.flush();
+        FLUSHES.increment();
+        pendingEntries = 0;
+        lastFlushTime = System.currentTimeMillis();
+    }
+
+    /**
+     * バッファに溜まっているログエントリをファイルに書き出します。
+     *
+     * <p>直接書き込みモードでは何もしません。非同期モードでキューに残っている
+     * イベントは含まれません（書き込みスレッドが書き出した時点で反映されます）。</p>
+     */
+    public synchronized void flush() {
+        if (writer == null) return;
+        try {
+            flushWriter();
+        } catch (IOException e) {
+            System.err.println("ログのフラッシュに失敗しました: " + logFile);
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * バッファをフラッシュしてログファイルを閉じます。
+     *
+     * <p>閉じた後のログは直接書き込みモードで記録されます。
+     * 複数回呼び出しても安全です。</p>
+     */
+    @Override
+    public void close() {
+        synchronized (this) {
+            if (closed) return;
+            closed = true;
+        }
+        if (flushTask != null) {
+            flushTask.cancel(false);
         }
-        return text;
+        drainAndCloseWriter();
+        OPEN.remove(this);
     }
-    
+
+    private void drainAndCloseWriter() {
+        if (dispatcher != null) {
+            dispatcher.close();
+        }
+        closeWriter();
+    }
+
+    private synchronized void closeWriter() {
+        if (writer == null) return;
+        try {
+            writer.close();
+        } catch (IOException e) {
+            System.err.println("ログファイルのクローズに失敗しました: " + logFile);
+            e.printStackTrace();
+        } finally {
+            writer = null;
+            pendingEntries = 0;
+        }
+    }
+
+    /**
+     * ログファイルのパスを返します。
+     *
+     * @return ログファイルのパス
+     */
+    public String getLogFile() {
+        return logFile;
+    }
+
+    /**
+     * 非同期キューに残っている未書き込みイベント数を返します。
+     *
+     * @return キューの深さ（同期モードでは常に0）
+     */
+    public int getQueueDepth() {
+        return dispatcher != null ? dispatcher.getQueueDepth() : 0;
+    }
+
+    /**
+     * 非同期キューの容量超過で破棄したイベント数を返します。
+     *
+     * @return 破棄数（同期モードでは常に0）
+     */
+    public long getDroppedCount() {
+        return dispatcher != null ? dispatcher.getDroppedCount() : 0;
+    }
+
+    /**
+     * 非同期キューの容量を超えてメモリに溜めたイベント数を返します。
+     *
+     * @return 容量超過数（同期モードでは常に0）
+     */
+    public long getSpilledCount() {
+        return dispatcher != null ? dispatcher.getSpilledCount() : 0;
+    }
+
     public void logChoiceSelection(int questionNum, String choice) {
         logAction(Constants.LOG_ACTION_CHOICE_SELECTION, "問題" + questionNum + ": " + choice);
     }
-    
+
     public void logReasonStart(int questionNum) {
         logAction(Constants.LOG_ACTION_REASON_START, "問題" + questionNum);
     }
-    
+
     public void logReasonText(int questionNum, String reasonText) {
         String preview = reasonText;
         if (reasonText.length() > Constants.LOG_TEXT_PREVIEW_LENGTH) {
@@ -78,16 +383,17 @@ public class ActionLogger {
         }
         logAction(Constants.LOG_ACTION_REASON_TEXT, "問題" + questionNum + ": " + preview);
     }
-    
+
     public void logRewriteReason(int questionNum) {
         logAction(Constants.LOG_ACTION_REASON_REWRITE, "問題" + questionNum);
     }
-    
+
     public void logNextQuestion(int fromNum, int toNum) {
         logAction(Constants.LOG_ACTION_QUESTION_MOVE, "問題" + fromNum + " → 問題" + toNum);
     }
-    
+
     public void logSubmit() {
+        // 送信イベントを書き込んだバッチで強制フラッシュされる
         logAction(Constants.LOG_ACTION_SUBMIT, "完了");
     }
 }
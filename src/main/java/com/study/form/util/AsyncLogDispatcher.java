@@ -0,0 +1,301 @@
+package com.study.form.util;
+
+import com.study.form.Constants;
+
+import java.io.Closeable;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Consumer;
+
+/**
+ * 非同期ログディスパッチャー
+ *
+ * <p>呼び出し側（主にイベントディスパッチスレッド）はイベントをロックフリーの
+ * キューに積むだけで戻り、バックグラウンドの書き込みスレッドがキューをまとめて
+ * 取り出してハンドラに渡します。キューの容量を超えた場合の動作は
+ * {@link BackpressurePolicy} で選択します。</p>
+ *
+ * <p>書き込みスレッドはすべてのディスパッチャーで共有するプールから借ります。キューにイベントがある間だけ
+ * 1本がそのディスパッチャーを担当するため、イベントの順序は保たれ、セッションごとにディスパッチャーを
+ * 作り直してもスレッドの生成・終了は発生しません。</p>
+ *
+ * <p>キューの深さ・破棄数・容量超過数は書き込みスレッド名ごとにメトリクス
+ * （{@code form_<スレッド名>_queue_depth}, {@code _dropped_total}, {@code _spilled_total}）でも参照できます。</p>
+ *
+ * @param <E> キューに積むイベントの型
+ */
+public class AsyncLogDispatcher<E> implements Closeable {
+
+    /**
+     * キューが容量に達したときの動作
+     */
+    public enum BackpressurePolicy {
+        /** 書き込みスレッドが空きを作るまで呼び出し側を待たせる */
+        BLOCK,
+        /** 最も古い未書き込みイベントを破棄して新しいイベントを積む */
+        DROP_OLDEST,
+        /** 容量を超えてもメモリ上に積み続ける */
+        SPILL;
+
+        /**
+         * 設定値の文字列からポリシーを取得します。不明な値は {@link #SPILL} になります。
+         *
+         * @param value 設定値（block / drop_oldest / spill）
+         * @return 対応するポリシー
+         */
+        public static BackpressurePolicy fromConfigValue(String value) {
+            if (Constants.LOG_BACKPRESSURE_BLOCK.equals(value)) return BLOCK;
+            if (Constants.LOG_BACKPRESSURE_DROP_OLDEST.equals(value)) return DROP_OLDEST;
+            return SPILL;
+        }
+    }
+
+    private static final long CLOSE_WAIT_MILLIS = 50;
+    private static final long BLOCK_PARK_NANOS = TimeUnit.MICROSECONDS.toNanos(100);
+    private static final long CLOSE_TIMEOUT_MILLIS = 5000;
+    // キューの深さのゲージは同じ名前の実行中のディスパッチャーの合計
+    private static final Map<String, Set<AsyncLogDispatcher<?>>> LIVE = new ConcurrentHashMap<>();
+    // 空きスレッドは一定時間で終了する（デーモンスレッドなのでJVMの終了は妨げない）
+    private static final ExecutorService WRITERS = new ThreadPoolExecutor(0, Integer.MAX_VALUE,
+        60, TimeUnit.SECONDS, new SynchronousQueue<>(), r -> {
+            Thread t = new Thread(r, "async-log-writer");
+            t.setDaemon(true);
+            return t;
+        });
+    // 書き込みスレッドが現在担当しているディスパッチャー
+    private static final ThreadLocal<AsyncLogDispatcher<?>> DRAINING = new ThreadLocal<>();
+
+    private final ConcurrentLinkedQueue<E> queue = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger depth = new AtomicInteger();
+    private final AtomicLong droppedCount = new AtomicLong();
+    private final AtomicLong spilledCount = new AtomicLong();
+    private final int capacity;
+    private final BackpressurePolicy policy;
+    private final Consumer<List<E>> batchHandler;
+    private final String name;
+    private final AtomicBoolean scheduled = new AtomicBoolean(false);
+    private final Set<AsyncLogDispatcher<?>> live;
+    private final Metrics.Counter droppedMetric;
+    private final Metrics.Counter spilledMetric;
+    private volatile boolean running = true;
+
+    /**
+     * ディスパッチャーを作成します。書き込みスレッドは最初のイベントを積んだときに共有のプールから割り当てます。
+     *
+     * @param name ディスパッチャー名（書き込み中のスレッド名とメトリクス名に使う）
+     * @param capacity キュー容量
+     * @param policy 容量超過時のポリシー
+     * @param batchHandler 取り出したイベントのまとまりを処理するハンドラ（書き込みスレッドで呼ばれる）
+     */
+    public AsyncLogDispatcher(String name, int capacity, BackpressurePolicy policy,
+                              Consumer<List<E>> batchHandler) {
+        this.capacity = capacity;
+        this.policy = policy;
+        this.batchHandler = batchHandler;
+        this.name = name;
+        String prefix = "form_" + name.replace('-', '_');
+        this.live = LIVE.computeIfAbsent(name, key -> {
+            Set<AsyncLogDispatcher<?>> dispatchers = ConcurrentHashMap.newKeySet();
+            Metrics.registry().gauge(prefix + "_queue_depth", "書き込み待ちのイベント数（" + key + "）",
+                () -> dispatchers.stream().mapToLong(AsyncLogDispatcher::getQueueDepth).sum());
+            return dispatchers;
+        });
+        this.live.add(this);
+        this.droppedMetric = Metrics.registry().counter(prefix + "_dropped_total",
+            "書き込まずに破棄したイベント数（" + name + "）");
+        this.spilledMetric = Metrics.registry().counter(prefix + "_spilled_total",
+            "キューの容量を超えて積んだイベント数（" + name + "）");
+    }
+
+    /**
+     * イベントをキューに積みます。
+     *
+     * @param event イベント
+     * @return 積めた場合はtrue、ディスパッチャーが停止済みの場合はfalse
+     */
+    public boolean submit(E event) {
+        if (!running) return false;
+
+        if (policy == BackpressurePolicy.BLOCK) {
+            reserveSlotBlocking();
+        } else if (depth.incrementAndGet() > capacity) {
+            if (policy == BackpressurePolicy.DROP_OLDEST) {
+                if (queue.poll() != null) {
+                    depth.decrementAndGet();
+                    droppedCount.incrementAndGet();
+                    droppedMetric.increment();
+                }
+            } else {
+                spilledCount.incrementAndGet();
+                spilledMetric.increment();
+            }
+        }
+
+        queue.offer(event);
+        if (!running) {
+            // 受付の確認と積む間に停止した場合は、停止処理の待ち合わせが終わっていても書かれるよう自分で書き出す
+            drainRemaining();
+        } else {
+            schedule();
+        }
+        return true;
+    }
+
+    private void reserveSlotBlocking() {
+        while (true) {
+            int current = depth.get();
+            if (current < capacity || !running) {
+                if (depth.compareAndSet(current, current + 1)) return;
+            } else {
+                schedule();
+                LockSupport.parkNanos(BLOCK_PARK_NANOS);
+            }
+        }
+    }
+
+    // 書き込みスレッドの終了後に積まれたイベントを呼び出し側のスレッドで書き出す
+    private synchronized void drainRemaining() {
+        List<E> batch = new ArrayList<>();
+        E event;
+        while ((event = queue.poll()) != null) {
+            batch.add(event);
+        }
+        if (batch.isEmpty()) return;
+        depth.addAndGet(-batch.size());
+        try {
+            batchHandler.accept(batch);
+        } catch (RuntimeException e) {
+            System.err.println("ログイベントの書き込み中にエラーが発生しました: " + e.getMessage());
+            e.printStackTrace();
+        }
+    }
+
+    // 担当する書き込みスレッドがなければプールに取り出しを依頼する
+    private void schedule() {
+        if (scheduled.compareAndSet(false, true)) {
+            WRITERS.execute(this::drainLoop);
+        }
+    }
+
+    private void drainLoop() {
+        Thread thread = Thread.currentThread();
+        String poolName = thread.getName();
+        thread.setName(name);
+        DRAINING.set(this);
+        try {
+            List<E> batch = new ArrayList<>(Constants.LOG_DRAIN_BATCH_SIZE);
+            while (true) {
+                E event;
+                while (batch.size() < Constants.LOG_DRAIN_BATCH_SIZE && (event = queue.poll()) != null) {
+                    batch.add(event);
+                }
+                if (batch.isEmpty()) {
+                    scheduled.set(false);
+                    // 空を確認してから担当を外すまでの間に積まれたイベントは続けて取り出す
+                    if (queue.isEmpty() || !scheduled.compareAndSet(false, true)) break;
+                    continue;
+                }
+                depth.addAndGet(-batch.size());
+                try {
+                    batchHandler.accept(batch);
+                } catch (RuntimeException e) {
+                    System.err.println("ログイベントの書き込み中にエラーが発生しました: " + e.getMessage());
+                    e.printStackTrace();
+                }
+                batch.clear();
+            }
+        } finally {
+            DRAINING.remove();
+            thread.setName(poolName);
+            synchronized (this) {
+                notifyAll();
+            }
+        }
+    }
+
+    /**
+     * 現在キューに残っている未書き込みイベント数を返します。
+     *
+     * @return キューの深さ
+     */
+    public int getQueueDepth() {
+        return Math.max(0, depth.get());
+    }
+
+    /**
+     * 破棄したイベント数を返します（DROP_OLDESTポリシーで破棄したものと、
+     * 停止時に時間内に書き出せなかったもの）。
+     *
+     * @return 破棄数
+     */
+    public long getDroppedCount() {
+        return droppedCount.get();
+    }
+
+    /**
+     * SPILLポリシーで容量を超えて積んだイベント数を返します。
+     *
+     * @return 容量超過数
+     */
+    public long getSpilledCount() {
+        return spilledCount.get();
+    }
+
+    /**
+     * 受付を停止し、キューに残っているイベントをすべて書き出すまで待ちます。
+     *
+     * <p>時間内に書き出し終わらなかった場合は、キューに残ったイベントを破棄して
+     * {@link #getDroppedCount()} に数えます。</p>
+     */
+    @Override
+    public void close() {
+        running = false;
+        if (DRAINING.get() == this) return;
+        schedule();
+        boolean drained = awaitDrained();
+        if (!drained) {
+            long discarded = 0;
+            while (queue.poll() != null) {
+                depth.decrementAndGet();
+                discarded++;
+            }
+            droppedCount.addAndGet(discarded);
+            droppedMetric.add(discarded);
+            live.remove(this);
+            System.err.println("ログ書き込みスレッドが時間内に終了しませんでした。破棄: " + discarded);
+            return;
+        }
+        // 書き込みスレッドが空のキューを見て終わった直後に積まれたイベント
+        drainRemaining();
+        live.remove(this);
+    }
+
+    // 書き込みスレッドの担当が外れ、キューが空になるまで待つ
+    private synchronized boolean awaitDrained() {
+        long deadline = System.currentTimeMillis() + CLOSE_TIMEOUT_MILLIS;
+        while (scheduled.get() || !queue.isEmpty()) {
+            long remaining = deadline - System.currentTimeMillis();
+            if (remaining <= 0) return false;
+            try {
+                // 通知を取りこぼしても待ち続けないよう短い間隔で確認し直す
+                wait(Math.min(remaining, CLOSE_WAIT_MILLIS));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return false;
+            }
+        }
+        return true;
+    }
+}
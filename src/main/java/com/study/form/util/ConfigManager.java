@@ -1,83 +1,66 @@
 package com.study.form.util;
 
-import com.google.gson.Gson;
-import com.google.gson.GsonBuilder;
-import com.google.gson.reflect.TypeToken;
 import com.study.form.model.Config;
 import com.study.form.Constants;
 
-import java.io.*;
-import java.lang.reflect.Type;
+import java.io.File;
+import java.io.IOException;
 import java.time.LocalDateTime;
-import java.time.format.DateTimeFormatter;
-import java.util.Map;
+import java.util.function.Consumer;
 
 /**
  * アプリケーション設定の管理クラス
+ *
+ * <p>設定はプロセス全体で共有する {@link ConfigService} が保持するため、画面ごとに作成しても
+ * {@code config.json} は読み直しません。</p>
  */
 public class ConfigManager {
-    private static final String CONFIG_PATH = Constants.CONFIG_FILE;
-    private Config config;
-    private Gson gson;
+    private final ConfigService service;
     
     public ConfigManager() {
-        gson = new GsonBuilder().setPrettyPrinting().create();
-        loadConfig();
+        this(ConfigService.shared());
     }
-    
-    private void loadConfig() {
-        File configFile = new File(CONFIG_PATH);
-        if (configFile.exists()) {
-            try (Reader reader = new FileReader(configFile)) {
-                Type type = new TypeToken<Map<String, Object>>(){}.getType();
-                Map<String, Object> map = gson.fromJson(reader, type);
-                config = new Config();
-                config.fromMap(map);
-            } catch (IOException e) {
-                System.err.println("設定ファイルの読み込みに失敗しました: " + e.getMessage());
-                config = createDefaultConfig();
-            } catch (Exception e) {
-                System.err.println("設定ファイルのパースに失敗しました: " + e.getMessage());
-                config = createDefaultConfig();
-            }
-        } else {
-            config = createDefaultConfig();
-            saveConfig();
-        }
-    }
-    
-    private Config createDefaultConfig() {
-        Config defaultConfig = new Config();
-        defaultConfig.setQuestionsDirectory(Constants.QUESTIONS_DIR);
-        defaultConfig.setQuestionsFile(Constants.DEFAULT_QUESTIONS_FILE);
-        defaultConfig.setLogDirectory(Constants.LOGS_DIR);
-        defaultConfig.setLogNameFormat("action_log_{respondent_id}_{date}.csv");
-        defaultConfig.setResponseDirectory(Constants.RESPONSES_DIR);
-        defaultConfig.setResponseNameFormat("responses_{respondent_id}_{date}.csv");
-        defaultConfig.setAppearanceMode("System");
-        defaultConfig.setColorTheme("blue");
-        defaultConfig.setOutputFormat("csv");
-        defaultConfig.setFontSize("medium");
-        defaultConfig.setAutoSave(true);
-        defaultConfig.setDefaultChoices(4);
-        return defaultConfig;
+
+    public ConfigManager(ConfigService service) {
+        this.service = service;
     }
     
+    /**
+     * 書き込みを待っている設定の変更をすぐに書き込みます。
+     */
     public void saveConfig() {
-        try (Writer writer = new FileWriter(CONFIG_PATH)) {
-            gson.toJson(config.toMap(), writer);
-        } catch (IOException e) {
-            System.err.println("設定ファイルの保存に失敗しました: " + e.getMessage());
-        } catch (Exception e) {
-            System.err.println("設定のシリアライズに失敗しました: " + e.getMessage());
-        }
+        service.flush();
     }
     
+    /**
+     * 現在の設定を返します。返した設定は変更せず、変更は {@link #update(Consumer)} で行ってください。
+     *
+     * @return 設定のスナップショット
+     */
     public Config getConfig() {
-        return config;
+        return service.getSnapshot();
+    }
+
+    /**
+     * 設定を変更します。変更は他の画面にも反映され、まとめてファイルに書き込まれます。
+     *
+     * @param change 設定のコピーに対する変更
+     * @return 新しい設定
+     */
+    public Config update(Consumer<Config> change) {
+        return service.update(change);
+    }
+
+    public void addListener(ConfigService.Listener listener) {
+        service.addListener(listener);
+    }
+
+    public void removeListener(ConfigService.Listener listener) {
+        service.removeListener(listener);
     }
     
     public String getQuestionsPath() {
+        Config config = getConfig();
         if (config.getQuestionsDirectory() != null && config.getQuestionsFile() != null) {
             return config.getQuestionsDirectory() + File.separator + config.getQuestionsFile();
         }
@@ -85,53 +68,148 @@ public class ConfigManager {
     }
     
     public String getLogPath(String respondentId) {
-        return formatFilePath(config.getLogDirectory(), config.getLogNameFormat(), respondentId);
+        return getLogPath(respondentId, null);
+    }
+
+    /**
+     * セッションクロックを指定してログファイルのパスを作ります（{@code {session_nanos}} をそのクロックで表します）。
+     *
+     * @param respondentId 回答者ID
+     * @param clock セッションクロック（nullの場合はこの時点で開始したクロック）
+     * @return ログファイルのパス（設定にない場合はnull）
+     */
+    public String getLogPath(String respondentId, SessionClock clock) {
+        Config config = getConfig();
+        String path = formatFilePath(config.getLogDirectory(), config.getLogNameFormat(), respondentId, clock);
+        // NDJSON形式のログは拡張子で判別するため .jsonl に置き換える
+        if (path != null && Constants.LOG_OUTPUT_FORMAT_NDJSON.equals(config.getLogOutputFormat())
+                && !ResponseJsonReader.isJsonLines(new File(path))) {
+            int dot = path.lastIndexOf('.');
+            int separator = path.lastIndexOf(File.separatorChar);
+            path = (dot > separator ? path.substring(0, dot) : path) + Constants.JSON_LINES_EXTENSION;
+        }
+        return path;
     }
 
     public String getResponsePath(String respondentId) {
-        return formatFilePath(config.getResponseDirectory(), config.getResponseNameFormat(), respondentId);
+        return getResponsePath(respondentId, null);
     }
 
-    private String formatFilePath(String directory, String format, String respondentId) {
+    /**
+     * セッションクロックを指定して回答ファイルのパスを作ります（{@code {session_nanos}} をそのクロックで表します）。
+     *
+     * @param respondentId 回答者ID
+     * @param clock セッションクロック（nullの場合はこの時点で開始したクロック）
+     * @return 回答ファイルのパス（設定にない場合はnull）
+     */
+    public String getResponsePath(String respondentId, SessionClock clock) {
+        Config config = getConfig();
+        return formatFilePath(config.getResponseDirectory(), config.getResponseNameFormat(), respondentId, clock);
+    }
+
+    private String formatFilePath(String directory, String format, String respondentId, SessionClock clock) {
         if (directory == null || format == null) {
             return null;
         }
 
-        String filename = formatFilename(format, respondentId);
+        String filename = formatFilename(format, respondentId, clock);
         return directory + File.separator + filename;
     }
     
-    private String formatFilename(String format, String respondentId) {
-        DateTimeFormatter dateFormatter = DateTimeFormatter.ofPattern("yyyyMMdd");
-        DateTimeFormatter timeFormatter = DateTimeFormatter.ofPattern("HHmmss");
-        LocalDateTime now = LocalDateTime.now();
-
-        String participantName = config.getParticipantName() != null ? config.getParticipantName() : "";
-        String participantId = config.getParticipantId() != null ? config.getParticipantId() : "";
-
-        String filename = format
-            .replace("{date}", now.format(dateFormatter))
-            .replace("{time}", now.format(timeFormatter))
-            .replace("{respondent_id}", respondentId)
-            .replace("{participant_name}", participantName)
-            .replace("{participant_id}", participantId);
-
-        if (filename.contains("{sequence}")) {
-            boolean isResponseFile = format.equals(config.getResponseNameFormat());
-            int sequence;
-
-            if (isResponseFile) {
-                sequence = config.getResponseSequence();
-                config.setResponseSequence(sequence + 1);
-            } else {
-                sequence = config.getLogSequence();
-                config.setLogSequence(sequence + 1);
-            }
+    /**
+     * 連番を払い出します。払い出しファイルに記録がない場合は設定の連番から始めます。
+     *
+     * @param name 連番の名前（{@link Constants#SEQUENCE_LOG} または {@link Constants#SEQUENCE_RESPONSE}）
+     * @return 番号
+     */
+    public int nextSequence(String name) {
+        Config config = getConfig();
+        try {
+            return sequences().next(name, initialSequence(name), config.getSequenceBlockSize());
+        } catch (IOException e) {
+            // 払い出せない場合もファイル名は作れるように設定の連番を使う
+            System.err.println("連番の払い出しに失敗しました: " + e.getMessage());
+            return initialSequence(name);
+        }
+    }
 
-            filename = filename.replace("{sequence}", String.format("%03d", sequence));
-            saveConfig();
+    /**
+     * 次に払い出す連番を返します。
+     *
+     * @param name 連番の名前
+     * @return 番号
+     */
+    public int peekSequence(String name) {
+        try {
+            return sequences().peek(name, initialSequence(name));
+        } catch (IOException e) {
+            System.err.println("連番の読み込みに失敗しました: " + e.getMessage());
+            return initialSequence(name);
+        }
+    }
+
+    /**
+     * 次に払い出す連番を設定し直します。
+     *
+     * @param name 連番の名前
+     * @param value 次に払い出す番号
+     */
+    public void resetSequence(String name, int value) {
+        try {
+            sequences().reset(name, value);
+        } catch (IOException e) {
+            System.err.println("連番の保存に失敗しました: " + e.getMessage());
         }
+    }
+
+    private SequenceAllocator sequences() {
+        return SequenceAllocator.open(Constants.SEQUENCE_FILE);
+    }
+
+    // 払い出しファイルができる前の連番は config.json に保存されていた
+    private int initialSequence(String name) {
+        Config config = getConfig();
+        return Constants.SEQUENCE_RESPONSE.equals(name) ? config.getResponseSequence() : config.getLogSequence();
+    }
+
+    private String formatFilename(String format, String respondentId, SessionClock clock) {
+        Config config = getConfig();
+        FilenameTemplate template = FilenameTemplate.compile(format);
+        // 連番は専用のファイルで払い出す（config.json は書き換えない）
+        String sequenceName = format.equals(config.getResponseNameFormat())
+            ? Constants.SEQUENCE_RESPONSE : Constants.SEQUENCE_LOG;
 
-        return filename;
+        return template.render(LocalDateTime.now(), new FilenameTemplate.Variables() {
+            @Override
+            public String respondentId() {
+                return respondentId;
+            }
+
+            @Override
+            public String participantName() {
+                return config.getParticipantName();
+            }
+
+            @Override
+            public String participantId() {
+                return config.getParticipantId();
+            }
+
+            @Override
+            public String stationId() {
+                // 複数台運用で端末ごとにファイル名を分ける
+                return StationShipper.resolveStationId(config);
+            }
+
+            @Override
+            public int nextSequence() {
+                return ConfigManager.this.nextSequence(sequenceName);
+            }
+
+            @Override
+            public long sessionNanos() {
+                return (clock != null ? clock : SessionClock.start()).epochNanos();
+            }
+        });
     }
 }
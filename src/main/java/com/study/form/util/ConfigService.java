@@ -0,0 +1,301 @@
+package com.study.form.util;
+
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import com.google.gson.reflect.TypeToken;
+import com.study.form.Constants;
+import com.study.form.model.Config;
+
+import java.io.File;
+import java.io.IOException;
+import java.lang.reflect.Type;
+import java.nio.charset.Charset;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.logging.Logger;
+
+/**
+ * 設定サービス - プロセス全体で1つの設定を共有する
+ *
+ * <p>{@code config.json} は最初に1回だけ読み込み、各画面は {@link #getSnapshot()} で同じ設定を参照します。
+ * スナップショットは変更せず、変更は {@link #update(Consumer)} でコピーに対して行い、
+ * 新しいスナップショットに差し替えます（コピーオンライト）。差し替えると登録した {@link Listener} に通知します。</p>
+ * <p>ファイルへの書き込みは最後の変更から {@link Constants#CONFIG_SAVE_DELAY_MS} 後に1回にまとめて行い、
+ * 終了時には書き残しを書き込みます。{@code config.json} がアプリの外で編集された場合は
+ * {@link WatchService} で検知して読み直します。</p>
+ */
+public class ConfigService {
+    private static final Type MAP_TYPE = new TypeToken<Map<String, Object>>() { }.getType();
+    private static final Logger LOG = Log.get(ConfigService.class);
+    private static final Metrics.Counter LOADS = Metrics.registry().counter(
+        "form_config_loads_total", "設定ファイルを読み込んだ回数（外部での編集の読み直しを含む）");
+    private static final Metrics.Timer SAVES = Metrics.registry().timer(
+        "form_config_save_seconds", "設定ファイルの書き込み時間");
+    private static ConfigService shared;
+
+    /**
+     * 設定の変更を受け取る処理（変更したスレッド、または監視スレッドから呼ばれます）
+     */
+    public interface Listener {
+        void configChanged(Config config);
+    }
+
+    private final File file;
+    private final Gson gson = new GsonBuilder().setPrettyPrinting().create();
+    private final List<Listener> listeners = new CopyOnWriteArrayList<>();
+    private final ScheduledThreadPoolExecutor writer;
+    private volatile Config snapshot;
+    private String lastContent;
+    private ScheduledFuture<?> pendingSave;
+
+    /**
+     * 設定ファイルを読み込みます。ファイルがない場合は既定の設定で作成します。
+     *
+     * @param file 設定ファイル
+     */
+    public ConfigService(File file) {
+        this.file = file.getAbsoluteFile();
+        this.writer = new ScheduledThreadPoolExecutor(1, runnable -> {
+            Thread thread = new Thread(runnable, "config-writer");
+            thread.setDaemon(true);
+            return thread;
+        });
+        load();
+    }
+
+    /**
+     * プロセス全体で共有する設定サービスを返します。初回だけ {@code config.json} を読み込み、
+     * 外部での編集の監視と終了時の書き込みを開始します。
+     *
+     * @return 設定サービス
+     */
+    public static synchronized ConfigService shared() {
+        if (shared == null) {
+            shared = new ConfigService(new File(Constants.CONFIG_FILE));
+            shared.startWatching();
+            Runtime.getRuntime().addShutdownHook(new Thread(shared::flush, "config-flush"));
+        }
+        return shared;
+    }
+
+    private void load() {
+        if (!file.exists()) {
+            snapshot = createDefaultConfig();
+            flush();
+            return;
+        }
+        try {
+            String content = new String(Files.readAllBytes(file.toPath()), Charset.defaultCharset());
+            snapshot = parse(content);
+            lastContent = content;
+            LOADS.increment();
+        } catch (IOException e) {
+            System.err.println("設定ファイルの読み込みに失敗しました: " + e.getMessage());
+            snapshot = createDefaultConfig();
+        } catch (Exception e) {
+            System.err.println("設定ファイルのパースに失敗しました: " + e.getMessage());
+            snapshot = createDefaultConfig();
+        }
+    }
+
+    private Config parse(String content) {
+        Map<String, Object> map = gson.fromJson(content, MAP_TYPE);
+        Config config = new Config();
+        config.fromMap(map);
+        return config;
+    }
+
+    private Config createDefaultConfig() {
+        Config defaultConfig = new Config();
+        defaultConfig.setQuestionsDirectory(Constants.QUESTIONS_DIR);
+        defaultConfig.setQuestionsFile(Constants.DEFAULT_QUESTIONS_FILE);
+        defaultConfig.setLogDirectory(Constants.LOGS_DIR);
+        defaultConfig.setLogNameFormat("action_log_{respondent_id}_{date}.csv");
+        defaultConfig.setResponseDirectory(Constants.RESPONSES_DIR);
+        defaultConfig.setResponseNameFormat("responses_{respondent_id}_{date}.csv");
+        defaultConfig.setAppearanceMode("System");
+        defaultConfig.setColorTheme("blue");
+        defaultConfig.setOutputFormat("csv");
+        defaultConfig.setFontSize("medium");
+        defaultConfig.setAutoSave(true);
+        defaultConfig.setDefaultChoices(4);
+        return defaultConfig;
+    }
+
+    /**
+     * 現在の設定を返します。返した設定は変更しないでください（変更は {@link #update(Consumer)} で行います）。
+     *
+     * @return 設定のスナップショット
+     */
+    public Config getSnapshot() {
+        return snapshot;
+    }
+
+    /**
+     * 現在の設定のコピーを変更して差し替え、書き込みを予約します。
+     *
+     * @param change コピーに対する変更
+     * @return 新しい設定
+     */
+    public Config update(Consumer<Config> change) {
+        Config updated;
+        synchronized (this) {
+            updated = snapshot.copy();
+            change.accept(updated);
+            snapshot = updated;
+            scheduleSave();
+        }
+        notifyListeners(updated);
+        return updated;
+    }
+
+    public void addListener(Listener listener) {
+        listeners.add(listener);
+    }
+
+    public void removeListener(Listener listener) {
+        listeners.remove(listener);
+    }
+
+    private void notifyListeners(Config config) {
+        for (Listener listener : listeners) {
+            try {
+                listener.configChanged(config);
+            } catch (RuntimeException e) {
+                e.printStackTrace();
+            }
+        }
+    }
+
+    // 続けて変更された場合は最後の変更から待ち直し、1回だけ書き込む
+    private synchronized void scheduleSave() {
+        if (pendingSave != null) {
+            pendingSave.cancel(false);
+        }
+        pendingSave = writer.schedule(this::flush, Constants.CONFIG_SAVE_DELAY_MS, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * 書き込みを待っている変更をすぐに書き込みます。
+     */
+    public synchronized void flush() {
+        if (pendingSave != null) {
+            pendingSave.cancel(false);
+            pendingSave = null;
+        }
+        String content;
+        try {
+            content = gson.toJson(snapshot.toMap());
+        } catch (Exception e) {
+            System.err.println("設定のシリアライズに失敗しました: " + e.getMessage());
+            return;
+        }
+        if (content.equals(lastContent)) {
+            return;
+        }
+        // 一時ファイルから置き換え、監視側に書きかけの内容を読ませない
+        Path temp = new File(file.getParentFile(), file.getName() + ".tmp").toPath();
+        long start = System.nanoTime();
+        try {
+            byte[] bytes = content.getBytes(Charset.defaultCharset());
+            Files.write(temp, bytes);
+            Files.move(temp, file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+            // 読み直したときと比べられるようにファイルの文字コードを通した内容を覚えておく
+            lastContent = new String(bytes, Charset.defaultCharset());
+            SAVES.recordSince(start);
+        } catch (IOException e) {
+            System.err.println("設定ファイルの保存に失敗しました: " + e.getMessage());
+        }
+    }
+
+    /**
+     * 設定ファイルを読み直します。自分が書き込んだ内容と同じ場合は何もしません。
+     */
+    public void reload() {
+        Config reloaded;
+        synchronized (this) {
+            String content;
+            try {
+                content = new String(Files.readAllBytes(file.toPath()), Charset.defaultCharset());
+            } catch (IOException e) {
+                // 置き換えの途中などで読めない場合は次の通知で読み直す
+                return;
+            }
+            if (content.equals(lastContent)) {
+                return;
+            }
+            try {
+                reloaded = parse(content);
+            } catch (Exception e) {
+                System.err.println("編集された設定ファイルを読み込めませんでした: " + e.getMessage());
+                return;
+            }
+            // 外部での編集を優先し、書き込み待ちの変更は破棄する
+            if (pendingSave != null) {
+                pendingSave.cancel(false);
+                pendingSave = null;
+            }
+            lastContent = content;
+            snapshot = reloaded;
+        }
+        LOADS.increment();
+        LOG.info("設定ファイルを読み直しました: " + file);
+        notifyListeners(reloaded);
+    }
+
+    private void startWatching() {
+        WatchService watcher;
+        try {
+            watcher = file.toPath().getFileSystem().newWatchService();
+            file.getParentFile().toPath().register(watcher,
+                StandardWatchEventKinds.ENTRY_CREATE, StandardWatchEventKinds.ENTRY_MODIFY);
+        } catch (IOException | UnsupportedOperationException e) {
+            System.err.println("設定ファイルの監視を開始できませんでした: " + e.getMessage());
+            return;
+        }
+        Thread thread = new Thread(() -> watch(watcher), "config-watcher");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    private void watch(WatchService watcher) {
+        Path name = file.toPath().getFileName();
+        try {
+            while (true) {
+                WatchKey key = watcher.take();
+                boolean changed = false;
+                for (WatchEvent<?> event : key.pollEvents()) {
+                    if (name.equals(event.context())) {
+                        changed = true;
+                    }
+                }
+                key.reset();
+                if (changed) {
+                    // エディタの保存は複数回の通知になるため少し待ってからまとめて読む
+                    Thread.sleep(Constants.CONFIG_RELOAD_DELAY_MS);
+                    WatchKey more = watcher.poll();
+                    if (more != null) {
+                        more.pollEvents();
+                        more.reset();
+                    }
+                    reload();
+                }
+            }
+        } catch (InterruptedException | ClosedWatchServiceException e) {
+            // 監視を終了
+        }
+    }
+}
@@ -0,0 +1,283 @@
+package com.study.form.util;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.StringReader;
+
+/**
+ * CSVリーダー - レコードごとに新しいオブジェクトを作らずにCSVを読み込む
+ *
+ * <p>入力を固定長の文字バッファで読み、1レコード分のフィールドを引用符を外した状態で
+ * 再利用する作業用バッファに展開します。{@link #getField(int)} が返すのは作業用バッファの
+ * 範囲を指す {@link CharSequence} のビューで、次の {@link #next()} を呼ぶまで有効です。
+ * 値を保持したい場合は {@link #getString(int)} で文字列として取り出してください。</p>
+ *
+ * <p>RFC 4180に従い、引用符で囲まれたフィールド内の区切り文字・改行と {@code ""} による
+ * 引用符のエスケープを扱います。引用符内の {@code \r\n} は {@code \n} にそろえます。
+ * 先頭のUTF-8 BOMは読み飛ばします。</p>
+ *
+ * <pre>{@code
+ * try (CsvReader csv = new CsvReader(reader)) {
+ *     while (csv.next()) {
+ *         CharSequence text = csv.getField(1);
+ *     }
+ * }
+ * }</pre>
+ */
+public class CsvReader implements Closeable {
+    private static final int DEFAULT_BUFFER_SIZE = 64 * 1024;
+    private static final int INITIAL_FIELDS = 16;
+    private static final char UTF8_BOM = '\ufeff';
+
+    private final Reader in;
+    private final char[] buffer;
+    private int position = 0;
+    private int limit = 0;
+    private boolean atStart = true;
+
+    private char[] record = new char[256];
+    private int recordLength = 0;
+    private int[] fieldEnds = new int[INITIAL_FIELDS];
+    private Field[] fields = new Field[INITIAL_FIELDS];
+    private int fieldCount = 0;
+
+    public CsvReader(Reader in) {
+        this(in, DEFAULT_BUFFER_SIZE);
+    }
+
+    public CsvReader(Reader in, int bufferSize) {
+        this.in = in;
+        this.buffer = new char[bufferSize];
+    }
+
+    /**
+     * 1レコード分の文字列を読み込むリーダーを作成します。
+     *
+     * @param record 1レコード分の文字列
+     * @return リーダー
+     */
+    public static CsvReader of(String record) {
+        return new CsvReader(new StringReader(record), Math.max(16, record.length()));
+    }
+
+    /**
+     * 次のレコードを読み込みます。
+     *
+     * @return レコードを読み込めた場合はtrue、ファイルの終わりに達した場合はfalse
+     * @throws IOException 読み込みに失敗した場合
+     */
+    public boolean next() throws IOException {
+        recordLength = 0;
+        fieldCount = 0;
+
+        int c = read();
+        if (atStart) {
+            atStart = false;
+            if (c == UTF8_BOM) {
+                c = read();
+            }
+        }
+        if (c < 0) return false;
+
+        boolean inQuotes = false;
+        while (c >= 0) {
+            if (inQuotes) {
+                if (c == '"') {
+                    if (peek() == '"') {
+                        read();
+                        append('"');
+                    } else {
+                        inQuotes = false;
+                    }
+                } else if (c == '\r' && peek() == '\n') {
+                    read();
+                    append('\n');
+                } else {
+                    append((char) c);
+                }
+            } else if (c == '"') {
+                inQuotes = true;
+            } else if (c == ',') {
+                endField();
+            } else if (c == '\n') {
+                break;
+            } else if (c == '\r') {
+                if (peek() == '\n') read();
+                break;
+            } else {
+                append((char) c);
+            }
+            c = read();
+        }
+        endField();
+        return true;
+    }
+
+    /**
+     * 現在のレコードのフィールド数を返します。
+     *
+     * @return フィールド数
+     */
+    public int getFieldCount() {
+        return fieldCount;
+    }
+
+    /**
+     * フィールドの値をビューとして返します。次の {@link #next()} を呼ぶと内容が変わります。
+     *
+     * @param index フィールドの番号（0始まり）
+     * @return 引用符を外したフィールドの値
+     */
+    public CharSequence getField(int index) {
+        checkIndex(index);
+        return fields[index];
+    }
+
+    /**
+     * フィールドの値を文字列として返します。
+     *
+     * @param index フィールドの番号（0始まり）
+     * @return 引用符を外したフィールドの値
+     */
+    public String getString(int index) {
+        checkIndex(index);
+        int start = fieldStart(index);
+        return new String(record, start, fieldEnds[index] - start);
+    }
+
+    /**
+     * フィールドの値を整数として返します。
+     *
+     * @param index フィールドの番号（0始まり）
+     * @return 整数値
+     * @throws NumberFormatException 整数として解釈できない場合
+     */
+    public long getLong(int index) {
+        checkIndex(index);
+        int start = fieldStart(index);
+        int end = fieldEnds[index];
+        if (start == end) {
+            throw new NumberFormatException("空のフィールドです");
+        }
+        boolean negative = record[start] == '-';
+        int i = negative || record[start] == '+' ? start + 1 : start;
+        if (i == end) {
+            throw new NumberFormatException(new String(record, start, end - start));
+        }
+        long value = 0;
+        for (; i < end; i++) {
+            int digit = record[i] - '0';
+            if (digit < 0 || digit > 9) {
+                throw new NumberFormatException(new String(record, start, end - start));
+            }
+            value = value * 10 - digit;
+        }
+        return negative ? value : -value;
+    }
+
+    /**
+     * フィールドが空白文字だけかどうかを返します。
+     *
+     * @param index フィールドの番号（0始まり）
+     * @return 空または空白だけの場合はtrue
+     */
+    public boolean isBlank(int index) {
+        checkIndex(index);
+        for (int i = fieldStart(index); i < fieldEnds[index]; i++) {
+            if (record[i] > ' ') return false;
+        }
+        return true;
+    }
+
+    @Override
+    public void close() throws IOException {
+        in.close();
+    }
+
+    private void checkIndex(int index) {
+        if (index < 0 || index >= fieldCount) {
+            throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + fieldCount);
+        }
+    }
+
+    private int fieldStart(int index) {
+        return index == 0 ? 0 : fieldEnds[index - 1];
+    }
+
+    private void append(char c) {
+        if (recordLength == record.length) {
+            char[] grown = new char[record.length * 2];
+            System.arraycopy(record, 0, grown, 0, recordLength);
+            record = grown;
+        }
+        record[recordLength++] = c;
+    }
+
+    private void endField() {
+        if (fieldCount == fieldEnds.length) {
+            int[] grownEnds = new int[fieldCount * 2];
+            System.arraycopy(fieldEnds, 0, grownEnds, 0, fieldCount);
+            fieldEnds = grownEnds;
+            Field[] grownFields = new Field[fieldCount * 2];
+            System.arraycopy(fields, 0, grownFields, 0, fieldCount);
+            fields = grownFields;
+        }
+        if (fields[fieldCount] == null) {
+            fields[fieldCount] = new Field(fieldCount);
+        }
+        fieldEnds[fieldCount++] = recordLength;
+    }
+
+    private int read() throws IOException {
+        if (position == limit && !fill()) return -1;
+        return buffer[position++];
+    }
+
+    private int peek() throws IOException {
+        if (position == limit && !fill()) return -1;
+        return buffer[position];
+    }
+
+    private boolean fill() throws IOException {
+        int n = in.read(buffer, 0, buffer.length);
+        if (n <= 0) return false;
+        position = 0;
+        limit = n;
+        return true;
+    }
+
+    /**
+     * 作業用バッファ上の1フィールドを指すビュー
+     */
+    private final class Field implements CharSequence {
+        private final int index;
+
+        Field(int index) {
+            this.index = index;
+        }
+
+        @Override
+        public int length() {
+            return fieldEnds[index] - fieldStart(index);
+        }
+
+        @Override
+        public char charAt(int i) {
+            if (i < 0 || i >= length()) {
+                throw new IndexOutOfBoundsException("Index: " + i + ", Length: " + length());
+            }
+            return record[fieldStart(index) + i];
+        }
+
+        @Override
+        public CharSequence subSequence(int start, int end) {
+            return toString().substring(start, end);
+        }
+
+        @Override
+        public String toString() {
+            return new String(record, fieldStart(index), length());
+        }
+    }
+}
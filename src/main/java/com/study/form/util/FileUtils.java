@@ -2,15 +2,14 @@ package com.study.form.util;
 
 import com.google.gson.Gson;
 import com.google.gson.GsonBuilder;
-import com.google.gson.reflect.TypeToken;
+import com.study.form.Constants;
+import com.study.form.model.Config;
 import com.study.form.model.Question;
 import com.study.form.model.Response;
+import com.study.form.model.SurveyDictionary;
 
 import java.io.*;
-import java.lang.reflect.Type;
 import java.nio.charset.StandardCharsets;
-import java.time.LocalDateTime;
-import java.time.format.DateTimeFormatter;
 import java.util.*;
 
 /**
@@ -22,7 +21,7 @@ import java.util.*;
  * <p>主な機能：</p>
  * <ul>
  *   <li>質問データのCSV/JSON保存・読み込み</li>
- *   <li>回答データのCSV/JSON保存</li>
+ *   <li>回答データのCSV/JSON保存（辞書を使うコンパクト形式と従来の展開形式）</li>
  *   <li>UTF-8 BOM付きCSV対応</li>
  *   <li>カンマと改行のエスケープ処理</li>
  * </ul>
@@ -33,10 +32,19 @@ import java.util.*;
  */
 public class FileUtils {
     private static final Gson gson = new GsonBuilder().setPrettyPrinting().create();
-    private static final DateTimeFormatter TIMESTAMP_FORMAT =
-        DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss.SSS");
     private static final int MAX_CHOICE_COLUMNS = 5;
     private static final char UTF8_BOM = '\ufeff';
+    private static final String DICTIONARY_KIND_QUESTION = "質問";
+    private static final String DICTIONARY_KIND_CHOICE = "選択肢";
+    static final String ELAPSED_COLUMN = "経過ナノ秒";
+    private static final Metrics.Timer QUESTION_LOADS = Metrics.registry().timer(
+        "form_question_load_seconds", "問題ファイルの読み込み時間");
+    private static final Metrics.Timer QUESTION_SAVES = Metrics.registry().timer(
+        "form_question_save_seconds", "問題ファイルの保存時間");
+    private static final Metrics.Timer RESPONSE_SAVES = Metrics.registry().timer(
+        "form_response_save_seconds", "回答ファイルの保存時間");
+    private static final Metrics.Counter RESPONSE_SAVE_ERRORS = Metrics.registry().counter(
+        "form_response_save_errors_total", "回答ファイルの保存に失敗した回数");
 
     /**
      * 質問データをCSV形式でファイルに保存します。
@@ -49,26 +57,26 @@ public class FileUtils {
      * @return 保存に成功した場合はtrue、失敗した場合はfalse
      */
     public static boolean saveQuestionsToCSV(List<Question> questions, String filepath) {
+        long start = System.nanoTime();
         try (PrintWriter writer = createUTF8Writer(filepath)) {
             writer.write(UTF8_BOM);
             writer.println("問題番号,質問文,選択肢1,選択肢2,選択肢3,選択肢4,選択肢5");
 
+            CsvWriter csv = new CsvWriter(writer);
             for (int i = 0; i < questions.size(); i++) {
                 Question q = questions.get(i);
-                StringBuilder row = new StringBuilder();
-                row.append(i + 1).append(",");
-                row.append(escapeCSV(q.getText()));
+                csv.field(i + 1).field(q.getText());
 
                 for (String choice : q.getChoices()) {
-                    row.append(",").append(escapeCSV(choice));
+                    csv.field(choice);
                 }
 
                 // 最大列数に満たない場合は空文字で埋める
                 for (int j = q.getChoices().size(); j < MAX_CHOICE_COLUMNS; j++) {
-                    row.append(",");
+                    csv.emptyField();
                 }
 
-                writer.println(row.toString());
+                csv.endRecord();
             }
 
             return true;
@@ -78,6 +86,8 @@ public class FileUtils {
         } catch (Exception e) {
             System.err.println("質問データの処理中にエラーが発生しました: " + e.getMessage());
             return false;
+        } finally {
+            QUESTION_SAVES.recordSince(start);
         }
     }
     
@@ -91,6 +101,7 @@ public class FileUtils {
      * @return 保存に成功した場合はtrue、失敗した場合はfalse
      */
     public static boolean saveQuestionsToJSON(List<Question> questions, String filepath) {
+        long start = System.nanoTime();
         try (Writer writer = createUTF8Writer(filepath)) {
             Map<String, Object> data = createMetadataMap();
             data.put("questions", questions);
@@ -104,6 +115,8 @@ public class FileUtils {
         } catch (Exception e) {
             System.err.println("質問データのシリアライズ中にエラーが発生しました: " + e.getMessage());
             return false;
+        } finally {
+            QUESTION_SAVES.recordSince(start);
         }
     }
     
@@ -111,33 +124,17 @@ public class FileUtils {
     public static List<Question> loadQuestionsFromCSV(String filepath) {
         List<Question> questions = new ArrayList<>();
         
-        try (BufferedReader reader = new BufferedReader(
+        // BOMと引用符内の改行はCsvReaderが処理する
+        try (CsvReader csv = new CsvReader(
                 new InputStreamReader(new FileInputStream(filepath), StandardCharsets.UTF_8))) {
-            // BOMをスキップ
-            reader.mark(1);
-            if (reader.read() != 0xFEFF) {
-                reader.reset();
-            }
-            
             // ヘッダーをスキップ
-            reader.readLine();
+            csv.next();
             
-            String line;
-            while ((line = reader.readLine()) != null) {
-                String[] parts = parseCSVLine(line);
-                if (parts.length < 2) continue;
-                
-                Question question = new Question();
-                question.setText(parts[1]);
-                
-                List<String> choices = new ArrayList<>();
-                for (int i = 2; i < parts.length; i++) {
-                    if (parts[i] != null && !parts[i].trim().isEmpty()) {
-                        choices.add(parts[i]);
-                    }
+            while (csv.next()) {
+                Question question = toQuestion(csv);
+                if (question != null) {
+                    questions.add(question);
                 }
-                question.setChoices(choices);
-                questions.add(question);
             }
         } catch (Exception e) {
             e.printStackTrace();
@@ -145,20 +142,46 @@ public class FileUtils {
         
         return questions;
     }
+
+    /**
+     * 質問CSVの1レコードを質問に変換します。
+     *
+     * @param record ヘッダーを除く1レコード分の文字列
+     * @return 質問。列が足りない場合はnull
+     */
+    static Question parseQuestionRecord(String record) {
+        try (CsvReader csv = CsvReader.of(record)) {
+            return csv.next() ? toQuestion(csv) : null;
+        } catch (IOException e) {
+            // 文字列からの読み込みでは発生しない
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    // 読み込み済みのレコードを質問に変換（列が足りない場合はnull）
+    private static Question toQuestion(CsvReader csv) {
+        if (csv.getFieldCount() < 2) return null;
+
+        Question question = new Question();
+        question.setText(csv.getString(1));
+
+        List<String> choices = new ArrayList<>();
+        for (int i = 2; i < csv.getFieldCount(); i++) {
+            if (!csv.isBlank(i)) {
+                choices.add(csv.getString(i));
+            }
+        }
+        question.setChoices(choices);
+        return question;
+    }
     
     // 質問データのJSON読み込み
     public static List<Question> loadQuestionsFromJSON(String filepath) {
         List<Question> questions = new ArrayList<>();
         
-        try (Reader reader = new InputStreamReader(
-                new FileInputStream(filepath), StandardCharsets.UTF_8)) {
-            Type type = new TypeToken<Map<String, Object>>(){}.getType();
-            Map<String, Object> data = gson.fromJson(reader, type);
-            
-            if (data.containsKey("questions")) {
-                Type listType = new TypeToken<List<Question>>(){}.getType();
-                String json = gson.toJson(data.get("questions"));
-                questions = gson.fromJson(json, listType);
+        try (QuestionStreamReader reader = QuestionStreamReader.open(filepath)) {
+            while (reader.hasNext()) {
+                questions.add(reader.next());
             }
         } catch (Exception e) {
             e.printStackTrace();
@@ -166,13 +189,53 @@ public class FileUtils {
         
         return questions;
     }
+
+    /**
+     * 質問JSONファイルを1件ずつ読み込むリーダーを開きます。
+     *
+     * <p>{@link #loadQuestionsFromJSON(String)} と異なり、全件の読み込みを待たずに
+     * 先頭の質問から順に取り出せます。使用後は必ず閉じてください。</p>
+     *
+     * @param filepath 質問JSONファイルのパス
+     * @return 質問を順に返すリーダー
+     * @throws IOException ファイルを開けなかった場合
+     */
+    public static QuestionStreamReader streamQuestionsFromJSON(String filepath) throws IOException {
+        return QuestionStreamReader.open(filepath);
+    }
     
     // 質問データ読み込み（拡張子で判別）
     public static List<Question> loadQuestions(String filepath) {
-        if (filepath.endsWith(".json")) {
-            return loadQuestionsFromJSON(filepath);
-        } else {
-            return loadQuestionsFromCSV(filepath);
+        long start = System.nanoTime();
+        try {
+            if (filepath.endsWith(".json")) {
+                return loadQuestionsFromJSON(filepath);
+            } else {
+                return loadQuestionsFromCSV(filepath);
+            }
+        } finally {
+            QUESTION_LOADS.recordSince(start);
+        }
+    }
+    
+    /**
+     * 質問ファイルを索引付きで開き、質問を必要になった時点で読み込む供給元を返します。
+     *
+     * <p>開くときは各質問の位置を求めるだけで、質問の本体はデコードしません。
+     * 索引を作成できなかった場合は、従来どおり全件を読み込んだ供給元を返します。</p>
+     *
+     * @param filepath 質問ファイルのパス（.json または .csv）
+     * @return 質問の供給元。使用後は必ず閉じてください
+     */
+    public static QuestionSource openQuestionSource(String filepath) {
+        long start = System.nanoTime();
+        try {
+            QuestionSource source = IndexedQuestionSource.open(filepath);
+            QUESTION_LOADS.recordSince(start);
+            return source;
+        } catch (IOException e) {
+            System.err.println("質問ファイルの索引作成に失敗したため全件を読み込みます: " + e.getMessage());
+            return new ListQuestionSource(loadQuestions(filepath));
         }
     }
     
@@ -181,7 +244,9 @@ public class FileUtils {
      * 回答データをCSV形式でファイルに保存します。
      *
      * <p>ファイルが既に存在する場合は追記モードで保存されます。
-     * 新規ファイルの場合はUTF-8 BOM付きでヘッダー行も出力されます。</p>
+     * 新規ファイルの場合はUTF-8 BOM付きでヘッダー行も出力されます。
+     * 既存のファイルのヘッダーに経過ナノ秒の列がない（旧形式の）場合は、そのファイルの列に合わせて
+     * 経過ナノ秒を書かずに追記します。</p>
      *
      * @param responses 保存する回答のリスト
      * @param filepath 保存先ファイルパス
@@ -190,17 +255,19 @@ public class FileUtils {
     public static boolean saveResponseToCSV(List<Response> responses, String filepath) {
         File file = new File(filepath);
         boolean fileExists = file.exists();
+        boolean withElapsed = !fileExists || hasCsvColumn(file, ELAPSED_COLUMN);
 
         try (PrintWriter writer = new PrintWriter(
                 new OutputStreamWriter(new FileOutputStream(filepath, true), StandardCharsets.UTF_8))) {
 
             if (!fileExists) {
                 writer.write(UTF8_BOM);
-                writer.println("回答者ID,タイムスタンプ,問題番号,質問文,選択した回答,理由");
+                writer.println("回答者ID,タイムスタンプ,経過ナノ秒,問題番号,質問文,選択した回答,理由");
             }
 
+            CsvWriter csv = new CsvWriter(writer);
             for (Response response : responses) {
-                writer.println(buildResponseRow(response));
+                writeResponseRow(csv, response, withElapsed);
             }
 
             return true;
@@ -223,12 +290,28 @@ public class FileUtils {
      * @return 保存に成功した場合はtrue、失敗した場合はfalse
      */
     public static boolean saveResponseToJSON(List<Response> responses, String filepath) {
-        try (Writer writer = createUTF8Writer(filepath)) {
-            Map<String, Object> data = createMetadataMap();
-            data.put("responses", responses);
-            data.put("total_responses", responses.size());
+        return saveResponseToJSON(responses, filepath, Constants.RESPONSE_LAYOUT_EXPANDED, true);
+    }
 
-            gson.toJson(data, writer);
+    /**
+     * 回答データをレイアウトを指定してJSON形式で保存します。
+     *
+     * <p>{@link ResponseJsonWriter} で1件ずつ書き出すため、回答全体をまとめたオブジェクトは作りません。
+     * コンパクトレイアウトでは {@code dictionary} に質問文（{@code questions}）と選択肢（{@code choices}）の
+     * 一覧を書き、各回答は配列の添字（{@code questionId}・{@code choiceId}）で参照します。</p>
+     *
+     * @param responses 保存する回答のリスト
+     * @param filepath 保存先ファイルパス
+     * @param layout レイアウト（{@link Constants#RESPONSE_LAYOUT_COMPACT} または {@link Constants#RESPONSE_LAYOUT_EXPANDED}）
+     * @param prettyPrint 改行・インデントを入れる場合はtrue
+     * @return 保存に成功した場合はtrue、失敗した場合はfalse
+     */
+    public static boolean saveResponseToJSON(List<Response> responses, String filepath,
+                                             String layout, boolean prettyPrint) {
+        try (ResponseJsonWriter writer = ResponseJsonWriter.document(createUTF8Writer(filepath), prettyPrint, layout)) {
+            for (Response response : responses) {
+                writer.write(response);
+            }
             return true;
         } catch (IOException e) {
             System.err.println("回答データのJSON保存に失敗しました: " + e.getMessage());
@@ -239,6 +322,169 @@ public class FileUtils {
         }
     }
     
+    /**
+     * 回答データをコンパクト形式のCSVで保存します。
+     *
+     * <p>行には質問文・選択肢の代わりに辞書の番号を書き、文字列は隣の辞書ファイル
+     * （{@code <ファイル名>_dictionary.csv}、列は「種別,ID,テキスト」）に1回だけ書きます。
+     * 追記時は既存の辞書を読み込んで番号を引き継ぎ、新しい文字列だけを辞書に追記します。
+     * 辞書を先に書くため、途中で失敗しても行が未登録の番号を指すことはありません。</p>
+     *
+     * @param responses 保存する回答のリスト
+     * @param filepath 保存先ファイルパス
+     * @return 保存に成功した場合はtrue、失敗した場合はfalse
+     */
+    public static boolean saveResponseToCompactCSV(List<Response> responses, String filepath) {
+        File dictionaryFile = new File(dictionaryPathFor(filepath));
+        boolean dictionaryExists = dictionaryFile.exists();
+        boolean fileExists = new File(filepath).exists();
+
+        try {
+            SurveyDictionary dictionary = dictionaryExists
+                ? loadDictionaryCSV(dictionaryFile) : new SurveyDictionary();
+            int questionStart = dictionary.getQuestions().size();
+            int choiceStart = dictionary.getChoices().size();
+
+            int[] questionIds = new int[responses.size()];
+            int[] choiceIds = new int[responses.size()];
+            for (int i = 0; i < responses.size(); i++) {
+                Response response = responses.get(i);
+                questionIds[i] = dictionary.internQuestion(response.getQuestionText());
+                choiceIds[i] = dictionary.internChoice(response.getSelectedChoice());
+            }
+
+            try (PrintWriter writer = new PrintWriter(new OutputStreamWriter(
+                    new FileOutputStream(dictionaryFile, true), StandardCharsets.UTF_8))) {
+                if (!dictionaryExists) {
+                    writer.write(UTF8_BOM);
+                    writer.println("種別,ID,テキスト");
+                }
+                CsvWriter csv = new CsvWriter(writer);
+                writeDictionaryRows(csv, DICTIONARY_KIND_QUESTION, questionStart,
+                    dictionary.getQuestions().valuesFrom(questionStart));
+                writeDictionaryRows(csv, DICTIONARY_KIND_CHOICE, choiceStart,
+                    dictionary.getChoices().valuesFrom(choiceStart));
+                if (writer.checkError()) {
+                    throw new IOException("辞書ファイルへの書き込みに失敗しました: " + dictionaryFile);
+                }
+            }
+
+            try (PrintWriter writer = new PrintWriter(new OutputStreamWriter(
+                    new FileOutputStream(filepath, true), StandardCharsets.UTF_8))) {
+                if (!fileExists) {
+                    writer.write(UTF8_BOM);
+                    writer.println("回答者ID,タイムスタンプ,経過ナノ秒,問題番号,質問ID,選択肢ID,理由");
+                }
+                CsvWriter csv = new CsvWriter(writer);
+                for (int i = 0; i < responses.size(); i++) {
+                    Response response = responses.get(i);
+                    csv.field(response.getRespondentId())
+                       .field(response.getTimestamp())
+                       .field(response.getElapsedNanos())
+                       .field(response.getQuestionNum());
+                    writeIdField(csv, questionIds[i]);
+                    writeIdField(csv, choiceIds[i]);
+                    csv.field(response.getReason())
+                       .endRecord();
+                }
+            }
+            return true;
+        } catch (IOException e) {
+            System.err.println("回答データのCSV保存に失敗しました: " + e.getMessage());
+            return false;
+        } catch (Exception e) {
+            System.err.println("回答データの処理中にエラーが発生しました: " + e.getMessage());
+            return false;
+        }
+    }
+
+    /**
+     * コンパクト形式の回答CSVに対応する辞書ファイルのパスを返します。
+     *
+     * @param filepath 回答CSVのパス
+     * @return 辞書ファイルのパス
+     */
+    public static String dictionaryPathFor(String filepath) {
+        String base = filepath.endsWith(".csv") ? filepath.substring(0, filepath.length() - 4) : filepath;
+        return base + Constants.RESPONSE_DICTIONARY_SUFFIX;
+    }
+
+    /**
+     * 辞書ファイルを読み込みます。ファイルに書かれた番号の順に登録し直すため、番号はファイルと一致します。
+     *
+     * @param file 辞書ファイル
+     * @return 辞書
+     * @throws IOException 読み込みに失敗した場合、または番号が連番になっていない場合
+     */
+    public static SurveyDictionary loadDictionaryCSV(File file) throws IOException {
+        SurveyDictionary dictionary = new SurveyDictionary();
+        try (CsvReader csv = new CsvReader(
+                new InputStreamReader(new FileInputStream(file), StandardCharsets.UTF_8))) {
+            // ヘッダーをスキップ
+            csv.next();
+
+            while (csv.next()) {
+                if (csv.getFieldCount() < 3) continue;
+                String kind = csv.getString(0);
+                long expected = csv.getLong(1);
+                int id;
+                if (DICTIONARY_KIND_QUESTION.equals(kind)) {
+                    id = dictionary.internQuestion(csv.getString(2));
+                } else if (DICTIONARY_KIND_CHOICE.equals(kind)) {
+                    id = dictionary.internChoice(csv.getString(2));
+                } else {
+                    continue;
+                }
+                if (id != expected) {
+                    throw new IOException("辞書ファイルの番号が不正です: " + file + " (" + kind + " " + expected + ")");
+                }
+            }
+        }
+        return dictionary;
+    }
+
+    private static void writeDictionaryRows(CsvWriter csv, String kind, int startId, List<String> values)
+            throws IOException {
+        for (int i = 0; i < values.size(); i++) {
+            csv.field(kind).field(startId + i).field(values.get(i)).endRecord();
+        }
+    }
+
+    private static void writeIdField(CsvWriter csv, int id) throws IOException {
+        if (id == StringDictionary.NULL_ID) {
+            csv.emptyField();
+        } else {
+            csv.field(id);
+        }
+    }
+
+    /**
+     * 既存のCSVファイルのヘッダー（1行目）に指定した列があるかを返します。
+     *
+     * <p>追記する前に、列を追加する前に作られたファイルかを確かめるためのものです。
+     * 空のファイルや読めないファイルは現在の形式として扱います。</p>
+     *
+     * @param file CSVファイル
+     * @param column 列名
+     * @return 列がある場合はtrue
+     */
+    public static boolean hasCsvColumn(File file, String column) {
+        try (CsvReader csv = new CsvReader(new InputStreamReader(new FileInputStream(file), StandardCharsets.UTF_8))) {
+            if (!csv.next()) {
+                return true;
+            }
+            for (int i = 0; i < csv.getFieldCount(); i++) {
+                if (column.equals(csv.getString(i))) {
+                    return true;
+                }
+            }
+            return false;
+        } catch (IOException e) {
+            System.err.println("CSVファイルのヘッダーを読めませんでした: " + file + " (" + e.getMessage() + ")");
+            return true;
+        }
+    }
+
     // ヘルパーメソッド
     private static PrintWriter createUTF8Writer(String filepath) throws IOException {
         return new PrintWriter(
@@ -247,28 +493,59 @@ public class FileUtils {
     
     private static Map<String, Object> createMetadataMap() {
         Map<String, Object> map = new HashMap<>();
-        map.put("export_date", LocalDateTime.now().format(TIMESTAMP_FORMAT));
+        map.put("export_date", Timestamps.now());
         return map;
     }
     
-    private static String buildResponseRow(Response response) {
-        StringBuilder row = new StringBuilder();
-        row.append(escapeCSV(response.getRespondentId())).append(",");
-        row.append(escapeCSV(response.getTimestamp())).append(",");
-        row.append(response.getQuestionNum()).append(",");
-        row.append(escapeCSV(response.getQuestionText())).append(",");
-        row.append(escapeCSV(response.getSelectedChoice())).append(",");
-        row.append(escapeCSV(response.getReason()));
-        return row.toString();
+    private static void writeResponseRow(CsvWriter csv, Response response, boolean withElapsed)
+            throws IOException {
+        csv.field(response.getRespondentId())
+           .field(response.getTimestamp());
+        if (withElapsed) {
+            csv.field(response.getElapsedNanos());
+        }
+        csv.field(response.getQuestionNum())
+           .field(response.getQuestionText())
+           .field(response.getSelectedChoice())
+           .field(response.getReason())
+           .endRecord();
     }
     
-    // 回答データ保存（形式指定）
+    // 回答データ保存（形式指定、従来の展開形式）
     public static boolean saveResponse(List<Response> responses, String filepath, String outputFormat) {
+        return saveResponse(responses, filepath, outputFormat, Constants.RESPONSE_LAYOUT_EXPANDED, true);
+    }
+
+    /**
+     * 回答データを設定の出力形式・レイアウトで保存します。
+     *
+     * <p>CSVに追記する場合は、既存ファイルのレイアウト（辞書ファイルの有無で判断）に合わせます。</p>
+     *
+     * @param responses 保存する回答のリスト
+     * @param filepath 保存先ファイルパス
+     * @param config 設定（出力形式（csv, json, both, ndjson）、回答レイアウト、JSONの整形）
+     * @return 保存に成功した場合はtrue、失敗した場合はfalse
+     */
+    public static boolean saveResponse(List<Response> responses, String filepath, Config config) {
+        return saveResponse(responses, filepath, config.getOutputFormat(),
+            config.getResponseLayout(), config.isJsonPrettyPrint());
+    }
+
+    private static boolean saveResponse(List<Response> responses, String filepath, String outputFormat,
+                                        String layout, boolean prettyPrint) {
+        long start = System.nanoTime();
         boolean success = true;
+        boolean compact = Constants.RESPONSE_LAYOUT_COMPACT.equals(layout);
         
         if ("csv".equals(outputFormat) || "both".equals(outputFormat)) {
             String csvPath = filepath.endsWith(".csv") ? filepath : filepath + ".csv";
-            if (!saveResponseToCSV(responses, csvPath)) {
+            boolean compactCsv = new File(csvPath).exists()
+                ? new File(dictionaryPathFor(csvPath)).exists()
+                : compact;
+            boolean saved = compactCsv
+                ? saveResponseToCompactCSV(responses, csvPath)
+                : saveResponseToCSV(responses, csvPath);
+            if (!saved) {
                 success = false;
             }
         }
@@ -278,52 +555,37 @@ public class FileUtils {
             if (!jsonPath.endsWith(".json")) {
                 jsonPath += ".json";
             }
-            if (!saveResponseToJSON(responses, jsonPath)) {
+            if (!saveResponseToJSON(responses, jsonPath, layout, prettyPrint)) {
                 success = false;
             }
         }
-        
-        return success;
-    }
-    
-    // CSV文字列のエスケープ
-    private static String escapeCSV(String text) {
-        if (text == null) return "";
-        if (text.contains(",") || text.contains("\"") || text.contains("\n")) {
-            return "\"" + text.replace("\"", "\"\"") + "\"";
-        }
-        return text;
-    }
-    
-    // CSV行のパース
-    private static String[] parseCSVLine(String line) {
-        List<String> result = new ArrayList<>();
-        StringBuilder current = new StringBuilder();
-        boolean inQuotes = false;
-        
-        for (int i = 0; i < line.length(); i++) {
-            char c = line.charAt(i);
-            
-            if (c == '"') {
-                if (inQuotes && i + 1 < line.length() && line.charAt(i + 1) == '"') {
-                    current.append('"');
-                    i++;
-                } else {
-                    inQuotes = !inQuotes;
-                }
-            } else if (c == ',' && !inQuotes) {
-                result.add(current.toString());
-                current.setLength(0);
-            } else {
-                current.append(c);
+
+        // NDJSONは1行1件の追記のみで、既存の内容を書き直さない
+        if ("ndjson".equals(outputFormat)) {
+            String jsonLinesPath = filepath.replace(".csv", "") + Constants.JSON_LINES_EXTENSION;
+            if (!ResponseJsonWriter.appendJsonLines(responses, jsonLinesPath)) {
+                success = false;
             }
         }
         
-        result.add(current.toString());
-        return result.toArray(new String[0]);
+        RESPONSE_SAVES.recordSince(start);
+        if (!success) {
+            RESPONSE_SAVE_ERRORS.increment();
+        }
+        return success;
     }
     
+    /**
+     * 回答ファイルのパスから拡張子（.csv, .jsonl, .json）を除いたベースパスを返します。
+     *
+     * @param filepath 回答ファイルのパス
+     * @return ベースパス
+     */
+    public static String responseBasePath(String filepath) {
+        return filepath.replace(".csv", "").replace(Constants.JSON_LINES_EXTENSION, "").replace(".json", "");
+    }
+
     public static String getTimestamp() {
-        return LocalDateTime.now().format(TIMESTAMP_FORMAT);
+        return Timestamps.now();
     }
 }
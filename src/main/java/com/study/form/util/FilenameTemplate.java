@@ -0,0 +1,274 @@
+package com.study.form.util;
+
+import java.net.InetAddress;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * ファイル名テンプレート - {@code {date}} などの変数を含むファイル名の書式を事前に解析して使い回す
+ *
+ * <p>書式は最初に使うときに固定文字列と変数の並びに分解し、書式の文字列ごとにキャッシュします。
+ * ファイル名を作るときは並びを1回たどって1つの {@link StringBuilder} に書くだけで、
+ * 連番やステーションIDは書式に含まれている場合だけ {@link Variables} から取得します。</p>
+ * <p>知らない変数（{@code {foo}} など）は従来どおりそのまま残し、{@link #getUnknownTokens()} で確認できます。</p>
+ */
+public final class FilenameTemplate {
+    private static final DateTimeFormatter DATE_FORMATTER = DateTimeFormatter.ofPattern("yyyyMMdd");
+    private static final DateTimeFormatter TIME_FORMATTER = DateTimeFormatter.ofPattern("HHmmss");
+    private static final int SEQUENCE_DIGITS = 3;
+    private static final int VARIABLE_LENGTH_ESTIMATE = 16;
+    private static final Map<String, FilenameTemplate> CACHE = new ConcurrentHashMap<>();
+    private static final Map<String, Kind> NAMES = new HashMap<>();
+    private static volatile String hostname;
+
+    /**
+     * 変数の種類
+     */
+    enum Kind {
+        LITERAL(null),
+        DATE("date"),
+        TIME("time"),
+        RESPONDENT_ID("respondent_id"),
+        PARTICIPANT_NAME("participant_name"),
+        PARTICIPANT_ID("participant_id"),
+        STATION_ID("station_id"),
+        SEQUENCE("sequence"),
+        HOSTNAME("hostname"),
+        SESSION_NANOS("session_nanos");
+
+        final String token;
+
+        Kind(String token) {
+            this.token = token;
+        }
+    }
+
+    static {
+        for (Kind kind : Kind.values()) {
+            if (kind.token != null) {
+                NAMES.put(kind.token, kind);
+            }
+        }
+    }
+
+    /**
+     * ファイル名に埋め込む値（書式に含まれる変数の値だけが呼ばれます）
+     */
+    public interface Variables {
+        String respondentId();
+
+        String participantName();
+
+        String participantId();
+
+        String stationId();
+
+        /**
+         * 連番を払い出します（書式に {@code {sequence}} がある場合に1回だけ呼ばれます）。
+         */
+        int nextSequence();
+
+        /**
+         * セッションクロックで表した現在時刻（エポックナノ秒）を返します（書式に {@code {session_nanos}} がある場合だけ呼ばれます）。
+         */
+        long sessionNanos();
+    }
+
+    private final Kind[] kinds;
+    private final String[] literals;
+    private final List<String> unknownTokens;
+    private final boolean usesSequence;
+    private final int estimatedLength;
+
+    private FilenameTemplate(List<Kind> kinds, List<String> literals, List<String> unknownTokens) {
+        this.kinds = kinds.toArray(new Kind[0]);
+        this.literals = literals.toArray(new String[0]);
+        this.unknownTokens = Collections.unmodifiableList(unknownTokens);
+        this.usesSequence = kinds.contains(Kind.SEQUENCE);
+        int length = 0;
+        for (int i = 0; i < this.kinds.length; i++) {
+            length += this.kinds[i] == Kind.LITERAL ? this.literals[i].length() : VARIABLE_LENGTH_ESTIMATE;
+        }
+        this.estimatedLength = length;
+    }
+
+    /**
+     * 書式を解析します。同じ書式は2回目からキャッシュを返します。
+     *
+     * @param format ファイル名の書式
+     * @return テンプレート
+     */
+    public static FilenameTemplate compile(String format) {
+        return CACHE.computeIfAbsent(format, FilenameTemplate::parse);
+    }
+
+    /**
+     * 書式に含まれる知らない変数を返します（設定の保存前の確認用）。
+     *
+     * @param format ファイル名の書式
+     * @return 知らない変数（{@code {foo}} の形、なければ空）
+     */
+    public static List<String> findUnknownTokens(String format) {
+        return parse(format).unknownTokens;
+    }
+
+    /**
+     * 使用できる変数の一覧を返します。
+     *
+     * @return {@code {date}} の形の変数
+     */
+    public static List<String> knownTokens() {
+        List<String> tokens = new ArrayList<>();
+        for (Kind kind : Kind.values()) {
+            if (kind.token != null) {
+                tokens.add("{" + kind.token + "}");
+            }
+        }
+        return tokens;
+    }
+
+    private static FilenameTemplate parse(String format) {
+        List<Kind> kinds = new ArrayList<>();
+        List<String> literals = new ArrayList<>();
+        Set<String> unknown = new LinkedHashSet<>();
+        StringBuilder literal = new StringBuilder();
+        int i = 0;
+        while (i < format.length()) {
+            // 閉じ括弧に最も近い開き括弧を変数の始まりとする（"{{date}}" は "{" + 日付 + "}"）
+            int close = format.indexOf('}', i);
+            if (close < 0) {
+                literal.append(format, i, format.length());
+                break;
+            }
+            int open = format.lastIndexOf('{', close);
+            if (open < i) {
+                literal.append(format, i, close + 1);
+                i = close + 1;
+                continue;
+            }
+            literal.append(format, i, open);
+            String name = format.substring(open + 1, close);
+            Kind kind = NAMES.get(name);
+            if (kind == null) {
+                // 知らない変数はそのまま残す
+                unknown.add(format.substring(open, close + 1));
+                literal.append(format, open, close + 1);
+            } else {
+                if (literal.length() > 0) {
+                    kinds.add(Kind.LITERAL);
+                    literals.add(literal.toString());
+                    literal.setLength(0);
+                }
+                kinds.add(kind);
+                literals.add(null);
+            }
+            i = close + 1;
+        }
+        if (literal.length() > 0) {
+            kinds.add(Kind.LITERAL);
+            literals.add(literal.toString());
+        }
+        return new FilenameTemplate(kinds, literals, new ArrayList<>(unknown));
+    }
+
+    public List<String> getUnknownTokens() {
+        return unknownTokens;
+    }
+
+    public boolean usesSequence() {
+        return usesSequence;
+    }
+
+    /**
+     * ファイル名を作ります。
+     *
+     * @param now 日付・時刻の基準
+     * @param variables 変数の値
+     * @return ファイル名
+     */
+    public String render(LocalDateTime now, Variables variables) {
+        StringBuilder builder = new StringBuilder(estimatedLength);
+        Integer sequence = null;
+        for (int i = 0; i < kinds.length; i++) {
+            switch (kinds[i]) {
+                case LITERAL:
+                    builder.append(literals[i]);
+                    break;
+                case DATE:
+                    DATE_FORMATTER.formatTo(now, builder);
+                    break;
+                case TIME:
+                    TIME_FORMATTER.formatTo(now, builder);
+                    break;
+                case RESPONDENT_ID:
+                    builder.append(variables.respondentId());
+                    break;
+                case PARTICIPANT_NAME:
+                    appendOrEmpty(builder, variables.participantName());
+                    break;
+                case PARTICIPANT_ID:
+                    appendOrEmpty(builder, variables.participantId());
+                    break;
+                case STATION_ID:
+                    builder.append(variables.stationId());
+                    break;
+                case SEQUENCE:
+                    // 同じ書式に2回あっても同じ番号にする
+                    if (sequence == null) {
+                        sequence = variables.nextSequence();
+                    }
+                    appendSequence(builder, sequence);
+                    break;
+                case HOSTNAME:
+                    builder.append(hostname());
+                    break;
+                case SESSION_NANOS:
+                    builder.append(variables.sessionNanos());
+                    break;
+                default:
+                    break;
+            }
+        }
+        return builder.toString();
+    }
+
+    private static void appendOrEmpty(StringBuilder builder, String value) {
+        if (value != null) {
+            builder.append(value);
+        }
+    }
+
+    // String.format("%03d") と同じ桁埋め
+    private static void appendSequence(StringBuilder builder, int sequence) {
+        String digits = Integer.toString(Math.abs(sequence));
+        if (sequence < 0) {
+            builder.append('-');
+        }
+        for (int i = digits.length() + (sequence < 0 ? 1 : 0); i < SEQUENCE_DIGITS; i++) {
+            builder.append('0');
+        }
+        builder.append(digits);
+    }
+
+    // ホスト名の解決は遅いことがあるため最初の1回だけ行う
+    private static String hostname() {
+        String name = hostname;
+        if (name == null) {
+            try {
+                name = Shipment.sanitize(InetAddress.getLocalHost().getHostName());
+            } catch (Exception e) {
+                name = "localhost";
+            }
+            hostname = name;
+        }
+        return name;
+    }
+}
@@ -0,0 +1,747 @@
+package com.study.form.util;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonParseException;
+import com.study.form.model.Response;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ForkJoinPool;
+import java.util.zip.CRC32C;
+
+/**
+ * 差分集計 - 取り込み済みのファイルを記録し、新しいファイルと変更されたファイルだけを集計に加える
+ *
+ * <p>状態ディレクトリに次の2つのファイルを置きます。</p>
+ * <ul>
+ *   <li>{@code manifest.json}: 取り込み済みファイルごとのパス・サイズ・更新日時・内容のハッシュ値（CRC32C）・
+ *       行数と集計への寄与分、および全体の集計値</li>
+ *   <li>{@code keys-N.bin}: 重複除去用の回答キーのハッシュ値（8byte）と、そのキーを含むファイルの番号（4byte）の組。
+ *       同じ回答を含むファイルごとに1組ずつ記録し、キーごとに最初の組のファイルが集計に数えています。
+ *       manifest.json に記録した長さまでが有効です。</li>
+ * </ul>
+ *
+ * <p>ファイルの扱いは次のとおりです。</p>
+ * <ul>
+ *   <li>サイズと更新日時が記録と同じ: 読み込まない</li>
+ *   <li>記録したサイズまでの内容が変わらず末尾に追記された（CSV・JSON Lines）: 追記分だけを読み込む</li>
+ *   <li>それ以外の変更: 記録した寄与分を差し引いてから全体を読み直す</li>
+ *   <li>削除されたファイル: 集計値はそのまま残す（過去の記録として扱う）</li>
+ * </ul>
+ * <p>書き直されたファイルや読み込みに失敗したファイルが数えていた回答は、同じ回答を含む他のファイル
+ * （{@code both} 形式のCSVとJSONなど）に引き継ぎ、そのファイルを読み直して集計に加えます。</p>
+ * <p>キーのファイルに追記してから manifest.json を置き換えるため、途中で中断しても前回の状態から再開できます。</p>
+ */
+public class IncrementalAggregator {
+    private static final String MANIFEST_FILE = "manifest.json";
+    private static final int MANIFEST_VERSION = 2;
+    private static final int KEY_RECORD_SIZE = 12;
+    private static final int READ_BUFFER_SIZE = 64 * 1024;
+
+    private static final Gson gson = new Gson();
+
+    private final File stateDirectory;
+    private final int parallelism;
+    private Manifest manifest;
+    // 回答キー → そのキーを含むファイルの番号（先頭が集計に数えたファイル）
+    private ConcurrentHashMap<Long, int[]> keys;
+
+    /**
+     * 問題1問分の集計値
+     */
+    private static class QuestionTally {
+        String text;
+        Map<String, Long> choices = new TreeMap<>();
+        long unselected;
+    }
+
+    /**
+     * 取り込み済みファイル1件分の記録
+     */
+    private static class FileEntry {
+        int id;
+        String kind;
+        long size;
+        long modified;
+        long hash;
+        long rows;
+        Map<Integer, QuestionTally> questions = new TreeMap<>();
+        Map<String, Long> actions = new TreeMap<>();
+    }
+
+    /**
+     * manifest.json の内容
+     */
+    private static class Manifest {
+        int version = MANIFEST_VERSION;
+        int nextFileId;
+        int keysGeneration;
+        String keysFile;
+        long keysLength;
+        long responses;
+        Map<String, FileEntry> files = new TreeMap<>();
+        Map<Integer, QuestionTally> questions = new TreeMap<>();
+        Map<String, Long> actions = new TreeMap<>();
+    }
+
+    /**
+     * ファイルの変更の種類
+     */
+    private enum Change { NEW, APPENDED, REWRITTEN, TOUCHED, UNCHANGED }
+
+    /**
+     * 1ファイル分の更新内容（並列処理の結果）
+     */
+    private static final class Update {
+        final File file;
+        final String path;
+        final String kind;
+        Change change;
+        long size;
+        long modified;
+        long hash;
+        long offset;
+        long rows;
+        final Map<Integer, QuestionTally> questions = new TreeMap<>();
+        Map<String, Long> actions = Collections.emptyMap();
+
+        Update(File file, String kind) {
+            this.file = file;
+            this.path = file.getAbsolutePath();
+            this.kind = kind;
+        }
+    }
+
+    /**
+     * 1回の更新の結果
+     */
+    public static final class Summary {
+        private final Map<String, Integer> changes;
+        private final long ingestedRows;
+        private final long addedResponses;
+        private final List<String> failedFiles;
+
+        private Summary(Map<String, Integer> changes, long ingestedRows, long addedResponses, List<String> failedFiles) {
+            this.changes = changes;
+            this.ingestedRows = ingestedRows;
+            this.addedResponses = addedResponses;
+            this.failedFiles = failedFiles;
+        }
+
+        /**
+         * 変更の種類（new, appended, rewritten, touched, unchanged）ごとのファイル数を返します。
+         *
+         * @return 変更の種類からファイル数へのマップ
+         */
+        public Map<String, Integer> getChanges() {
+            return changes;
+        }
+
+        /**
+         * 今回読み込んだ回答の行数（重複を含む）を返します。
+         *
+         * @return 行数
+         */
+        public long getIngestedRows() {
+            return ingestedRows;
+        }
+
+        /**
+         * 今回の更新で増えた（重複を除いた）回答数を返します。書き直されたファイルの分が減った場合は負になります。
+         *
+         * @return 回答数の増減
+         */
+        public long getAddedResponses() {
+            return addedResponses;
+        }
+
+        /**
+         * 読み込みに失敗したファイルを返します。これらのファイルは次回の更新で読み直します。
+         *
+         * @return ファイルパスのリスト
+         */
+        public List<String> getFailedFiles() {
+            return failedFiles;
+        }
+    }
+
+    /**
+     * @param stateDirectory manifest.json とキーのファイルを置くディレクトリ
+     * @param parallelism 並列に読み込むスレッド数
+     */
+    public IncrementalAggregator(File stateDirectory, int parallelism) {
+        this.stateDirectory = stateDirectory;
+        this.parallelism = Math.max(1, parallelism);
+    }
+
+    /**
+     * 新しいファイルと変更されたファイルを取り込んで集計を更新します。
+     *
+     * @param responseFiles 回答ファイル
+     * @param logFiles アクションログ
+     * @return 更新の結果
+     * @throws IOException 状態の読み書きに失敗した場合
+     */
+    public synchronized Summary update(List<File> responseFiles, List<File> logFiles) throws IOException {
+        load();
+        long responsesBefore = manifest.responses;
+
+        List<Update> updates = new ArrayList<>(responseFiles.size() + logFiles.size());
+        for (File file : responseFiles) updates.add(new Update(file, "response"));
+        for (File file : logFiles) updates.add(new Update(file, "log"));
+        Map<File, Update> byFile = new HashMap<>();
+        for (Update update : updates) byFile.put(update.file, update);
+        List<File> files = new ArrayList<>(byFile.keySet());
+
+        ConcurrentLinkedQueue<String> failedFiles = new ConcurrentLinkedQueue<>();
+        ConcurrentLinkedQueue<long[]> addedKeys = new ConcurrentLinkedQueue<>();
+        ForkJoinPool pool = new ForkJoinPool(parallelism);
+        try {
+            // 1. サイズ・更新日時・ハッシュ値で変更の種類を判定
+            ResponseAggregator.forEachFile(pool, files, file -> classify(byFile.get(file)), failedFiles);
+
+            boolean modified = false;
+            for (Update update : updates) {
+                if (update.change != null && update.change != Change.UNCHANGED) {
+                    modified = true;
+                    break;
+                }
+            }
+            if (!modified) {
+                // 変わったファイルがなければ記録を書き直さない
+                return summarize(updates, new HashSet<>(failedFiles), responsesBefore);
+            }
+            loadKeys();
+
+            // 2. 書き直されたファイルの寄与分とキーを取り除く
+            Set<Integer> removedIds = new HashSet<>();
+            for (Update update : updates) {
+                FileEntry entry = manifest.files.get(update.path);
+                if (update.change == Change.REWRITTEN && entry != null) {
+                    removedIds.add(entry.id);
+                    addQuestions(manifest.questions, entry.questions, -1);
+                    addActions(manifest.actions, entry.actions, -1);
+                    manifest.responses -= countResponses(entry.questions);
+                    entry.questions.clear();
+                    entry.actions.clear();
+                    entry.rows = 0;
+                }
+            }
+            Map<Integer, Set<Long>> unclaimed = new HashMap<>();
+            if (!removedIds.isEmpty()) {
+                release(removedIds, unclaimed);
+            }
+
+            // 3. 新しい内容を読み込む（ファイル番号は先に割り当てておく）
+            List<File> changed = new ArrayList<>();
+            for (Update update : updates) {
+                if (update.change == Change.NEW || update.change == Change.APPENDED
+                        || update.change == Change.REWRITTEN) {
+                    if (!manifest.files.containsKey(update.path)) {
+                        FileEntry entry = new FileEntry();
+                        entry.id = manifest.nextFileId++;
+                        entry.kind = update.kind;
+                        manifest.files.put(update.path, entry);
+                    }
+                    changed.add(update.file);
+                }
+            }
+            ResponseAggregator.forEachFile(pool, changed,
+                file -> ingest(byFile.get(file), manifest.files.get(byFile.get(file).path).id, addedKeys),
+                failedFiles);
+
+            // 4. 読み込みに失敗したファイルが今回数えたキーを、同じ回答を含む他のファイルに引き継ぐ
+            Set<String> failed = new HashSet<>(failedFiles);
+            Set<Integer> failedIds = new HashSet<>();
+            for (Update update : updates) {
+                FileEntry entry = manifest.files.get(update.path);
+                if (entry != null && failed.contains(update.file.getPath())) {
+                    failedIds.add(entry.id);
+                }
+            }
+            if (!failedIds.isEmpty()) {
+                for (long[] key : addedKeys) {
+                    if (failedIds.contains((int) key[1])) {
+                        release(key[0], failedIds, unclaimed);
+                    }
+                }
+            }
+
+            // 5. 引き継いだファイルを読み直して、引き継いだ回答を数える
+            Map<Integer, Map<Integer, QuestionTally>> reclaimed = new HashMap<>();
+            Set<String> reclaimFailed = new HashSet<>();
+            reclaim(pool, unclaimed, reclaimed, reclaimFailed);
+
+            // 6. 結果を記録に反映
+            for (Update update : updates) {
+                if (update.change == null || failed.contains(update.file.getPath())) continue;
+                FileEntry entry = manifest.files.get(update.path);
+                if (entry == null) continue;
+                entry.size = update.size;
+                entry.modified = update.modified;
+                entry.hash = update.hash;
+                entry.rows += update.rows;
+                addQuestions(entry.questions, update.questions, 1);
+                addQuestions(manifest.questions, update.questions, 1);
+                addActions(entry.actions, update.actions, 1);
+                addActions(manifest.actions, update.actions, 1);
+                manifest.responses += countResponses(update.questions);
+            }
+            for (FileEntry entry : manifest.files.values()) {
+                Map<Integer, QuestionTally> questions = reclaimed.get(entry.id);
+                if (questions == null) continue;
+                addQuestions(entry.questions, questions, 1);
+                addQuestions(manifest.questions, questions, 1);
+                manifest.responses += countResponses(questions);
+            }
+            // 失敗したファイルは次回もう一度読み込む
+            for (Update update : updates) {
+                FileEntry entry = manifest.files.get(update.path);
+                if (entry != null && failed.contains(update.file.getPath())) {
+                    entry.size = -1;
+                }
+            }
+            for (String path : reclaimFailed) {
+                manifest.files.get(path).size = -1;
+            }
+            failed.addAll(reclaimFailed);
+
+            save(addedKeys, !removedIds.isEmpty() || !failedIds.isEmpty());
+            keys = null;
+            return summarize(updates, failed, responsesBefore);
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    private Summary summarize(List<Update> updates, Set<String> failed, long responsesBefore) {
+        Map<String, Integer> changes = new TreeMap<>();
+        long ingestedRows = 0;
+        for (Update update : updates) {
+            if (update.change == null) continue;
+            changes.merge(update.change.name().toLowerCase(), 1, Integer::sum);
+            ingestedRows += update.rows;
+        }
+        List<String> failedList = new ArrayList<>(failed);
+        Collections.sort(failedList);
+        return new Summary(changes, ingestedRows, manifest.responses - responsesBefore, failedList);
+    }
+
+    // ハッシュ値は記録したサイズまでの部分と全体を1回の読み込みで計算する
+    private void classify(Update update) throws IOException {
+        File file = update.file;
+        update.size = file.length();
+        update.modified = file.lastModified();
+        FileEntry entry = manifest.files.get(update.path);
+        if (entry != null && entry.size == update.size && entry.modified == update.modified) {
+            update.hash = entry.hash;
+            update.change = Change.UNCHANGED;
+            return;
+        }
+
+        long prefixLength = entry != null && entry.size > 0 && entry.size <= update.size ? entry.size : -1;
+        long[] hashes = hash(file, prefixLength);
+        update.hash = hashes[1];
+        if (entry == null) {
+            update.change = Change.NEW;
+        } else if (entry.size == update.size && entry.hash == update.hash) {
+            update.change = Change.TOUCHED;
+        } else if (prefixLength > 0 && hashes[0] == entry.hash && ResponseAggregator.isAppendable(file)) {
+            update.change = Change.APPENDED;
+            update.offset = entry.size;
+        } else {
+            update.change = Change.REWRITTEN;
+        }
+    }
+
+    private void ingest(Update update, int fileId, ConcurrentLinkedQueue<long[]> addedKeys) throws IOException {
+        if ("log".equals(update.kind)) {
+            update.actions = ResponseAggregator.countActions(update.file, update.offset);
+            for (long count : update.actions.values()) update.rows += count;
+            return;
+        }
+        boolean[] counted = new boolean[1];
+        update.rows = ResponseAggregator.readResponses(update.file, update.offset, response -> {
+            long key = keyHash(ResponseAggregator.keyOf(response));
+            counted[0] = false;
+            // 記録の順序がキーごとの保持元の順序になるよう、追加はキーのロック中に行う
+            keys.compute(key, (k, holders) -> {
+                if (holders == null) {
+                    addedKeys.add(new long[] {key, fileId});
+                    counted[0] = true;
+                    return new int[] {fileId};
+                }
+                for (int id : holders) {
+                    if (id == fileId) return holders;
+                }
+                addedKeys.add(new long[] {key, fileId});
+                int[] grown = Arrays.copyOf(holders, holders.length + 1);
+                grown[holders.length] = fileId;
+                return grown;
+            });
+            if (counted[0]) {
+                addResponse(update.questions, response);
+            }
+        });
+    }
+
+    /**
+     * ファイル番号 {@code ids} をすべてのキーの保持元から外します。
+     * 集計に数えていたファイルが外れたキーは、次の保持元を {@code unclaimed} に加えます。
+     */
+    private void release(Set<Integer> ids, Map<Integer, Set<Long>> unclaimed) {
+        Iterator<Map.Entry<Long, int[]>> iterator = keys.entrySet().iterator();
+        while (iterator.hasNext()) {
+            Map.Entry<Long, int[]> entry = iterator.next();
+            int[] holders = entry.getValue();
+            int[] kept = without(holders, ids);
+            if (kept == holders) continue;
+            if (kept.length == 0) {
+                iterator.remove();
+                continue;
+            }
+            entry.setValue(kept);
+            if (kept[0] != holders[0]) {
+                unclaimed.computeIfAbsent(kept[0], id -> new HashSet<>()).add(entry.getKey());
+            }
+        }
+    }
+
+    /**
+     * ファイル番号 {@code ids} を1つのキーの保持元から外します。
+     */
+    private void release(long key, Set<Integer> ids, Map<Integer, Set<Long>> unclaimed) {
+        int[] holders = keys.get(key);
+        if (holders == null) return;
+        int[] kept = without(holders, ids);
+        if (kept == holders) return;
+        if (kept.length == 0) {
+            keys.remove(key);
+            return;
+        }
+        keys.put(key, kept);
+        if (kept[0] != holders[0]) {
+            unclaimed.computeIfAbsent(kept[0], id -> new HashSet<>()).add(key);
+        }
+    }
+
+    private static int[] without(int[] holders, Set<Integer> ids) {
+        int kept = 0;
+        for (int id : holders) {
+            if (!ids.contains(id)) kept++;
+        }
+        if (kept == holders.length) return holders;
+        int[] result = new int[kept];
+        int i = 0;
+        for (int id : holders) {
+            if (!ids.contains(id)) result[i++] = id;
+        }
+        return result;
+    }
+
+    /**
+     * 引き継いだキーを含むファイルを読み直し、引き継いだ回答を数えます。
+     * ファイルに見つからなかったキーや読めなかったファイルのキーは、さらに次の保持元に引き継ぎます。
+     */
+    private void reclaim(ForkJoinPool pool, Map<Integer, Set<Long>> unclaimed,
+                         Map<Integer, Map<Integer, QuestionTally>> reclaimed, Set<String> reclaimFailed) {
+        Map<Integer, String> paths = new HashMap<>();
+        manifest.files.forEach((path, entry) -> paths.put(entry.id, path));
+        while (!unclaimed.isEmpty()) {
+            Map<Integer, Set<Long>> round = unclaimed;
+            unclaimed = new HashMap<>();
+            Map<File, Integer> fileIds = new HashMap<>();
+            round.keySet().forEach(id -> fileIds.put(new File(paths.get(id)), id));
+            ConcurrentHashMap<Integer, Map<Integer, QuestionTally>> results = new ConcurrentHashMap<>();
+            ConcurrentLinkedQueue<String> roundFailed = new ConcurrentLinkedQueue<>();
+            ResponseAggregator.forEachFile(pool, new ArrayList<>(fileIds.keySet()), file -> {
+                int fileId = fileIds.get(file);
+                Set<Long> pending = round.get(fileId);
+                Map<Integer, QuestionTally> questions = new TreeMap<>();
+                Set<Long> found = new HashSet<>();
+                ResponseAggregator.readResponses(file, 0, response -> {
+                    long key = keyHash(ResponseAggregator.keyOf(response));
+                    if (pending.contains(key) && found.add(key)) {
+                        addResponse(questions, response);
+                    }
+                });
+                pending.removeAll(found);
+                results.put(fileId, questions);
+            }, roundFailed);
+
+            for (Map.Entry<Integer, Map<Integer, QuestionTally>> result : results.entrySet()) {
+                addQuestions(reclaimed.computeIfAbsent(result.getKey(), id -> new TreeMap<>()), result.getValue(), 1);
+            }
+            reclaimFailed.addAll(roundFailed);
+            for (Map.Entry<Integer, Set<Long>> holder : round.entrySet()) {
+                Set<Integer> ids = Collections.singleton(holder.getKey());
+                for (long key : holder.getValue()) {
+                    release(key, ids, unclaimed);
+                }
+            }
+        }
+    }
+
+    private static void addResponse(Map<Integer, QuestionTally> questions, Response response) {
+        QuestionTally tally = questions.computeIfAbsent(response.getQuestionNum(), q -> new QuestionTally());
+        if (tally.text == null) {
+            tally.text = response.getQuestionText();
+        }
+        String choice = response.getSelectedChoice();
+        if (choice == null) {
+            tally.unselected++;
+        } else {
+            tally.choices.merge(choice, 1L, Long::sum);
+        }
+    }
+
+    private static void addQuestions(Map<Integer, QuestionTally> target, Map<Integer, QuestionTally> source, int sign) {
+        for (Map.Entry<Integer, QuestionTally> entry : source.entrySet()) {
+            QuestionTally from = entry.getValue();
+            QuestionTally to = target.computeIfAbsent(entry.getKey(), q -> new QuestionTally());
+            if (to.text == null) {
+                to.text = from.text;
+            }
+            to.unselected += sign * from.unselected;
+            for (Map.Entry<String, Long> choice : from.choices.entrySet()) {
+                long count = to.choices.getOrDefault(choice.getKey(), 0L) + sign * choice.getValue();
+                if (count == 0) {
+                    to.choices.remove(choice.getKey());
+                } else {
+                    to.choices.put(choice.getKey(), count);
+                }
+            }
+        }
+    }
+
+    private static void addActions(Map<String, Long> target, Map<String, Long> source, int sign) {
+        for (Map.Entry<String, Long> entry : source.entrySet()) {
+            long count = target.getOrDefault(entry.getKey(), 0L) + sign * entry.getValue();
+            if (count == 0) {
+                target.remove(entry.getKey());
+            } else {
+                target.put(entry.getKey(), count);
+            }
+        }
+    }
+
+    private static long countResponses(Map<Integer, QuestionTally> questions) {
+        long count = 0;
+        for (QuestionTally tally : questions.values()) {
+            count += tally.unselected;
+            for (long n : tally.choices.values()) count += n;
+        }
+        return count;
+    }
+
+    /**
+     * 記録したサイズまでの部分と全体のハッシュ値（CRC32C）を返します。
+     *
+     * @return {部分のハッシュ値, 全体のハッシュ値}（部分を求めない場合は部分は-1）
+     */
+    private static long[] hash(File file, long prefixLength) throws IOException {
+        CRC32C crc = new CRC32C();
+        long prefix = -1;
+        long position = 0;
+        byte[] buffer = new byte[READ_BUFFER_SIZE];
+        try (InputStream in = new FileInputStream(file)) {
+            int n;
+            while ((n = in.read(buffer)) > 0) {
+                if (prefixLength > position && prefixLength <= position + n) {
+                    int head = (int) (prefixLength - position);
+                    crc.update(buffer, 0, head);
+                    prefix = crc.getValue();
+                    crc.update(buffer, head, n - head);
+                } else {
+                    crc.update(buffer, 0, n);
+                }
+                position += n;
+            }
+        }
+        return new long[] {prefix, crc.getValue()};
+    }
+
+    // 64bitのFNV-1aハッシュ（回答数が数百万件でも衝突はまず起きない）
+    private static long keyHash(String key) {
+        long hash = 0xcbf29ce484222325L;
+        for (int i = 0; i < key.length(); i++) {
+            hash ^= key.charAt(i);
+            hash *= 0x100000001b3L;
+        }
+        return hash;
+    }
+
+    private void load() throws IOException {
+        File manifestFile = new File(stateDirectory, MANIFEST_FILE);
+        manifest = new Manifest();
+        if (manifestFile.exists()) {
+            try (Reader reader = Files.newBufferedReader(manifestFile.toPath(), StandardCharsets.UTF_8)) {
+                Manifest loaded = gson.fromJson(reader, Manifest.class);
+                if (loaded != null && loaded.version == MANIFEST_VERSION) {
+                    manifest = loaded;
+                } else {
+                    System.err.println("集計の記録の形式が異なるため、最初から集計し直します: " + manifestFile);
+                }
+            } catch (JsonParseException e) {
+                System.err.println("集計の記録を読み込めないため、最初から集計し直します: " + e.getMessage());
+            }
+        }
+
+    }
+
+    // 回答キーは取り込むファイルがある場合だけ読み込む
+    private void loadKeys() throws IOException {
+        keys = new ConcurrentHashMap<>();
+        if (manifest.keysFile == null) return;
+        File keysFile = new File(stateDirectory, manifest.keysFile);
+        // 記録した長さより後ろは中断した更新の書きかけなので読まない
+        long records = manifest.keysLength / KEY_RECORD_SIZE;
+        try (DataInputStream in = new DataInputStream(
+                new BufferedInputStream(new FileInputStream(keysFile), READ_BUFFER_SIZE))) {
+            for (long i = 0; i < records; i++) {
+                long key = in.readLong();
+                int fileId = in.readInt();
+                // 記録の順に保持元の後ろへ加える
+                keys.merge(key, new int[] {fileId}, (holders, added) -> {
+                    int[] grown = Arrays.copyOf(holders, holders.length + 1);
+                    grown[holders.length] = added[0];
+                    return grown;
+                });
+            }
+        } catch (EOFException e) {
+            throw new IOException("回答キーのファイルが記録より短くなっています: " + keysFile, e);
+        }
+    }
+
+    private void save(ConcurrentLinkedQueue<long[]> addedKeys, boolean rewriteKeys) throws IOException {
+        if (!stateDirectory.exists() && !stateDirectory.mkdirs()) {
+            throw new IOException("集計の記録のディレクトリを作成できません: " + stateDirectory);
+        }
+
+        // 保持元を外したキーや引き継いだキーがある場合は新しい番号のファイルに書き直す
+        String previousKeysFile = manifest.keysFile;
+        if (rewriteKeys || manifest.keysFile == null) {
+            manifest.keysFile = "keys-" + (++manifest.keysGeneration) + ".bin";
+            try (FileOutputStream file = new FileOutputStream(new File(stateDirectory, manifest.keysFile))) {
+                DataOutputStream out = new DataOutputStream(new BufferedOutputStream(file, READ_BUFFER_SIZE));
+                long records = 0;
+                for (Map.Entry<Long, int[]> key : keys.entrySet()) {
+                    for (int fileId : key.getValue()) {
+                        out.writeLong(key.getKey());
+                        out.writeInt(fileId);
+                        records++;
+                    }
+                }
+                out.flush();
+                file.getFD().sync();
+                manifest.keysLength = records * KEY_RECORD_SIZE;
+            }
+        } else if (!addedKeys.isEmpty()) {
+            File keysFile = new File(stateDirectory, manifest.keysFile);
+            try (FileOutputStream file = new FileOutputStream(keysFile, true)) {
+                // 前回中断した書きかけの分を切り詰めてから追記する
+                file.getChannel().truncate(manifest.keysLength);
+                DataOutputStream out = new DataOutputStream(new BufferedOutputStream(file, READ_BUFFER_SIZE));
+                for (long[] key : addedKeys) {
+                    out.writeLong(key[0]);
+                    out.writeInt((int) key[1]);
+                }
+                out.flush();
+                file.getFD().sync();
+            }
+            manifest.keysLength += (long) addedKeys.size() * KEY_RECORD_SIZE;
+        }
+
+        File manifestFile = new File(stateDirectory, MANIFEST_FILE);
+        File temp = new File(stateDirectory, MANIFEST_FILE + ".tmp");
+        try (Writer writer = Files.newBufferedWriter(temp.toPath(), StandardCharsets.UTF_8)) {
+            gson.toJson(manifest, writer);
+        }
+        Files.move(temp.toPath(), manifestFile.toPath(), StandardCopyOption.REPLACE_EXISTING);
+
+        if (previousKeysFile != null && !previousKeysFile.equals(manifest.keysFile)) {
+            Files.deleteIfExists(new File(stateDirectory, previousKeysFile).toPath());
+        }
+    }
+
+    /**
+     * 問題番号ごとの選択肢の回答数を返します。未選択の回答はキーnullで数えます。
+     *
+     * @return 問題番号から「選択肢 → 回答数」へのマップ
+     * @throws IOException 記録の読み込みに失敗した場合
+     */
+    public synchronized Map<Integer, Map<String, Long>> getChoiceDistributions() throws IOException {
+        if (manifest == null) load();
+        Map<Integer, Map<String, Long>> result = new TreeMap<>();
+        for (Map.Entry<Integer, QuestionTally> entry : manifest.questions.entrySet()) {
+            Map<String, Long> distribution = new HashMap<>(entry.getValue().choices);
+            if (entry.getValue().unselected > 0) {
+                distribution.put(null, entry.getValue().unselected);
+            }
+            if (!distribution.isEmpty()) {
+                result.put(entry.getKey(), distribution);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * 問題番号ごとの質問文（最初に取り込んだもの）を返します。
+     *
+     * @return 問題番号から質問文へのマップ
+     * @throws IOException 記録の読み込みに失敗した場合
+     */
+    public synchronized Map<Integer, String> getQuestionTexts() throws IOException {
+        if (manifest == null) load();
+        Map<Integer, String> result = new TreeMap<>();
+        manifest.questions.forEach((questionNum, tally) -> result.put(questionNum, tally.text));
+        return result;
+    }
+
+    /**
+     * アクション種別ごとのログのイベント数を返します。
+     *
+     * @return アクション種別からイベント数へのマップ
+     * @throws IOException 記録の読み込みに失敗した場合
+     */
+    public synchronized Map<String, Long> getActionCounts() throws IOException {
+        if (manifest == null) load();
+        return new TreeMap<>(manifest.actions);
+    }
+
+    /**
+     * 重複を除いた回答数を返します。
+     *
+     * @return 回答数
+     * @throws IOException 記録の読み込みに失敗した場合
+     */
+    public synchronized long getResponseCount() throws IOException {
+        if (manifest == null) load();
+        return manifest.responses;
+    }
+}
@@ -0,0 +1,191 @@
+package com.study.form.util;
+
+import com.google.gson.Gson;
+import com.study.form.Constants;
+import com.study.form.model.Question;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * 索引付きの質問の供給元 - 質問を必要になった時点でファイルから読み込む
+ *
+ * <p>開くときは {@link QuestionIndex} で各質問の位置だけを求め、質問の本体は
+ * {@link #get(int)} で初めて要求されたときに該当箇所だけを読んでデコードします。
+ * デコードした質問は最近使った順に一定件数（{@link Constants#QUESTION_CACHE_SIZE}）
+ * まで保持し、要求された質問の次の数件（{@link Constants#QUESTION_PREFETCH_COUNT}）は
+ * バックグラウンドスレッドで先読みします。</p>
+ *
+ * <p>そのため、問題数が多いファイルでも開くまでの時間とメモリ使用量は
+ * 問題数ではなく索引の大きさ（1問あたり16バイト）にしか比例しません。</p>
+ */
+public class IndexedQuestionSource implements QuestionSource {
+    private static final Gson gson = new Gson();
+
+    private final String filepath;
+    private final boolean json;
+    private final QuestionIndex index;
+    private final FileChannel channel;
+    private final int prefetchCount;
+    private final Map<Integer, Question> cache;
+    private final Set<Integer> pending = ConcurrentHashMap.newKeySet();
+    private final ExecutorService prefetcher;
+
+    /**
+     * 供給元を作成します。
+     *
+     * @param filepath 質問ファイルのパス
+     * @param index 質問ファイルの索引
+     * @param cacheSize デコード済みの質問を保持する件数
+     * @param prefetchCount 先読みする件数（0の場合は先読みしない）
+     * @throws IOException ファイルを開けなかった場合
+     */
+    public IndexedQuestionSource(String filepath, QuestionIndex index,
+                                 int cacheSize, int prefetchCount) throws IOException {
+        this.filepath = filepath;
+        this.json = filepath.endsWith(".json");
+        this.index = index;
+        this.channel = FileChannel.open(Paths.get(filepath), StandardOpenOption.READ);
+        this.prefetchCount = prefetchCount;
+        this.cache = new LinkedHashMap<Integer, Question>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Integer, Question> eldest) {
+                return size() > cacheSize;
+            }
+        };
+        this.prefetcher = prefetchCount > 0
+            ? Executors.newSingleThreadExecutor(r -> {
+                Thread t = new Thread(r, "question-prefetch");
+                t.setDaemon(true);
+                return t;
+            })
+            : null;
+    }
+
+    /**
+     * 質問ファイルの索引を作成して開きます。
+     *
+     * @param filepath 質問ファイルのパス（.json または .csv）
+     * @return 供給元
+     * @throws IOException 索引の作成またはファイルのオープンに失敗した場合
+     */
+    public static IndexedQuestionSource open(String filepath) throws IOException {
+        return new IndexedQuestionSource(filepath, QuestionIndex.build(filepath),
+            Constants.QUESTION_CACHE_SIZE, Constants.QUESTION_PREFETCH_COUNT);
+    }
+
+    @Override
+    public int size() {
+        return index.size();
+    }
+
+    @Override
+    public Question get(int i) {
+        if (i < 0 || i >= index.size()) {
+            throw new IndexOutOfBoundsException("Index: " + i + ", Size: " + index.size());
+        }
+        Question question = cached(i);
+        if (question == null) {
+            question = decode(i);
+            synchronized (cache) {
+                cache.put(i, question);
+            }
+        }
+        prefetchAfter(i);
+        return question;
+    }
+
+    private Question cached(int i) {
+        synchronized (cache) {
+            return cache.get(i);
+        }
+    }
+
+    /**
+     * 指定した質問の次の数件を、キャッシュにないものだけ先読みします。
+     */
+    private void prefetchAfter(int i) {
+        if (prefetcher == null) return;
+        int last = Math.min(index.size() - 1, i + prefetchCount);
+        for (int next = i + 1; next <= last; next++) {
+            final int target = next;
+            if (cached(target) != null || !pending.add(target)) continue;
+            try {
+                prefetcher.execute(() -> {
+                    try {
+                        if (cached(target) == null) {
+                            Question question = decode(target);
+                            synchronized (cache) {
+                                cache.putIfAbsent(target, question);
+                            }
+                        }
+                    } catch (RuntimeException e) {
+                        // 先読みの失敗は無視する（要求時に改めて読み込んでエラーを通知する）
+                    } finally {
+                        pending.remove(target);
+                    }
+                });
+            } catch (RejectedExecutionException e) {
+                pending.remove(target);
+                return;
+            }
+        }
+    }
+
+    /**
+     * 索引が示す範囲だけをファイルから読み込み、質問にデコードします。
+     */
+    private Question decode(int i) {
+        long start = index.getStart(i);
+        ByteBuffer buffer = ByteBuffer.allocate((int) (index.getEnd(i) - start));
+        try {
+            while (buffer.hasRemaining()) {
+                if (channel.read(buffer, start + buffer.position()) < 0) {
+                    throw new IOException("質問ファイルが索引作成後に変更されました: " + filepath);
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("質問" + (i + 1) + "の読み込みに失敗しました", e);
+        }
+        String record = new String(buffer.array(), StandardCharsets.UTF_8);
+
+        Question question;
+        if (json) {
+            question = gson.fromJson(record, Question.class);
+            if (question != null && question.getChoices() == null) {
+                question.setChoices(new ArrayList<>());
+            }
+        } else {
+            question = FileUtils.parseQuestionRecord(record);
+        }
+        if (question == null) {
+            throw new IllegalStateException("質問" + (i + 1) + "のデータが不正です: " + filepath);
+        }
+        return question;
+    }
+
+    @Override
+    public void close() {
+        if (prefetcher != null) {
+            prefetcher.shutdownNow();
+        }
+        try {
+            channel.close();
+        } catch (IOException e) {
+            System.err.println("質問ファイルのクローズに失敗しました: " + filepath + " - " + e.getMessage());
+        }
+    }
+}
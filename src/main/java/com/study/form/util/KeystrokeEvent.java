@@ -0,0 +1,65 @@
+package com.study.form.util;
+
+/**
+ * 理由入力欄の1回の編集（挿入・削除）または問題の切り替えを表す不変オブジェクト
+ */
+public final class KeystrokeEvent {
+    /** 文字列の挿入 */
+    public static final int TYPE_INSERT = 1;
+    /** 文字列の削除 */
+    public static final int TYPE_REMOVE = 2;
+    /** 対象の問題の切り替え */
+    public static final int TYPE_QUESTION = 3;
+
+    private final int type;
+    private final long nanoTime;
+    private final int questionNum;
+    private final int offset;
+    private final int length;
+    private final String text;
+
+    private KeystrokeEvent(int type, long nanoTime, int questionNum, int offset, int length, String text) {
+        this.type = type;
+        this.nanoTime = nanoTime;
+        this.questionNum = questionNum;
+        this.offset = offset;
+        this.length = length;
+        this.text = text;
+    }
+
+    public static KeystrokeEvent insert(long nanoTime, int offset, String text) {
+        return new KeystrokeEvent(TYPE_INSERT, nanoTime, 0, offset, text.length(), text);
+    }
+
+    public static KeystrokeEvent remove(long nanoTime, int offset, int length) {
+        return new KeystrokeEvent(TYPE_REMOVE, nanoTime, 0, offset, length, null);
+    }
+
+    public static KeystrokeEvent question(long nanoTime, int questionNum) {
+        return new KeystrokeEvent(TYPE_QUESTION, nanoTime, questionNum, 0, 0, null);
+    }
+
+    public int getType() {
+        return type;
+    }
+
+    public long getNanoTime() {
+        return nanoTime;
+    }
+
+    public int getQuestionNum() {
+        return questionNum;
+    }
+
+    public int getOffset() {
+        return offset;
+    }
+
+    public int getLength() {
+        return length;
+    }
+
+    public String getText() {
+        return text;
+    }
+}
@@ -0,0 +1,191 @@
+package com.study.form.util;
+
+import com.study.form.Constants;
+
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+/**
+ * キーストロークレコーダー - 理由入力欄の編集をすべて差分形式で記録
+ *
+ * <p>入力欄の全文ではなく、挿入（位置・挿入文字列）と削除（位置・文字数）の差分だけを
+ * 可変長整数で詰めたバイナリ形式で書き出します。イベントディスパッチスレッドは
+ * イベントをキューに積むだけで、エンコードとファイル書き込みは専用スレッドで行います。</p>
+ *
+ * <p>ファイル形式：</p>
+ * <pre>
+ * ヘッダー: "FRLK"(4byte) バージョン(1byte) セッション開始時刻のエポックミリ秒(8byte)
+ * レコード: 種別(1byte) 直前レコードからの経過マイクロ秒(varint) 種別ごとの値
+ *   挿入: 位置(varint) UTF-8バイト長(varint) UTF-8バイト列
+ *   削除: 位置(varint) 文字数(varint)
+ *   問題: 問題番号(varint)
+ * </pre>
+ *
+ * <p>経過時間は {@link SessionClock} 基準のため、アクションログの経過ナノ秒と
+ * 同じ時間軸で比較できます。記録したファイルは {@link KeystrokeReplayer} で
+ * 任意の時点のテキストに復元できます。</p>
+ */
+public class KeystrokeRecorder implements Closeable {
+    private final String keystrokeFile;
+    private final SessionClock clock;
+    private final AsyncLogDispatcher<KeystrokeEvent> dispatcher;
+    private final Thread shutdownHook;
+    private DataOutputStream out;
+    private long lastMicros = 0;
+    private boolean closed = false;
+
+    /**
+     * レコーダーを作成し、ヘッダーを書き込みます。
+     *
+     * @param keystrokeFile 記録先ファイルのパス
+     * @param queueCapacity 書き込み待ちキューの容量
+     * @param clock 経過時間の基準となるセッションクロック
+     * @throws IOException ファイルを作成できなかった場合
+     */
+    public KeystrokeRecorder(String keystrokeFile, int queueCapacity, SessionClock clock) throws IOException {
+        this.keystrokeFile = keystrokeFile;
+        this.clock = clock;
+
+        File file = new File(keystrokeFile);
+        File parent = file.getParentFile();
+        if (parent != null && !parent.exists()) {
+            parent.mkdirs();
+        }
+        out = new DataOutputStream(new BufferedOutputStream(
+            new FileOutputStream(file), Constants.LOG_WRITER_BUFFER_SIZE));
+        out.write(Constants.KEYSTROKE_FILE_MAGIC);
+        out.writeByte(Constants.KEYSTROKE_FILE_VERSION);
+        out.writeLong(clock.getAnchorEpochMillis());
+        out.flush();
+
+        // キーストロークは取りこぼさないよう、容量超過時もメモリに溜める
+        dispatcher = new AsyncLogDispatcher<>("keystroke-writer", queueCapacity,
+            AsyncLogDispatcher.BackpressurePolicy.SPILL, this::writeEvents);
+        shutdownHook = new Thread(this::drainAndCloseStream, "keystroke-shutdown");
+        Runtime.getRuntime().addShutdownHook(shutdownHook);
+    }
+
+    /**
+     * アクションログのパスから対応するキーストロークファイルのパスを作ります。
+     *
+     * <p>中断したアンケートを再開した場合など、同じ名前のファイルが既にある場合は
+     * 上書きしないよう末尾に連番（_2, _3, ...）を付けます。</p>
+     *
+     * @param logPath アクションログのパス
+     * @return 拡張子を .keys に置き換えたパス
+     */
+    public static String pathForLog(String logPath) {
+        int dot = logPath.lastIndexOf('.');
+        int separator = logPath.lastIndexOf(File.separatorChar);
+        String base = dot > separator ? logPath.substring(0, dot) : logPath;
+        String path = base + Constants.KEYSTROKE_FILE_EXTENSION;
+        for (int n = 2; new File(path).exists(); n++) {
+            path = base + "_" + n + Constants.KEYSTROKE_FILE_EXTENSION;
+        }
+        return path;
+    }
+
+    /**
+     * 以降の編集がどの問題に対するものかを記録します。
+     *
+     * @param questionNum 問題番号
+     */
+    public void markQuestion(int questionNum) {
+        dispatcher.submit(KeystrokeEvent.question(System.nanoTime(), questionNum));
+    }
+
+    /**
+     * 文字列の挿入を記録します。
+     *
+     * @param offset 挿入位置
+     * @param text 挿入された文字列
+     */
+    public void recordInsert(int offset, String text) {
+        dispatcher.submit(KeystrokeEvent.insert(System.nanoTime(), offset, text));
+    }
+
+    /**
+     * 文字列の削除を記録します。
+     *
+     * @param offset 削除開始位置
+     * @param length 削除された文字数
+     */
+    public void recordRemove(int offset, int length) {
+        dispatcher.submit(KeystrokeEvent.remove(System.nanoTime(), offset, length));
+    }
+
+    private synchronized void writeEvents(List<KeystrokeEvent> events) {
+        if (out == null) return;
+        try {
+            for (KeystrokeEvent event : events) {
+                writeEvent(event);
+            }
+            out.flush();
+        } catch (IOException e) {
+            System.err.println("キーストロークの書き込みに失敗しました: " + keystrokeFile);
+            e.printStackTrace();
+        }
+    }
+
+    private void writeEvent(KeystrokeEvent event) throws IOException {
+        long micros = clock.elapsedNanos(event.getNanoTime()) / 1000;
+        long delta = Math.max(0, micros - lastMicros);
+        lastMicros = Math.max(lastMicros, micros);
+
+        out.writeByte(event.getType());
+        VarInt.write(out, delta);
+        switch (event.getType()) {
+            case KeystrokeEvent.TYPE_INSERT:
+                byte[] bytes = event.getText().getBytes(StandardCharsets.UTF_8);
+                VarInt.write(out, event.getOffset());
+                VarInt.write(out, bytes.length);
+                out.write(bytes);
+                break;
+            case KeystrokeEvent.TYPE_REMOVE:
+                VarInt.write(out, event.getOffset());
+                VarInt.write(out, event.getLength());
+                break;
+            default:
+                VarInt.write(out, event.getQuestionNum());
+                break;
+        }
+    }
+
+    /**
+     * キューに残っている編集をすべて書き出してファイルを閉じます。
+     */
+    @Override
+    public void close() {
+        synchronized (this) {
+            if (closed) return;
+            closed = true;
+        }
+        try {
+            Runtime.getRuntime().removeShutdownHook(shutdownHook);
+        } catch (IllegalStateException e) {
+            // シャットダウン処理中は登録解除できないが、フック側で閉じられる
+        }
+        drainAndCloseStream();
+    }
+
+    private void drainAndCloseStream() {
+        dispatcher.close();
+        synchronized (this) {
+            if (out == null) return;
+            try {
+                out.close();
+            } catch (IOException e) {
+                System.err.println("キーストロークファイルのクローズに失敗しました: " + keystrokeFile);
+                e.printStackTrace();
+            } finally {
+                out = null;
+            }
+        }
+    }
+}
@@ -0,0 +1,188 @@
+package com.study.form.util;
+
+import com.study.form.Constants;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * キーストロークリプレイヤー - {@link KeystrokeRecorder} の記録から入力途中のテキストを復元
+ *
+ * <p>記録された差分を先頭から順に適用し、指定した経過時間の時点で理由入力欄に
+ * 表示されていたテキストと、そのとき回答中だった問題番号を返します。</p>
+ *
+ * <p>コマンドラインからも使用できます：</p>
+ * <pre>
+ * java -cp form-app.jar com.study.form.util.KeystrokeReplayer &lt;.keysファイル&gt; [経過ミリ秒]
+ * </pre>
+ */
+public class KeystrokeReplayer {
+
+    /**
+     * ある時点の入力欄の状態
+     */
+    public static final class Snapshot {
+        private final int questionNum;
+        private final String text;
+
+        Snapshot(int questionNum, String text) {
+            this.questionNum = questionNum;
+            this.text = text;
+        }
+
+        public int getQuestionNum() {
+            return questionNum;
+        }
+
+        public String getText() {
+            return text;
+        }
+    }
+
+    private final long startEpochMillis;
+    private final List<KeystrokeEvent> events;
+
+    private KeystrokeReplayer(long startEpochMillis, List<KeystrokeEvent> events) {
+        this.startEpochMillis = startEpochMillis;
+        this.events = events;
+    }
+
+    /**
+     * キーストロークファイルを読み込みます。
+     *
+     * <p>書き込み途中で終了したファイルの場合は、読める最後のレコードまでを使用します。</p>
+     *
+     * @param filepath キーストロークファイルのパス
+     * @return 読み込んだリプレイヤー
+     * @throws IOException ファイルが読めない、または形式が異なる場合
+     */
+    public static KeystrokeReplayer load(String filepath) throws IOException {
+        try (DataInputStream in = new DataInputStream(
+                new BufferedInputStream(new FileInputStream(filepath)))) {
+            byte[] magic = new byte[Constants.KEYSTROKE_FILE_MAGIC.length];
+            in.readFully(magic);
+            if (!Arrays.equals(magic, Constants.KEYSTROKE_FILE_MAGIC)) {
+                throw new IOException("キーストロークファイルではありません: " + filepath);
+            }
+            int version = in.readUnsignedByte();
+            if (version != Constants.KEYSTROKE_FILE_VERSION) {
+                throw new IOException("未対応のキーストロークファイルバージョンです: " + version);
+            }
+            long startEpochMillis = in.readLong();
+
+            List<KeystrokeEvent> events = new ArrayList<>();
+            long micros = 0;
+            while (true) {
+                int type = in.read();
+                if (type < 0) break;
+                try {
+                    micros += VarInt.read(in);
+                    events.add(readEvent(in, type, micros * 1000));
+                } catch (EOFException e) {
+                    System.err.println("キーストロークファイルの末尾が途中で切れています: " + filepath);
+                    break;
+                }
+            }
+            return new KeystrokeReplayer(startEpochMillis, events);
+        }
+    }
+
+    private static KeystrokeEvent readEvent(DataInputStream in, int type, long elapsedNanos) throws IOException {
+        switch (type) {
+            case KeystrokeEvent.TYPE_INSERT: {
+                int offset = (int) VarInt.read(in);
+                byte[] bytes = new byte[(int) VarInt.read(in)];
+                in.readFully(bytes);
+                return KeystrokeEvent.insert(elapsedNanos, offset, new String(bytes, StandardCharsets.UTF_8));
+            }
+            case KeystrokeEvent.TYPE_REMOVE: {
+                int offset = (int) VarInt.read(in);
+                int length = (int) VarInt.read(in);
+                return KeystrokeEvent.remove(elapsedNanos, offset, length);
+            }
+            case KeystrokeEvent.TYPE_QUESTION:
+                return KeystrokeEvent.question(elapsedNanos, (int) VarInt.read(in));
+            default:
+                throw new IOException("不明なレコード種別です: " + type);
+        }
+    }
+
+    /**
+     * セッション開始時刻を返します。
+     *
+     * @return エポックミリ秒
+     */
+    public long getStartEpochMillis() {
+        return startEpochMillis;
+    }
+
+    /**
+     * 記録されたイベントを返します。
+     * 各イベントの {@link KeystrokeEvent#getNanoTime()} はセッション開始からの経過ナノ秒
+     * （マイクロ秒精度）です。
+     *
+     * @return イベントのリスト（変更不可）
+     */
+    public List<KeystrokeEvent> getEvents() {
+        return Collections.unmodifiableList(events);
+    }
+
+    /**
+     * 指定した経過時間の時点の入力欄の状態を復元します。
+     *
+     * @param elapsedMicros セッション開始からの経過マイクロ秒
+     * @return その時点の問題番号とテキスト
+     */
+    public Snapshot textAt(long elapsedMicros) {
+        StringBuilder text = new StringBuilder();
+        int questionNum = 0;
+        long limitNanos = elapsedMicros * 1000;
+
+        for (KeystrokeEvent event : events) {
+            if (event.getNanoTime() > limitNanos) break;
+            switch (event.getType()) {
+                case KeystrokeEvent.TYPE_INSERT:
+                    text.insert(Math.min(event.getOffset(), text.length()), event.getText());
+                    break;
+                case KeystrokeEvent.TYPE_REMOVE:
+                    int start = Math.min(event.getOffset(), text.length());
+                    text.delete(start, Math.min(start + event.getLength(), text.length()));
+                    break;
+                default:
+                    questionNum = event.getQuestionNum();
+                    break;
+            }
+        }
+        return new Snapshot(questionNum, text.toString());
+    }
+
+    /**
+     * 記録の最後の時点の入力欄の状態を復元します。
+     *
+     * @return 最終状態
+     */
+    public Snapshot finalText() {
+        return textAt(Long.MAX_VALUE / 1000);
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length < 1) {
+            System.err.println("使い方: KeystrokeReplayer <キーストロークファイル> [経過ミリ秒]");
+            System.exit(1);
+        }
+        KeystrokeReplayer replayer = load(args[0]);
+        Snapshot snapshot = args.length > 1
+            ? replayer.textAt(Long.parseLong(args[1]) * 1000)
+            : replayer.finalText();
+        System.out.println("イベント数: " + replayer.events.size());
+        System.out.println("問題" + snapshot.getQuestionNum() + ": " + snapshot.getText());
+    }
+}
@@ -0,0 +1,92 @@
+package com.study.form.util;
+
+/**
+ * 遅延のヒストグラム - 値を対数的な区間に数えてパーセンタイルを求める
+ *
+ * <p>HdrHistogram と同じ考え方で、0〜127 はそのまま数え、それより大きい値は2倍ごとの区間を
+ * 64 に分けて数えます。値を記録するのは配列の1要素を増やすだけで、メモリは値の数によらず一定です。
+ * パーセンタイルの相対誤差は約1.6%以内です。</p>
+ * <p>単位は呼び出し側で決めます（描画遅延の計測ではマイクロ秒）。記録できる上限
+ * （{@link #MAX_VALUE}）を超える値は上限として数えます。</p>
+ */
+public class LatencyHistogram {
+    private static final int SUB_BUCKET_BITS = 6;
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+    private static final int LINEAR_LIMIT = SUB_BUCKETS * 2;
+    private static final int MAX_EXPONENT = 31;
+
+    /** 記録できる値の上限（マイクロ秒では約71分） */
+    public static final long MAX_VALUE = (1L << (MAX_EXPONENT + 1)) - 1;
+
+    private final long[] counts = new long[LINEAR_LIMIT + (MAX_EXPONENT - SUB_BUCKET_BITS) * SUB_BUCKETS];
+    private long count = 0;
+    private long total = 0;
+    private long max = 0;
+
+    /**
+     * 値を1つ記録します。負の値は0として数えます。
+     *
+     * @param value 値
+     */
+    public synchronized void record(long value) {
+        long clamped = Math.max(0, Math.min(value, MAX_VALUE));
+        counts[indexOf(clamped)]++;
+        count++;
+        total += clamped;
+        max = Math.max(max, clamped);
+    }
+
+    private static int indexOf(long value) {
+        if (value < LINEAR_LIMIT) {
+            return (int) value;
+        }
+        int exponent = 63 - Long.numberOfLeadingZeros(value);
+        int shift = exponent - SUB_BUCKET_BITS;
+        int mantissa = (int) (value >>> shift);
+        return LINEAR_LIMIT + (exponent - SUB_BUCKET_BITS - 1) * SUB_BUCKETS + (mantissa - SUB_BUCKETS);
+    }
+
+    // 区間に入る最大の値
+    private static long highestValueAt(int index) {
+        if (index < LINEAR_LIMIT) {
+            return index;
+        }
+        int offset = index - LINEAR_LIMIT;
+        int shift = offset / SUB_BUCKETS + 1;
+        long mantissa = SUB_BUCKETS + offset % SUB_BUCKETS;
+        return ((mantissa + 1) << shift) - 1;
+    }
+
+    public synchronized long getCount() {
+        return count;
+    }
+
+    public synchronized long getMax() {
+        return max;
+    }
+
+    public synchronized double getMean() {
+        return count == 0 ? 0 : (double) total / count;
+    }
+
+    /**
+     * 指定したパーセンタイルの値を返します（その値以下に記録の指定した割合が入る最小の区間の上端）。
+     *
+     * @param percentile パーセンタイル（0〜100）
+     * @return 値（記録がない場合は0）
+     */
+    public synchronized long getValueAtPercentile(double percentile) {
+        if (count == 0) {
+            return 0;
+        }
+        long rank = Math.max(1, (long) Math.ceil(Math.min(percentile, 100.0) / 100.0 * count));
+        long seen = 0;
+        for (int i = 0; i < counts.length; i++) {
+            seen += counts[i];
+            if (seen >= rank) {
+                return Math.min(highestValueAt(i), max);
+            }
+        }
+        return max;
+    }
+}
@@ -0,0 +1,42 @@
+package com.study.form.util;
+
+import com.study.form.model.Question;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * 全件をメモリ上のリストで保持する質問の供給元
+ */
+public class ListQuestionSource implements QuestionSource {
+    private final List<Question> questions;
+
+    public ListQuestionSource(List<Question> questions) {
+        this.questions = new ArrayList<>(questions);
+    }
+
+    /**
+     * 質問のない供給元を返します。
+     *
+     * @return 空の供給元
+     */
+    public static ListQuestionSource empty() {
+        return new ListQuestionSource(Collections.emptyList());
+    }
+
+    @Override
+    public int size() {
+        return questions.size();
+    }
+
+    @Override
+    public Question get(int index) {
+        return questions.get(index);
+    }
+
+    @Override
+    public void close() {
+        // 解放するリソースはない
+    }
+}
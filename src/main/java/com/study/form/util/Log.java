@@ -0,0 +1,84 @@
+package com.study.form.util;
+
+import java.util.logging.ConsoleHandler;
+import java.util.logging.Formatter;
+import java.util.logging.Handler;
+import java.util.logging.Level;
+import java.util.logging.LogRecord;
+import java.util.logging.Logger;
+
+/**
+ * コンソールへのログ出力 - 出力するレベルを設定で切り替える
+ *
+ * <p>{@code java.util.logging} の {@code com.study.form} 以下のロガーを、設定の {@code log_level}
+ * で指定したレベル以上だけコンソール（標準エラー）に出すようにします。
+ * アクションログの各エントリの表示は {@code FINE}（{@code DEBUG}）のため、既定の {@code INFO} では出力されません。</p>
+ */
+public final class Log {
+    private static final String ROOT = "com.study.form";
+    private static final Logger ROOT_LOGGER = Logger.getLogger(ROOT);
+    private static Handler handler;
+
+    private Log() {
+    }
+
+    /**
+     * クラスのロガーを返します。
+     *
+     * @param type クラス
+     * @return ロガー
+     */
+    public static Logger get(Class<?> type) {
+        return Logger.getLogger(type.getName());
+    }
+
+    /**
+     * 出力するレベルを設定します。
+     *
+     * @param level レベル（{@code OFF}, {@code ERROR}, {@code WARN}, {@code INFO}, {@code DEBUG}
+     *              または {@code java.util.logging} のレベル名）。不正な場合は {@code INFO}
+     */
+    public static synchronized void configure(String level) {
+        Level parsed = parseLevel(level);
+        if (handler == null) {
+            handler = new ConsoleHandler();
+            handler.setFormatter(new Formatter() {
+                @Override
+                public String format(LogRecord record) {
+                    StringBuilder line = new StringBuilder(formatMessage(record)).append(System.lineSeparator());
+                    if (record.getThrown() != null) {
+                        line.append(record.getThrown()).append(System.lineSeparator());
+                    }
+                    return line.toString();
+                }
+            });
+            ROOT_LOGGER.addHandler(handler);
+            ROOT_LOGGER.setUseParentHandlers(false);
+        }
+        handler.setLevel(parsed);
+        ROOT_LOGGER.setLevel(parsed);
+    }
+
+    private static Level parseLevel(String level) {
+        if (level == null) {
+            return Level.INFO;
+        }
+        switch (level.trim().toUpperCase()) {
+            case "ERROR":
+                return Level.SEVERE;
+            case "WARN":
+                return Level.WARNING;
+            case "DEBUG":
+                return Level.FINE;
+            case "TRACE":
+                return Level.FINEST;
+            default:
+                try {
+                    return Level.parse(level.trim().toUpperCase());
+                } catch (IllegalArgumentException e) {
+                    System.err.println("ログレベルが不正なため INFO にします: " + level);
+                    return Level.INFO;
+                }
+        }
+    }
+}
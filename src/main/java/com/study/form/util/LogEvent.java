@@ -0,0 +1,49 @@
+package com.study.form.util;
+
+/**
+ * ログイベント - 発生時点の時刻とアクション内容を保持する不変オブジェクト
+ *
+ * <p>イベントディスパッチスレッドで生成され、バックグラウンドの書き込みスレッドに
+ * 受け渡されます。時刻は生成時に確定するため、書き込みが遅れても記録される
+ * 時刻はずれません。</p>
+ */
+public final class LogEvent {
+    private final long nanoTime;
+    private final long epochMillis;
+    private final String actionType;
+    private final String details;
+
+    public LogEvent(long nanoTime, long epochMillis, String actionType, String details) {
+        this.nanoTime = nanoTime;
+        this.epochMillis = epochMillis;
+        this.actionType = actionType;
+        this.details = details;
+    }
+
+    /**
+     * 現在時刻でイベントを作成します。
+     *
+     * @param actionType アクション種別
+     * @param details 詳細情報
+     * @return 新しいログイベント
+     */
+    public static LogEvent now(String actionType, String details) {
+        return new LogEvent(System.nanoTime(), System.currentTimeMillis(), actionType, details);
+    }
+
+    public long getNanoTime() {
+        return nanoTime;
+    }
+
+    public long getEpochMillis() {
+        return epochMillis;
+    }
+
+    public String getActionType() {
+        return actionType;
+    }
+
+    public String getDetails() {
+        return details;
+    }
+}
@@ -0,0 +1,408 @@
+package com.study.form.util;
+
+import com.study.form.Constants;
+import com.study.form.model.Config;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.lang.management.ManagementFactory;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+import java.util.function.Supplier;
+import java.util.logging.Logger;
+
+/**
+ * メトリクス - ログの記録やファイルの読み書きの回数・時間をプロセス内で集計する
+ *
+ * <p>カウンター・ゲージ・タイマーは {@link LongAdder} で数えるため、複数のスレッドから
+ * ロックなしで記録できます。メトリクスは名前ごとに1つで、同じ名前で取得すると同じものを返します。</p>
+ * <p>集計した値は次の2つの方法で参照できます。</p>
+ * <ul>
+ *   <li>JMX: {@code com.study.form:type=Metrics,name=<名前>}（JConsole などで確認できます）</li>
+ *   <li>HTTP: {@link #serve(String, int)} で起動したサーバーの {@code /metrics}（Prometheus のテキスト形式）</li>
+ * </ul>
+ */
+public final class Metrics {
+    private static final Logger LOG = Log.get(Metrics.class);
+    private static final Metrics REGISTRY = new Metrics();
+    private static final String JMX_DOMAIN = "com.study.form";
+
+    private final Map<String, Metric> metrics = new ConcurrentHashMap<>();
+
+    /**
+     * メトリクスの共通部分
+     */
+    private abstract static class Metric {
+        final String name;
+        final String help;
+
+        Metric(String name, String help) {
+            this.name = name;
+            this.help = help;
+        }
+
+        abstract String type();
+
+        abstract void writeSamples(StringBuilder out);
+
+        void write(StringBuilder out) {
+            writeHeader(out, name, help, type());
+            writeSamples(out);
+        }
+    }
+
+    /**
+     * カウンターのJMXでの公開項目
+     */
+    public interface CounterMXBean {
+        long getCount();
+    }
+
+    /**
+     * ゲージのJMXでの公開項目
+     */
+    public interface GaugeMXBean {
+        long getValue();
+    }
+
+    /**
+     * タイマーのJMXでの公開項目
+     */
+    public interface TimerMXBean {
+        long getCount();
+
+        double getTotalMillis();
+
+        double getMeanMillis();
+
+        double getMaxMillis();
+    }
+
+    /**
+     * 増えるだけの回数
+     */
+    public static final class Counter extends Metric implements CounterMXBean {
+        private final LongAdder count = new LongAdder();
+
+        private Counter(String name, String help) {
+            super(name, help);
+        }
+
+        public void increment() {
+            count.increment();
+        }
+
+        public void add(long amount) {
+            count.add(amount);
+        }
+
+        @Override
+        public long getCount() {
+            return count.sum();
+        }
+
+        @Override
+        String type() {
+            return "counter";
+        }
+
+        @Override
+        void writeSamples(StringBuilder out) {
+            out.append(name).append(' ').append(getCount()).append('\n');
+        }
+    }
+
+    /**
+     * 増減する値（実行中のセッション数など）。値を返す処理を指定した場合はその値を返します。
+     */
+    public static final class Gauge extends Metric implements GaugeMXBean {
+        private final LongAdder value = new LongAdder();
+        private final LongSupplier supplier;
+
+        private Gauge(String name, String help, LongSupplier supplier) {
+            super(name, help);
+            this.supplier = supplier;
+        }
+
+        public void increment() {
+            value.increment();
+        }
+
+        public void decrement() {
+            value.decrement();
+        }
+
+        @Override
+        public long getValue() {
+            return supplier != null ? supplier.getAsLong() : value.sum();
+        }
+
+        @Override
+        String type() {
+            return "gauge";
+        }
+
+        @Override
+        void writeSamples(StringBuilder out) {
+            out.append(name).append(' ').append(getValue()).append('\n');
+        }
+    }
+
+    /**
+     * 処理の回数と時間
+     */
+    public static final class Timer extends Metric implements TimerMXBean {
+        private final LongAdder count = new LongAdder();
+        private final LongAdder totalNanos = new LongAdder();
+        private final LongAccumulator maxNanos = new LongAccumulator(Math::max, 0);
+
+        private Timer(String name, String help) {
+            super(name, help);
+        }
+
+        /**
+         * 処理の時間を記録します。
+         *
+         * @param startNanos 処理を始めたときの {@link System#nanoTime()}
+         */
+        public void recordSince(long startNanos) {
+            record(System.nanoTime() - startNanos);
+        }
+
+        /**
+         * 処理の時間を記録します。
+         *
+         * @param nanos 時間（ナノ秒）
+         */
+        public void record(long nanos) {
+            count.increment();
+            totalNanos.add(nanos);
+            maxNanos.accumulate(nanos);
+        }
+
+        @Override
+        public long getCount() {
+            return count.sum();
+        }
+
+        @Override
+        public double getTotalMillis() {
+            return totalNanos.sum() / 1e6;
+        }
+
+        @Override
+        public double getMeanMillis() {
+            long n = getCount();
+            return n == 0 ? 0 : getTotalMillis() / n;
+        }
+
+        @Override
+        public double getMaxMillis() {
+            return maxNanos.get() / 1e6;
+        }
+
+        @Override
+        String type() {
+            return "summary";
+        }
+
+        @Override
+        void writeSamples(StringBuilder out) {
+            out.append(name).append("_count ").append(getCount()).append('\n');
+            out.append(name).append("_sum ").append(seconds(totalNanos.sum())).append('\n');
+        }
+
+        // 最大値はsummaryに含められないため別のゲージとして出す
+        @Override
+        void write(StringBuilder out) {
+            super.write(out);
+            writeHeader(out, name + "_max", help + "（最大）", "gauge");
+            out.append(name).append("_max ").append(seconds(maxNanos.get())).append('\n');
+        }
+    }
+
+    private Metrics() {
+    }
+
+    /**
+     * プロセス全体で共有するメトリクスを返します。
+     *
+     * @return メトリクス
+     */
+    public static Metrics registry() {
+        return REGISTRY;
+    }
+
+    /**
+     * カウンターを返します。
+     *
+     * @param name 名前（Prometheusの慣習に合わせて {@code _total} で終わる名前）
+     * @param help 説明
+     * @return カウンター
+     */
+    public Counter counter(String name, String help) {
+        return register(name, Counter.class, () -> new Counter(name, help));
+    }
+
+    /**
+     * 増減させるゲージを返します。
+     *
+     * @param name 名前
+     * @param help 説明
+     * @return ゲージ
+     */
+    public Gauge gauge(String name, String help) {
+        return register(name, Gauge.class, () -> new Gauge(name, help, null));
+    }
+
+    /**
+     * 参照するたびに値を求めるゲージを登録します。
+     *
+     * @param name 名前
+     * @param help 説明
+     * @param supplier 値を返す処理（複数のスレッドから呼ばれます）
+     * @return ゲージ
+     */
+    public Gauge gauge(String name, String help, LongSupplier supplier) {
+        return register(name, Gauge.class, () -> new Gauge(name, help, supplier));
+    }
+
+    /**
+     * タイマーを返します。
+     *
+     * @param name 名前（Prometheusの慣習に合わせて {@code _seconds} で終わる名前）
+     * @param help 説明
+     * @return タイマー
+     */
+    public Timer timer(String name, String help) {
+        return register(name, Timer.class, () -> new Timer(name, help));
+    }
+
+    private <T extends Metric> T register(String name, Class<T> type, Supplier<T> factory) {
+        Metric metric = metrics.computeIfAbsent(name, key -> {
+            T created = factory.get();
+            registerMBean(created);
+            return created;
+        });
+        if (!type.isInstance(metric)) {
+            throw new IllegalArgumentException("別の種類で登録済みのメトリクスです: " + name);
+        }
+        return type.cast(metric);
+    }
+
+    private static void registerMBean(Metric metric) {
+        try {
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            ObjectName objectName = new ObjectName(JMX_DOMAIN + ":type=Metrics,name=" + metric.name);
+            if (!server.isRegistered(objectName)) {
+                server.registerMBean(metric, objectName);
+            }
+        } catch (JMException | SecurityException e) {
+            // JMXが使えない環境でも集計とHTTPでの公開は続ける
+            System.err.println("メトリクスをJMXに登録できませんでした: " + metric.name + " (" + e.getMessage() + ")");
+        }
+    }
+
+    /**
+     * すべてのメトリクスをPrometheusのテキスト形式で返します。
+     *
+     * @return テキスト
+     */
+    public String toPrometheusText() {
+        StringBuilder out = new StringBuilder(metrics.size() * 128);
+        for (Metric metric : new TreeMap<>(metrics).values()) {
+            metric.write(out);
+        }
+        return out.toString();
+    }
+
+    private static void writeHeader(StringBuilder out, String name, String help, String type) {
+        out.append("# HELP ").append(name).append(' ').append(help).append('\n');
+        out.append("# TYPE ").append(name).append(' ').append(type).append('\n');
+    }
+
+    /**
+     * 設定でポートが指定されている場合は、同じPCから参照するためのHTTPサーバーを起動します。
+     *
+     * @param config 設定（{@code metrics_port}、0の場合は起動しない）
+     * @return 起動したサーバー（起動しなかった場合はnull）
+     */
+    public static HttpServer start(Config config) {
+        int port = config.getMetricsPort();
+        if (port <= 0) {
+            return null;
+        }
+        try {
+            HttpServer server = REGISTRY.serve(Constants.METRICS_HOST, port);
+            LOG.info("メトリクスを公開しました: http://" + Constants.METRICS_HOST + ":" + port
+                + Constants.METRICS_PATH);
+            return server;
+        } catch (IOException e) {
+            System.err.println("メトリクスのサーバーを起動できませんでした: " + e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * メトリクスを返すHTTPサーバーを起動します。
+     *
+     * @param host 待ち受けるホスト（通常は 127.0.0.1）
+     * @param port 待ち受けるポート
+     * @return 起動したサーバー（{@code stop} で停止します）
+     * @throws IOException 起動に失敗した場合
+     */
+    public HttpServer serve(String host, int port) throws IOException {
+        HttpServer server = HttpServer.create(new InetSocketAddress(host, port), 0);
+        attach(server);
+        server.setExecutor(Executors.newSingleThreadExecutor(r -> {
+            Thread t = new Thread(r, "metrics-http");
+            t.setDaemon(true);
+            return t;
+        }));
+        server.start();
+        return server;
+    }
+
+    /**
+     * 既存のHTTPサーバーに {@link Constants#METRICS_PATH} を追加します。
+     *
+     * @param server HTTPサーバー
+     */
+    public void attach(HttpServer server) {
+        server.createContext(Constants.METRICS_PATH, this::handle);
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        try {
+            if (!"GET".equals(exchange.getRequestMethod())) {
+                exchange.sendResponseHeaders(405, -1);
+                return;
+            }
+            byte[] bytes = toPrometheusText().getBytes(StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().set("Content-Type", "text/plain; version=0.0.4; charset=utf-8");
+            exchange.sendResponseHeaders(200, bytes.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(bytes);
+            }
+        } finally {
+            exchange.close();
+        }
+    }
+
+    private static String seconds(long nanos) {
+        return String.format(Locale.ROOT, "%.9f", nanos / 1e9);
+    }
+}
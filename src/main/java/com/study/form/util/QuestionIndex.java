@@ -0,0 +1,368 @@
+package com.study.form.util;
+
+import com.study.form.Constants;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.zip.CRC32C;
+
+/**
+ * 質問ファイル内の各質問の位置（バイトオフセット）の索引
+ *
+ * <p>質問 {@code i} のデータはファイルの {@code [getStart(i), getEnd(i))} の範囲にあります。
+ * CSVでは1レコード（引用符内の改行を含む）、JSONでは {@code questions} 配列の1要素が
+ * 1件の質問に対応します。</p>
+ *
+ * <p>作成した索引は質問ファイルの隣に {@code .idx} ファイルとして保存し、次回からは
+ * 質問ファイルを走査せずに読み込みます。索引ファイルには質問ファイルのサイズ・更新日時・
+ * 内容のハッシュ値（CRC32C）を記録しておき、サイズと更新日時が一致すればそのまま使用し、
+ * 更新日時だけが異なる場合（コピーした場合など）はハッシュ値が一致したときに限り使用します。</p>
+ *
+ * <p>索引ファイルの形式：</p>
+ * <pre>
+ * ヘッダー: "FRLI"(4byte) バージョン(1byte) ファイルサイズ(8byte) 更新日時のエポックミリ秒(8byte)
+ *           CRC32C(8byte) 質問数(4byte)
+ * 本体: 質問ごとに 開始位置(8byte) 終了位置(8byte)
+ * </pre>
+ */
+public class QuestionIndex {
+    private static final int READ_BUFFER_SIZE = 64 * 1024;
+    private static final int INITIAL_CAPACITY = 256;
+    private static final long MAP_CHUNK_SIZE = 64L * 1024 * 1024;
+
+    private final long[] starts;
+    private final long[] ends;
+    private final long contentHash;
+
+    public QuestionIndex(long[] starts, long[] ends, long contentHash) {
+        this.starts = starts;
+        this.ends = ends;
+        this.contentHash = contentHash;
+    }
+
+    public int size() {
+        return starts.length;
+    }
+
+    public long getStart(int index) {
+        return starts[index];
+    }
+
+    public long getEnd(int index) {
+        return ends[index];
+    }
+
+    /**
+     * 索引を作成したときの質問ファイルの内容のハッシュ値（CRC32C）を返します。
+     *
+     * @return ハッシュ値
+     */
+    public long getContentHash() {
+        return contentHash;
+    }
+
+    /**
+     * 質問ファイルの索引を返します。
+     *
+     * <p>有効な索引ファイルがあればそれを読み込み、なければ質問ファイルを走査して作成し、
+     * 索引ファイルに保存します。索引ファイルを保存できなくても作成した索引は返します。</p>
+     *
+     * @param filepath 質問ファイルのパス（.json または .csv）
+     * @return 索引
+     * @throws IOException 質問ファイルの読み込みに失敗した場合
+     */
+    public static QuestionIndex build(String filepath) throws IOException {
+        Path source = Paths.get(filepath);
+        File sidecar = sidecarFor(filepath);
+        long size = Files.size(source);
+        long modified = Files.getLastModifiedTime(source).toMillis();
+
+        try (FileChannel channel = FileChannel.open(source, StandardOpenOption.READ)) {
+            QuestionIndex index = readSidecar(sidecar, channel, size, modified);
+            if (index != null) {
+                return index;
+            }
+
+            if (filepath.endsWith(".json")) {
+                long hash = hash(channel, size);
+                try (InputStream in = new BufferedInputStream(
+                        Channels.newInputStream(channel.position(0)), READ_BUFFER_SIZE)) {
+                    index = scanJson(in, hash);
+                }
+            } else {
+                index = scanCsv(channel, size);
+            }
+
+            try {
+                writeSidecar(sidecar, index, size, modified);
+            } catch (IOException e) {
+                System.err.println("質問ファイルの索引を保存できませんでした: " + sidecar + " - " + e.getMessage());
+            }
+            return index;
+        }
+    }
+
+    /**
+     * 質問ファイルに対応する索引ファイルを返します。
+     *
+     * @param filepath 質問ファイルのパス
+     * @return 索引ファイル（質問ファイル名に .idx を付けたもの）
+     */
+    public static File sidecarFor(String filepath) {
+        return new File(filepath + Constants.QUESTION_INDEX_EXTENSION);
+    }
+
+    /**
+     * 質問CSVをメモリマップして走査し、ヘッダー行を除く各レコードの位置を求めます。
+     * 同じマッピングからファイル全体のハッシュ値も計算します。
+     *
+     * <p>RFC 4180に従い、引用符で囲まれたフィールド内の改行（{@code ""} による引用符の
+     * エスケープを含む）はレコードの区切りとみなしません。区切り文字を含まないレコード
+     * （空行など）は質問として扱わず、索引に含めません。</p>
+     *
+     * @param channel 質問CSVのチャネル
+     * @param size ファイルサイズ
+     * @return 索引
+     * @throws IOException 読み込みに失敗した場合
+     */
+    static QuestionIndex scanCsv(FileChannel channel, long size) throws IOException {
+        Builder builder = new Builder();
+        CRC32C crc = new CRC32C();
+        long recordStart = 0;
+        boolean inQuotes = false;
+        boolean sawDelimiter = false;
+        boolean headerSkipped = false;
+        int previous = -1;
+
+        for (long chunkStart = 0; chunkStart < size; chunkStart += MAP_CHUNK_SIZE) {
+            int length = (int) Math.min(MAP_CHUNK_SIZE, size - chunkStart);
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, chunkStart, length);
+            crc.update(buffer.duplicate());
+
+            int i = 0;
+            // UTF-8 BOMをスキップ
+            if (chunkStart == 0 && length >= 3
+                    && buffer.get(0) == (byte) 0xEF && buffer.get(1) == (byte) 0xBB && buffer.get(2) == (byte) 0xBF) {
+                i = 3;
+                recordStart = 3;
+            }
+
+            for (; i < length; i++) {
+                int b = buffer.get(i);
+                if (b == '"') {
+                    // 引用符内の "" は閉じてすぐ開き直すのと同じなので、反転するだけでよい
+                    inQuotes = !inQuotes;
+                } else if (!inQuotes && b == ',') {
+                    sawDelimiter = true;
+                } else if (!inQuotes && b == '\n') {
+                    long position = chunkStart + i;
+                    long recordEnd = previous == '\r' ? position - 1 : position;
+                    if (headerSkipped) {
+                        if (sawDelimiter) builder.add(recordStart, recordEnd);
+                    } else {
+                        headerSkipped = true;
+                    }
+                    recordStart = position + 1;
+                    sawDelimiter = false;
+                }
+                previous = b;
+            }
+        }
+
+        if (headerSkipped && sawDelimiter && size > recordStart) {
+            long recordEnd = previous == '\r' ? size - 1 : size;
+            builder.add(recordStart, recordEnd);
+        }
+        return builder.build(crc.getValue());
+    }
+
+    /**
+     * 質問JSONを走査して、{@code questions} 配列（トップレベルが配列の場合はその配列）の
+     * 各オブジェクト要素の位置を求めます。
+     *
+     * @param in JSONのバイト列
+     * @param contentHash ファイル全体のハッシュ値
+     * @return 索引
+     * @throws IOException 読み込みに失敗した場合
+     */
+    static QuestionIndex scanJson(InputStream in, long contentHash) throws IOException {
+        Builder builder = new Builder();
+        long position = 0;
+        int depth = 0;
+        boolean inString = false;
+        boolean escaped = false;
+        int arrayDepth = -1;          // 質問配列の内側の深さ（未検出は-1）
+        long elementStart = -1;
+        StringBuilder key = new StringBuilder();
+        String lastKey = null;
+        int b;
+
+        while ((b = in.read()) >= 0) {
+            if (inString) {
+                if (escaped) {
+                    escaped = false;
+                } else if (b == '\\') {
+                    escaped = true;
+                } else if (b == '"') {
+                    inString = false;
+                    if (depth == 1) lastKey = key.toString();
+                } else if (depth == 1) {
+                    key.append((char) b);
+                }
+            } else if (b == '"') {
+                inString = true;
+                key.setLength(0);
+            } else if (b == '{' || b == '[') {
+                if (depth == arrayDepth && b == '{') {
+                    elementStart = position;
+                }
+                depth++;
+                if (b == '[' && arrayDepth < 0
+                        && (depth == 1 || (depth == 2 && "questions".equals(lastKey)))) {
+                    arrayDepth = depth;
+                }
+            } else if (b == '}' || b == ']') {
+                depth--;
+                if (depth == arrayDepth && b == '}' && elementStart >= 0) {
+                    builder.add(elementStart, position + 1);
+                    elementStart = -1;
+                } else if (b == ']' && depth == arrayDepth - 1) {
+                    break;
+                }
+            }
+            position++;
+        }
+        return builder.build(contentHash);
+    }
+
+    /**
+     * ファイル全体をメモリマップしてハッシュ値（CRC32C）を計算します。
+     */
+    private static long hash(FileChannel channel, long size) throws IOException {
+        CRC32C crc = new CRC32C();
+        for (long chunkStart = 0; chunkStart < size; chunkStart += MAP_CHUNK_SIZE) {
+            long length = Math.min(MAP_CHUNK_SIZE, size - chunkStart);
+            crc.update(channel.map(FileChannel.MapMode.READ_ONLY, chunkStart, length));
+        }
+        return crc.getValue();
+    }
+
+    /**
+     * 索引ファイルを読み込みます。
+     *
+     * @return 質問ファイルと一致する索引。索引ファイルがない、壊れている、
+     *         または質問ファイルが変更されている場合はnull
+     */
+    private static QuestionIndex readSidecar(File sidecar, FileChannel channel,
+                                             long size, long modified) {
+        if (!sidecar.isFile()) return null;
+
+        try (DataInputStream in = new DataInputStream(
+                new BufferedInputStream(new FileInputStream(sidecar), READ_BUFFER_SIZE))) {
+            byte[] magic = new byte[Constants.QUESTION_INDEX_MAGIC.length];
+            in.readFully(magic);
+            if (!Arrays.equals(magic, Constants.QUESTION_INDEX_MAGIC)
+                    || in.readUnsignedByte() != Constants.QUESTION_INDEX_VERSION) {
+                return null;
+            }
+            long indexedSize = in.readLong();
+            long indexedModified = in.readLong();
+            long indexedHash = in.readLong();
+            int count = in.readInt();
+            if (indexedSize != size || count < 0) {
+                return null;
+            }
+
+            boolean touched = indexedModified != modified;
+            if (touched && hash(channel, size) != indexedHash) {
+                return null;
+            }
+
+            long[] starts = new long[count];
+            long[] ends = new long[count];
+            for (int i = 0; i < count; i++) {
+                starts[i] = in.readLong();
+                ends[i] = in.readLong();
+                if (starts[i] < 0 || ends[i] < starts[i] || ends[i] > size) {
+                    return null;
+                }
+            }
+            QuestionIndex index = new QuestionIndex(starts, ends, indexedHash);
+
+            // 内容が同じなら更新日時を記録し直し、次回はハッシュ値の計算を省く
+            if (touched) {
+                try {
+                    writeSidecar(sidecar, index, size, modified);
+                } catch (IOException e) {
+                    System.err.println("質問ファイルの索引を更新できませんでした: " + sidecar + " - " + e.getMessage());
+                }
+            }
+            return index;
+        } catch (IOException e) {
+            System.err.println("質問ファイルの索引を読み込めないため作成し直します: " + sidecar + " - " + e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * 索引ファイルを書き込みます。書き込み途中の索引ファイルが読まれないよう、
+     * 一時ファイルに書いてから置き換えます。
+     */
+    private static void writeSidecar(File sidecar, QuestionIndex index,
+                                     long size, long modified) throws IOException {
+        File temp = new File(sidecar.getPath() + ".tmp");
+        try (DataOutputStream out = new DataOutputStream(
+                new BufferedOutputStream(new FileOutputStream(temp), READ_BUFFER_SIZE))) {
+            out.write(Constants.QUESTION_INDEX_MAGIC);
+            out.writeByte(Constants.QUESTION_INDEX_VERSION);
+            out.writeLong(size);
+            out.writeLong(modified);
+            out.writeLong(index.contentHash);
+            out.writeInt(index.size());
+            for (int i = 0; i < index.size(); i++) {
+                out.writeLong(index.starts[i]);
+                out.writeLong(index.ends[i]);
+            }
+        }
+        Files.move(temp.toPath(), sidecar.toPath(), StandardCopyOption.REPLACE_EXISTING);
+    }
+
+    /**
+     * 位置を順に追加して索引を組み立てる
+     */
+    static final class Builder {
+        private long[] starts = new long[INITIAL_CAPACITY];
+        private long[] ends = new long[INITIAL_CAPACITY];
+        private int count = 0;
+
+        void add(long start, long end) {
+            if (count == starts.length) {
+                starts = Arrays.copyOf(starts, count * 2);
+                ends = Arrays.copyOf(ends, count * 2);
+            }
+            starts[count] = start;
+            ends[count] = end;
+            count++;
+        }
+
+        QuestionIndex build(long contentHash) {
+            return new QuestionIndex(Arrays.copyOf(starts, count), Arrays.copyOf(ends, count), contentHash);
+        }
+    }
+}
@@ -0,0 +1,46 @@
+package com.study.form.util;
+
+import com.study.form.model.Question;
+
+import java.io.Closeable;
+
+/**
+ * 質問の供給元
+ *
+ * <p>質問を番号（0始まり）で取り出すための抽象です。全件をメモリに持つ実装
+ * （{@link ListQuestionSource}）と、ファイル上の位置の索引だけを持ち必要な質問を
+ * その都度読み込む実装（{@link IndexedQuestionSource}）があります。</p>
+ */
+public interface QuestionSource extends Closeable {
+
+    /**
+     * 質問の件数を返します。
+     *
+     * @return 件数
+     */
+    int size();
+
+    /**
+     * 指定した番号の質問を返します。
+     *
+     * @param index 質問の番号（0始まり）
+     * @return 質問
+     * @throws IndexOutOfBoundsException 番号が範囲外の場合
+     */
+    Question get(int index);
+
+    /**
+     * 質問が1件もないかどうかを返します。
+     *
+     * @return 空の場合はtrue
+     */
+    default boolean isEmpty() {
+        return size() == 0;
+    }
+
+    /**
+     * 供給元が保持しているファイルやスレッドを解放します。
+     */
+    @Override
+    void close();
+}
@@ -0,0 +1,128 @@
+package com.study.form.util;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonParseException;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.study.form.model.Question;
+
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * 質問JSONファイルのストリーミングリーダー
+ *
+ * <p>ファイル全体をメモリに読み込まず、{@code questions} 配列の要素を先頭から1件ずつ
+ * {@link Question} に変換して返します。ファイルの読み込みは1パスで、同時にメモリに
+ * 保持するのは読み込み中の1件だけです。</p>
+ *
+ * <p>{@code questions} 以外のキー（{@code export_date} など）は読み飛ばします。
+ * トップレベルが配列のファイルは、その配列を質問の配列として扱います。</p>
+ *
+ * <pre>{@code
+ * try (QuestionStreamReader reader = QuestionStreamReader.open(path)) {
+ *     while (reader.hasNext()) {
+ *         Question question = reader.next();
+ *     }
+ * }
+ * }</pre>
+ */
+public class QuestionStreamReader implements Iterator<Question>, Closeable {
+    private static final String QUESTIONS_KEY = "questions";
+    private static final int READ_BUFFER_SIZE = 64 * 1024;
+
+    private final Gson gson = new Gson();
+    private final JsonReader reader;
+    private boolean inQuestionsArray = false;
+    private boolean finished = false;
+
+    public QuestionStreamReader(Reader source) {
+        this.reader = new JsonReader(source);
+    }
+
+    /**
+     * ファイルを開いてリーダーを作成します。
+     *
+     * @param filepath 質問JSONファイルのパス
+     * @return リーダー
+     * @throws IOException ファイルを開けなかった場合
+     */
+    public static QuestionStreamReader open(String filepath) throws IOException {
+        return new QuestionStreamReader(new BufferedReader(
+            new InputStreamReader(new FileInputStream(filepath), StandardCharsets.UTF_8), READ_BUFFER_SIZE));
+    }
+
+    @Override
+    public boolean hasNext() {
+        if (finished) return false;
+        try {
+            if (!inQuestionsArray && !seekQuestionsArray()) {
+                finished = true;
+                return false;
+            }
+            if (reader.hasNext()) {
+                return true;
+            }
+            reader.endArray();
+            finished = true;
+            return false;
+        } catch (IOException e) {
+            throw new JsonParseException("質問データの読み込みに失敗しました", e);
+        }
+    }
+
+    @Override
+    public Question next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        Question question = gson.fromJson(reader, Question.class);
+        if (question.getChoices() == null) {
+            question.setChoices(new ArrayList<>());
+        }
+        return question;
+    }
+
+    /**
+     * {@code questions} 配列の先頭まで読み進めます。
+     *
+     * @return 配列が見つかった場合はtrue
+     */
+    private boolean seekQuestionsArray() throws IOException {
+        JsonToken token = reader.peek();
+        if (token == JsonToken.BEGIN_ARRAY) {
+            reader.beginArray();
+            inQuestionsArray = true;
+            return true;
+        }
+        if (token != JsonToken.BEGIN_OBJECT) {
+            return false;
+        }
+
+        reader.beginObject();
+        while (reader.hasNext()) {
+            String name = reader.nextName();
+            if (QUESTIONS_KEY.equals(name) && reader.peek() == JsonToken.BEGIN_ARRAY) {
+                reader.beginArray();
+                inQuestionsArray = true;
+                return true;
+            }
+            reader.skipValue();
+        }
+        return false;
+    }
+
+    @Override
+    public void close() throws IOException {
+        finished = true;
+        reader.close();
+    }
+}
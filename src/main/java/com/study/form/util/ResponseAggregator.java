@@ -0,0 +1,531 @@
+package com.study.form.util;
+
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import com.study.form.Constants;
+import com.study.form.model.Response;
+import com.study.form.model.SurveyDictionary;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 回答ファイルの集計 - 多数の回答ファイルを並列に読み込み、重複を除いて1つにまとめる
+ *
+ * <p>回答ファイル（展開・コンパクト形式のCSV、JSON、JSON Lines）とアクションログ（CSV、JSON Lines）を
+ * Fork/Joinプールでファイル単位に並列に読み込みます。同じ回答（回答者ID・問題番号・タイムスタンプ・
+ * 経過ナノ秒が同じもの）が複数のファイル（{@code both} 形式のCSVとJSONなど）にある場合は1件として数えます。</p>
+ */
+public class ResponseAggregator {
+    /** これ以下のファイル数になるまでタスクを分割する */
+    private static final int FILES_PER_TASK = 4;
+
+    private static final Comparator<String> NULLS_FIRST = Comparator.nullsFirst(Comparator.naturalOrder());
+    private static final Comparator<Response> RESPONSE_ORDER = Comparator
+        .comparing(Response::getRespondentId, NULLS_FIRST)
+        .thenComparing(Response::getTimestamp, NULLS_FIRST)
+        .thenComparingInt(Response::getQuestionNum);
+
+    private final int parallelism;
+
+    /**
+     * 集計結果
+     */
+    public static final class Result {
+        private final List<Response> responses;
+        private final long totalRows;
+        private final int fileCount;
+        private final List<String> failedFiles;
+        private final Map<Integer, String> questionTexts;
+        private final Map<Integer, Map<String, Long>> choiceDistributions;
+        private final Map<String, Long> actionCounts;
+
+        private Result(List<Response> responses, long totalRows, int fileCount, List<String> failedFiles,
+                       Map<Integer, String> questionTexts, Map<Integer, Map<String, Long>> choiceDistributions,
+                       Map<String, Long> actionCounts) {
+            this.responses = responses;
+            this.totalRows = totalRows;
+            this.fileCount = fileCount;
+            this.failedFiles = failedFiles;
+            this.questionTexts = questionTexts;
+            this.choiceDistributions = choiceDistributions;
+            this.actionCounts = actionCounts;
+        }
+
+        /**
+         * 重複を除いた回答を回答者ID・タイムスタンプ・問題番号の順に並べて返します。
+         *
+         * @return 回答のリスト
+         */
+        public List<Response> getResponses() {
+            return responses;
+        }
+
+        /**
+         * 重複を含めて読み込んだ回答の件数を返します。
+         *
+         * @return 件数
+         */
+        public long getTotalRows() {
+            return totalRows;
+        }
+
+        public long getDuplicateCount() {
+            return totalRows - responses.size();
+        }
+
+        public int getFileCount() {
+            return fileCount;
+        }
+
+        /**
+         * 読み込みに失敗したファイルを返します。
+         *
+         * @return ファイルのパス
+         */
+        public List<String> getFailedFiles() {
+            return failedFiles;
+        }
+
+        /**
+         * 問題番号ごとの質問文（最初に見つかったもの）を返します。
+         *
+         * @return 問題番号から質問文へのマップ
+         */
+        public Map<Integer, String> getQuestionTexts() {
+            return questionTexts;
+        }
+
+        /**
+         * 問題番号ごとの選択肢の回答数を返します。未選択の回答はキーnullで数えます。
+         *
+         * @return 問題番号から「選択肢 → 回答数」へのマップ
+         */
+        public Map<Integer, Map<String, Long>> getChoiceDistributions() {
+            return choiceDistributions;
+        }
+
+        /**
+         * アクション種別ごとのログのイベント数を返します。
+         *
+         * @return アクション種別からイベント数へのマップ
+         */
+        public Map<String, Long> getActionCounts() {
+            return actionCounts;
+        }
+    }
+
+    /**
+     * @param parallelism 並列に読み込むスレッド数
+     */
+    public ResponseAggregator(int parallelism) {
+        this.parallelism = Math.max(1, parallelism);
+    }
+
+    /**
+     * 回答ファイルとアクションログを並列に読み込んで集計します。
+     *
+     * @param responseFiles 回答ファイル
+     * @param logFiles アクションログ
+     * @return 集計結果
+     */
+    public Result aggregate(List<File> responseFiles, List<File> logFiles) {
+        ConcurrentHashMap<String, Response> unique = new ConcurrentHashMap<>();
+        ConcurrentHashMap<String, LongAdder> actionCounts = new ConcurrentHashMap<>();
+        ConcurrentLinkedQueue<String> failedFiles = new ConcurrentLinkedQueue<>();
+        LongAdder totalRows = new LongAdder();
+
+        ForkJoinPool pool = new ForkJoinPool(parallelism);
+        try {
+            forEachFile(pool, responseFiles, file -> {
+                long rows = readResponses(file, response -> unique.putIfAbsent(keyOf(response), response));
+                totalRows.add(rows);
+            }, failedFiles);
+            forEachFile(pool, logFiles, file -> countActions(file, 0).forEach(
+                (type, count) -> actionCounts.computeIfAbsent(type, t -> new LongAdder()).add(count)), failedFiles);
+        } finally {
+            pool.shutdown();
+        }
+
+        List<Response> responses = new ArrayList<>(unique.values());
+        responses.sort(RESPONSE_ORDER);
+
+        Map<Integer, String> questionTexts = new TreeMap<>();
+        Map<Integer, Map<String, Long>> distributions = new TreeMap<>();
+        for (Response response : responses) {
+            questionTexts.putIfAbsent(response.getQuestionNum(), response.getQuestionText());
+            distributions.computeIfAbsent(response.getQuestionNum(), q -> new HashMap<>())
+                .merge(response.getSelectedChoice(), 1L, Long::sum);
+        }
+
+        Map<String, Long> actions = new TreeMap<>();
+        actionCounts.forEach((type, count) -> actions.put(type, count.sum()));
+
+        List<String> failed = new ArrayList<>(failedFiles);
+        Collections.sort(failed);
+        return new Result(responses, totalRows.sum(), responseFiles.size() + logFiles.size(),
+            failed, questionTexts, distributions, actions);
+    }
+
+    // 同じ回答かどうかの判定に使うキー
+    static String keyOf(Response response) {
+        return response.getRespondentId() + '\u0000' + response.getQuestionNum() + '\u0000'
+            + response.getTimestamp() + '\u0000' + response.getElapsedNanos();
+    }
+
+    /**
+     * 1ファイル分の処理
+     */
+    interface FileHandler {
+        void handle(File file) throws IOException;
+    }
+
+    /**
+     * ファイルごとの処理をプールで並列に実行します。失敗したファイルは {@code failedFiles} に追加します。
+     */
+    static void forEachFile(ForkJoinPool pool, List<File> files, FileHandler handler,
+                            Collection<String> failedFiles) {
+        pool.invoke(new FileTask(files, 0, files.size(), handler, failedFiles));
+    }
+
+    /**
+     * ファイルの範囲を半分ずつに分けて並列に処理するタスク
+     */
+    private static final class FileTask extends RecursiveAction {
+        private final List<File> files;
+        private final int from;
+        private final int to;
+        private final FileHandler handler;
+        private final Collection<String> failedFiles;
+
+        FileTask(List<File> files, int from, int to, FileHandler handler, Collection<String> failedFiles) {
+            this.files = files;
+            this.from = from;
+            this.to = to;
+            this.handler = handler;
+            this.failedFiles = failedFiles;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from <= FILES_PER_TASK) {
+                for (int i = from; i < to; i++) {
+                    File file = files.get(i);
+                    try {
+                        handler.handle(file);
+                    } catch (IOException | RuntimeException e) {
+                        System.err.println("ファイルの読み込みに失敗しました: " + file + " (" + e.getMessage() + ")");
+                        failedFiles.add(file.getPath());
+                    }
+                }
+                return;
+            }
+            int middle = (from + to) >>> 1;
+            invokeAll(new FileTask(files, from, middle, handler, failedFiles),
+                new FileTask(files, middle, to, handler, failedFiles));
+        }
+    }
+
+    /**
+     * ディレクトリ内の回答ファイル（.csv, .json, .jsonl, .ndjson）を返します。
+     * コンパクト形式の辞書ファイルは含みません。
+     *
+     * @param directory 回答ディレクトリ
+     * @return ファイル名順のファイル（ディレクトリがない場合は空）
+     */
+    public static List<File> listResponseFiles(File directory) {
+        return listFiles(directory, name -> (name.endsWith(".csv") && !name.endsWith(Constants.RESPONSE_DICTIONARY_SUFFIX))
+            || name.endsWith(".json") || isJsonLinesName(name));
+    }
+
+    /**
+     * ディレクトリ内のアクションログ（.csv, .jsonl, .ndjson）を返します。
+     * 描画遅延の計測結果は含みません。
+     *
+     * @param directory ログディレクトリ
+     * @return ファイル名順のファイル（ディレクトリがない場合は空）
+     */
+    public static List<File> listLogFiles(File directory) {
+        return listFiles(directory, name -> (name.endsWith(".csv") && !name.endsWith(Constants.LATENCY_FILE_SUFFIX))
+            || isJsonLinesName(name));
+    }
+
+    private interface NameFilter {
+        boolean accept(String name);
+    }
+
+    private static List<File> listFiles(File directory, NameFilter filter) {
+        File[] files = directory.listFiles((dir, name) -> filter.accept(name));
+        if (files == null) return Collections.emptyList();
+        Arrays.sort(files);
+        return Arrays.asList(files);
+    }
+
+    private static boolean isJsonLinesName(String name) {
+        return ResponseJsonReader.isJsonLines(new File(name));
+    }
+
+    /**
+     * 回答ファイルを1件ずつ読み込みます。形式は拡張子とCSVのヘッダーで判断します。
+     *
+     * @param file 回答ファイル
+     * @param handler 回答を受け取る処理
+     * @return 読み込んだ件数
+     * @throws IOException 読み込みに失敗した場合
+     */
+    public static long readResponses(File file, ResponseJsonReader.Handler handler) throws IOException {
+        return readResponses(file, 0, handler);
+    }
+
+    /**
+     * 回答ファイルの指定した位置（バイト数）以降に追記された回答を読み込みます。
+     * 途中から読めるのはCSVとJSON Linesだけで、JSON文書は {@code offset} が0の場合のみです。
+     */
+    static long readResponses(File file, long offset, ResponseJsonReader.Handler handler) throws IOException {
+        if (file.getName().endsWith(".csv")) {
+            return readResponsesCSV(file, offset, handler);
+        }
+        if (ResponseJsonReader.isJsonLines(file)) {
+            return ResponseJsonReader.readLines(file, offset, handler);
+        }
+        if (offset != 0) {
+            throw new IllegalArgumentException("JSON文書は途中から読めません: " + file);
+        }
+        return ResponseJsonReader.read(file, handler);
+    }
+
+    /**
+     * ファイルが追記だけで更新される形式（途中から読める形式）かどうかを返します。
+     */
+    static boolean isAppendable(File file) {
+        return file.getName().endsWith(".csv") || ResponseJsonReader.isJsonLines(file);
+    }
+
+    // 列はヘッダーの名前で探す（経過ナノ秒のない旧形式、コンパクト形式にも対応）
+    private static long readResponsesCSV(File file, long offset, ResponseJsonReader.Handler handler) throws IOException {
+        Map<String, Integer> columns = readHeader(file);
+        int respondentColumn = column(columns, "回答者ID");
+        int timestampColumn = column(columns, "タイムスタンプ");
+        int elapsedColumn = column(columns, "経過ナノ秒");
+        int questionNumColumn = column(columns, "問題番号");
+        int reasonColumn = column(columns, "理由");
+        boolean compact = columns.containsKey("質問ID");
+        int questionColumn = column(columns, compact ? "質問ID" : "質問文");
+        int choiceColumn = column(columns, compact ? "選択肢ID" : "選択した回答");
+        if (respondentColumn < 0 || questionNumColumn < 0 || questionColumn < 0) {
+            throw new IOException("回答ファイルのヘッダーではありません");
+        }
+
+        long count = 0;
+        try (CsvReader csv = openCsv(file, offset)) {
+            if (offset == 0) {
+                csv.next();
+            }
+            SurveyDictionary dictionary = compact
+                ? FileUtils.loadDictionaryCSV(new File(FileUtils.dictionaryPathFor(file.getPath())))
+                : new SurveyDictionary();
+            while (csv.next()) {
+                if (csv.getFieldCount() <= questionColumn) continue;
+                Response response = new Response(dictionary);
+                response.setRespondentId(csv.getString(respondentColumn));
+                response.setTimestamp(field(csv, timestampColumn));
+                if (elapsedColumn >= 0 && !csv.isBlank(elapsedColumn)) {
+                    response.setElapsedNanos(csv.getLong(elapsedColumn));
+                }
+                response.setQuestionNum((int) csv.getLong(questionNumColumn));
+                if (compact) {
+                    response.setQuestionText(dictionary.getQuestion(id(csv, questionColumn)));
+                    response.setSelectedChoice(dictionary.getChoice(id(csv, choiceColumn)));
+                } else {
+                    response.setQuestionText(field(csv, questionColumn));
+                    response.setSelectedChoice(field(csv, choiceColumn));
+                }
+                response.setReason(field(csv, reasonColumn));
+                handler.accept(response);
+                count++;
+            }
+        }
+        return count;
+    }
+
+    // 1行目（ヘッダー）の列名から列番号へのマップ
+    private static Map<String, Integer> readHeader(File file) throws IOException {
+        Map<String, Integer> columns = new HashMap<>();
+        try (CsvReader csv = openCsv(file, 0)) {
+            if (csv.next()) {
+                for (int i = 0; i < csv.getFieldCount(); i++) {
+                    columns.put(csv.getString(i), i);
+                }
+            }
+        }
+        return columns;
+    }
+
+    // 指定した位置から読むCSVリーダー（先頭から読む場合、1行目はヘッダー）
+    private static CsvReader openCsv(File file, long offset) throws IOException {
+        return new CsvReader(openReader(file, offset));
+    }
+
+    /**
+     * ファイルを指定した位置（バイト数）からUTF-8で読むリーダーを返します。
+     */
+    static Reader openReader(File file, long offset) throws IOException {
+        FileInputStream in = new FileInputStream(file);
+        try {
+            in.getChannel().position(offset);
+        } catch (IOException e) {
+            in.close();
+            throw e;
+        }
+        return new InputStreamReader(in, StandardCharsets.UTF_8);
+    }
+
+    private static int column(Map<String, Integer> columns, String name) {
+        Integer index = columns.get(name);
+        return index != null ? index : -1;
+    }
+
+    // 列がない・空の場合はnull
+    private static String field(CsvReader csv, int column) {
+        if (column < 0 || column >= csv.getFieldCount() || csv.isBlank(column)) return null;
+        return csv.getString(column);
+    }
+
+    private static int id(CsvReader csv, int column) {
+        if (column < 0 || column >= csv.getFieldCount() || csv.isBlank(column)) return StringDictionary.NULL_ID;
+        return (int) csv.getLong(column);
+    }
+
+    /**
+     * アクションログのイベント1件分を受け取る処理
+     */
+    interface ActionHandler {
+        void accept(String actionType, String details) throws IOException;
+    }
+
+    /**
+     * アクションログの指定した位置（バイト数）以降のイベントをアクション種別ごとに数えます。
+     *
+     * @param file アクションログ（CSVまたはJSON Lines）
+     * @param offset 読み始める位置（0の場合は先頭から）
+     * @return アクション種別からイベント数へのマップ
+     * @throws IOException 読み込みに失敗した場合
+     */
+    static Map<String, Long> countActions(File file, long offset) throws IOException {
+        Map<String, Long> counts = new HashMap<>();
+        readActions(file, offset, (actionType, details) -> counts.merge(actionType, 1L, Long::sum));
+        return counts;
+    }
+
+    /**
+     * アクションログの指定した位置（バイト数）以降のイベントを記録された順に読み込みます。
+     *
+     * @param file アクションログ（CSVまたはJSON Lines）
+     * @param offset 読み始める位置（0の場合は先頭から）
+     * @param handler アクション種別と詳細情報を受け取る処理
+     * @throws IOException 読み込みに失敗した場合
+     */
+    static void readActions(File file, long offset, ActionHandler handler) throws IOException {
+        if (ResponseJsonReader.isJsonLines(file)) {
+            try (BufferedReader reader = new BufferedReader(openReader(file, offset))) {
+                String line;
+                while ((line = reader.readLine()) != null) {
+                    if (line.isEmpty()) continue;
+                    JsonObject event = JsonParser.parseString(line).getAsJsonObject();
+                    JsonElement type = event.get("actionType");
+                    JsonElement details = event.get("details");
+                    if (type != null) {
+                        handler.accept(type.getAsString(),
+                            details != null && !details.isJsonNull() ? details.getAsString() : "");
+                    }
+                }
+            }
+            return;
+        }
+
+        Map<String, Integer> columns = readHeader(file);
+        int typeColumn = column(columns, "アクション種別");
+        int detailsColumn = column(columns, "詳細情報");
+        if (typeColumn < 0) {
+            throw new IOException("アクションログのヘッダーではありません");
+        }
+        try (CsvReader csv = openCsv(file, offset)) {
+            if (offset == 0) {
+                csv.next();
+            }
+            while (csv.next()) {
+                if (csv.getFieldCount() > typeColumn) {
+                    String details = detailsColumn >= 0 && csv.getFieldCount() > detailsColumn
+                        ? csv.getString(detailsColumn) : "";
+                    handler.accept(csv.getString(typeColumn), details);
+                }
+            }
+        }
+    }
+
+    /**
+     * 集計した回答を書き出します。
+     *
+     * @param responses 回答
+     * @param output 出力先（CSV・JSON Linesはファイル、バイナリは回答ストアのディレクトリ）
+     * @param format 出力形式（{@code csv}, {@code ndjson}, {@code binary}）
+     * @throws IOException 書き込みに失敗した場合
+     */
+    public static void write(List<Response> responses, File output, String format) throws IOException {
+        File parent = output.getAbsoluteFile().getParentFile();
+        if (parent != null && !parent.exists()) {
+            parent.mkdirs();
+        }
+        switch (format) {
+            case "csv":
+                Files.deleteIfExists(output.toPath());
+                if (!FileUtils.saveResponseToCSV(responses, output.getPath())) {
+                    throw new IOException("CSVの書き込みに失敗しました: " + output);
+                }
+                break;
+            case "ndjson":
+                try (ResponseJsonWriter writer = ResponseJsonWriter.lines(new BufferedWriter(
+                        new OutputStreamWriter(new FileOutputStream(output), StandardCharsets.UTF_8)))) {
+                    for (Response response : responses) {
+                        writer.write(response);
+                    }
+                }
+                break;
+            case "binary":
+                try (ResponseStore store = new ResponseStore(output.getPath())) {
+                    // 既存のストアに追記すると重複除去の意味がなくなる
+                    if (store.size() > 0) {
+                        throw new IOException("出力先の回答ストアが空ではありません: " + output);
+                    }
+                    store.append(responses);
+                }
+                break;
+            default:
+                throw new IllegalArgumentException("不明な出力形式です: " + format);
+        }
+    }
+}
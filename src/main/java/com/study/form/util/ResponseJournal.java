@@ -0,0 +1,443 @@
+package com.study.form.util;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonParseException;
+import com.study.form.Constants;
+import com.study.form.model.Config;
+import com.study.form.model.Response;
+import com.study.form.model.ResponseJsonAdapter;
+import com.study.form.model.SurveyDictionary;
+
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.channels.OverlappingFileLockException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * 回答ジャーナル - 回答中のアンケートを先行書き込みログとして保存
+ *
+ * <p>回答が確定するたびに1行のJSONレコードとして追記し、前の問題に戻ったときは
+ * 取り消しレコード（トゥームストーン）を追記します。アンケートが正常に送信されると
+ * 完了レコードを書いてジャーナルを削除するため、起動時に残っているジャーナルは
+ * 中断されたセッションとして {@link #findUnfinished(String)} で検出できます。</p>
+ *
+ * <p>セッションの実行中はジャーナルのファイルをロックし、同じPCで起動した別のアプリや共有フォルダの
+ * 別の端末が、回答中のセッションを中断セッションとして扱わないようにします。</p>
+ *
+ * <p>追記は1レコードにつき1回の書き込みで、ディスクへの同期は設定
+ * （{@code journal_sync_policy}）に従います。</p>
+ * <ul>
+ *   <li>{@code always}: 追記ごとに呼び出し元スレッドで同期</li>
+ *   <li>{@code async}: 追記後にバックグラウンドスレッドで同期（連続した追記はまとめて同期）</li>
+ *   <li>{@code none}: 同期しない（JVMが落ちてもOSのキャッシュに残るため復旧可能）</li>
+ * </ul>
+ */
+public class ResponseJournal implements Closeable {
+    private static final String TYPE_BEGIN = "begin";
+    private static final String TYPE_RESPONSE = "response";
+    private static final String TYPE_REMOVE = "remove";
+    private static final String TYPE_COMMIT = "commit";
+
+    private static final Gson gson = new Gson();
+    // このプロセスで開いているジャーナル。同じプロセスから開いて閉じると
+    // OSによってはロックが外れるため、ロックを確かめる前にここで判定する
+    private static final Set<File> OPEN_JOURNALS = ConcurrentHashMap.newKeySet();
+    // 非同期同期ポリシーの同期は全ジャーナルで1本のスレッドを共有する（空いていれば終了する）
+    private static final ExecutorService SYNC_EXECUTOR = new ThreadPoolExecutor(0, 1, 1, TimeUnit.SECONDS,
+        new LinkedBlockingQueue<>(), r -> {
+            Thread t = new Thread(r, "journal-sync");
+            t.setDaemon(true);
+            return t;
+        });
+
+    /**
+     * ジャーナルの1行分のレコード
+     */
+    private static class Record {
+        String type;
+        String timestamp;
+        String respondentId;
+        String questionsPath;
+        String logPath;
+        String participantName;
+        String participantId;
+        Integer questionNum;
+        Response response;
+        String responsePath;
+    }
+
+    /**
+     * ジャーナルから復元した中断セッション
+     */
+    public static final class RecoveredSession {
+        private final File journalFile;
+        private final String respondentId;
+        private final String questionsPath;
+        private final String logPath;
+        private final String participantName;
+        private final String participantId;
+        private final String startedAt;
+        private final List<Response> responses;
+
+        private RecoveredSession(File journalFile, Record begin, List<Response> responses) {
+            this.journalFile = journalFile;
+            this.respondentId = begin.respondentId;
+            this.questionsPath = begin.questionsPath;
+            this.logPath = begin.logPath;
+            this.participantName = begin.participantName;
+            this.participantId = begin.participantId;
+            this.startedAt = begin.timestamp;
+            this.responses = responses;
+        }
+
+        public File getJournalFile() {
+            return journalFile;
+        }
+
+        public String getRespondentId() {
+            return respondentId;
+        }
+
+        public String getQuestionsPath() {
+            return questionsPath;
+        }
+
+        public String getLogPath() {
+            return logPath;
+        }
+
+        public String getParticipantName() {
+            return participantName;
+        }
+
+        public String getParticipantId() {
+            return participantId;
+        }
+
+        public String getStartedAt() {
+            return startedAt;
+        }
+
+        public List<Response> getResponses() {
+            return Collections.unmodifiableList(responses);
+        }
+    }
+
+    private final File file;
+    private final String syncPolicy;
+    private FileChannel channel;
+    private final boolean syncAsync;
+    private final AtomicBoolean syncPending = new AtomicBoolean(false);
+
+    private ResponseJournal(File file, String syncPolicy) throws IOException {
+        this.file = file;
+        this.syncPolicy = syncPolicy;
+        if (!OPEN_JOURNALS.add(file.getAbsoluteFile())) {
+            throw new IOException("ジャーナルは他のセッションが使用中です: " + file);
+        }
+        FileChannel opened = null;
+        try {
+            opened = new FileOutputStream(file, true).getChannel();
+            // ロックはチャネルを閉じると外れる
+            if (opened.tryLock() == null) {
+                throw new IOException("ジャーナルは他のセッションが使用中です: " + file);
+            }
+        } catch (IOException e) {
+            if (opened != null) {
+                opened.close();
+            }
+            OPEN_JOURNALS.remove(file.getAbsoluteFile());
+            throw e;
+        }
+        this.channel = opened;
+        this.syncAsync = Constants.JOURNAL_SYNC_ASYNC.equals(syncPolicy);
+    }
+
+    /**
+     * 新しいセッションのジャーナルを作成し、開始レコードを書き込みます。
+     *
+     * @param journalDir ジャーナルの保存先ディレクトリ
+     * @param respondentId 回答者ID
+     * @param questionsPath 問題ファイルのパス（再開時に再読み込みする）
+     * @param logPath アクションログのパス（再開時に追記する）
+     * @param config 被験者情報と同期ポリシーを持つ設定
+     * @return 開いたジャーナル
+     * @throws IOException ジャーナルを作成できなかった場合
+     */
+    public static ResponseJournal begin(String journalDir, String respondentId, String questionsPath,
+                                        String logPath, Config config) throws IOException {
+        File dir = new File(journalDir);
+        if (!dir.exists()) {
+            dir.mkdirs();
+        }
+        File file = new File(dir, "journal_" + respondentId + Constants.JOURNAL_FILE_EXTENSION);
+        ResponseJournal journal = new ResponseJournal(file, config.getJournalSyncPolicy());
+
+        Record record = newRecord(TYPE_BEGIN);
+        record.respondentId = respondentId;
+        record.questionsPath = questionsPath;
+        record.logPath = logPath;
+        if (config.isUseParticipantInfo()) {
+            record.participantName = config.getParticipantName();
+            record.participantId = config.getParticipantId();
+        }
+        journal.append(record, true);
+        return journal;
+    }
+
+    /**
+     * 中断セッションのジャーナルを追記用に開き直します。
+     *
+     * @param session 復元したセッション
+     * @param config 同期ポリシーを持つ設定
+     * @return 開いたジャーナル
+     * @throws IOException ジャーナルを開けなかった場合
+     */
+    public static ResponseJournal reopen(RecoveredSession session, Config config) throws IOException {
+        return new ResponseJournal(session.getJournalFile(), config.getJournalSyncPolicy());
+    }
+
+    /**
+     * 確定した回答を追記します。
+     *
+     * @param response 回答
+     */
+    public void appendResponse(Response response) {
+        Record record = newRecord(TYPE_RESPONSE);
+        record.questionNum = response.getQuestionNum();
+        record.response = response;
+        appendQuietly(record);
+    }
+
+    /**
+     * 前の問題に戻って回答を取り消したことを追記します。
+     *
+     * @param questionNum 取り消した回答の問題番号
+     */
+    public void appendRemoval(int questionNum) {
+        Record record = newRecord(TYPE_REMOVE);
+        record.questionNum = questionNum;
+        appendQuietly(record);
+    }
+
+    /**
+     * 回答の保存が完了したことを記録し、ジャーナルを閉じて削除します。
+     *
+     * @param responsePath 保存先の回答ファイルのパス
+     */
+    public void commit(String responsePath) {
+        Record record = newRecord(TYPE_COMMIT);
+        record.responsePath = responsePath;
+        try {
+            append(record, true);
+        } catch (IOException e) {
+            System.err.println("ジャーナルへの完了記録に失敗しました: " + file + " - " + e.getMessage());
+        }
+        close();
+        if (!file.delete()) {
+            System.err.println("ジャーナルを削除できませんでした: " + file);
+        }
+    }
+
+    private static Record newRecord(String type) {
+        Record record = new Record();
+        record.type = type;
+        record.timestamp = Timestamps.now();
+        return record;
+    }
+
+    private void appendQuietly(Record record) {
+        try {
+            append(record, false);
+        } catch (IOException e) {
+            System.err.println("ジャーナルへの追記に失敗しました: " + file + " - " + e.getMessage());
+        }
+    }
+
+    private synchronized void append(Record record, boolean forceSync) throws IOException {
+        if (channel == null) {
+            throw new IOException("ジャーナルは既に閉じられています");
+        }
+        byte[] line = (gson.toJson(record) + "\n").getBytes(StandardCharsets.UTF_8);
+        ByteBuffer buffer = ByteBuffer.wrap(line);
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+
+        if (forceSync || Constants.JOURNAL_SYNC_ALWAYS.equals(syncPolicy)) {
+            channel.force(false);
+        } else if (syncAsync && syncPending.compareAndSet(false, true)) {
+            SYNC_EXECUTOR.execute(this::syncInBackground);
+        }
+    }
+
+    private void syncInBackground() {
+        syncPending.set(false);
+        synchronized (this) {
+            if (channel == null) return;
+            try {
+                channel.force(false);
+            } catch (IOException e) {
+                System.err.println("ジャーナルの同期に失敗しました: " + file + " - " + e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * ジャーナルを閉じてロックを外します。完了レコードは書かないため、次回起動時に中断セッションとして検出されます。
+     */
+    @Override
+    public synchronized void close() {
+        if (channel == null) return;
+        try {
+            channel.force(false);
+            channel.close();
+        } catch (IOException e) {
+            System.err.println("ジャーナルのクローズに失敗しました: " + file + " - " + e.getMessage());
+        } finally {
+            channel = null;
+            OPEN_JOURNALS.remove(file.getAbsoluteFile());
+        }
+    }
+
+    /**
+     * ジャーナルが実行中のセッションに使われている（ロックされている）かを返します。
+     *
+     * @param file ジャーナルファイル
+     * @return このプロセスまたは他のプロセスが開いている場合はtrue
+     */
+    public static boolean isInUse(File file) {
+        if (OPEN_JOURNALS.contains(file.getAbsoluteFile())) {
+            return true;
+        }
+        try (FileChannel probe = FileChannel.open(file.toPath(), StandardOpenOption.WRITE)) {
+            FileLock lock = probe.tryLock();
+            if (lock == null) {
+                return true;
+            }
+            lock.release();
+            return false;
+        } catch (OverlappingFileLockException e) {
+            return true;
+        } catch (IOException e) {
+            // 開けない場合は読み込み時にエラーとして報告する
+            return false;
+        }
+    }
+
+    /**
+     * ディレクトリ内の未完了のジャーナルを探して復元します。実行中のセッションが使用している
+     * （ロックされている）ジャーナルは除きます。
+     *
+     * @param journalDir ジャーナルの保存先ディレクトリ
+     * @return 中断セッションのリスト（ファイル名順）
+     */
+    public static List<RecoveredSession> findUnfinished(String journalDir) {
+        List<RecoveredSession> sessions = new ArrayList<>();
+        File[] files = new File(journalDir).listFiles(
+            (dir, name) -> name.endsWith(Constants.JOURNAL_FILE_EXTENSION));
+        if (files == null) return sessions;
+
+        Arrays.sort(files);
+        for (File file : files) {
+            // 回答中のセッションは中断セッションではない
+            if (isInUse(file)) continue;
+            try {
+                RecoveredSession session = read(file);
+                if (session != null) {
+                    sessions.add(session);
+                }
+            } catch (IOException e) {
+                System.err.println("ジャーナルの読み込みに失敗しました: " + file + " - " + e.getMessage());
+            }
+        }
+        return sessions;
+    }
+
+    /**
+     * ジャーナルファイルを先頭から再生して回答リストを復元します。
+     *
+     * <p>最終行が書き込み途中で切れている場合は無視します。</p>
+     *
+     * @param file ジャーナルファイル
+     * @return 復元したセッション。完了済み、または開始レコードがない場合はnull
+     * @throws IOException 読み込みに失敗した場合
+     */
+    public static RecoveredSession read(File file) throws IOException {
+        Record begin = null;
+        List<Response> responses = new ArrayList<>();
+        Gson reader = ResponseJsonAdapter.gson(new SurveyDictionary());
+
+        try (BufferedReader lines = new BufferedReader(
+                new InputStreamReader(new FileInputStream(file), StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = lines.readLine()) != null) {
+                if (line.trim().isEmpty()) continue;
+                Record record;
+                try {
+                    record = reader.fromJson(line, Record.class);
+                } catch (JsonParseException e) {
+                    System.err.println("ジャーナルの壊れた行をスキップしました: " + file);
+                    continue;
+                }
+                if (record == null || record.type == null) continue;
+
+                switch (record.type) {
+                    case TYPE_BEGIN:
+                        begin = record;
+                        break;
+                    case TYPE_RESPONSE:
+                        if (record.response != null) {
+                            responses.add(record.response);
+                        }
+                        break;
+                    case TYPE_REMOVE:
+                        if (!responses.isEmpty()) {
+                            responses.remove(responses.size() - 1);
+                        }
+                        break;
+                    case TYPE_COMMIT:
+                        return null;
+                    default:
+                        break;
+                }
+            }
+        }
+
+        if (begin == null) return null;
+        return new RecoveredSession(file, begin, responses);
+    }
+
+    /**
+     * 中断セッションを破棄します。ジャーナルは削除せず、拡張子を変えて残します。
+     *
+     * @param session 破棄するセッション
+     * @return 成功した場合はtrue（他のセッションが使用中の場合はfalse）
+     */
+    public static boolean abandon(RecoveredSession session) {
+        File file = session.getJournalFile();
+        if (isInUse(file)) return false;
+        File abandoned = new File(file.getPath() + Constants.JOURNAL_ABANDONED_EXTENSION);
+        return file.renameTo(abandoned);
+    }
+}
@@ -0,0 +1,227 @@
+package com.study.form.util;
+
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.study.form.Constants;
+import com.study.form.model.Response;
+import com.study.form.model.SurveyDictionary;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * 回答JSONのストリーミング読み込み - 回答を1件ずつ読んで渡す
+ *
+ * <p>{@link ResponseJsonWriter} や {@link FileUtils} が書いた文書形式（展開・コンパクトの両レイアウト）と
+ * JSON Lines形式（拡張子 {@code .jsonl}）に対応します。コンパクトレイアウトで辞書が回答より後に
+ * 書かれている場合は、先に辞書だけを読むためにファイルを2回読みます。</p>
+ */
+public final class ResponseJsonReader {
+    private static final char UTF8_BOM = '\ufeff';
+
+    /**
+     * 読み込んだ回答を受け取る処理
+     */
+    public interface Handler {
+        void accept(Response response) throws IOException;
+    }
+
+    private ResponseJsonReader() {
+    }
+
+    /**
+     * JSON Lines形式のファイルかどうかを拡張子で判定します。
+     *
+     * @param file ファイル
+     * @return JSON Lines形式の場合はtrue
+     */
+    public static boolean isJsonLines(File file) {
+        String name = file.getName();
+        return name.endsWith(Constants.JSON_LINES_EXTENSION) || name.endsWith(".ndjson");
+    }
+
+    /**
+     * ファイルの回答を1件ずつ読み込みます。
+     *
+     * @param file 回答ファイル
+     * @param handler 回答を受け取る処理
+     * @return 読み込んだ件数
+     * @throws IOException 読み込みに失敗した場合
+     */
+    public static long read(File file, Handler handler) throws IOException {
+        // 回答はファイルごとの辞書に登録する（共有辞書を大きくしない）
+        if (isJsonLines(file)) {
+            return readLines(file, 0, handler);
+        }
+
+        SurveyDictionary dictionary = new SurveyDictionary();
+        boolean hasDictionary = false;
+        boolean compact = false;
+        boolean skippedResponses = false;
+        long count = 0;
+        try (JsonReader json = open(file)) {
+            json.beginObject();
+            while (json.hasNext()) {
+                String name = json.nextName();
+                if ("layout".equals(name)) {
+                    compact = Constants.RESPONSE_LAYOUT_COMPACT.equals(json.nextString());
+                } else if ("dictionary".equals(name)) {
+                    readDictionary(json, dictionary);
+                    hasDictionary = true;
+                } else if ("responses".equals(name)) {
+                    if (compact && !hasDictionary) {
+                        json.skipValue();
+                        skippedResponses = true;
+                    } else {
+                        count += readResponses(json, dictionary, handler);
+                    }
+                } else {
+                    json.skipValue();
+                }
+            }
+        }
+
+        if (skippedResponses) {
+            if (!hasDictionary) {
+                throw new IOException("コンパクト形式のファイルに辞書がありません: " + file);
+            }
+            try (JsonReader json = open(file)) {
+                json.beginObject();
+                while (json.hasNext()) {
+                    if ("responses".equals(json.nextName())) {
+                        count += readResponses(json, dictionary, handler);
+                    } else {
+                        json.skipValue();
+                    }
+                }
+            }
+        }
+        return count;
+    }
+
+    private static JsonReader open(File file) throws IOException {
+        BufferedReader reader = new BufferedReader(
+            new InputStreamReader(new FileInputStream(file), StandardCharsets.UTF_8));
+        reader.mark(1);
+        if (reader.read() != UTF8_BOM) {
+            reader.reset();
+        }
+        return new JsonReader(reader);
+    }
+
+    /**
+     * JSON Lines形式のファイルの指定した位置（バイト数）以降の回答を読み込みます。
+     *
+     * @param file 回答ファイル
+     * @param offset 読み始める位置（行の先頭であること）
+     * @param handler 回答を受け取る処理
+     * @return 読み込んだ件数
+     * @throws IOException 読み込みに失敗した場合
+     */
+    public static long readLines(File file, long offset, Handler handler) throws IOException {
+        SurveyDictionary dictionary = new SurveyDictionary();
+        long count = 0;
+        try (JsonReader json = offset == 0 ? open(file) : new JsonReader(
+                new BufferedReader(ResponseAggregator.openReader(file, offset)))) {
+            json.setLenient(true);
+            while (json.peek() != JsonToken.END_DOCUMENT) {
+                handler.accept(readResponse(json, dictionary));
+                count++;
+            }
+        }
+        return count;
+    }
+
+    // ファイルの辞書を番号の順に登録する（番号は配列の添字と一致する）
+    private static void readDictionary(JsonReader json, SurveyDictionary dictionary) throws IOException {
+        json.beginObject();
+        while (json.hasNext()) {
+            String name = json.nextName();
+            boolean questions = "questions".equals(name);
+            if (!questions && !"choices".equals(name)) {
+                json.skipValue();
+                continue;
+            }
+            json.beginArray();
+            for (int expected = 0; json.hasNext(); expected++) {
+                String value = json.nextString();
+                int id = questions ? dictionary.internQuestion(value) : dictionary.internChoice(value);
+                if (id != expected) {
+                    throw new IOException("辞書に重複した文字列があります: " + value);
+                }
+            }
+            json.endArray();
+        }
+        json.endObject();
+    }
+
+    private static long readResponses(JsonReader json, SurveyDictionary dictionary, Handler handler)
+            throws IOException {
+        long count = 0;
+        json.beginArray();
+        while (json.hasNext()) {
+            handler.accept(readResponse(json, dictionary));
+            count++;
+        }
+        json.endArray();
+        return count;
+    }
+
+    // 展開レイアウトの質問文・選択肢と、コンパクトレイアウトの番号のどちらにも対応する
+    private static Response readResponse(JsonReader json, SurveyDictionary dictionary) throws IOException {
+        Response response = new Response(dictionary);
+        json.beginObject();
+        while (json.hasNext()) {
+            String name = json.nextName();
+            if (json.peek() == JsonToken.NULL) {
+                json.nextNull();
+                continue;
+            }
+            switch (name) {
+                case "respondentId":
+                    response.setRespondentId(json.nextString());
+                    break;
+                case "timestamp":
+                    response.setTimestamp(json.nextString());
+                    break;
+                case "elapsedNanos":
+                    response.setElapsedNanos(json.nextLong());
+                    break;
+                case "questionNum":
+                    response.setQuestionNum(json.nextInt());
+                    break;
+                case "questionText":
+                    response.setQuestionText(json.nextString());
+                    break;
+                case "selectedChoice":
+                    response.setSelectedChoice(json.nextString());
+                    break;
+                case "questionId":
+                    response.setQuestionText(lookup(dictionary.getQuestions(), json.nextInt()));
+                    break;
+                case "choiceId":
+                    response.setSelectedChoice(lookup(dictionary.getChoices(), json.nextInt()));
+                    break;
+                case "reason":
+                    response.setReason(json.nextString());
+                    break;
+                default:
+                    json.skipValue();
+                    break;
+            }
+        }
+        json.endObject();
+        return response;
+    }
+
+    private static String lookup(StringDictionary strings, int id) throws IOException {
+        if (id < 0 || id >= strings.size()) {
+            throw new IOException("辞書にない番号です: " + id);
+        }
+        return strings.get(id);
+    }
+}
@@ -0,0 +1,234 @@
+package com.study.form.util;
+
+import com.google.gson.Gson;
+import com.google.gson.TypeAdapter;
+import com.google.gson.stream.JsonWriter;
+import com.study.form.Constants;
+import com.study.form.model.Response;
+import com.study.form.model.SurveyDictionary;
+
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.Flushable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 回答JSONのストリーミング書き出し - 回答を1件ずつ書き、全件をメモリに持たない
+ *
+ * <p>次の2つの形式に対応します。</p>
+ * <ul>
+ *   <li>文書形式: {@code {"export_date", "layout", "responses": [...], "total_responses"}}。
+ *       コンパクトレイアウトでは最後に {@code dictionary} を書きます。</li>
+ *   <li>JSON Lines形式: 1行に1件の回答（展開レイアウト）。既存ファイルへ追記できます。</li>
+ * </ul>
+ * <p>複数セッションのファイルを1つにまとめる場合も入力を1件ずつ読みながら書くため、
+ * 回答数が数百万件でもメモリ使用量は一定です（コンパクトレイアウトの辞書を除く）。</p>
+ * <pre>
+ * java -cp form-app-1.0.0.jar com.study.form.util.ResponseJsonWriter 出力.json 入力1.json 入力2.jsonl ...
+ * </pre>
+ */
+public class ResponseJsonWriter implements Closeable, Flushable {
+    private static final TypeAdapter<Response> RESPONSE_ADAPTER = new Gson().getAdapter(Response.class);
+
+    private final Writer out;
+    private final JsonWriter json;
+    private final boolean lines;
+    private final SurveyDictionary dictionary;
+    private long count;
+    private boolean closed;
+
+    private ResponseJsonWriter(Writer out, boolean lines, boolean prettyPrint, boolean compact) {
+        this.out = out instanceof BufferedWriter ? out : new BufferedWriter(out);
+        this.json = new JsonWriter(this.out);
+        this.lines = lines;
+        this.dictionary = compact ? new SurveyDictionary() : null;
+        if (prettyPrint) {
+            json.setIndent("  ");
+        }
+        // JSON Lines形式では最上位の値を複数書く
+        json.setLenient(lines);
+    }
+
+    /**
+     * 文書形式の書き出しを開始します。
+     *
+     * @param out 出力先（closeで閉じます）
+     * @param prettyPrint 改行・インデントを入れる場合はtrue
+     * @param layout レイアウト（{@link Constants#RESPONSE_LAYOUT_COMPACT} または {@link Constants#RESPONSE_LAYOUT_EXPANDED}）
+     * @return 書き出し
+     * @throws IOException 書き込みに失敗した場合
+     */
+    public static ResponseJsonWriter document(Writer out, boolean prettyPrint, String layout) throws IOException {
+        boolean compact = Constants.RESPONSE_LAYOUT_COMPACT.equals(layout);
+        ResponseJsonWriter writer = new ResponseJsonWriter(out, false, prettyPrint, compact);
+        writer.json.beginObject();
+        writer.json.name("export_date").value(Timestamps.now());
+        writer.json.name("layout").value(compact ? Constants.RESPONSE_LAYOUT_COMPACT : Constants.RESPONSE_LAYOUT_EXPANDED);
+        writer.json.name("responses").beginArray();
+        return writer;
+    }
+
+    /**
+     * JSON Lines形式の書き出しを開始します。
+     *
+     * @param out 出力先（closeで閉じます）
+     * @return 書き出し
+     */
+    public static ResponseJsonWriter lines(Writer out) {
+        return new ResponseJsonWriter(out, true, false, false);
+    }
+
+    /**
+     * 回答を1件書きます。
+     *
+     * @param response 回答
+     * @throws IOException 書き込みに失敗した場合
+     */
+    public void write(Response response) throws IOException {
+        if (dictionary != null) {
+            writeCompact(response);
+        } else {
+            RESPONSE_ADAPTER.write(json, response);
+        }
+        if (lines) {
+            out.write('\n');
+        }
+        count++;
+    }
+
+    private void writeCompact(Response response) throws IOException {
+        json.beginObject();
+        if (response.getRespondentId() != null) {
+            json.name("respondentId").value(response.getRespondentId());
+        }
+        if (response.getTimestamp() != null) {
+            json.name("timestamp").value(response.getTimestamp());
+        }
+        json.name("elapsedNanos").value(response.getElapsedNanos());
+        json.name("questionNum").value(response.getQuestionNum());
+        writeId("questionId", dictionary.internQuestion(response.getQuestionText()));
+        writeId("choiceId", dictionary.internChoice(response.getSelectedChoice()));
+        if (response.getReason() != null) {
+            json.name("reason").value(response.getReason());
+        }
+        json.endObject();
+    }
+
+    private void writeId(String name, int id) throws IOException {
+        if (id != StringDictionary.NULL_ID) {
+            json.name(name).value(id);
+        }
+    }
+
+    /**
+     * これまでに書いた回答の件数を返します。
+     *
+     * @return 件数
+     */
+    public long getCount() {
+        return count;
+    }
+
+    @Override
+    public void flush() throws IOException {
+        json.flush();
+    }
+
+    /**
+     * 文書形式では件数（とコンパクトレイアウトの辞書）を書いて閉じます。
+     */
+    @Override
+    public void close() throws IOException {
+        if (closed) return;
+        closed = true;
+        try {
+            if (!lines) {
+                json.endArray();
+                json.name("total_responses").value(count);
+                if (dictionary != null) {
+                    json.name("dictionary").beginObject();
+                    writeStrings("questions", dictionary.getQuestions().valuesFrom(0));
+                    writeStrings("choices", dictionary.getChoices().valuesFrom(0));
+                    json.endObject();
+                }
+                json.endObject();
+            }
+        } finally {
+            json.close();
+        }
+    }
+
+    private void writeStrings(String name, List<String> values) throws IOException {
+        json.name(name).beginArray();
+        for (String value : values) {
+            json.value(value);
+        }
+        json.endArray();
+    }
+
+    /**
+     * 回答をJSON Lines形式のファイルに追記します。ファイルがない場合は作成します。
+     *
+     * <p>1件の回答を1行として1回の書き込みで追記するため、同じファイルに複数のセッションが
+     * 同時に追記しても行の途中で混ざりません。</p>
+     *
+     * @param responses 回答のリスト
+     * @param filepath 保存先ファイルパス
+     * @return 保存に成功した場合はtrue、失敗した場合はfalse
+     */
+    public static boolean appendJsonLines(List<Response> responses, String filepath) {
+        try (OutputStream out = new FileOutputStream(filepath, true)) {
+            for (Response response : responses) {
+                out.write((RESPONSE_ADAPTER.toJson(response) + "\n").getBytes(StandardCharsets.UTF_8));
+            }
+            return true;
+        } catch (IOException e) {
+            System.err.println("回答データのJSON Lines保存に失敗しました: " + e.getMessage());
+            return false;
+        }
+    }
+
+    /**
+     * 複数の回答ファイル（文書形式・JSON Lines形式）を1つのファイルにまとめます。
+     *
+     * <p>出力ファイルの拡張子が {@code .jsonl} の場合はJSON Lines形式、それ以外は
+     * 改行なしの文書形式（展開レイアウト）で書きます。</p>
+     *
+     * @param inputs 入力ファイル
+     * @param output 出力ファイル
+     * @return まとめた回答の件数
+     * @throws IOException 読み書きに失敗した場合
+     */
+    public static long merge(List<File> inputs, File output) throws IOException {
+        Writer out = new OutputStreamWriter(new FileOutputStream(output), StandardCharsets.UTF_8);
+        try (ResponseJsonWriter writer = ResponseJsonReader.isJsonLines(output)
+                ? lines(out)
+                : document(out, false, Constants.RESPONSE_LAYOUT_EXPANDED)) {
+            for (File input : inputs) {
+                ResponseJsonReader.read(input, writer::write);
+            }
+            return writer.getCount();
+        }
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length < 2) {
+            System.err.println("使い方: ResponseJsonWriter <出力ファイル> <入力ファイル>...");
+            System.exit(2);
+        }
+        List<File> inputs = new ArrayList<>();
+        for (int i = 1; i < args.length; i++) {
+            inputs.add(new File(args[i]));
+        }
+        long count = merge(inputs, new File(args[0]));
+        System.out.println(inputs.size() + "ファイルの回答 " + count + "件を " + args[0] + " にまとめました");
+    }
+}
@@ -0,0 +1,500 @@
+package com.study.form.util;
+
+import com.study.form.model.Response;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 列指向の回答ストア - 全セッションの回答を列ごとのバイナリファイルに追記して集計する
+ *
+ * <p>回答の各項目を列ごとの固定長ファイルに保存し、回答者ID・質問文・選択肢のように
+ * 繰り返し現れる文字列は辞書ファイルに一度だけ書いて番号で参照します。理由は可変長のため
+ * 本文を {@code reason.dat} に連結し、各行の終了位置を列として持ちます。</p>
+ *
+ * <pre>
+ * respondent.i32     回答者IDの辞書番号
+ * question.i32       問題番号
+ * question_text.i32  質問文の辞書番号
+ * choice.i32         選択した回答の辞書番号（未選択は-1）
+ * timestamp.i64      回答時刻のエポックミリ秒（不明はLong.MIN_VALUE）
+ * elapsed.i64        セッション開始からの経過ナノ秒
+ * reason_end.i64     reason.dat 内の理由の終了位置（開始位置は前の行の終了位置）
+ * reason.dat         理由のUTF-8バイト列を連結したもの
+ * *.dict             辞書（UTF-8バイト長(varint) UTF-8バイト列 の繰り返し）
+ * </pre>
+ *
+ * <p>集計（{@link #choiceDistributions()}）は問題番号と選択肢の2列だけをメモリマップして
+ * 走査するため、ほかの列の大きさに影響されません。</p>
+ *
+ * <p>追記はストアのディレクトリのロックファイルで排他するため、複数のプロセスから
+ * 同じストアに追記できます。追記の途中で終了した場合は、次に開いたときに
+ * すべての列がそろっている行までに切り詰めます。</p>
+ */
+public class ResponseStore implements Closeable {
+    private static final String LOCK_FILE = "store.lock";
+    private static final String REASON_DATA = "reason.dat";
+    private static final long NULL_TIMESTAMP = Long.MIN_VALUE;
+    private static final int MAP_CHUNK_ROWS = 16 * 1024 * 1024;
+    // FileLock はプロセス単位のため、同じプロセス内の追記はこのロックで順番にする
+    private static final Object APPEND_LOCK = new Object();
+    // 他の端末がロックを持っていると待つため、画面のスレッドでは追記しない。
+    // 使っていないときはスレッドを終了し、終了待ちの追記がある間はJVMを終了させない
+    private static final ExecutorService APPENDER = new ThreadPoolExecutor(0, 1, 1, TimeUnit.SECONDS,
+        new LinkedBlockingQueue<>(), r -> new Thread(r, "response-store-append"));
+    private static final long APPEND_SHUTDOWN_TIMEOUT_SECONDS = 10;
+
+    static {
+        // System.exit で終了する場合も受け付けた追記を書き終えてから終了する
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            APPENDER.shutdown();
+            try {
+                if (!APPENDER.awaitTermination(APPEND_SHUTDOWN_TIMEOUT_SECONDS, TimeUnit.SECONDS)) {
+                    System.err.println("回答ストアへの追記が時間内に終わりませんでした");
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }, "response-store-shutdown"));
+    }
+
+    private final File dir;
+    private final Column respondent;
+    private final Column question;
+    private final Column questionText;
+    private final Column choice;
+    private final Column timestamp;
+    private final Column elapsed;
+    private final Column reasonEnd;
+    private final List<Column> columns;
+    private final FileChannel reasonData;
+    private final DictionaryFile respondents;
+    private final DictionaryFile questionTexts;
+    private final DictionaryFile choices;
+    private final FileChannel lockChannel;
+    private long rowCount;
+
+    /**
+     * ストアを開きます。ディレクトリがなければ作成します。
+     *
+     * @param directory ストアのディレクトリ
+     * @throws IOException ファイルを開けなかった場合
+     */
+    public ResponseStore(String directory) throws IOException {
+        dir = new File(directory);
+        if (!dir.exists()) {
+            dir.mkdirs();
+        }
+        respondent = new Column("respondent.i32", Integer.BYTES);
+        question = new Column("question.i32", Integer.BYTES);
+        questionText = new Column("question_text.i32", Integer.BYTES);
+        choice = new Column("choice.i32", Integer.BYTES);
+        timestamp = new Column("timestamp.i64", Long.BYTES);
+        elapsed = new Column("elapsed.i64", Long.BYTES);
+        reasonEnd = new Column("reason_end.i64", Long.BYTES);
+        columns = Collections.unmodifiableList(new ArrayList<>(Arrays.asList(
+            respondent, question, questionText, choice, timestamp, elapsed, reasonEnd)));
+        reasonData = open(REASON_DATA);
+        respondents = new DictionaryFile("respondent.dict");
+        questionTexts = new DictionaryFile("question_text.dict");
+        choices = new DictionaryFile("choice.dict");
+        lockChannel = open(LOCK_FILE);
+
+        FileLock lock = lockChannel.lock();
+        try {
+            recover();
+        } finally {
+            lock.release();
+        }
+    }
+
+    /**
+     * 1セッション分の回答をストアに追記します。失敗しても例外は投げず、エラーを出力します。
+     *
+     * @param directory ストアのディレクトリ
+     * @param responses 追記する回答
+     * @return 成功した場合はtrue
+     */
+    public static boolean appendSession(String directory, List<Response> responses) {
+        synchronized (APPEND_LOCK) {
+            try (ResponseStore store = new ResponseStore(directory)) {
+                store.append(responses);
+                return true;
+            } catch (IOException e) {
+                System.err.println("回答ストアへの追記に失敗しました: " + directory + " - " + e.getMessage());
+                return false;
+            }
+        }
+    }
+
+    /**
+     * 1セッション分の回答を作業スレッドでストアに追記します。
+     *
+     * <p>ストアのロックは他のプロセス（共有フォルダの別の端末など）と共有するため、
+     * 保存の操作から呼ぶ場合は待たずに戻るこちらを使います。追記は受け付けた順に行います。</p>
+     *
+     * @param directory ストアのディレクトリ
+     * @param responses 追記する回答（呼び出し時点の内容を追記します）
+     * @return 追記の結果（成功した場合はtrue）
+     */
+    public static Future<Boolean> appendSessionAsync(String directory, List<Response> responses) {
+        List<Response> snapshot = new ArrayList<>(responses);
+        return APPENDER.submit(() -> appendSession(directory, snapshot));
+    }
+
+    /**
+     * 回答を追記します。
+     *
+     * @param responses 追記する回答
+     * @throws IOException 書き込みに失敗した場合
+     */
+    public synchronized void append(List<Response> responses) throws IOException {
+        if (responses.isEmpty()) return;
+
+        FileLock lock = lockChannel.lock();
+        try {
+            // 他のプロセスが追記した分を取り込む
+            recover();
+            int newRespondents = respondents.dictionary.size();
+            int newQuestionTexts = questionTexts.dictionary.size();
+            int newChoices = choices.dictionary.size();
+
+            int n = responses.size();
+            ByteBuffer respondentBuf = ByteBuffer.allocate(n * Integer.BYTES);
+            ByteBuffer questionBuf = ByteBuffer.allocate(n * Integer.BYTES);
+            ByteBuffer questionTextBuf = ByteBuffer.allocate(n * Integer.BYTES);
+            ByteBuffer choiceBuf = ByteBuffer.allocate(n * Integer.BYTES);
+            ByteBuffer timestampBuf = ByteBuffer.allocate(n * Long.BYTES);
+            ByteBuffer elapsedBuf = ByteBuffer.allocate(n * Long.BYTES);
+            ByteBuffer reasonEndBuf = ByteBuffer.allocate(n * Long.BYTES);
+            ByteArrayOutputStream reasons = new ByteArrayOutputStream();
+            long reasonBase = reasonData.size();
+
+            for (Response response : responses) {
+                respondentBuf.putInt(respondents.dictionary.intern(response.getRespondentId()));
+                questionBuf.putInt(response.getQuestionNum());
+                questionTextBuf.putInt(questionTexts.dictionary.intern(response.getQuestionText()));
+                choiceBuf.putInt(choices.dictionary.intern(response.getSelectedChoice()));
+                timestampBuf.putLong(toEpochMillis(response.getTimestamp()));
+                elapsedBuf.putLong(response.getElapsedNanos());
+                if (response.getReason() != null) {
+                    reasons.write(response.getReason().getBytes(StandardCharsets.UTF_8));
+                }
+                reasonEndBuf.putLong(reasonBase + reasons.size());
+            }
+
+            // 辞書と理由の本文を先に書き、列は最後に書く（列が参照するものは必ず先に存在する）
+            respondents.appendFrom(newRespondents);
+            questionTexts.appendFrom(newQuestionTexts);
+            choices.appendFrom(newChoices);
+            writeFully(reasonData, ByteBuffer.wrap(reasons.toByteArray()), reasonBase);
+
+            respondent.append(respondentBuf);
+            question.append(questionBuf);
+            questionText.append(questionTextBuf);
+            choice.append(choiceBuf);
+            timestamp.append(timestampBuf);
+            elapsed.append(elapsedBuf);
+            reasonEnd.append(reasonEndBuf);
+            rowCount += n;
+        } finally {
+            lock.release();
+        }
+    }
+
+    /**
+     * 保存されている回答の行数を返します。
+     *
+     * @return 行数
+     */
+    public synchronized long size() {
+        return rowCount;
+    }
+
+    /**
+     * 問題ごとの選択肢の回答数を集計します。
+     *
+     * @return 問題番号順のマップ。値は選択肢ごとの回答数（辞書の登録順、未選択はキーnull）
+     * @throws IOException 読み込みに失敗した場合
+     */
+    public Map<Integer, Map<String, Long>> choiceDistributions() throws IOException {
+        return distributions(-1);
+    }
+
+    /**
+     * 指定した問題の選択肢ごとの回答数を集計します。
+     *
+     * @param questionNum 問題番号
+     * @return 選択肢ごとの回答数（辞書の登録順、未選択はキーnull）。回答がない場合は空
+     * @throws IOException 読み込みに失敗した場合
+     */
+    public Map<String, Long> choiceDistribution(int questionNum) throws IOException {
+        Map<String, Long> result = distributions(questionNum).get(questionNum);
+        return result != null ? result : Collections.emptyMap();
+    }
+
+    /**
+     * 問題番号と選択肢の2列だけをメモリマップして走査し、回答数を数えます。
+     *
+     * @param onlyQuestion 集計する問題番号（負の場合はすべて）
+     */
+    private synchronized Map<Integer, Map<String, Long>> distributions(int onlyQuestion) throws IOException {
+        // 行数を先に確定させる（その行が参照する辞書のエントリは行より先に書かれている）
+        long rows = Math.min(question.rows(), choice.rows());
+        choices.refresh(false);
+        int choiceCount = choices.dictionary.size();
+        long[][] counts = new long[0][];
+
+        for (long from = 0; from < rows; from += MAP_CHUNK_ROWS) {
+            int n = (int) Math.min(MAP_CHUNK_ROWS, rows - from);
+            IntBuffer questions = question.map(from, n).asIntBuffer();
+            IntBuffer selected = choice.map(from, n).asIntBuffer();
+            for (int i = 0; i < n; i++) {
+                int questionNum = questions.get(i);
+                if (questionNum < 0 || (onlyQuestion >= 0 && questionNum != onlyQuestion)) continue;
+                if (questionNum >= counts.length) {
+                    counts = Arrays.copyOf(counts, Math.max(questionNum + 1, counts.length * 2));
+                }
+                if (counts[questionNum] == null) {
+                    // 最後の要素は未選択（辞書番号-1）の回答数
+                    counts[questionNum] = new long[choiceCount + 1];
+                }
+                int id = selected.get(i);
+                counts[questionNum][id >= 0 && id < choiceCount ? id : choiceCount]++;
+            }
+        }
+
+        Map<Integer, Map<String, Long>> result = new LinkedHashMap<>();
+        for (int questionNum = 0; questionNum < counts.length; questionNum++) {
+            long[] perChoice = counts[questionNum];
+            if (perChoice == null) continue;
+            Map<String, Long> distribution = new LinkedHashMap<>();
+            for (int id = 0; id <= choiceCount; id++) {
+                if (perChoice[id] > 0) {
+                    distribution.put(id < choiceCount ? choices.dictionary.get(id) : null, perChoice[id]);
+                }
+            }
+            result.put(questionNum, distribution);
+        }
+        return result;
+    }
+
+    /**
+     * 指定した行の理由を読み込みます。
+     *
+     * @param row 行番号（0始まり）
+     * @return 理由
+     * @throws IOException 読み込みに失敗した場合
+     */
+    public synchronized String readReason(long row) throws IOException {
+        if (row < 0 || row >= rowCount) {
+            throw new IndexOutOfBoundsException("Row: " + row + ", Size: " + rowCount);
+        }
+        long start = row == 0 ? 0 : reasonEnd.readLong(row - 1);
+        long end = reasonEnd.readLong(row);
+        ByteBuffer buffer = ByteBuffer.allocate((int) (end - start));
+        readFully(reasonData, buffer, start);
+        return new String(buffer.array(), StandardCharsets.UTF_8);
+    }
+
+    /**
+     * 辞書の追記分を読み込み、列の長さをすべての列がそろっている行数に合わせます。
+     * ロックを取得した状態で呼び出してください。
+     */
+    private void recover() throws IOException {
+        respondents.refresh(true);
+        questionTexts.refresh(true);
+        choices.refresh(true);
+
+        long rows = Long.MAX_VALUE;
+        for (Column column : columns) {
+            rows = Math.min(rows, column.rows());
+        }
+        for (Column column : columns) {
+            column.truncate(rows);
+        }
+        long reasonLength = rows == 0 ? 0 : reasonEnd.readLong(rows - 1);
+        if (reasonData.size() > reasonLength) {
+            reasonData.truncate(reasonLength);
+        }
+        rowCount = rows;
+    }
+
+    private static long toEpochMillis(String text) {
+        if (text == null) return NULL_TIMESTAMP;
+        try {
+            return Timestamps.parse(text);
+        } catch (DateTimeParseException e) {
+            return NULL_TIMESTAMP;
+        }
+    }
+
+    private FileChannel open(String name) throws IOException {
+        return FileChannel.open(new File(dir, name).toPath(),
+            StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+    }
+
+    private static void writeFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            position += channel.write(buffer, position);
+        }
+    }
+
+    private static void readFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            int n = channel.read(buffer, position);
+            if (n < 0) throw new EOFException();
+            position += n;
+        }
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        for (Column column : columns) {
+            column.channel.close();
+        }
+        reasonData.close();
+        respondents.channel.close();
+        questionTexts.channel.close();
+        choices.channel.close();
+        lockChannel.close();
+    }
+
+    /**
+     * 固定長の値を並べた列ファイル
+     */
+    private final class Column {
+        final FileChannel channel;
+        final int width;
+
+        Column(String name, int width) throws IOException {
+            this.channel = open(name);
+            this.width = width;
+        }
+
+        long rows() throws IOException {
+            return channel.size() / width;
+        }
+
+        void truncate(long rows) throws IOException {
+            if (channel.size() > rows * width) {
+                channel.truncate(rows * width);
+            }
+        }
+
+        void append(ByteBuffer values) throws IOException {
+            values.flip();
+            writeFully(channel, values, channel.size());
+        }
+
+        ByteBuffer map(long fromRow, int rows) throws IOException {
+            return channel.map(FileChannel.MapMode.READ_ONLY, fromRow * width, (long) rows * width);
+        }
+
+        long readLong(long row) throws IOException {
+            ByteBuffer buffer = ByteBuffer.allocate(Long.BYTES);
+            readFully(channel, buffer, row * width);
+            return buffer.getLong(0);
+        }
+    }
+
+    /**
+     * 文字列辞書とその追記専用ファイル
+     */
+    private final class DictionaryFile {
+        final FileChannel channel;
+        final StringDictionary dictionary = new StringDictionary();
+        long loadedBytes = 0;
+
+        DictionaryFile(String name) throws IOException {
+            this.channel = open(name);
+        }
+
+        /**
+         * ファイルの未読部分を辞書に取り込みます。書き込み途中の末尾のエントリは読み飛ばし、
+         * {@code repair} がtrueの場合は切り詰めます（ロックを取得しているときだけ指定すること）。
+         */
+        void refresh(boolean repair) throws IOException {
+            long size = channel.size();
+            if (size <= loadedBytes) return;
+            byte[] bytes = new byte[(int) (size - loadedBytes)];
+            readFully(channel, ByteBuffer.wrap(bytes), loadedBytes);
+
+            ByteArrayInputStream in = new ByteArrayInputStream(bytes);
+            int consumed = 0;
+            try {
+                while (in.available() > 0) {
+                    int length = (int) VarInt.read(in);
+                    if (in.available() < length) break;
+                    dictionary.intern(new String(bytes, bytes.length - in.available(), length, StandardCharsets.UTF_8));
+                    in.skip(length);
+                    consumed = bytes.length - in.available();
+                }
+            } catch (EOFException e) {
+                // 長さの途中で終わっている
+            }
+            loadedBytes += consumed;
+            if (repair && loadedBytes < size) {
+                channel.truncate(loadedBytes);
+            }
+        }
+
+        /**
+         * 指定した番号以降に登録された文字列をファイルに追記します。
+         */
+        void appendFrom(int fromId) throws IOException {
+            List<String> values = dictionary.valuesFrom(fromId);
+            if (values.isEmpty()) return;
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            for (String value : values) {
+                byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+                VarInt.write(out, bytes.length);
+                out.write(bytes);
+            }
+            writeFully(channel, ByteBuffer.wrap(out.toByteArray()), loadedBytes);
+            loadedBytes += out.size();
+        }
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length < 1) {
+            System.err.println("使い方: ResponseStore <ストアのディレクトリ> [問題番号]");
+            System.exit(1);
+        }
+        try (ResponseStore store = new ResponseStore(args[0])) {
+            System.out.println("回答数: " + store.size());
+            Map<Integer, Map<String, Long>> distributions = args.length > 1
+                ? Collections.singletonMap(Integer.parseInt(args[1]), store.choiceDistribution(Integer.parseInt(args[1])))
+                : store.choiceDistributions();
+            for (Map.Entry<Integer, Map<String, Long>> entry : distributions.entrySet()) {
+                System.out.println("問題" + entry.getKey() + ":");
+                for (Map.Entry<String, Long> count : entry.getValue().entrySet()) {
+                    String label = count.getKey() != null ? count.getKey() : "(未選択)";
+                    System.out.println("  " + label + ": " + count.getValue());
+                }
+            }
+        }
+    }
+}
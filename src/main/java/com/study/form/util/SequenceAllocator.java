@@ -0,0 +1,251 @@
+package com.study.form.util;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Properties;
+
+/**
+ * 連番の払い出し - ファイル名の {@code {sequence}} をプロセスをまたいで重複なく払い出す
+ *
+ * <p>払い出し済みの上限を小さなファイル（{@code 名前=次に予約する番号}）に記録し、
+ * 読み書きの間は {@link FileChannel#lock()} でファイルを排他ロックします。1回のロックで
+ * 指定した数の番号をまとめて予約し、予約した範囲はメモリ上で1つずつ払い出すため、
+ * ほとんどの払い出しはファイルを書き換えません（世代の確認のために共有ロックで読むだけです）。
+ * {@code config.json} は書き換えません。</p>
+ * <p>予約して使わなかった番号は終了時に返却します（その間に他のプロセスが予約していない場合のみ）。
+ * 返却できなかった番号は欠番になりますが、同じ番号が2回払い出されることはありません。</p>
+ * <p>{@link #reset} はファイルに連番ごとの世代（{@code 名前.generation}）を記録して1つ進めます。
+ * 各プロセスは予約した範囲を使う前に共有ロックで世代だけを読み、予約したときから変わっていれば
+ * その範囲を捨てて設定し直した番号から予約し直します。</p>
+ * <p>同じファイルの払い出しは {@link #open(String)} でプロセス内の1つのインスタンスを共有してください。</p>
+ */
+public class SequenceAllocator {
+    private static final Map<String, SequenceAllocator> INSTANCES = new HashMap<>();
+
+    private final File file;
+    private final Map<String, Block> blocks = new HashMap<>();
+    private boolean shutdownHookRegistered = false;
+
+    /**
+     * メモリ上で払い出し中の予約範囲
+     */
+    private static final class Block {
+        int next;
+        int limit;
+        final int generation;
+
+        Block(int next, int limit, int generation) {
+            this.next = next;
+            this.limit = limit;
+            this.generation = generation;
+        }
+    }
+
+    private SequenceAllocator(File file) {
+        this.file = file;
+    }
+
+    /**
+     * 指定したファイルの払い出しを返します（プロセス内で共有）。
+     *
+     * @param path 払い出し状況を記録するファイルのパス
+     * @return 払い出し
+     */
+    public static synchronized SequenceAllocator open(String path) {
+        File file = new File(path).getAbsoluteFile();
+        return INSTANCES.computeIfAbsent(file.getPath(), key -> new SequenceAllocator(file));
+    }
+
+    /**
+     * 次の番号を払い出します。予約した範囲を使い切った場合はファイルをロックして次の範囲を予約します。
+     *
+     * @param name 連番の名前
+     * @param initial ファイルにまだ記録がない場合の最初の番号
+     * @param blockSize 1回に予約する番号の数
+     * @return 番号
+     * @throws IOException ファイルの読み書きに失敗した場合
+     */
+    public synchronized int next(String name, int initial, int blockSize) throws IOException {
+        Block block = usableBlock(name);
+        if (block == null) {
+            block = reserve(name, initial, Math.max(1, blockSize));
+            blocks.put(name, block);
+        }
+        return block.next++;
+    }
+
+    /**
+     * 次に払い出す番号を返します（払い出しはしません）。
+     *
+     * @param name 連番の名前
+     * @param initial ファイルにまだ記録がない場合の最初の番号
+     * @return 番号
+     * @throws IOException ファイルの読み込みに失敗した場合
+     */
+    public synchronized int peek(String name, int initial) throws IOException {
+        Block block = usableBlock(name);
+        if (block != null) {
+            return block.next;
+        }
+        try (Locked locked = lock(true)) {
+            return locked.get(name, initial);
+        }
+    }
+
+    /**
+     * 次に払い出す番号を設定し直します。世代を進めるため、このプロセスと他のプロセスで予約済みの範囲は
+     * それぞれが次に払い出すときに破棄されます。
+     *
+     * @param name 連番の名前
+     * @param value 次に払い出す番号
+     * @throws IOException ファイルの書き込みに失敗した場合
+     */
+    public synchronized void reset(String name, int value) throws IOException {
+        blocks.remove(name);
+        try (Locked locked = lock(false)) {
+            locked.values.setProperty(name, String.valueOf(value));
+            locked.values.setProperty(generationKey(name), String.valueOf(locked.get(generationKey(name), 0) + 1));
+            locked.write();
+        }
+    }
+
+    // 予約した範囲が残っていて、その後に設定し直されていなければ返す
+    private Block usableBlock(String name) throws IOException {
+        Block block = blocks.get(name);
+        if (block == null || block.next >= block.limit) {
+            return null;
+        }
+        int generation;
+        try (Locked locked = lock(true)) {
+            generation = locked.get(generationKey(name), 0);
+        }
+        if (generation != block.generation) {
+            blocks.remove(name);
+            return null;
+        }
+        return block;
+    }
+
+    private static String generationKey(String name) {
+        return name + ".generation";
+    }
+
+    private Block reserve(String name, int initial, int blockSize) throws IOException {
+        try (Locked locked = lock(false)) {
+            int start = locked.get(name, initial);
+            int limit = start + blockSize;
+            locked.values.setProperty(name, String.valueOf(limit));
+            locked.write();
+            if (!shutdownHookRegistered) {
+                Runtime.getRuntime().addShutdownHook(new Thread(this::release, "sequence-release"));
+                shutdownHookRegistered = true;
+            }
+            return new Block(start, limit, locked.get(generationKey(name), 0));
+        }
+    }
+
+    /**
+     * 使わなかった予約を返却します。ファイルの上限と世代が予約したときのままの場合だけ戻します。
+     */
+    public synchronized void release() {
+        if (blocks.isEmpty()) {
+            return;
+        }
+        try (Locked locked = lock(false)) {
+            boolean changed = false;
+            for (Map.Entry<String, Block> entry : blocks.entrySet()) {
+                Block block = entry.getValue();
+                if (block.next < block.limit
+                        && locked.get(entry.getKey(), block.limit) == block.limit
+                        && locked.get(generationKey(entry.getKey()), 0) == block.generation) {
+                    locked.values.setProperty(entry.getKey(), String.valueOf(block.next));
+                    changed = true;
+                }
+            }
+            if (changed) {
+                locked.write();
+            }
+            blocks.clear();
+        } catch (IOException e) {
+            System.err.println("連番の予約を返却できませんでした: " + e.getMessage());
+        }
+    }
+
+    // 読むだけの場合は共有ロックにして、他のプロセスの確認を待たせない
+    private Locked lock(boolean shared) throws IOException {
+        File parent = file.getParentFile();
+        if (parent != null && !parent.exists()) {
+            parent.mkdirs();
+        }
+        return new Locked(new RandomAccessFile(file, "rw"), shared);
+    }
+
+    /**
+     * ロック中のファイルとその内容（共有ロックの場合は書き込まない）
+     */
+    private static final class Locked implements AutoCloseable {
+        private final RandomAccessFile raf;
+        private final FileChannel channel;
+        private final FileLock lock;
+        final Properties values = new Properties();
+
+        Locked(RandomAccessFile raf, boolean shared) throws IOException {
+            this.raf = raf;
+            this.channel = raf.getChannel();
+            try {
+                this.lock = channel.lock(0, Long.MAX_VALUE, shared);
+                ByteBuffer buffer = ByteBuffer.allocate((int) channel.size());
+                while (buffer.hasRemaining()) {
+                    if (channel.read(buffer, buffer.position()) < 0) break;
+                }
+                values.load(new StringReader(new String(buffer.array(), 0, buffer.position(), StandardCharsets.UTF_8)));
+            } catch (IOException | RuntimeException e) {
+                raf.close();
+                throw e;
+            }
+        }
+
+        int get(String name, int initial) throws IOException {
+            String value = values.getProperty(name);
+            if (value == null) {
+                return initial;
+            }
+            try {
+                return Integer.parseInt(value.trim());
+            } catch (NumberFormatException e) {
+                throw new IOException("連番の記録が不正です: " + name + "=" + value);
+            }
+        }
+
+        void write() throws IOException {
+            StringWriter out = new StringWriter();
+            values.store(out, null);
+            byte[] bytes = out.toString().getBytes(StandardCharsets.UTF_8);
+            channel.truncate(0);
+            ByteBuffer buffer = ByteBuffer.wrap(bytes);
+            long position = 0;
+            while (buffer.hasRemaining()) {
+                position += channel.write(buffer, position);
+            }
+            channel.force(false);
+        }
+
+        @Override
+        public void close() throws IOException {
+            try {
+                lock.release();
+            } finally {
+                raf.close();
+            }
+        }
+    }
+}
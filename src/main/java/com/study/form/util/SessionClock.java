@@ -0,0 +1,68 @@
+package com.study.form.util;
+
+import java.time.Instant;
+
+/**
+ * セッションクロック - アンケート開始時点を基準にした単調増加の経過時間
+ *
+ * <p>{@link System#nanoTime()} を開始時に一度だけ記録し、以降の時刻はその差分として
+ * 扱います。壁時計（{@link System#currentTimeMillis()}）と違い、NTPによる時刻補正の
+ * 影響を受けないため、反応時間の分析に使用できます。</p>
+ */
+public final class SessionClock {
+    private final long anchorNanos;
+    private final long anchorEpochNanos;
+
+    private SessionClock(long anchorNanos, long anchorEpochNanos) {
+        this.anchorNanos = anchorNanos;
+        this.anchorEpochNanos = anchorEpochNanos;
+    }
+
+    /**
+     * 現在時刻を基準点とするクロックを開始します。
+     *
+     * @return 新しいセッションクロック
+     */
+    public static SessionClock start() {
+        Instant now = Instant.now();
+        return new SessionClock(System.nanoTime(), now.getEpochSecond() * 1_000_000_000L + now.getNano());
+    }
+
+    /**
+     * 基準点からの経過ナノ秒を返します。
+     *
+     * @return 経過ナノ秒
+     */
+    public long elapsedNanos() {
+        return System.nanoTime() - anchorNanos;
+    }
+
+    /**
+     * {@link System#nanoTime()} で取得した時刻を基準点からの経過ナノ秒に変換します。
+     *
+     * @param nanoTime {@link System#nanoTime()} の値
+     * @return 経過ナノ秒
+     */
+    public long elapsedNanos(long nanoTime) {
+        return nanoTime - anchorNanos;
+    }
+
+    /**
+     * 基準点の壁時計時刻を返します。
+     *
+     * @return エポックミリ秒
+     */
+    public long getAnchorEpochMillis() {
+        return anchorEpochNanos / 1_000_000;
+    }
+
+    /**
+     * 現在時刻を、基準点の壁時計時刻に経過ナノ秒を足したエポックナノ秒で返します。
+     * 基準点より後のNTPによる時刻補正は反映されないため、経過ナノ秒と同じ時間軸になります。
+     *
+     * @return エポックナノ秒
+     */
+    public long epochNanos() {
+        return anchorEpochNanos + elapsedNanos();
+    }
+}
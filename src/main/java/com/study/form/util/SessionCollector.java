@@ -0,0 +1,189 @@
+package com.study.form.util;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonParseException;
+import com.google.gson.reflect.TypeToken;
+import com.study.form.Constants;
+import com.study.form.model.Response;
+import com.study.form.model.ResponseJsonAdapter;
+import com.study.form.model.SurveyDictionary;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.Reader;
+import java.io.Writer;
+import java.lang.reflect.Type;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+
+/**
+ * 複数台運用の集約先 - 各端末から届いた完了セッションを1か所に保存する
+ *
+ * <p>回答は {@code responses/<キー>.jsonl}、アクションログは {@code logs/<キー>_<元のファイル名>} に書くため、
+ * 集約先のフォルダはそのまま集計（{@code AggregateApp}）の入力にできます。
+ * 保存が終わると {@code received/<キー>} を作り、同じキーが再送されても書き直さずに重複として扱います。</p>
+ * <p>フォルダを直接受け渡し先にする場合は端末の {@link StationShipper} がこのクラスを使って書き込み、
+ * HTTPで受け取る場合は {@link #serve(String, int)} で起動したサーバーが書き込みます。</p>
+ */
+public class SessionCollector {
+    private static final String RECEIVED_DIR = "received";
+    private static final Gson gson = new Gson();
+    private static final Type SHIPMENT_LIST = new TypeToken<List<Shipment>>() { }.getType();
+    private static final Metrics.Counter STORED = Metrics.registry().counter(
+        "form_collector_sessions_stored_total", "集約先に保存した完了セッション数");
+    private static final Metrics.Counter DUPLICATES = Metrics.registry().counter(
+        "form_collector_duplicates_total", "集約先に再送された保存済みのセッション数");
+
+    private final File responsesDirectory;
+    private final File logsDirectory;
+    private final File receivedDirectory;
+
+    /**
+     * 集約先を作成します。
+     *
+     * @param directory 集約先のフォルダ
+     */
+    public SessionCollector(File directory) {
+        this.responsesDirectory = new File(directory, "responses");
+        this.logsDirectory = new File(directory, "logs");
+        this.receivedDirectory = new File(directory, RECEIVED_DIR);
+    }
+
+    /**
+     * 完了セッションを保存します。
+     *
+     * @param shipment 完了セッション
+     * @return 保存した場合はtrue（受け取り済みのキーの場合はfalse）
+     * @throws IOException キーが不正な場合や書き込みに失敗した場合
+     */
+    synchronized boolean store(Shipment shipment) throws IOException {
+        if (!Shipment.isSafeKey(shipment.key)) {
+            throw new IOException("不正なキーです: " + shipment.key);
+        }
+        File marker = new File(receivedDirectory, shipment.key);
+        if (marker.exists()) {
+            DUPLICATES.increment();
+            return false;
+        }
+        responsesDirectory.mkdirs();
+        logsDirectory.mkdirs();
+        receivedDirectory.mkdirs();
+
+        File responseFile = new File(responsesDirectory, shipment.key + Constants.JSON_LINES_EXTENSION);
+        writeAtomically(responseFile, writer -> {
+            ResponseJsonWriter lines = ResponseJsonWriter.lines(writer);
+            if (shipment.responses != null) {
+                for (Response response : shipment.responses) {
+                    lines.write(response);
+                }
+            }
+            lines.flush();
+        });
+        if (shipment.log != null && shipment.logFileName != null) {
+            File logFile = new File(logsDirectory, shipment.key + "_" + Shipment.sanitize(shipment.logFileName));
+            writeAtomically(logFile, writer -> writer.write(shipment.log));
+        }
+
+        try {
+            Files.createFile(marker.toPath());
+        } catch (FileAlreadyExistsException e) {
+            DUPLICATES.increment();
+            return false;
+        }
+        STORED.increment();
+        return true;
+    }
+
+    private interface Content {
+        void writeTo(Writer writer) throws IOException;
+    }
+
+    // 一時ファイルに書いてから置き換え、書きかけのファイルを集計に読ませない
+    private static void writeAtomically(File file, Content content) throws IOException {
+        Path temp = new File(file.getParentFile(), file.getName() + ".tmp").toPath();
+        try (Writer writer = Files.newBufferedWriter(temp, StandardCharsets.UTF_8)) {
+            content.writeTo(writer);
+        }
+        Files.move(temp, file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+    }
+
+    /**
+     * HTTPで完了セッションを受け取るサーバーを起動します。
+     *
+     * <p>{@link Constants#COLLECTOR_PATH} へのPOSTでJSON配列の完了セッションを受け取り、
+     * 保存済みになったキーの一覧（{@code {"accepted":[...],"duplicates":n}}）を返します。
+     * 重複したキーも保存済みとして一覧に含めます。</p>
+     *
+     * @param host 待ち受けるホスト
+     * @param port 待ち受けるポート
+     * @return 起動したサーバー（{@code stop} で停止します）
+     * @throws IOException 起動に失敗した場合
+     */
+    public HttpServer serve(String host, int port) throws IOException {
+        HttpServer server = HttpServer.create(new InetSocketAddress(host, port), 0);
+        server.createContext(Constants.COLLECTOR_PATH, this::handle);
+        server.setExecutor(Executors.newFixedThreadPool(Math.max(2, Runtime.getRuntime().availableProcessors())));
+        server.start();
+        return server;
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        try {
+            if (!"POST".equals(exchange.getRequestMethod())) {
+                send(exchange, 405, "{\"error\":\"POSTのみ受け付けます\"}");
+                return;
+            }
+            List<Shipment> shipments;
+            try (Reader reader = new InputStreamReader(exchange.getRequestBody(), StandardCharsets.UTF_8)) {
+                // 受け取りごとの辞書にし、集約先で文字列が増え続けないようにする
+                shipments = ResponseJsonAdapter.gson(new SurveyDictionary()).fromJson(reader, SHIPMENT_LIST);
+            } catch (JsonParseException e) {
+                send(exchange, 400, "{\"error\":\"JSONを解析できません\"}");
+                return;
+            }
+
+            List<String> accepted = new ArrayList<>();
+            int duplicates = 0;
+            if (shipments != null) {
+                for (Shipment shipment : shipments) {
+                    try {
+                        if (!store(shipment)) {
+                            duplicates++;
+                        }
+                        accepted.add(shipment.key);
+                    } catch (IOException e) {
+                        System.err.println("完了セッションを保存できませんでした: " + shipment.key + " (" + e.getMessage() + ")");
+                    }
+                }
+            }
+            Map<String, Object> body = new LinkedHashMap<>();
+            body.put("accepted", accepted);
+            body.put("duplicates", duplicates);
+            send(exchange, 200, gson.toJson(body));
+        } finally {
+            exchange.close();
+        }
+    }
+
+    private static void send(HttpExchange exchange, int status, String body) throws IOException {
+        byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "application/json; charset=utf-8");
+        exchange.sendResponseHeaders(status, bytes.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(bytes);
+        }
+    }
+}
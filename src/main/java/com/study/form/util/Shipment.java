@@ -0,0 +1,44 @@
+package com.study.form.util;
+
+import com.study.form.model.Response;
+
+import java.util.List;
+import java.util.regex.Pattern;
+
+/**
+ * 集約先へ送る完了セッション1件分（端末の送信待ちフォルダと送信データの両方の形式）
+ *
+ * <p>{@link #key} は端末ID・回答者ID・乱数から作る冪等キーで、同じキーを何度送っても
+ * 集約先では1回だけ保存されます。ファイル名にも使うため英数字と {@code _ - .} だけで構成します。</p>
+ */
+class Shipment {
+    private static final Pattern SAFE_KEY = Pattern.compile("[A-Za-z0-9_.-]+");
+
+    String key;
+    String stationId;
+    String respondentId;
+    String completedAt;
+    String logFileName;
+    String log;
+    List<Response> responses;
+
+    /**
+     * キーがファイル名として安全かどうかを返します。
+     *
+     * @param key キー
+     * @return 安全な場合はtrue
+     */
+    static boolean isSafeKey(String key) {
+        return key != null && SAFE_KEY.matcher(key).matches() && !key.startsWith(".");
+    }
+
+    /**
+     * ファイル名に使えない文字を {@code _} に置き換えます。
+     *
+     * @param value 文字列
+     * @return 置き換えた文字列
+     */
+    static String sanitize(String value) {
+        return value.replaceAll("[^A-Za-z0-9_.-]", "_");
+    }
+}
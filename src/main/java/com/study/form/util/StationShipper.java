@@ -0,0 +1,462 @@
+package com.study.form.util;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParseException;
+import com.google.gson.JsonParser;
+import com.study.form.Constants;
+import com.study.form.model.Config;
+import com.study.form.model.Response;
+import com.study.form.model.ResponseJsonAdapter;
+import com.study.form.model.SurveyDictionary;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Reader;
+import java.io.Writer;
+import java.net.InetAddress;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Logger;
+
+/**
+ * 複数台運用の送信 - 完了したセッションを端末の送信待ちフォルダから集約先へまとめて送る
+ *
+ * <p>回答の保存は従来どおり端末のローカルに行い、完了したセッションは {@link #enqueue} で
+ * 送信待ちフォルダ（{@link Constants#OUTBOX_DIR}）に1件1ファイルで書きます。送信はバックグラウンドの
+ * 1スレッドが一定間隔でまとめて行うため、回答画面の待ち時間は共有フォルダやネットワークの速さに左右されません。</p>
+ * <p>集約先に届かなかった場合は間隔を倍にしながら（上限 {@link Constants#SHIPPER_MAX_BACKOFF_MS}）再送し、
+ * 送信待ちのファイルは次回起動時にも送ります。各セッションには冪等キーを付けるため、
+ * 応答を受け取る前に切断されて再送しても集約先には1回だけ保存されます。</p>
+ * <p>集約先は {@code http://} または {@code https://} で始まる場合は {@link SessionCollector#serve} のURL、
+ * それ以外はフォルダ（ネットワークフォルダを含む）として扱います。</p>
+ */
+public class StationShipper implements Closeable {
+    private static final Logger LOG = Log.get(StationShipper.class);
+    private static final Gson gson = new Gson();
+    private static StationShipper instance;
+
+    /**
+     * 送信先
+     */
+    private interface Sink {
+        /**
+         * 完了セッションを送り、集約先に保存済みになったキーを返します。
+         */
+        Set<String> send(List<Shipment> shipments) throws IOException, InterruptedException;
+    }
+
+    private final File outboxDirectory;
+    private final String stationId;
+    private final String target;
+    private final Sink sink;
+    private final long intervalMillis;
+    private final int batchSize;
+    private final ScheduledThreadPoolExecutor executor;
+    private final AtomicLong shippedCount = new AtomicLong();
+    private final AtomicBoolean shipRequested = new AtomicBoolean();
+    private volatile long backoffMillis = 0;
+    private volatile boolean closed = false;
+
+    /**
+     * 送信を開始します。
+     *
+     * @param outboxDirectory 送信待ちフォルダ
+     * @param stationId 端末ID
+     * @param target 集約先（URLまたはフォルダ）
+     * @param intervalMillis 送信の間隔（ミリ秒）
+     * @param batchSize 1回に送るセッション数の上限
+     */
+    public StationShipper(File outboxDirectory, String stationId, String target,
+                          long intervalMillis, int batchSize) {
+        this.outboxDirectory = outboxDirectory;
+        this.stationId = Shipment.sanitize(stationId);
+        this.target = target;
+        this.sink = isHttp(target) ? new HttpSink(target) : new DirectorySink(new File(target));
+        this.intervalMillis = Math.max(1, intervalMillis);
+        this.batchSize = Math.max(1, batchSize);
+        this.executor = new ScheduledThreadPoolExecutor(1, runnable -> {
+            Thread thread = new Thread(runnable, "station-shipper");
+            thread.setDaemon(true);
+            return thread;
+        });
+        // 停止時は次回の定期送信を待たない
+        executor.setExecuteExistingDelayedTasksAfterShutdownPolicy(false);
+        outboxDirectory.mkdirs();
+        // 前回送り残したセッションがあればすぐに送る
+        executor.execute(this::shipPeriodically);
+    }
+
+    /**
+     * 設定で集約先が指定されている場合はアプリ全体で使う送信を開始します。
+     *
+     * @param config 設定
+     * @return 開始した送信（集約先が指定されていない場合はnull）
+     */
+    public static synchronized StationShipper start(Config config) {
+        if (instance != null) {
+            return instance;
+        }
+        String target = config.getCollectorTarget().trim();
+        if (target.isEmpty()) {
+            return null;
+        }
+        instance = new StationShipper(new File(Constants.OUTBOX_DIR), resolveStationId(config), target,
+            config.getShipperIntervalMs(), config.getShipperBatchSize());
+        Runtime.getRuntime().addShutdownHook(new Thread(StationShipper::shutdown, "station-shipper-shutdown"));
+        LOG.info("集約先への送信を開始しました: " + target + " (端末ID: " + instance.stationId + ")");
+        return instance;
+    }
+
+    /**
+     * アプリ全体で使う送信を返します。
+     *
+     * @return 送信（開始していない場合はnull）
+     */
+    public static synchronized StationShipper getInstance() {
+        return instance;
+    }
+
+    /**
+     * アプリ全体で使う送信を停止します。
+     */
+    public static synchronized void shutdown() {
+        if (instance != null) {
+            instance.close();
+            instance = null;
+        }
+    }
+
+    /**
+     * 端末IDを返します。設定にない場合はホスト名を使います。
+     *
+     * @param config 設定
+     * @return 端末ID
+     */
+    public static String resolveStationId(Config config) {
+        String stationId = config.getStationId();
+        if (stationId == null || stationId.trim().isEmpty()) {
+            try {
+                stationId = InetAddress.getLocalHost().getHostName();
+            } catch (IOException e) {
+                stationId = "station";
+            }
+        }
+        return Shipment.sanitize(stationId.trim());
+    }
+
+    private static boolean isHttp(String target) {
+        String lower = target.toLowerCase();
+        return lower.startsWith("http://") || lower.startsWith("https://");
+    }
+
+    public String getStationId() {
+        return stationId;
+    }
+
+    public String getTarget() {
+        return target;
+    }
+
+    /**
+     * 集約先に保存済みになったセッション数を返します。
+     *
+     * @return セッション数
+     */
+    public long getShippedCount() {
+        return shippedCount.get();
+    }
+
+    /**
+     * 送信待ちのセッション数を返します。
+     *
+     * @return セッション数
+     */
+    public int getPendingCount() {
+        return listPending().size();
+    }
+
+    /**
+     * 完了したセッションを送信待ちフォルダに書き、送信を予約します。
+     *
+     * <p>アクションログはこの時点の内容を読み込んで一緒に送るため、ログを閉じた後に呼んでください。</p>
+     *
+     * @param respondentId 回答者ID
+     * @param responses 回答
+     * @param logPath アクションログのパス（送らない場合はnull）
+     * @return 冪等キー
+     * @throws IOException 送信待ちフォルダへの書き込みに失敗した場合
+     */
+    public String enqueue(String respondentId, List<Response> responses, String logPath) throws IOException {
+        Shipment shipment = new Shipment();
+        shipment.key = stationId + "_" + Shipment.sanitize(respondentId != null ? respondentId : "")
+            + "_" + UUID.randomUUID().toString().substring(0, 8);
+        shipment.stationId = stationId;
+        shipment.respondentId = respondentId;
+        shipment.completedAt = Timestamps.now();
+        shipment.responses = new ArrayList<>(responses);
+        if (logPath != null) {
+            File logFile = new File(logPath);
+            if (logFile.isFile()) {
+                shipment.logFileName = logFile.getName();
+                shipment.log = new String(Files.readAllBytes(logFile.toPath()), StandardCharsets.UTF_8);
+            }
+        }
+
+        // 一時ファイルに書いて同期してから置き換え、書きかけのファイルを送らない
+        outboxDirectory.mkdirs();
+        File file = new File(outboxDirectory, shipment.key + Constants.SHIPMENT_FILE_EXTENSION);
+        File temp = new File(outboxDirectory, shipment.key + ".tmp");
+        try (FileOutputStream out = new FileOutputStream(temp)) {
+            Writer writer = new OutputStreamWriter(out, StandardCharsets.UTF_8);
+            gson.toJson(shipment, writer);
+            writer.flush();
+            out.getFD().sync();
+        }
+        Files.move(temp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+
+        // 再送待ちでなければすぐに送る（送信前の予約はまとめて1回にする）
+        if (backoffMillis == 0 && !closed && shipRequested.compareAndSet(false, true)) {
+            try {
+                executor.execute(this::shipOnRequest);
+            } catch (RejectedExecutionException e) {
+                // 停止済み（次回起動時に送る）
+            }
+        }
+        return shipment.key;
+    }
+
+    /**
+     * 送信待ちがなくなるか期限になるまで送信を繰り返します。
+     *
+     * @param timeoutMillis 期限（ミリ秒）
+     * @return 送信待ちがなくなった場合はtrue
+     * @throws InterruptedException 待機中に割り込まれた場合
+     */
+    public boolean drain(long timeoutMillis) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + timeoutMillis;
+        while (true) {
+            boolean done;
+            try {
+                done = executor.submit(this::shipPending).get();
+            } catch (ExecutionException | RejectedExecutionException e) {
+                done = false;
+            }
+            if (done && listPending().isEmpty()) {
+                return true;
+            }
+            long remaining = deadline - System.currentTimeMillis();
+            if (remaining <= 0) {
+                return false;
+            }
+            Thread.sleep(Math.min(remaining, intervalMillis));
+        }
+    }
+
+    private void shipOnRequest() {
+        shipRequested.set(false);
+        shipPending();
+    }
+
+    // 送信して次回の予定を入れる（失敗が続くと間隔を倍にする）
+    private void shipPeriodically() {
+        if (closed) {
+            return;
+        }
+        if (shipPending()) {
+            backoffMillis = 0;
+        } else {
+            backoffMillis = Math.min(Constants.SHIPPER_MAX_BACKOFF_MS,
+                Math.max(intervalMillis, backoffMillis * 2));
+        }
+        try {
+            executor.schedule(this::shipPeriodically, backoffMillis > 0 ? backoffMillis : intervalMillis,
+                TimeUnit.MILLISECONDS);
+        } catch (RejectedExecutionException e) {
+            // 停止済み
+        }
+    }
+
+    /**
+     * 送信待ちのセッションをまとめて送ります（送信スレッドからのみ呼ばれます）。
+     *
+     * @return すべて送れた場合はtrue
+     */
+    private boolean shipPending() {
+        List<File> pending = listPending();
+        for (int start = 0; start < pending.size(); start += batchSize) {
+            List<File> files = pending.subList(start, Math.min(pending.size(), start + batchSize));
+            List<Shipment> batch = new ArrayList<>(files.size());
+            List<File> batchFiles = new ArrayList<>(files.size());
+            for (File file : files) {
+                Shipment shipment = readShipment(file);
+                if (shipment != null) {
+                    batch.add(shipment);
+                    batchFiles.add(file);
+                }
+            }
+            if (batch.isEmpty()) {
+                continue;
+            }
+
+            Set<String> accepted;
+            try {
+                accepted = sink.send(batch);
+            } catch (IOException e) {
+                System.err.println("集約先に送信できませんでした（後で再送します）: " + e);
+                return false;
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return false;
+            }
+
+            for (int i = 0; i < batch.size(); i++) {
+                if (accepted.contains(batch.get(i).key)) {
+                    try {
+                        Files.deleteIfExists(batchFiles.get(i).toPath());
+                        shippedCount.incrementAndGet();
+                    } catch (IOException e) {
+                        System.err.println("送信済みのファイルを削除できませんでした: " + batchFiles.get(i));
+                    }
+                }
+            }
+            if (accepted.size() < batch.size()) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private List<File> listPending() {
+        File[] files = outboxDirectory.listFiles(
+            (dir, name) -> name.endsWith(Constants.SHIPMENT_FILE_EXTENSION));
+        if (files == null) {
+            return new ArrayList<>();
+        }
+        Arrays.sort(files);
+        return new ArrayList<>(Arrays.asList(files));
+    }
+
+    // 読めないファイルは拡張子を変えて脇に置き、送信を止めない
+    private static Shipment readShipment(File file) {
+        try (Reader reader = Files.newBufferedReader(file.toPath(), StandardCharsets.UTF_8)) {
+            Shipment shipment = ResponseJsonAdapter.gson(new SurveyDictionary()).fromJson(reader, Shipment.class);
+            if (shipment != null && Shipment.isSafeKey(shipment.key)) {
+                return shipment;
+            }
+        } catch (IOException | JsonParseException e) {
+            System.err.println("送信待ちのファイルを読めませんでした: " + file + " (" + e.getMessage() + ")");
+        }
+        File rejected = new File(file.getPath() + ".bad");
+        if (!file.renameTo(rejected)) {
+            System.err.println("送信待ちのファイルを退避できませんでした: " + file);
+        }
+        return null;
+    }
+
+    /**
+     * 送信を停止します。送り残したセッションは送信待ちフォルダに残り、次回起動時に送ります。
+     */
+    @Override
+    public void close() {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        executor.shutdown();
+        try {
+            if (!executor.awaitTermination(Constants.SHIPPER_TIMEOUT_MS, TimeUnit.MILLISECONDS)) {
+                executor.shutdownNow();
+            }
+        } catch (InterruptedException e) {
+            executor.shutdownNow();
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * フォルダへ直接書く送信先
+     */
+    private static class DirectorySink implements Sink {
+        private final SessionCollector collector;
+
+        DirectorySink(File directory) {
+            this.collector = new SessionCollector(directory);
+        }
+
+        @Override
+        public Set<String> send(List<Shipment> shipments) throws IOException {
+            Set<String> accepted = new HashSet<>();
+            for (Shipment shipment : shipments) {
+                collector.store(shipment);
+                accepted.add(shipment.key);
+            }
+            return accepted;
+        }
+    }
+
+    /**
+     * HTTPの集約先へ送る送信先
+     */
+    private static class HttpSink implements Sink {
+        private final URI uri;
+        private final HttpClient client;
+
+        HttpSink(String target) {
+            this.uri = URI.create(target);
+            this.client = HttpClient.newBuilder()
+                .connectTimeout(Duration.ofMillis(Constants.SHIPPER_TIMEOUT_MS))
+                .build();
+        }
+
+        @Override
+        public Set<String> send(List<Shipment> shipments) throws IOException, InterruptedException {
+            HttpRequest request = HttpRequest.newBuilder(uri)
+                .timeout(Duration.ofMillis(Constants.SHIPPER_TIMEOUT_MS))
+                .header("Content-Type", "application/json; charset=utf-8")
+                .POST(HttpRequest.BodyPublishers.ofString(gson.toJson(shipments), StandardCharsets.UTF_8))
+                .build();
+            HttpResponse<String> response = client.send(request,
+                HttpResponse.BodyHandlers.ofString(StandardCharsets.UTF_8));
+            if (response.statusCode() != 200) {
+                throw new IOException("集約先の応答: HTTP " + response.statusCode());
+            }
+            Set<String> accepted = new HashSet<>();
+            try {
+                JsonObject body = JsonParser.parseString(response.body()).getAsJsonObject();
+                JsonArray keys = body.getAsJsonArray("accepted");
+                if (keys != null) {
+                    for (JsonElement key : keys) {
+                        accepted.add(key.getAsString());
+                    }
+                }
+            } catch (JsonParseException | IllegalStateException e) {
+                throw new IOException("集約先の応答を解析できません", e);
+            }
+            return accepted;
+        }
+    }
+}
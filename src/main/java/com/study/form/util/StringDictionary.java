@@ -0,0 +1,79 @@
+package com.study.form.util;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 文字列辞書 - 同じ文字列に同じ番号（0から登録順）を割り当てる
+ *
+ * <p>質問文や選択肢のように何度も現れる文字列を番号で表すために使います。
+ * 登録した文字列は削除できないため、番号は一度割り当てると変わりません。</p>
+ */
+public class StringDictionary {
+    /** null を表す番号 */
+    public static final int NULL_ID = -1;
+
+    private final List<String> values = new ArrayList<>();
+    private final Map<String, Integer> ids = new HashMap<>();
+
+    /**
+     * 文字列の番号を返します。未登録の場合は登録して新しい番号を割り当てます。
+     *
+     * @param value 文字列
+     * @return 番号（nullの場合は {@link #NULL_ID}）
+     */
+    public synchronized int intern(String value) {
+        if (value == null) return NULL_ID;
+        Integer id = ids.get(value);
+        if (id == null) {
+            id = values.size();
+            values.add(value);
+            ids.put(value, id);
+        }
+        return id;
+    }
+
+    /**
+     * 登録済みの文字列の番号を返します。
+     *
+     * @param value 文字列
+     * @return 番号。未登録またはnullの場合は {@link #NULL_ID}
+     */
+    public synchronized int find(String value) {
+        if (value == null) return NULL_ID;
+        Integer id = ids.get(value);
+        return id != null ? id : NULL_ID;
+    }
+
+    /**
+     * 番号に対応する文字列を返します。
+     *
+     * @param id 番号
+     * @return 文字列（{@link #NULL_ID} の場合はnull）
+     */
+    public synchronized String get(int id) {
+        return id == NULL_ID ? null : values.get(id);
+    }
+
+    /**
+     * 登録済みの文字列の数を返します。
+     *
+     * @return 件数
+     */
+    public synchronized int size() {
+        return values.size();
+    }
+
+    /**
+     * 指定した番号以降に登録された文字列を返します。ファイルへの差分の書き出しに使います。
+     *
+     * @param fromId 最初の番号
+     * @return 登録順の文字列のリスト
+     */
+    public synchronized List<String> valuesFrom(int fromId) {
+        return Collections.unmodifiableList(new ArrayList<>(values.subList(fromId, values.size())));
+    }
+}
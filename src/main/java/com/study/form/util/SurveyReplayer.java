@@ -0,0 +1,534 @@
+package com.study.form.util;
+
+import com.study.form.Constants;
+import com.study.form.model.Config;
+import com.study.form.model.Question;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * アンケートの再生 - 画面なしで多数のセッションを同時に実行し、保存処理の負荷と所要時間を測る
+ *
+ * <p>各セッションは {@link SurveySession} を通して実際の {@link ActionLogger}・{@link ResponseJournal}・
+ * {@link FileUtils} に書き込みます。出力先は出力ディレクトリの下の {@code logs/}・{@code responses/}・
+ * {@code journal/}・{@code store/} です。</p>
+ * <p>操作の手順は次のどちらかです。</p>
+ * <ul>
+ *   <li>ランダム生成: 乱数の種とセッション番号から決まる手順（選び直し・書き直し・前へを一定の割合で含む）</li>
+ *   <li>アクションログの再生: 記録されたアクションログ（CSV・JSON Lines）の操作を順に実行。
+ *       ログの理由は先頭 {@value Constants#LOG_TEXT_PREVIEW_LENGTH} 文字までのため、長い理由は短くなります。</li>
+ * </ul>
+ */
+public class SurveyReplayer {
+    private static final Pattern QUESTION_DETAILS = Pattern.compile("^問題(\\d+)(?:: (.*))?$", Pattern.DOTALL);
+    private static final Pattern MOVE_DETAILS = Pattern.compile("^問題(\\d+) → 問題(\\d+)$");
+
+    // ランダム生成の各操作の割合
+    private static final double RESELECT_RATE = 0.2;
+    private static final double REWRITE_RATE = 0.1;
+    private static final double PREV_RATE = 0.05;
+
+    /** セッションの開始（ログ・ジャーナルの作成）の所要時間の集計名 */
+    public static final String OPERATION_OPEN = "セッション開始";
+    /** 回答の保存の所要時間の集計名 */
+    public static final String OPERATION_SAVE = "回答保存";
+    /** セッション全体の所要時間の集計名 */
+    public static final String OPERATION_SESSION = "セッション全体";
+    /** 完了セッションを送信待ちにする所要時間の集計名 */
+    public static final String OPERATION_ENQUEUE = "送信待ち登録";
+
+    private final String questionsPath;
+    private final List<Question> questions;
+    private final Config config;
+    private final File outputDirectory;
+    private StationShipper shipper;
+
+    /**
+     * 1回の操作（アクションログの1イベントに対応）
+     */
+    static final class Step {
+        final String action;
+        final String argument;
+
+        Step(String action, String argument) {
+            this.action = action;
+            this.argument = argument;
+        }
+    }
+
+    /**
+     * セッションの操作の手順
+     */
+    interface Script {
+        /**
+         * 次の操作を返します。
+         *
+         * @param session 操作するセッション（現在の問題の選択肢を選ぶために使う）
+         * @return 操作（終わりの場合はnull）
+         */
+        Step next(SurveySession session);
+    }
+
+    /**
+     * 操作の種類ごとの所要時間の分布
+     */
+    public static final class Latency {
+        private final long[] sortedNanos;
+
+        Latency(long[] sortedNanos) {
+            this.sortedNanos = sortedNanos;
+        }
+
+        public int getCount() {
+            return sortedNanos.length;
+        }
+
+        /**
+         * パーセンタイル値を返します（最近傍法）。
+         *
+         * @param percentile 0〜100
+         * @return 所要時間（ナノ秒）
+         */
+        public long percentileNanos(double percentile) {
+            if (sortedNanos.length == 0) return 0;
+            int rank = (int) Math.ceil(percentile / 100.0 * sortedNanos.length);
+            return sortedNanos[Math.max(0, Math.min(sortedNanos.length - 1, rank - 1))];
+        }
+
+        public long maxNanos() {
+            return sortedNanos.length == 0 ? 0 : sortedNanos[sortedNanos.length - 1];
+        }
+    }
+
+    /**
+     * 再生の結果
+     */
+    public static final class Result {
+        private final int sessions;
+        private final int completedSessions;
+        private final int failedSessions;
+        private final long responses;
+        private final long operations;
+        private final long rejectedOperations;
+        private final long elapsedNanos;
+        private final Map<String, Latency> latencies;
+
+        private Result(int sessions, int completedSessions, int failedSessions, long responses, long operations,
+                       long rejectedOperations, long elapsedNanos, Map<String, Latency> latencies) {
+            this.sessions = sessions;
+            this.completedSessions = completedSessions;
+            this.failedSessions = failedSessions;
+            this.responses = responses;
+            this.operations = operations;
+            this.rejectedOperations = rejectedOperations;
+            this.elapsedNanos = elapsedNanos;
+            this.latencies = latencies;
+        }
+
+        public int getSessions() {
+            return sessions;
+        }
+
+        /**
+         * 送信して回答を保存できたセッション数を返します。
+         *
+         * @return セッション数
+         */
+        public int getCompletedSessions() {
+            return completedSessions;
+        }
+
+        /**
+         * 例外または保存の失敗で終わったセッション数を返します。
+         *
+         * @return セッション数
+         */
+        public int getFailedSessions() {
+            return failedSessions;
+        }
+
+        /**
+         * 保存した回答の件数を返します。
+         *
+         * @return 回答数
+         */
+        public long getResponses() {
+            return responses;
+        }
+
+        public long getOperations() {
+            return operations;
+        }
+
+        /**
+         * 受け付けられなかった操作（理由を書き始めた後の選び直しなど）の件数を返します。
+         *
+         * @return 件数
+         */
+        public long getRejectedOperations() {
+            return rejectedOperations;
+        }
+
+        public long getElapsedNanos() {
+            return elapsedNanos;
+        }
+
+        /**
+         * 操作の種類（アクション種別、{@link SurveyReplayer#OPERATION_OPEN}、{@link SurveyReplayer#OPERATION_SAVE}、
+         * {@link SurveyReplayer#OPERATION_SESSION}）ごとの所要時間の分布を返します。
+         *
+         * @return 操作の種類から分布へのマップ（実行した順）
+         */
+        public Map<String, Latency> getLatencies() {
+            return latencies;
+        }
+
+        /**
+         * 1秒あたりの件数を返します。
+         *
+         * @param count 件数
+         * @return 1秒あたりの件数
+         */
+        public double perSecond(long count) {
+            return elapsedNanos > 0 ? count * 1_000_000_000.0 / elapsedNanos : 0;
+        }
+    }
+
+    /**
+     * 1セッション分の結果
+     */
+    private static final class SessionOutcome {
+        final Map<String, List<Long>> latencies = new LinkedHashMap<>();
+        boolean completed;
+        boolean failed;
+        long responses;
+        long operations;
+        long rejected;
+
+        void record(String operation, long nanos) {
+            latencies.computeIfAbsent(operation, o -> new ArrayList<>()).add(nanos);
+        }
+    }
+
+    /**
+     * @param questionsPath 問題ファイルのパス（全セッションで同じ問題を使います）
+     * @param config ログの書き込みモード・出力形式・自動保存などの設定
+     * @param outputDirectory 出力先のディレクトリ
+     * @throws IOException 問題を読み込めない場合、または選択肢のない問題がある場合
+     */
+    public SurveyReplayer(String questionsPath, Config config, File outputDirectory) throws IOException {
+        List<Question> loaded = FileUtils.loadQuestions(questionsPath);
+        if (loaded.isEmpty()) {
+            throw new IOException("問題を読み込めませんでした: " + questionsPath);
+        }
+        for (int i = 0; i < loaded.size(); i++) {
+            if (loaded.get(i).getChoices().isEmpty()) {
+                throw new IOException("問題" + (i + 1) + "に選択肢がないため再生できません");
+            }
+        }
+        this.questionsPath = new File(questionsPath).getAbsolutePath();
+        this.questions = Collections.unmodifiableList(loaded);
+        this.config = config;
+        this.outputDirectory = outputDirectory;
+    }
+
+    /**
+     * 完了したセッションを集約先へ送る送信を設定します（複数台運用の負荷を測る場合）。
+     *
+     * @param shipper 送信（送らない場合はnull）
+     */
+    public void setShipper(StationShipper shipper) {
+        this.shipper = shipper;
+    }
+
+    /**
+     * ランダムに生成した手順のセッションを同時に実行します。
+     *
+     * @param sessions セッション数
+     * @param threads 同時に実行するセッション数
+     * @param seed 乱数の種（同じ値なら同じ手順になります）
+     * @param thinkMillis 操作の間の待ち時間（ミリ秒、0の場合は待たない）
+     * @return 結果
+     * @throws InterruptedException 待機中に割り込まれた場合
+     */
+    public Result replayRandom(int sessions, int threads, long seed, long thinkMillis) throws InterruptedException {
+        List<Script> scripts = new ArrayList<>(sessions);
+        for (int i = 0; i < sessions; i++) {
+            scripts.add(new RandomScript(new Random(seed + i)));
+        }
+        return replay(scripts, threads, thinkMillis);
+    }
+
+    /**
+     * 記録されたアクションログの操作を再生するセッションを同時に実行します。
+     * セッション数がログの数より多い場合はログを繰り返し使います。
+     *
+     * @param logFiles アクションログ（CSVまたはJSON Lines）
+     * @param sessions セッション数
+     * @param threads 同時に実行するセッション数
+     * @param thinkMillis 操作の間の待ち時間（ミリ秒、0の場合は待たない）
+     * @return 結果
+     * @throws IOException アクションログの読み込みに失敗した場合
+     * @throws InterruptedException 待機中に割り込まれた場合
+     */
+    public Result replayLogs(List<File> logFiles, int sessions, int threads, long thinkMillis)
+            throws IOException, InterruptedException {
+        if (logFiles.isEmpty()) {
+            throw new IOException("再生するアクションログがありません");
+        }
+        List<List<Step>> recorded = new ArrayList<>(logFiles.size());
+        for (File file : logFiles) {
+            recorded.add(readSteps(file));
+        }
+        List<Script> scripts = new ArrayList<>(sessions);
+        for (int i = 0; i < sessions; i++) {
+            List<Step> steps = recorded.get(i % recorded.size());
+            scripts.add(new Script() {
+                private int position = 0;
+
+                @Override
+                public Step next(SurveySession session) {
+                    return position < steps.size() ? steps.get(position++) : null;
+                }
+            });
+        }
+        return replay(scripts, threads, thinkMillis);
+    }
+
+    private Result replay(List<Script> scripts, int threads, long thinkMillis) throws InterruptedException {
+        ExecutorService pool = Executors.newFixedThreadPool(Math.max(1, threads));
+        List<Future<SessionOutcome>> futures = new ArrayList<>(scripts.size());
+        long start = System.nanoTime();
+        try {
+            for (int i = 0; i < scripts.size(); i++) {
+                String respondentId = String.format("replay%06d", i);
+                Script script = scripts.get(i);
+                futures.add(pool.submit(() -> runSession(respondentId, script, thinkMillis)));
+            }
+
+            Map<String, List<Long>> samples = new LinkedHashMap<>();
+            int completed = 0;
+            int failed = 0;
+            long responses = 0;
+            long operations = 0;
+            long rejected = 0;
+            for (Future<SessionOutcome> future : futures) {
+                SessionOutcome outcome;
+                try {
+                    outcome = future.get();
+                } catch (ExecutionException e) {
+                    System.err.println("再生セッションが異常終了しました: " + e.getCause());
+                    e.getCause().printStackTrace();
+                    failed++;
+                    continue;
+                }
+                if (outcome.completed) completed++;
+                if (outcome.failed) failed++;
+                responses += outcome.responses;
+                operations += outcome.operations;
+                rejected += outcome.rejected;
+                outcome.latencies.forEach((operation, nanos) ->
+                    samples.computeIfAbsent(operation, o -> new ArrayList<>()).addAll(nanos));
+            }
+            long elapsed = System.nanoTime() - start;
+
+            Map<String, Latency> latencies = new LinkedHashMap<>();
+            samples.forEach((operation, nanos) -> {
+                long[] sorted = new long[nanos.size()];
+                for (int i = 0; i < sorted.length; i++) sorted[i] = nanos.get(i);
+                Arrays.sort(sorted);
+                latencies.put(operation, new Latency(sorted));
+            });
+            return new Result(scripts.size(), completed, failed, responses, operations, rejected, elapsed, latencies);
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    private SessionOutcome runSession(String respondentId, Script script, long thinkMillis)
+            throws InterruptedException {
+        SessionOutcome outcome = new SessionOutcome();
+        long sessionStart = System.nanoTime();
+
+        String logPath = new File(new File(outputDirectory, "logs"), "action_log_" + respondentId
+            + (Constants.LOG_OUTPUT_FORMAT_NDJSON.equals(config.getLogOutputFormat())
+                ? Constants.JSON_LINES_EXTENSION : ".csv")).getPath();
+        String responsePath = new File(new File(outputDirectory, "responses"),
+            "responses_" + respondentId + ".csv").getPath();
+
+        long t = System.nanoTime();
+        SessionClock clock = SessionClock.start();
+        ActionLogger logger = new ActionLogger(logPath, config, clock);
+        ResponseJournal journal = null;
+        if (config.isAutoSave()) {
+            try {
+                journal = ResponseJournal.begin(new File(outputDirectory, "journal").getPath(), respondentId,
+                    questionsPath, logPath, config);
+            } catch (IOException e) {
+                System.err.println("再生セッションのジャーナルを作成できませんでした: " + e.getMessage());
+            }
+        }
+        SurveySession session = new SurveySession(new ListQuestionSource(questions), respondentId,
+            logger, clock, journal);
+        outcome.record(OPERATION_OPEN, System.nanoTime() - t);
+
+        try {
+            Step step;
+            while ((step = script.next(session)) != null) {
+                if (thinkMillis > 0) {
+                    Thread.sleep(thinkMillis);
+                }
+                t = System.nanoTime();
+                boolean accepted = perform(session, step);
+                outcome.record(step.action, System.nanoTime() - t);
+                outcome.operations++;
+                if (!accepted) {
+                    outcome.rejected++;
+                }
+                if (Constants.LOG_ACTION_SUBMIT.equals(step.action)) {
+                    t = System.nanoTime();
+                    boolean saved = session.save(responsePath, config,
+                        new File(outputDirectory, "store").getPath());
+                    outcome.record(OPERATION_SAVE, System.nanoTime() - t);
+                    if (saved) {
+                        outcome.completed = true;
+                        outcome.responses = session.getResponses().size();
+                    } else {
+                        outcome.failed = true;
+                    }
+                    break;
+                }
+            }
+        } finally {
+            session.close();
+            logger.close();
+        }
+        if (shipper != null && session.isSaved()) {
+            t = System.nanoTime();
+            try {
+                shipper.enqueue(respondentId, session.getResponses(), logger.getLogFile());
+            } catch (IOException e) {
+                System.err.println("完了セッションを送信待ちにできませんでした: " + e.getMessage());
+            }
+            outcome.record(OPERATION_ENQUEUE, System.nanoTime() - t);
+        }
+        outcome.record(OPERATION_SESSION, System.nanoTime() - sessionStart);
+        return outcome;
+    }
+
+    private static boolean perform(SurveySession session, Step step) {
+        switch (step.action) {
+            case Constants.LOG_ACTION_CHOICE_SELECTION:
+                return session.selectChoice(step.argument) == SurveySession.Outcome.ACCEPTED;
+            case Constants.LOG_ACTION_REASON_START:
+                return session.startReason();
+            case Constants.LOG_ACTION_REASON_REWRITE:
+                session.rewriteReason();
+                return true;
+            case Constants.LOG_ACTION_REASON_TEXT:
+                return session.next(step.argument) == SurveySession.Outcome.ACCEPTED;
+            case Constants.LOG_ACTION_QUESTION_MOVE:
+                return session.prev();
+            case Constants.LOG_ACTION_SUBMIT:
+                session.submit();
+                return true;
+            default:
+                return false;
+        }
+    }
+
+    /**
+     * アクションログを再生する操作の列に変換します。「次へ」で記録される問題移動は
+     * 理由入力内容の再生で記録されるため、前の問題への移動だけを操作にします。
+     *
+     * @param file アクションログ
+     * @return 操作の列
+     * @throws IOException 読み込みに失敗した場合
+     */
+    static List<Step> readSteps(File file) throws IOException {
+        List<Step> steps = new ArrayList<>();
+        ResponseAggregator.readActions(file, 0, (actionType, details) -> {
+            if (Constants.LOG_ACTION_QUESTION_MOVE.equals(actionType)) {
+                Matcher move = MOVE_DETAILS.matcher(details);
+                if (move.matches() && Integer.parseInt(move.group(2)) < Integer.parseInt(move.group(1))) {
+                    steps.add(new Step(actionType, null));
+                }
+                return;
+            }
+            Matcher matcher = QUESTION_DETAILS.matcher(details);
+            steps.add(new Step(actionType, matcher.matches() ? matcher.group(2) : details));
+        });
+        return steps;
+    }
+
+    /**
+     * ランダムな手順 - 問題ごとに選択・（選び直し）・理由入力・（書き直し）・次へを行い、
+     * ときどき前の問題に戻る
+     */
+    private static final class RandomScript implements Script {
+        private final Random random;
+        private final List<Step> pending = new ArrayList<>();
+        private final Map<Integer, Integer> visits = new HashMap<>();
+        private boolean submitted = false;
+
+        RandomScript(Random random) {
+            this.random = random;
+        }
+
+        @Override
+        public Step next(SurveySession session) {
+            if (pending.isEmpty()) {
+                if (submitted) {
+                    return null;
+                }
+                if (session.isFinished()) {
+                    submitted = true;
+                    return new Step(Constants.LOG_ACTION_SUBMIT, null);
+                }
+                planQuestion(session);
+            }
+            return pending.remove(0);
+        }
+
+        private void planQuestion(SurveySession session) {
+            int index = session.getCurrentQuestionIndex();
+            // 同じ問題に何度も戻らないよう、前へは各問題で1回まで
+            if (session.canGoBack() && visits.merge(index, 1, Integer::sum) == 1 && random.nextDouble() < PREV_RATE) {
+                pending.add(new Step(Constants.LOG_ACTION_QUESTION_MOVE, null));
+                return;
+            }
+            List<String> choices = session.getCurrentQuestion().getChoices();
+            String reason = "理由" + (index + 1) + "-" + Integer.toHexString(random.nextInt());
+            pending.add(new Step(Constants.LOG_ACTION_CHOICE_SELECTION, pick(choices)));
+            if (random.nextDouble() < RESELECT_RATE) {
+                pending.add(new Step(Constants.LOG_ACTION_CHOICE_SELECTION, pick(choices)));
+            }
+            pending.add(new Step(Constants.LOG_ACTION_REASON_START, null));
+            if (random.nextDouble() < REWRITE_RATE) {
+                pending.add(new Step(Constants.LOG_ACTION_REASON_REWRITE, null));
+                pending.add(new Step(Constants.LOG_ACTION_CHOICE_SELECTION, pick(choices)));
+                pending.add(new Step(Constants.LOG_ACTION_REASON_START, null));
+            }
+            pending.add(new Step(Constants.LOG_ACTION_REASON_TEXT, reason));
+        }
+
+        private String pick(List<String> choices) {
+            return choices.get(random.nextInt(choices.size()));
+        }
+    }
+}
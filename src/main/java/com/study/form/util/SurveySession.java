@@ -0,0 +1,363 @@
+package com.study.form.util;
+
+import com.study.form.Constants;
+import com.study.form.model.Config;
+import com.study.form.model.Question;
+import com.study.form.model.Response;
+import com.study.form.model.SurveyDictionary;
+
+import java.io.Closeable;
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * アンケートのセッション - 画面に依存しない回答の状態遷移
+ *
+ * <p>選択肢の選択・理由の入力開始・理由の書き直し・次へ・前へ・送信の各操作を受け付け、
+ * アクションログとジャーナルに記録します。{@code SurveyInterfaceWindow} は画面の操作をこのクラスに渡して
+ * 結果に応じて表示を更新し、画面なしの再生（{@link SurveyReplayer}）も同じ操作を呼び出します。</p>
+ * <p>1つのセッションは1つのスレッドから操作してください。</p>
+ * <p>操作の回数と実行中のセッション数は {@link Metrics} に記録します。</p>
+ */
+public class SurveySession implements Closeable {
+    private static final Metrics.Counter STARTED = Metrics.registry().counter(
+        "form_survey_sessions_started_total", "開始（再開を含む）したセッション数");
+    private static final Metrics.Counter COMPLETED = Metrics.registry().counter(
+        "form_survey_sessions_completed_total", "回答を保存したセッション数");
+    private static final Metrics.Gauge ACTIVE = Metrics.registry().gauge(
+        "form_survey_sessions_active", "回答中のセッション数");
+    private static final Metrics.Timer DURATION = Metrics.registry().timer(
+        "form_survey_session_seconds", "セッションの開始から保存までの時間");
+    private static final Metrics.Counter CHOICES = Metrics.registry().counter(
+        "form_survey_choices_total", "選択肢を選んだ回数");
+    private static final Metrics.Counter CHANGES_REJECTED = Metrics.registry().counter(
+        "form_survey_choice_changes_rejected_total", "理由を書き始めた後に選択肢を変えようとした回数");
+    private static final Metrics.Counter REWRITES = Metrics.registry().counter(
+        "form_survey_reason_rewrites_total", "理由を書き直した回数");
+    private static final Metrics.Counter ANSWERED = Metrics.registry().counter(
+        "form_survey_questions_answered_total", "回答を確定した問題数");
+    private static final Metrics.Counter BACK = Metrics.registry().counter(
+        "form_survey_questions_back_total", "前の問題に戻った回数");
+
+    /**
+     * 操作の結果
+     */
+    public enum Outcome {
+        /** 受け付けた */
+        ACCEPTED,
+        /** 理由を書き始めた後なので選択肢を変更できない */
+        CHANGE_DISABLED,
+        /** 選択肢が選ばれていない */
+        NO_CHOICE,
+        /** 理由が入力されていない */
+        NO_REASON
+    }
+
+    private final QuestionSource questions;
+    private final String respondentId;
+    private final ActionLogger logger;
+    private final SessionClock clock;
+    private final SurveyDictionary dictionary = new SurveyDictionary();
+    private final List<Response> responses = new ArrayList<>();
+    private ResponseJournal journal;
+    private int currentQuestionIndex = 0;
+    private boolean saved = false;
+    private boolean active = true;
+
+    private String selectedChoice = null;
+    private boolean reasonStarted = false;
+
+    /**
+     * 新しいセッションを作成します。
+     *
+     * @param questions 問題
+     * @param respondentId 回答者ID
+     * @param logger アクションログ
+     * @param clock 反応時間の基準となるセッションクロック
+     * @param journal 回答のジャーナル（自動保存しない場合はnull）
+     */
+    public SurveySession(QuestionSource questions, String respondentId, ActionLogger logger,
+                         SessionClock clock, ResponseJournal journal) {
+        this(questions, respondentId, logger, clock, journal, Collections.emptyList());
+    }
+
+    /**
+     * 中断したセッションを回答済みの問題の次から再開します。
+     *
+     * @param questions 問題
+     * @param respondentId 回答者ID
+     * @param logger アクションログ
+     * @param clock 反応時間の基準となるセッションクロック
+     * @param journal 回答のジャーナル（自動保存しない場合はnull）
+     * @param answered ジャーナルから復元した回答
+     */
+    public SurveySession(QuestionSource questions, String respondentId, ActionLogger logger,
+                         SessionClock clock, ResponseJournal journal, List<Response> answered) {
+        this.questions = questions;
+        this.respondentId = respondentId;
+        this.logger = logger;
+        this.clock = clock;
+        this.journal = journal;
+        responses.addAll(answered);
+        currentQuestionIndex = Math.min(responses.size(), questions.size());
+        STARTED.increment();
+        ACTIVE.increment();
+    }
+
+    public String getRespondentId() {
+        return respondentId;
+    }
+
+    public int getQuestionCount() {
+        return questions.size();
+    }
+
+    /**
+     * 回答中の問題の位置（0始まり）を返します。
+     *
+     * @return 問題の位置
+     */
+    public int getCurrentQuestionIndex() {
+        return currentQuestionIndex;
+    }
+
+    /**
+     * 回答中の問題を返します。
+     *
+     * @return 問題（全問回答済みの場合はnull）
+     */
+    public Question getCurrentQuestion() {
+        return isFinished() ? null : questions.get(currentQuestionIndex);
+    }
+
+    /**
+     * すべての問題に回答したかどうかを返します。
+     *
+     * @return 回答済みの場合はtrue
+     */
+    public boolean isFinished() {
+        return currentQuestionIndex >= questions.size();
+    }
+
+    public boolean isLastQuestion() {
+        return currentQuestionIndex == questions.size() - 1;
+    }
+
+    public boolean canGoBack() {
+        return currentQuestionIndex > 0;
+    }
+
+    public String getSelectedChoice() {
+        return selectedChoice;
+    }
+
+    public boolean isReasonStarted() {
+        return reasonStarted;
+    }
+
+    /**
+     * 回答を保存したかどうかを返します。
+     *
+     * @return 保存した場合はtrue
+     */
+    public boolean isSaved() {
+        return saved;
+    }
+
+    /**
+     * 確定した回答を返します。
+     *
+     * @return 回答のリスト（変更不可）
+     */
+    public List<Response> getResponses() {
+        return Collections.unmodifiableList(responses);
+    }
+
+    /**
+     * 選択肢を選びます。理由を書き始めた後は変更できません。
+     *
+     * @param choice 選択肢
+     * @return 結果（{@link Outcome#ACCEPTED} または {@link Outcome#CHANGE_DISABLED}）
+     */
+    public Outcome selectChoice(String choice) {
+        if (reasonStarted) {
+            CHANGES_REJECTED.increment();
+            return Outcome.CHANGE_DISABLED;
+        }
+        CHOICES.increment();
+        selectedChoice = choice;
+        logger.logChoiceSelection(currentQuestionIndex + 1, choice);
+        return Outcome.ACCEPTED;
+    }
+
+    /**
+     * 理由の入力が始まったことを記録します。書き直すまでは最初の1回だけ記録します。
+     *
+     * @return 今回入力が始まった場合はtrue
+     */
+    public boolean startReason() {
+        if (reasonStarted) {
+            return false;
+        }
+        reasonStarted = true;
+        logger.logReasonStart(currentQuestionIndex + 1);
+        return true;
+    }
+
+    /**
+     * 理由を書き直します。選択肢を再び変更できるようになります。
+     */
+    public void rewriteReason() {
+        logger.logRewriteReason(currentQuestionIndex + 1);
+        REWRITES.increment();
+        reasonStarted = false;
+    }
+
+    /**
+     * 回答を確定して次の問題に進みます。最後の問題では {@link #isFinished()} がtrueになります。
+     *
+     * @param reason 入力された理由
+     * @return 結果（{@link Outcome#ACCEPTED}、{@link Outcome#NO_CHOICE} または {@link Outcome#NO_REASON}）
+     */
+    public Outcome next(String reason) {
+        if (selectedChoice == null) {
+            return Outcome.NO_CHOICE;
+        }
+        String trimmed = reason != null ? reason.trim() : "";
+        if (trimmed.isEmpty()) {
+            return Outcome.NO_REASON;
+        }
+
+        // ログに理由の内容を記録
+        logger.logReasonText(currentQuestionIndex + 1, trimmed);
+
+        Response response = new Response(
+            dictionary,
+            respondentId,
+            FileUtils.getTimestamp(),
+            clock.elapsedNanos(),
+            currentQuestionIndex + 1,
+            questions.get(currentQuestionIndex).getText(),
+            selectedChoice,
+            trimmed
+        );
+        responses.add(response);
+        if (journal != null) {
+            journal.appendResponse(response);
+        }
+        ANSWERED.increment();
+
+        int oldIndex = currentQuestionIndex;
+        currentQuestionIndex++;
+        if (currentQuestionIndex < questions.size()) {
+            logger.logNextQuestion(oldIndex + 1, currentQuestionIndex + 1);
+        }
+        resetQuestionState();
+        return Outcome.ACCEPTED;
+    }
+
+    /**
+     * 前の問題に戻り、その問題の回答を取り消します。
+     *
+     * @return 戻った場合はtrue（最初の問題では戻れない）
+     */
+    public boolean prev() {
+        if (currentQuestionIndex <= 0) {
+            return false;
+        }
+        int oldIndex = currentQuestionIndex;
+        currentQuestionIndex--;
+
+        logger.logNextQuestion(oldIndex + 1, currentQuestionIndex + 1);
+        BACK.increment();
+
+        // 前の回答があれば削除
+        if (!responses.isEmpty()) {
+            Response removed = responses.remove(responses.size() - 1);
+            if (journal != null) {
+                journal.appendRemoval(removed.getQuestionNum());
+            }
+        }
+        resetQuestionState();
+        return true;
+    }
+
+    private void resetQuestionState() {
+        selectedChoice = null;
+        reasonStarted = false;
+    }
+
+    /**
+     * アンケートの送信を記録します。
+     */
+    public void submit() {
+        logger.logSubmit();
+    }
+
+    /**
+     * 回答を設定の出力形式で保存し、回答ストアへの追記とジャーナルの完了処理を行います。
+     *
+     * @param filepath 回答ファイルのパス（拡張子は出力形式に合わせて付け替えます）
+     * @param config 出力形式・レイアウト・回答ストアの設定
+     * @return 保存に成功した場合はtrue
+     */
+    public boolean save(String filepath, Config config) {
+        return save(filepath, config, Constants.RESPONSE_STORE_DIR);
+    }
+
+    /**
+     * 回答を保存し、指定したディレクトリの回答ストアに追記します。
+     *
+     * @param filepath 回答ファイルのパス（拡張子は出力形式に合わせて付け替えます）
+     * @param config 出力形式・レイアウト・回答ストアの設定
+     * @param storeDirectory 回答ストアのディレクトリ
+     * @return 保存に成功した場合はtrue
+     */
+    public boolean save(String filepath, Config config, String storeDirectory) {
+        File responseDir = new File(filepath).getParentFile();
+        if (responseDir != null && !responseDir.exists()) {
+            responseDir.mkdirs();
+        }
+
+        if (!FileUtils.saveResponse(responses, FileUtils.responseBasePath(filepath), config)) {
+            return false;
+        }
+
+        // 全セッション横断の集計用に列指向ストアにも追記（他の端末のロックを待つことがあるため作業スレッドで）
+        if (config.isResponseStoreEnabled()) {
+            ResponseStore.appendSessionAsync(storeDirectory, responses);
+        }
+
+        // 保存が完了したのでジャーナルは不要
+        if (journal != null) {
+            journal.commit(filepath);
+            journal = null;
+        }
+        saved = true;
+        COMPLETED.increment();
+        DURATION.record(clock.elapsedNanos());
+        deactivate();
+        return true;
+    }
+
+    /**
+     * 保存せずに終了する場合はジャーナルを閉じます（ジャーナルは次回起動時の再開用に残ります）。
+     */
+    @Override
+    public void close() {
+        if (journal != null) {
+            journal.close();
+            journal = null;
+        }
+        deactivate();
+    }
+
+    private void deactivate() {
+        if (active) {
+            active = false;
+            ACTIVE.decrement();
+        }
+    }
+}
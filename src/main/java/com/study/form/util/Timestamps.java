@@ -0,0 +1,89 @@
+package com.study.form.util;
+
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+
+/**
+ * タイムスタンプ文字列（yyyy-MM-dd HH:mm:ss.SSS）の生成
+ *
+ * <p>直前に生成した文字列をキャッシュし、同じミリ秒であればそのまま返し、
+ * 同じ秒であれば秒までの部分を再利用してミリ秒の3桁だけを付け替えます。
+ * {@link DateTimeFormatter} による整形は秒が変わったときだけ行われます。</p>
+ */
+public final class Timestamps {
+    private static final DateTimeFormatter TIMESTAMP_FORMAT =
+        DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss.SSS");
+    private static final int MILLIS_DIGITS = 3;
+
+    private static final class Entry {
+        final long epochMillis;
+        final String text;
+
+        Entry(long epochMillis, String text) {
+            this.epochMillis = epochMillis;
+            this.text = text;
+        }
+    }
+
+    private static volatile Entry last;
+
+    private Timestamps() {
+    }
+
+    /**
+     * 現在時刻のタイムスタンプ文字列を返します。
+     *
+     * @return タイムスタンプ文字列
+     */
+    public static String now() {
+        return format(System.currentTimeMillis());
+    }
+
+    /**
+     * エポックミリ秒をタイムスタンプ文字列に変換します。
+     *
+     * @param epochMillis エポックミリ秒
+     * @return タイムスタンプ文字列
+     */
+    public static String format(long epochMillis) {
+        Entry cached = last;
+        if (cached != null) {
+            if (cached.epochMillis == epochMillis) {
+                return cached.text;
+            }
+            if (Math.floorDiv(cached.epochMillis, 1000) == Math.floorDiv(epochMillis, 1000)) {
+                String text = withMillis(cached.text, Math.floorMod(epochMillis, 1000));
+                last = new Entry(epochMillis, text);
+                return text;
+            }
+        }
+        String text = LocalDateTime.ofInstant(Instant.ofEpochMilli(epochMillis), ZoneId.systemDefault())
+            .format(TIMESTAMP_FORMAT);
+        last = new Entry(epochMillis, text);
+        return text;
+    }
+
+    /**
+     * タイムスタンプ文字列をエポックミリ秒に変換します。
+     *
+     * @param text タイムスタンプ文字列（yyyy-MM-dd HH:mm:ss.SSS）
+     * @return エポックミリ秒
+     * @throws java.time.format.DateTimeParseException 形式が異なる場合
+     */
+    public static long parse(String text) {
+        return LocalDateTime.parse(text, TIMESTAMP_FORMAT)
+            .atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+    }
+
+    private static String withMillis(String text, int millis) {
+        int prefixLength = text.length() - MILLIS_DIGITS;
+        char[] chars = new char[text.length()];
+        text.getChars(0, prefixLength, chars, 0);
+        chars[prefixLength] = (char) ('0' + millis / 100);
+        chars[prefixLength + 1] = (char) ('0' + millis / 10 % 10);
+        chars[prefixLength + 2] = (char) ('0' + millis % 10);
+        return new String(chars);
+    }
+}
@@ -0,0 +1,61 @@
+package com.study.form.util;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+/**
+ * 可変長整数（LEB128形式）の読み書きユーティリティ
+ *
+ * <p>非負整数を7ビットずつ下位から出力し、続きがある場合は最上位ビットを立てます。
+ * 127以下の値は1バイト、16383以下の値は2バイトで表現されます。</p>
+ */
+public final class VarInt {
+
+    private VarInt() {
+    }
+
+    /**
+     * 非負整数を可変長形式で書き込みます。
+     *
+     * @param out 出力先
+     * @param value 書き込む値（0以上）
+     * @throws IOException 書き込みに失敗した場合
+     */
+    public static void write(OutputStream out, long value) throws IOException {
+        if (value < 0) {
+            throw new IllegalArgumentException("負の値は書き込めません: " + value);
+        }
+        while ((value & ~0x7FL) != 0) {
+            out.write((int) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        out.write((int) value);
+    }
+
+    /**
+     * 可変長形式の非負整数を読み込みます。
+     *
+     * @param in 入力元
+     * @return 読み込んだ値
+     * @throws EOFException 値の途中でストリームが終わった場合
+     * @throws IOException 読み込みに失敗した場合
+     */
+    public static long read(InputStream in) throws IOException {
+        long result = 0;
+        int shift = 0;
+        while (shift < 64) {
+            int b = in.read();
+            if (b < 0) {
+                throw new EOFException("可変長整数の途中でファイルが終了しました");
+            }
+            result |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return result;
+            }
+            shift += 7;
+        }
+        throw new IOException("可変長整数が長すぎます");
+    }
+}